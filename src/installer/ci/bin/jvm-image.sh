@@ -0,0 +1,92 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Builds the JVM distribution image with a trained class-sharing archive:
+#   <out>/runtime   jlink'd runtime (with its own base CDS archive)
+#   <out>/lib       paint.jar + paint.jsa (AppCDS, dynamic) + paint.aot (AOT cache, JDK 25+)
+#   <out>/paint     launcher that picks up the archive automatically
+# The archive is dumped by the bundled runtime itself (CDS archives are only valid for the exact
+# JVM build and runtime image that wrote them) while TrainingSession drives the UI under Xvfb.
+# The installed location may differ: only the relative layout of runtime/ and lib/ must be kept.
+# Usage: ./jvm-image.sh <shaded-jar> [out-dir]   (invoked by "mvn -Pappcds package")
+# Env: PAINT_TRAINING_ITERATIONS (default 1), PAINT_EXTRA_MODULES, SKIP_STARTUP_REPORT=1, RUNS
+
+JAR=${1:?Usage: $0 <shaded-jar> [out-dir]}
+OUT=${2:-target/jvm-image}
+ITER=${PAINT_TRAINING_ITERATIONS:-1}
+HERE=$(cd "$(dirname "$0")" && pwd)
+JAVA_BIN=${JAVA_HOME:+$JAVA_HOME/bin/}
+
+FEATURE=$("${JAVA_BIN}java" -XshowSettings:properties -version 2>&1 \
+  | sed -n 's/^ *java.specification.version = //p')
+FEATURE=${FEATURE:-21}
+
+# Modules actually needed by the app and FlatLaf; fall back to the jpackage list
+MODULES=$("${JAVA_BIN}jdeps" --ignore-missing-deps --multi-release "$FEATURE" --print-module-deps "$JAR" 2>/dev/null \
+  || echo "java.base,java.desktop")
+if [ -n "${PAINT_EXTRA_MODULES:-}" ]; then
+  MODULES="$MODULES,$PAINT_EXTRA_MODULES"
+fi
+
+rm -rf "$OUT"
+mkdir -p "$OUT/lib"
+echo "jlink modules: $MODULES"
+# --generate-cds-archive gives the trimmed runtime a base archive; dynamic archives layer on it
+"${JAVA_BIN}jlink" --add-modules "$MODULES" --output "$OUT/runtime" \
+  --strip-debug --no-man-pages --no-header-files --generate-cds-archive
+cp "$JAR" "$OUT/lib/paint.jar"
+
+cat > "$OUT/paint" <<'LAUNCHER'
+#!/bin/sh
+# Paint launcher: uses the bundled AOT cache (JDK 25+) or AppCDS archive when present.
+# PAINT_CDS=off disables both (for startup comparisons), PAINT_JAVA_OPTS adds JVM options.
+APPDIR=$(dirname "$(readlink -f "$0")")
+SHARE=""
+if [ "${PAINT_CDS:-on}" != "off" ]; then
+  if [ -f "$APPDIR/lib/paint.aot" ]; then
+    SHARE="-XX:AOTCache=$APPDIR/lib/paint.aot"
+  elif [ -f "$APPDIR/lib/paint.jsa" ]; then
+    SHARE="-XX:SharedArchiveFile=$APPDIR/lib/paint.jsa -Xshare:auto"
+  fi
+else
+  SHARE="-Xshare:off"
+fi
+# SIMD pixel kernels when the runtime has the Vector API module
+VECTOR=""
+if grep -q "jdk.incubator.vector" "$APPDIR/runtime/release" 2>/dev/null; then
+  VECTOR="--add-modules jdk.incubator.vector"
+fi
+# shellcheck disable=SC2086
+exec "$APPDIR/runtime/bin/java" $SHARE $VECTOR $PAINT_JAVA_OPTS \
+  -cp "$APPDIR/lib/paint.jar" io.github.ozkanpakdil.paint.Main "$@"
+LAUNCHER
+chmod 0755 "$OUT/paint"
+
+XVFB=()
+if [ -z "${DISPLAY:-}" ]; then
+  XVFB=(xvfb-run -a)
+fi
+APP_JAVA="$OUT/runtime/bin/java"
+VECTOR=()
+if grep -q "jdk.incubator.vector" "$OUT/runtime/release"; then
+  # Train with the same module graph the launcher uses
+  VECTOR=(--add-modules jdk.incubator.vector)
+fi
+TRAIN=("${VECTOR[@]}" -Dpaint.training=true -Dpaint.training.iterations="$ITER" -cp "$OUT/lib/paint.jar" io.github.ozkanpakdil.paint.Main)
+
+echo "Training AppCDS archive..."
+"${XVFB[@]}" "$APP_JAVA" -XX:ArchiveClassesAtExit="$OUT/lib/paint.jsa" "${TRAIN[@]}"
+
+if [ "$FEATURE" -ge 25 ]; then
+  # JEP 483/514: one-step training also records linked classes and method profiles
+  echo "Training AOT cache..."
+  "${XVFB[@]}" "$APP_JAVA" -XX:AOTCacheOutput="$OUT/lib/paint.aot" "${TRAIN[@]}"
+fi
+ls -la "$OUT/lib"
+
+if [ "${SKIP_STARTUP_REPORT:-0}" != "1" ]; then
+  PAINT_CDS=off LABEL="jvm (no class sharing)" OUT="$OUT/../startup-report-jvm-nocds.txt" \
+    "$HERE/startup-report.sh" "$OUT/paint"
+  LABEL="jvm (bundled archive)" OUT="$OUT/../startup-report-jvm-cds.txt" \
+    "$HERE/startup-report.sh" "$OUT/paint"
+fi
@@ -3,16 +3,26 @@ set -xe
 
 # Simple packaging script for Linux: builds DEB and RPM from a GraalVM native binary
 # Usage: ./linux-package.sh [output-dir]
+# PAINT_DIST=jvm packages the JVM image from "mvn -Pappcds package" (target/jvm-image: jlink'd
+# runtime, jar, trained class-sharing archive and launcher) instead of the native binary.
 
 OUTDIR=${1:-.}
 APP_NAME=paint
+DIST=${PAINT_DIST:-native}
+JVM_IMAGE=target/jvm-image
 STAGE=$(mktemp -d /tmp/${APP_NAME}-stage-XXXX)
 
 echo "Staging into $STAGE"
 
 # Locate native binary
 BIN=target/${APP_NAME}
-if [ ! -x "$BIN" ]; then
+if [ "$DIST" = "jvm" ]; then
+  if [ ! -x "$JVM_IMAGE/${APP_NAME}" ]; then
+    echo "JVM image not found in $JVM_IMAGE. Build it first with: mvn -Pappcds package" >&2
+    exit 1
+  fi
+  BIN=$JVM_IMAGE/${APP_NAME}
+elif [ ! -x "$BIN" ]; then
   if [ -x target/native/${APP_NAME} ]; then
     BIN=target/native/${APP_NAME}
   else
@@ -64,16 +74,22 @@ fi
 ## Install under /opt to avoid touching system library paths. Place the
 ## executable and bundled shared objects directly under /opt/paint.
 mkdir -p "$STAGE/opt/${APP_NAME}"
-# install the executable directly under /opt/paint
-cp "$BIN" "$STAGE/opt/${APP_NAME}/${APP_NAME}"
+if [ "$DIST" = "jvm" ]; then
+  # Launcher, runtime/ and lib/ keep their relative layout; cp -a keeps the jar timestamp,
+  # which the class-sharing archive validates before it is mapped
+  cp -a "$JVM_IMAGE/." "$STAGE/opt/${APP_NAME}/"
+else
+  # install the executable directly under /opt/paint
+  cp "$BIN" "$STAGE/opt/${APP_NAME}/${APP_NAME}"
+
+  # Copy GraalVM-produced shared objects next to the executable (no lib/)
+  for so in target/*.so*; do
+    if [ -f "$so" ]; then
+      cp -a "$so" "$STAGE/opt/${APP_NAME}/" || true
+    fi
+  done
+fi
 chmod 0755 "$STAGE/opt/${APP_NAME}/${APP_NAME}"
-
-# Copy GraalVM-produced shared objects next to the executable (no lib/)
-for so in target/*.so*; do
-  if [ -f "$so" ]; then
-    cp -a "$so" "$STAGE/opt/${APP_NAME}/" || true
-  fi
-done
 chmod -R a+rX "$STAGE/opt/${APP_NAME}"
 
 # We do not create a wrapper in /usr/bin. The executable is installed at
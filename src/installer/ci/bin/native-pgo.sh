@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Profile-guided native build tuned for startup (requires Oracle GraalVM for --pgo, Linux, Xvfb):
+#  1) build an instrumented image,
+#  2) run the scripted drawing session (TrainingSession) under Xvfb to collect a profile,
+#  3) rebuild the optimized image with the profile,
+#  4) produce a startup/footprint report for the final binary.
+# Usage: ./native-pgo.sh   (from the repository root)
+# Env: PAINT_TRAINING_ITERATIONS (default 3), RUNS for the report (default 5)
+
+ITER=${PAINT_TRAINING_ITERATIONS:-3}
+ROOT=$(pwd)
+
+mvn -B -Pnative-startup,native-pgo-instrument -DskipTests \
+  -Dgraalvm.native.imageName=paint-instrumented clean package
+
+# The instrumented binary writes default.iprof into its working directory on exit
+TRAIN_DIR=$(mktemp -d /tmp/paint-pgo-XXXX)
+(cd "$TRAIN_DIR" && xvfb-run -a "$ROOT/target/paint-instrumented" \
+  -Dpaint.training=true -Dpaint.training.iterations="$ITER")
+cp "$TRAIN_DIR/default.iprof" target/paint.iprof
+rm -rf "$TRAIN_DIR"
+
+mvn -B -Pnative-startup,native-pgo -DskipTests -Dpgo.profile="$ROOT/target/paint.iprof" package
+
+LABEL="native-image (PGO)" OUT=target/startup-report.txt \
+  "$ROOT/src/installer/ci/bin/startup-report.sh" ./target/paint
@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Startup/footprint harness: launches the app repeatedly under Xvfb until its first canvas frame,
+# then prints median time-to-first-frame and RSS as reported by the in-app StartupReport probe.
+# Usage: ./startup-report.sh <command...>
+#   e.g. ./startup-report.sh ./target/paint
+#        ./startup-report.sh java -jar target/paint-1.0.0.jar
+# Env: RUNS (default 5), OUT (default target/startup-report.txt), LABEL (default: the command)
+
+if [ $# -eq 0 ]; then
+  echo "Usage: $0 <command...>" >&2
+  exit 2
+fi
+
+RUNS=${RUNS:-5}
+OUT=${OUT:-target/startup-report.txt}
+LABEL=${LABEL:-$*}
+WORK=$(mktemp -d /tmp/paint-startup-XXXX)
+trap 'rm -rf "$WORK"' EXIT
+
+XVFB=()
+if [ -z "${DISPLAY:-}" ]; then
+  if ! command -v xvfb-run >/dev/null 2>&1; then
+    echo "DISPLAY is not set and xvfb-run is not installed (apt-get install xvfb)" >&2
+    exit 1
+  fi
+  XVFB=(xvfb-run -a)
+fi
+
+for i in $(seq 1 "$RUNS"); do
+  REPORT="$WORK/run-$i.properties"
+  PAINT_STARTUP_REPORT="$REPORT" PAINT_EXIT_AFTER_FIRST_FRAME=true \
+    timeout 120 "${XVFB[@]}" "$@" >"$WORK/run-$i.log" 2>&1 || true
+  if [ ! -s "$REPORT" ]; then
+    echo "Run $i produced no report; log follows:" >&2
+    cat "$WORK/run-$i.log" >&2
+    exit 1
+  fi
+done
+
+# median of the values for a key across all runs
+median() {
+  grep -h "^$1=" "$WORK"/run-*.properties | cut -d= -f2 | sort -n \
+    | awk '{v[NR]=$1} END {if (NR==0) print "n/a"; else if (NR%2) print v[(NR+1)/2]; else print int((v[NR/2]+v[NR/2+1])/2)}'
+}
+
+RUNTIME=$(grep -h '^runtime=' "$WORK/run-1.properties" | cut -d= -f2-)
+VMINFO=$(grep -h '^vmInfo=' "$WORK/run-1.properties" | cut -d= -f2- || true)
+if [ -n "$VMINFO" ]; then
+  RUNTIME="$RUNTIME ($VMINFO)"
+fi
+mkdir -p "$(dirname "$OUT")"
+{
+  echo "Startup report: $LABEL"
+  echo "Runtime: $RUNTIME, runs: $RUNS"
+  echo "| metric | median |"
+  echo "|---|---|"
+  echo "| time to first frame (ms) | $(median timeToFirstFrameMs) |"
+  echo "| RSS at first frame (KiB) | $(median rssKb) |"
+  echo "| peak RSS (KiB) | $(median peakRssKb) |"
+} | tee "$OUT"
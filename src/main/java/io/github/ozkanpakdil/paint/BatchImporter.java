@@ -0,0 +1,168 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Decodes a multi-file drop in parallel and lays the images out.
+ * <p>
+ * Each file is decoded on its own virtual thread, with a semaphore letting at most one decode per
+ * core run at a time, so fifty screenshots take about as long as the slowest few instead of the
+ * sum and the EDT never decodes. A progress dialog appears if the batch takes more than half a
+ * second, and cancelling it stops the decodes that have not started.
+ */
+final class BatchImporter {
+    /** Gap between images in a grid, in pixels. */
+    static final int GAP = 8;
+
+    /** How several dropped images land on the canvas. */
+    enum Layout {
+        /** One floating image with the pictures in rows, to drag into place. */
+        GRID("Grid"),
+        /** A new layer per picture, all at the drop point. */
+        LAYERS("Layers");
+
+        private final String label;
+
+        Layout(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** A decoded file, as INT_ARGB. */
+    record Imported(File file, BufferedImage image) {
+    }
+
+    /** The readable files in drop order, and the ones that could not be decoded. */
+    record Batch(List<Imported> images, List<File> unreadable) {
+    }
+
+    private BatchImporter() {
+    }
+
+    /**
+     * Decodes {@code files} in the background with a progress dialog over {@code parent}, then
+     * passes the batch to {@code done} on the EDT. Nothing is passed if the user cancels.
+     */
+    static void start(Component parent, List<File> files, Consumer<Batch> done) {
+        ProgressMonitor monitor = new ProgressMonitor(parent, "Importing " + files.size() + " images", null, 0, files.size());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // ProgressMonitor must be asked on the EDT whether Cancel was pressed
+        Timer poll = new Timer(100, _ -> {
+            if (monitor.isCanceled()) cancelled.set(true);
+        });
+        poll.start();
+        Thread.ofVirtual().name("batch-import").start(() -> {
+            Batch batch = decode(files, Runtime.getRuntime().availableProcessors(),
+                    n -> SwingUtilities.invokeLater(() -> monitor.setProgress(n)), cancelled);
+            SwingUtilities.invokeLater(() -> {
+                poll.stop();
+                monitor.close();
+                if (!cancelled.get()) done.accept(batch);
+            });
+        });
+    }
+
+    /**
+     * Decodes {@code files}, at most {@code parallelism} at a time, and returns them in the order
+     * given. {@code progress} is called from the decoding threads with the number finished so far.
+     * Once {@code cancelled} is set, decodes that have not started are skipped.
+     */
+    static Batch decode(List<File> files, int parallelism, IntConsumer progress, AtomicBoolean cancelled) {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        AtomicInteger finished = new AtomicInteger();
+        BufferedImage[] images = new BufferedImage[files.size()];
+        try (ExecutorService decoders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < files.size(); i++) {
+                int index = i;
+                decoders.submit(() -> {
+                    permits.acquire();
+                    try {
+                        if (!cancelled.get()) images[index] = read(files.get(index));
+                    } finally {
+                        permits.release();
+                        progress.accept(finished.incrementAndGet());
+                    }
+                    return null;
+                });
+            }
+        }
+        List<Imported> read = new ArrayList<>();
+        List<File> unreadable = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (images[i] != null) {
+                read.add(new Imported(files.get(i), images[i]));
+            } else if (!cancelled.get()) {
+                unreadable.add(files.get(i));
+            }
+        }
+        return new Batch(read, unreadable);
+    }
+
+    private static BufferedImage read(File f) {
+        try {
+            BufferedImage img = ImageIO.read(f);
+            return img == null ? null : ImageFormats.toIntArgb(img);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The images in rows of {@code ceil(sqrt(n))}, {@link #GAP} pixels apart on transparent: each row
+     * as tall as its tallest picture.
+     */
+    static BufferedImage grid(List<BufferedImage> images) {
+        List<Point> at = gridPositions(images);
+        int w = 0, h = 0;
+        for (int i = 0; i < images.size(); i++) {
+            w = Math.max(w, at.get(i).x + images.get(i).getWidth());
+            h = Math.max(h, at.get(i).y + images.get(i).getHeight());
+        }
+        BufferedImage sheet = new BufferedImage(Math.max(1, w), Math.max(1, h), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sheet.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            for (int i = 0; i < images.size(); i++) g.drawImage(images.get(i), at.get(i).x, at.get(i).y, null);
+        } finally {
+            g.dispose();
+        }
+        return sheet;
+    }
+
+    // Top-left corner of each image in the grid
+    static List<Point> gridPositions(List<BufferedImage> images) {
+        int cols = (int) Math.ceil(Math.sqrt(images.size()));
+        List<Point> at = new ArrayList<>(images.size());
+        int y = 0;
+        for (int row = 0; row * cols < images.size(); row++) {
+            int x = 0;
+            int rowHeight = 0;
+            for (int i = row * cols; i < Math.min(images.size(), (row + 1) * cols); i++) {
+                at.add(new Point(x, y));
+                x += images.get(i).getWidth() + GAP;
+                rowHeight = Math.max(rowHeight, images.get(i).getHeight());
+            }
+            y += rowHeight + GAP;
+        }
+        return at;
+    }
+}
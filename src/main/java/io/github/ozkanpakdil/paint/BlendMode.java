@@ -0,0 +1,54 @@
+package io.github.ozkanpakdil.paint;
+
+/**
+ * How a layer's colours combine with the layers below it. The separable modes of the W3C
+ * compositing spec; the result is then laid over the backdrop with the layer's alpha and opacity.
+ * Each mode also names its OpenRaster {@code composite-op}.
+ */
+enum BlendMode {
+    NORMAL("Normal", "svg:src-over"),
+    MULTIPLY("Multiply", "svg:multiply"),
+    SCREEN("Screen", "svg:screen"),
+    OVERLAY("Overlay", "svg:overlay"),
+    DARKEN("Darken", "svg:darken"),
+    LIGHTEN("Lighten", "svg:lighten"),
+    DIFFERENCE("Difference", "svg:difference");
+
+    private final String label;
+    private final String compositeOp;
+
+    BlendMode(String label, String compositeOp) {
+        this.label = label;
+        this.compositeOp = compositeOp;
+    }
+
+    String compositeOp() {
+        return compositeOp;
+    }
+
+    /** Mode for an OpenRaster {@code composite-op}; unknown operations fall back to NORMAL. */
+    static BlendMode fromCompositeOp(String op) {
+        for (BlendMode m : values()) {
+            if (m.compositeOp.equals(op)) return m;
+        }
+        return NORMAL;
+    }
+
+    /** Blends one 0..255 channel of the source {@code s} onto the backdrop {@code b}. */
+    int apply(int b, int s) {
+        return switch (this) {
+            case NORMAL -> s;
+            case MULTIPLY -> (b * s + 127) / 255;
+            case SCREEN -> b + s - (b * s + 127) / 255;
+            case OVERLAY -> b < 128 ? (2 * b * s + 127) / 255 : 255 - (2 * (255 - b) * (255 - s) + 127) / 255;
+            case DARKEN -> Math.min(b, s);
+            case LIGHTEN -> Math.max(b, s);
+            case DIFFERENCE -> Math.abs(b - s);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
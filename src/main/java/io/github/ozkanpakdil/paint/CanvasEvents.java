@@ -0,0 +1,206 @@
+package io.github.ozkanpakdil.paint;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Java Flight Recorder events for canvas operations, all under the "Paint" category. Every event
+ * carries the canvas size after the operation, the dirty rectangle, the bytes allocated by the
+ * calling thread while it ran, and (as for any JFR duration event) its duration.
+ * <p>
+ * Typical use, which costs one {@code isEnabled()} check when no recording is running:
+ * <pre>{@code
+ * CanvasEvents.Resize e = CanvasEvents.begin(new CanvasEvents.Resize());
+ * ... mutate the canvas ...
+ * CanvasEvents.commit(e, cache, dirty);
+ * }</pre>
+ * Record with e.g. {@code -XX:StartFlightRecording:filename=paint.jfr} and inspect with
+ * {@code jfr print --categories Paint paint.jfr} or JDK Mission Control.
+ */
+final class CanvasEvents {
+
+    private CanvasEvents() {
+    }
+
+    @Category({"Paint", "Canvas"})
+    @StackTrace(false)
+    abstract static class CanvasEvent extends Event {
+        @Label("Canvas Width")
+        int canvasWidth;
+        @Label("Canvas Height")
+        int canvasHeight;
+        @Label("Dirty X")
+        int dirtyX;
+        @Label("Dirty Y")
+        int dirtyY;
+        @Label("Dirty Width")
+        int dirtyWidth;
+        @Label("Dirty Height")
+        int dirtyHeight;
+        @Label("Dirty Area")
+        @Description("Pixels touched by the operation")
+        long dirtyArea;
+        @Label("Bytes Allocated")
+        @Description("Heap allocated by the calling thread during the operation")
+        @DataAmount
+        long bytesAllocated;
+        // Allocation counter at begin(); not part of the recorded event
+        transient long allocationStart;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.StrokeCommit")
+    @Label("Stroke Commit")
+    @Description("Freehand stroke (pencil, eraser, highlighter) from press to release")
+    static final class StrokeCommit extends CanvasEvent {
+        @Label("Tool")
+        String tool;
+        @Label("Segments")
+        int segments;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.ShapeCommit")
+    @Label("Shape Commit")
+    static final class ShapeCommit extends CanvasEvent {
+        @Label("Tool")
+        String tool;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.FloodFill")
+    @Label("Flood Fill")
+    static final class FloodFill extends CanvasEvent {
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Undo")
+    @Label("Undo")
+    static final class Undo extends CanvasEvent {
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Redo")
+    @Label("Redo")
+    static final class Redo extends CanvasEvent {
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Crop")
+    @Label("Crop")
+    static final class Crop extends CanvasEvent {
+        @Label("Source")
+        @Description("What the canvas was cropped to: image, placement or selection")
+        String source;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Resize")
+    @Label("Resize")
+    static final class Resize extends CanvasEvent {
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Scale")
+    @Label("Scale")
+    static final class Scale extends CanvasEvent {
+        @Label("Kernel")
+        String kernel;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Transform")
+    @Label("Transform")
+    static final class Transform extends CanvasEvent {
+        @Label("Operation")
+        String operation;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Filter")
+    @Label("Filter")
+    static final class Filter extends CanvasEvent {
+        @Label("Filter")
+        String filter;
+        @Label("Radius")
+        float radius;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.SelectionEdit")
+    @Label("Selection Edit")
+    @Description("Selected pixels filled or deleted in place")
+    static final class SelectionEdit extends CanvasEvent {
+        @Label("Operation")
+        String operation;
+        @Label("Masked")
+        @Description("Whether the selection is a magic-wand mask rather than a rectangle")
+        boolean masked;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.PlacementCommit")
+    @Label("Placement Commit")
+    @Description("Pasted, dropped, opened or moved pixels committed to the canvas")
+    static final class PlacementCommit extends CanvasEvent {
+        @Label("From Selection")
+        boolean fromSelection;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Open")
+    @Label("Open Image")
+    static final class Open extends CanvasEvent {
+        @Label("Path")
+        String path;
+    }
+
+    @Name("io.github.ozkanpakdil.paint.Save")
+    @Label("Save Image")
+    static final class Save extends CanvasEvent {
+        @Label("Path")
+        String path;
+    }
+
+    /** Starts timing {@code e} if its event type is enabled in a running recording. */
+    static <E extends CanvasEvent> E begin(E e) {
+        if (e.isEnabled()) {
+            e.allocationStart = allocatedBytes();
+            e.begin();
+        }
+        return e;
+    }
+
+    /** Ends and commits {@code e}; {@code image} gives the canvas size, {@code dirty} may be null. */
+    static void commit(CanvasEvent e, BufferedImage image, Rectangle dirty) {
+        if (!e.isEnabled()) return;
+        e.end();
+        if (!e.shouldCommit()) return;
+        if (image != null) {
+            e.canvasWidth = image.getWidth();
+            e.canvasHeight = image.getHeight();
+        }
+        if (dirty != null) {
+            e.dirtyX = dirty.x;
+            e.dirtyY = dirty.y;
+            e.dirtyWidth = dirty.width;
+            e.dirtyHeight = dirty.height;
+            e.dirtyArea = (long) Math.max(0, dirty.width) * Math.max(0, dirty.height);
+        }
+        long alloc = allocatedBytes();
+        e.bytesAllocated = alloc >= 0 && e.allocationStart >= 0 ? alloc - e.allocationStart : 0;
+        e.commit();
+    }
+
+    static Rectangle bounds(BufferedImage image) {
+        return image == null ? null : new Rectangle(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    // Per-thread allocation counter (HotSpot); -1 when unsupported, e.g. in a native image
+    private static long allocatedBytes() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                    && t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled()) {
+                return t.getCurrentThreadAllocatedBytes();
+            }
+        } catch (Throwable ignored) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,280 @@
+package io.github.ozkanpakdil.paint;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Saves the document flattened, without a flattened copy of it. The layers are composited a strip
+ * of rows at a time ({@link StreamedImage#STRIP_BYTES}) straight into the image writer, so saving a
+ * canvas that only just fits in the heap needs a few MB more rather than another canvas.
+ * <p>
+ * PNG goes through {@link PngEncoder}, which reads the strips twice to fit the colour type and row
+ * filters to the pixels. PNG-8 also makes two passes: one to build the {@link ColorQuantizer}
+ * histogram, one to map the pixels to the palette as the writer asks for them. {@link #estimate}
+ * encodes without writing anything, to report what a format would cost.
+ */
+final class CanvasExport {
+    private CanvasExport() {
+    }
+
+    enum Format {
+        PNG("PNG", "png"),
+        PNG8("PNG-8 (up to 256 colours)", "png"),
+        JPEG("JPEG", "jpg"),
+        BMP("BMP", "bmp");
+
+        private final String label;
+        final String extension;
+
+        Format(String label, String extension) {
+            this.label = label;
+            this.extension = extension;
+        }
+
+        /** The format {@code f}'s extension asks for; PNG unless it is .jpg, .jpeg or .bmp. */
+        static Format forFile(File f) {
+            String name = f.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return JPEG;
+            if (name.endsWith(".bmp")) return BMP;
+            return PNG;
+        }
+
+        /** {@code f}, or {@code f} with its image extension replaced if it does not fit this format. */
+        File fileFor(File f) {
+            Format current = forFile(f);
+            String name = f.getName();
+            boolean hasExtension = name.toLowerCase(Locale.ROOT).matches(".*\\.(png|jpe?g|bmp)");
+            if (hasExtension && (current == this || current == PNG && this == PNG8)) return f;
+            String base = hasExtension ? name.substring(0, name.lastIndexOf('.')) : name;
+            return new File(f.getParentFile(), base + "." + extension);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** JPEG chroma subsampling: how many luma samples share one pair of colour samples. */
+    enum Chroma {
+        FULL("4:4:4 (sharpest colour edges)", 1, 1),
+        HALF("4:2:2", 2, 1),
+        QUARTER("4:2:0 (smallest)", 2, 2);
+
+        private final String label;
+        private final int horizontal;
+        private final int vertical;
+
+        Chroma(String label, int horizontal, int vertical) {
+            this.label = label;
+            this.horizontal = horizontal;
+            this.vertical = vertical;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * How to encode: JPEG uses {@code quality} (0..1) and {@code chroma}, PNG-8 {@code colours}
+     * (2..256) and {@code dither}; the other settings are ignored.
+     */
+    record Options(Format format, float quality, Chroma chroma, int colours, boolean dither) {
+        static Options of(Format format) {
+            return new Options(format, 0.9f, Chroma.QUARTER, 256, false);
+        }
+    }
+
+    /** What an encoding produced and how long it took. */
+    record Result(long bytes, long nanos) {
+        String summary() {
+            String size = bytes < 1 << 20
+                    ? String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0)
+                    : String.format(Locale.ROOT, "%.2f MB", bytes / (1024.0 * 1024));
+            return size + " in " + nanos / 1_000_000 + " ms";
+        }
+    }
+
+    /**
+     * The visible layers (bottom to top, canvas-sized) flattened on demand. With {@code opaque} the
+     * result is RGB, laid over white where it is not fully opaque.
+     */
+    static StreamedImage flattened(List<Layer> layers, boolean opaque) {
+        BufferedImage first = layers.getFirst().image();
+        int w = first.getWidth();
+        return new StreamedImage(w, first.getHeight(), opaque, (y0, rows, argb) -> {
+            composite(layers, y0, rows, argb);
+            if (opaque) onWhite(argb, w * rows);
+        });
+    }
+
+    /** The visible layers flattened and reduced to a palette of at most {@code colours}. */
+    static StreamedImage quantized(List<Layer> layers, int colours, boolean dither) {
+        BufferedImage first = layers.getFirst().image();
+        int w = first.getWidth();
+        int h = first.getHeight();
+        int stripRows = StreamedImage.stripRows(w, h);
+        int[] argb = new int[w * stripRows];
+        ColorQuantizer.Histogram histogram = new ColorQuantizer.Histogram();
+        for (int y0 = 0; y0 < h; y0 += stripRows) {
+            int rows = Math.min(stripRows, h - y0);
+            composite(layers, y0, rows, argb);
+            histogram.add(argb, w * rows);
+        }
+        ColorQuantizer.Palette palette = histogram.palette(colours);
+        return StreamedImage.indexed(w, h, palette.model(), (y0, rows, indices) -> {
+            composite(layers, y0, rows, argb);
+            palette.map(argb, w, y0, rows, indices, dither);
+        });
+    }
+
+    /** Writes the flattened layers to {@code file}, replacing it. */
+    static Result write(List<Layer> layers, Options options, File file) throws IOException {
+        // The stream overwrites in place; a longer old file would keep its tail
+        if (file.exists() && !file.delete()) throw new IOException("Cannot replace " + file);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+            if (out == null) throw new IOException("Cannot write " + file);
+            return write(layers, options, out);
+        }
+    }
+
+    /**
+     * Encodes the flattened layers without writing them anywhere, for their size and time.
+     * Interrupting the thread stops it at the next strip with an {@link InterruptedIOException}.
+     */
+    static Result estimate(List<Layer> layers, Options options) throws IOException {
+        try (ImageOutputStream out = new CountingOutput()) {
+            return write(layers, options, out);
+        }
+    }
+
+    static Result write(List<Layer> layers, Options options, ImageOutputStream out) throws IOException {
+        long t0 = System.nanoTime();
+        long start = out.getStreamPosition();
+        try {
+            switch (options.format()) {
+                case PNG -> png(layers, out);
+                case PNG8 -> encode(quantized(layers, options.colours(), options.dither()), "png", out);
+                case BMP -> encode(flattened(layers, true), "bmp", out);
+                case JPEG -> jpeg(flattened(layers, true), options, out);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return new Result(out.length() - start, System.nanoTime() - t0);
+    }
+
+    private static void png(List<Layer> layers, ImageOutputStream out) throws IOException {
+        if (!PngEncoder.ENABLED) {
+            encode(flattened(layers, false), "png", out);
+            return;
+        }
+        BufferedImage first = layers.getFirst().image();
+        PngEncoder.write(first.getWidth(), first.getHeight(),
+                (y0, rows, argb) -> composite(layers, y0, rows, argb), out);
+    }
+
+    private static void encode(RenderedImage image, String format, ImageOutputStream out) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(image), format);
+        if (!writers.hasNext()) throw new IOException("No image writer for " + format);
+        ImageWriter writer = writers.next();
+        try {
+            writer.setOutput(out);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void jpeg(RenderedImage image, Options options, ImageOutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(options.quality());
+            IIOMetadata meta = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+            // Sampling factors live on the frame's components; luma comes first
+            String format = meta.getNativeMetadataFormatName();
+            Element tree = (Element) meta.getAsTree(format);
+            NodeList components = tree.getElementsByTagName("componentSpec");
+            for (int i = 0; i < components.getLength(); i++) {
+                Element c = (Element) components.item(i);
+                c.setAttribute("HsamplingFactor", String.valueOf(i == 0 ? options.chroma().horizontal : 1));
+                c.setAttribute("VsamplingFactor", String.valueOf(i == 0 ? options.chroma().vertical : 1));
+            }
+            meta.setFromTree(format, tree);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, meta), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // A strip of the flattened layers; every encoder pulls its rows through here, so an interrupted
+    // encoding (an estimate nobody waits for any more) ends at the next strip
+    private static void composite(List<Layer> layers, int y0, int rows, int[] argb) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new UncheckedIOException(new InterruptedIOException("Encoding interrupted"));
+        }
+        LayerCompositor.compositeRows(layers, y0, rows, argb);
+    }
+
+    private static void onWhite(int[] argb, int len) {
+        for (int i = 0; i < len; i++) {
+            if (argb[i] >>> 24 != 0xFF) argb[i] = MipmapPyramid.over(argb[i], 0xFFFFFFFF);
+        }
+    }
+
+    // Discards what is written and keeps its length; writers may seek back to patch lengths
+    private static final class CountingOutput extends ImageOutputStreamImpl {
+        private long length;
+
+        @Override
+        public void write(int b) {
+            streamPos++;
+            length = Math.max(length, streamPos);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            streamPos += len;
+            length = Math.max(length, streamPos);
+        }
+
+        @Override
+        public int read() {
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return -1;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+    }
+}
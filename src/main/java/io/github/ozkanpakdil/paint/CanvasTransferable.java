@@ -0,0 +1,101 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.imageio.ImageIO;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.FlavorMap;
+import java.awt.datatransfer.SystemFlavorMap;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Clipboard contents for Copy and Cut: the copied pixels as an {@code image/png} byte stream and as
+ * a Java image.
+ * <p>
+ * Creating one only keeps the pixels; the PNG is encoded once on a background thread, and every
+ * paste after that is served from the same bytes. Most Linux applications ask for
+ * {@code image/png}, so they get the finished file instead of the JDK converting the image again
+ * for each request. Pastes within Paint use the image flavor and never wait for the encoder.
+ */
+final class CanvasTransferable implements Transferable {
+    /** PNG file bytes, read from an {@link java.io.InputStream}. */
+    static final DataFlavor PNG_FLAVOR = new DataFlavor("image/png", "PNG image");
+
+    private static final ExecutorService ENCODER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "clipboard-png");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        // Offer the PNG stream under the native names applications look for (X11 MIME atom,
+        // Windows clipboard format), ahead of the JDK's own conversion of the image flavor
+        FlavorMap map = SystemFlavorMap.getDefaultFlavorMap();
+        if (map instanceof SystemFlavorMap system) {
+            system.addUnencodedNativeForFlavor(PNG_FLAVOR, "image/png");
+            system.addUnencodedNativeForFlavor(PNG_FLAVOR, "PNG");
+        }
+    }
+
+    private final BufferedImage image;
+    private final CompletableFuture<byte[]> png;
+
+    /** Takes ownership of {@code image}, which must not be changed afterwards. */
+    CanvasTransferable(BufferedImage image) {
+        this.image = image;
+        this.png = CompletableFuture.supplyAsync(() -> encode(image), ENCODER);
+    }
+
+    BufferedImage image() {
+        return image;
+    }
+
+    /** The PNG encoding of the image, waiting for the background encoder if it is still running. */
+    byte[] png() throws IOException {
+        try {
+            return png.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while encoding the clipboard image");
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to encode the clipboard image", e.getCause());
+        }
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        // Most preferred first: native formats served by both flavors go to the PNG bytes
+        return new DataFlavor[]{PNG_FLAVOR, DataFlavor.imageFlavor};
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        return PNG_FLAVOR.equals(flavor) || DataFlavor.imageFlavor.equals(flavor);
+    }
+
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+        if (PNG_FLAVOR.equals(flavor)) return new ByteArrayInputStream(png());
+        if (DataFlavor.imageFlavor.equals(flavor)) return image;
+        throw new UnsupportedFlavorException(flavor);
+    }
+
+    private static byte[] encode(BufferedImage img) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(img, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
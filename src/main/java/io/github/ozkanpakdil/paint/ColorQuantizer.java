@@ -0,0 +1,241 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.image.IndexColorModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Reduces an image to a palette of at most 256 colours for PNG-8 export, by median cut.
+ * <p>
+ * Pixels are counted into a histogram of 15-bit colours (5 bits a channel) that also sums their
+ * exact channels, so a box holding one colour gets that colour back exactly: images with few
+ * colours, like most screenshots, keep them. Counting and mapping run in parallel over rows, and
+ * the cut itself only looks at the 32768 bins, so an image can be fed a strip at a time. Pixels
+ * below half alpha share one transparent entry; the rest are treated as opaque.
+ * <p>
+ * Mapping can add a 4 x 4 ordered (Bayer) dither. It depends only on a pixel's position, so strips
+ * are mapped independently, in parallel, with no error carried between them.
+ */
+final class ColorQuantizer {
+    private static final int BINS = 1 << 15;
+    private static final int[] BAYER = {0, 8, 2, 10, 12, 4, 14, 6, 3, 11, 1, 9, 15, 7, 13, 5};
+
+    private ColorQuantizer() {
+    }
+
+    /** Colour counts of the pixels added so far. */
+    static final class Histogram {
+        private final long[] count = new long[BINS];
+        private final long[] red = new long[BINS];
+        private final long[] green = new long[BINS];
+        private final long[] blue = new long[BINS];
+        private boolean transparent;
+
+        /** Counts {@code len} ARGB pixels, split across the common pool. */
+        void add(int[] argb, int len) {
+            int parts = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), len >> 16));
+            if (parts == 1) {
+                count(argb, 0, len);
+                return;
+            }
+            List<Histogram> partial = IntStream.range(0, parts).parallel().mapToObj(p -> {
+                Histogram h = new Histogram();
+                h.count(argb, (int) ((long) len * p / parts), (int) ((long) len * (p + 1) / parts));
+                return h;
+            }).toList();
+            for (Histogram h : partial) merge(h);
+        }
+
+        private void count(int[] argb, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int px = argb[i];
+                if (px >>> 24 < 128) {
+                    transparent = true;
+                    continue;
+                }
+                int r = px >> 16 & 0xFF, g = px >> 8 & 0xFF, b = px & 0xFF;
+                int bin = bin(r, g, b);
+                count[bin]++;
+                red[bin] += r;
+                green[bin] += g;
+                blue[bin] += b;
+            }
+        }
+
+        private void merge(Histogram h) {
+            for (int i = 0; i < BINS; i++) {
+                count[i] += h.count[i];
+                red[i] += h.red[i];
+                green[i] += h.green[i];
+                blue[i] += h.blue[i];
+            }
+            transparent |= h.transparent;
+        }
+
+        /** A palette of at most {@code colours} entries (2..256), one of them transparent if needed. */
+        Palette palette(int colours) {
+            int slots = Math.max(1, Math.min(256, Math.max(2, colours)) - (transparent ? 1 : 0));
+            int[] used = IntStream.range(0, BINS).filter(i -> count[i] != 0).toArray();
+            List<Box> boxes = new ArrayList<>();
+            if (used.length > 0) boxes.add(box(used, 0, used.length));
+            while (boxes.size() < slots) {
+                // Split the most populous box that still holds more than one bin
+                int best = -1;
+                for (int i = 0; i < boxes.size(); i++) {
+                    Box box = boxes.get(i);
+                    if (box.to() - box.from() > 1 && (best < 0 || box.population() > boxes.get(best).population())) best = i;
+                }
+                if (best < 0) break;
+                Box box = boxes.get(best);
+                int mid = split(used, box.from(), box.to(), box.population());
+                boxes.set(best, box(used, box.from(), mid));
+                boxes.add(box(used, mid, box.to()));
+            }
+
+            int size = boxes.size() + (transparent ? 1 : 0);
+            byte[] r = new byte[Math.max(1, size)], g = new byte[r.length], b = new byte[r.length], a = new byte[r.length];
+            byte[] lookup = new byte[BINS];
+            boolean[] mapped = new boolean[BINS];
+            int first = transparent ? 1 : 0;
+            for (int i = 0; i < boxes.size(); i++) {
+                Box box = boxes.get(i);
+                long n = 0, sr = 0, sg = 0, sb = 0;
+                for (int k = box.from(); k < box.to(); k++) {
+                    int bin = used[k];
+                    n += count[bin];
+                    sr += red[bin];
+                    sg += green[bin];
+                    sb += blue[bin];
+                    lookup[bin] = (byte) (first + i);
+                    mapped[bin] = true;
+                }
+                r[first + i] = (byte) ((sr + n / 2) / n);
+                g[first + i] = (byte) ((sg + n / 2) / n);
+                b[first + i] = (byte) ((sb + n / 2) / n);
+                a[first + i] = (byte) 0xFF;
+            }
+            // Bins no pixel fell in (reachable once dithered) take the nearest entry
+            if (boxes.size() > 0) {
+                ImageFilters.stripes(BINS, (from, to) -> {
+                    for (int bin = from; bin < to; bin++) {
+                        if (!mapped[bin]) lookup[bin] = (byte) nearest(bin, r, g, b, first, size);
+                    }
+                });
+            }
+            IndexColorModel model = transparent
+                    ? new IndexColorModel(8, r.length, r, g, b, a)
+                    : new IndexColorModel(8, r.length, r, g, b);
+            return new Palette(model, lookup, transparent ? 0 : -1, (int) Math.round(255 / Math.cbrt(slots)));
+        }
+
+        // A run used[from, to) of bins, with its pixel count
+        private record Box(int from, int to, long population) {
+        }
+
+        private Box box(int[] used, int from, int to) {
+            long n = 0;
+            for (int k = from; k < to; k++) n += count[used[k]];
+            return new Box(from, to, n);
+        }
+
+        // Sorts used[from, to) along its widest channel and returns the index of the weighted median
+        private int split(int[] used, int from, int to, long population) {
+            int[] lo = {31, 31, 31}, hi = {0, 0, 0};
+            for (int k = from; k < to; k++) {
+                for (int c = 0; c < 3; c++) {
+                    int v = channel(used[k], c);
+                    lo[c] = Math.min(lo[c], v);
+                    hi[c] = Math.max(hi[c], v);
+                }
+            }
+            int axis = 0;
+            for (int c = 1; c < 3; c++) if (hi[c] - lo[c] > hi[axis] - lo[axis]) axis = c;
+            // Sort by the axis value, keeping the bin in the low 15 bits
+            for (int k = from; k < to; k++) used[k] |= channel(used[k], axis) << 15;
+            Arrays.sort(used, from, to);
+            for (int k = from; k < to; k++) used[k] &= BINS - 1;
+            long half = population / 2, seen = 0;
+            int mid = from;
+            while (mid < to - 1 && seen + count[used[mid]] <= half) seen += count[used[mid++]];
+            return Math.max(from + 1, mid);
+        }
+    }
+
+    /** A palette and the way from colours to its entries. */
+    static final class Palette {
+        private final IndexColorModel model;
+        private final byte[] lookup;
+        private final int transparentIndex;
+        private final int spread;
+
+        private Palette(IndexColorModel model, byte[] lookup, int transparentIndex, int spread) {
+            this.model = model;
+            this.lookup = lookup;
+            this.transparentIndex = transparentIndex;
+            this.spread = spread;
+        }
+
+        IndexColorModel model() {
+            return model;
+        }
+
+        /**
+         * Maps {@code rows} full-width rows of ARGB pixels, the first being image row {@code y0}
+         * (which sets the dither phase), to palette indices.
+         */
+        void map(int[] argb, int width, int y0, int rows, byte[] indices, boolean dither) {
+            ImageFilters.stripes(rows, (from, to) -> {
+                for (int y = from; y < to; y++) {
+                    int row = ((y0 + y) & 3) << 2;
+                    for (int i = y * width, x = 0; x < width; i++, x++) {
+                        int px = argb[i];
+                        if (px >>> 24 < 128 && transparentIndex >= 0) {
+                            indices[i] = (byte) transparentIndex;
+                            continue;
+                        }
+                        int r = px >> 16 & 0xFF, g = px >> 8 & 0xFF, b = px & 0xFF;
+                        if (dither) {
+                            // -spread/2 .. +spread/2
+                            int d = (2 * BAYER[row | (x & 3)] - 15) * spread / 32;
+                            r = clamp(r + d);
+                            g = clamp(g + d);
+                            b = clamp(b + d);
+                        }
+                        indices[i] = lookup[bin(r, g, b)];
+                    }
+                }
+            });
+        }
+    }
+
+    private static int bin(int r, int g, int b) {
+        return (r >> 3) << 10 | (g >> 3) << 5 | b >> 3;
+    }
+
+    // Channel c (0 red, 1 green, 2 blue) of a bin, 0..31
+    private static int channel(int bin, int c) {
+        return bin >> (10 - 5 * c) & 31;
+    }
+
+    private static int nearest(int bin, byte[] r, byte[] g, byte[] b, int from, int to) {
+        int cr = channel(bin, 0) << 3 | 4, cg = channel(bin, 1) << 3 | 4, cb = channel(bin, 2) << 3 | 4;
+        int best = from;
+        int bestDist = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            int dr = (r[i] & 0xFF) - cr, dg = (g[i] & 0xFF) - cg, db = (b[i] & 0xFF) - cb;
+            int dist = dr * dr + dg * dg + db * db;
+            if (dist < bestDist) {
+                bestDist = dist;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : Math.min(255, v);
+    }
+}
@@ -1,15 +1,17 @@
 package io.github.ozkanpakdil.paint;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.event.*;
+import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.EnumMap;
 import java.util.List;
@@ -19,38 +21,78 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
 
     // ----- Undo/Redo history -----
     private static final int HISTORY_LIMIT = 25;
-    private static class LayerState {
-        final BufferedImage base;
-        final BufferedImage highlight;
-        LayerState(BufferedImage base, BufferedImage highlight) {
-            this.base = base;
-            this.highlight = highlight;
-        }
-    }
-    private final Deque<LayerState> undoStack = new ArrayDeque<>();
-    private final Deque<LayerState> redoStack = new ArrayDeque<>();
-
-    private static final String[][] TOOL_ICON_MAP = new String[][]{
-            {"PENCIL", "pencil.png"},
-            {"LINE", "line-tool.png"},
-            {"RECT", "rectangle.png"},
-            {"RECT_FILLED", "rectangle_fill.png"},
-            {"ROUNDED_RECT", "rectangle.png"},
-            {"ROUNDED_RECT_FILLED", "rectangle_fill.png"},
-            {"OVAL", "oval.png"},
-            {"OVAL_FILLED", "oval_fill.png"},
-            {"ERASER", "eraser.png"},
-            {"TEXT", "text.png"},
-            {"BUCKET", "bucket.png"},
-            {"MOVE", "move.png"},
-            {"HIGHLIGHTER", "highlight.png"},
-            {"ARROW", "arrow.png"}
+    /** Most pixels a layer can have: one Java array holds them all. */
+    static final long MAX_LAYER_PIXELS = Integer.MAX_VALUE - 8;
+    // One undo/redo step; restoring it yields the step that takes it back
+    private sealed interface HistoryEntry permits LayerState, RegionEdit, CompoundEdit {
+    }
+    /**
+     * A whole layer stack. History entries own their {@link Layer} objects; pixels may be shared
+     * with the live document, which is why live layers are copied before they are drawn on.
+     */
+    private record LayerState(List<Layer> layers, int active) implements HistoryEntry {
+        BufferedImage base() {
+            return layers.get(active).image();
+        }
+
+        // Every layer's pixels run through f (e.g. a crop)
+        LayerState map(java.util.function.BiFunction<Layer, BufferedImage, BufferedImage> f) {
+            List<Layer> out = new ArrayList<>(layers.size());
+            for (Layer l : layers) out.add(l.withImage(f.apply(l, l.image())));
+            return new LayerState(out, active);
+        }
+
+        // Same stack with new pixels for the active layer
+        LayerState withActive(BufferedImage pixels) {
+            List<Layer> out = new ArrayList<>(layers.size());
+            for (int i = 0; i < layers.size(); i++) {
+                Layer l = layers.get(i);
+                out.add(i == active ? l.withImage(pixels) : l.copy());
+            }
+            return new LayerState(out, active);
+        }
+    }
+    /**
+     * The previous pixels of one rectangle of one layer (by index), for edits that touch a small
+     * part of a large layer, such as a redaction. The other layers and the rest of this one are
+     * not copied.
+     */
+    private record RegionEdit(int layer, Rectangle rect, BufferedImage pixels) implements HistoryEntry {
+    }
+    /**
+     * Region edits made one after the other and undone as one step, last first: a selection move
+     * is the cut at the source and the drop at the destination, a redaction the same rectangle in
+     * every layer it covers.
+     */
+    private record CompoundEdit(List<RegionEdit> parts) implements HistoryEntry {
+    }
+    private final Deque<HistoryEntry> undoStack = new ArrayDeque<>();
+    private final Deque<HistoryEntry> redoStack = new ArrayDeque<>();
+    // The last clipboard contents and what they were copied from
+    private CanvasTransferable lastCopy;
+    private CopyKey lastCopyKey;
+    // One owner for every copy: the clipboard only reports a loss when the owner changes
+    private final ClipboardOwner clipboardOwner = (cb, lost) -> {
+        // Another application owns the clipboard now; let the pixels and PNG go
+        if (lost == lastCopy) {
+            lastCopy = null;
+            lastCopyKey = null;
+        }
     };
+    // Property edits with the same key in a row (e.g. dragging the opacity slider) share one undo entry
+    private String coalesceKey;
+
     private static final int ROUNDED_ARC = 10;
     // Backing canvas; kept static to preserve existing usages (e.g., SideMenu save)
     static BufferedImage cache;
     // Separate persistent layer for non-accumulating highlights (drawn above base)
     static BufferedImage highlightLayer;
+    // The document, bottom to top. cache is always the active layer's pixels and highlightLayer
+    // the highlight layer's; both stay static fields because existing callers assign them directly
+    private static List<Layer> layers = new ArrayList<>();
+    private static int activeLayer;
+    // Pre-flattened groups around the active layer and the composite that is painted and saved
+    private static final LayerCompositor compositor = new LayerCompositor();
     // Cache of custom cursors per tool
     private final Map<Tool, Cursor> toolCursorCache = new EnumMap<>(Tool.class);
     // Text tool inline editor
@@ -66,6 +108,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
     // Tracks the bounds of the most recently pasted image (for cropping)
     private Rectangle lastPastedRect = null;
     // Temporary placement state for pasted/dropped images OR selection move
+    // Never drawn into in place: after a selection cut it is the cut's undo pixels as well
     private BufferedImage pendingImage = null;
     private int pendingX = 0;
     private int pendingY = 0;
@@ -80,12 +123,56 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
     private int selEndY = 0;
     private Rectangle selectionRect = null;
     private boolean selectionPlacement = false; // true when pendingImage came from a selection cut
-    private BufferedImage selectionCutBackup = null; // pixels removed from cache for restoration on cancel
-    private Rectangle selectionCutRect = null;
+    // The history entry of the cut that lifted the floating selection: the removed pixels, for
+    // cancel and for undo
+    private RegionEdit selectionCut = null;
+    // Selection of any shape (magic wand, lasso, polygon); while set, selectionRect holds its bounds
+    private SelectionMask selectionMask = null;
+    // Outline of selectionMask, rebuilt only when the mask changes
+    private Path2D selectionOutline = null;
+    // Lasso or polygon being drawn with the Move tool, the modifiers it started with, and where
+    // the next polygon corner would go (for the rubber band)
+    private Polygon selectionPath = null;
+    private int selectionPathModifiers = 0;
+    private Point polygonHover = null;
+    // Marching ants: the dash offset steps along while a mask selection is shown
+    private int antsPhase = 0;
+    private final Timer antsTimer = new Timer(150, _ -> marchAnts());
     private JTextField textEditor;
     // Tooltip state for persistent guidance during image placement
     private Integer tooltipOriginalDismiss = null;
     private Integer tooltipOriginalInitial = null;
+    // Performance overlay; null while hidden
+    private PerfHud perfHud;
+    // Whole-canvas operations run here; off the EDT for large canvases
+    private final RenderWorker renderWorker = new RenderWorker(() -> {
+        boolean busy = isRendering();
+        firePropertyChange("rendering", !busy, busy);
+    });
+    // ----- View: zoom and pan -----
+    static final double MIN_ZOOM = 0.1;
+    static final double MAX_ZOOM = 32;
+    // Zoom In/Out walk these steps; Ctrl+wheel zooms continuously
+    private static final double[] ZOOM_STEPS = {0.1, 0.125, 0.167, 0.25, 0.333, 0.5, 0.667, 1, 1.5, 2, 3, 4, 6, 8, 12, 16, 24, 32};
+    // The pixel grid is only drawn once cells are big enough to see
+    private static final double GRID_MIN_ZOOM = 8;
+    private double zoom = 1.0;
+    private boolean pixelGrid = false;
+    // Reduced copies of the canvas for zoomed-out painting
+    private final MipmapPyramid pyramid = new MipmapPyramid();
+    // Last screen location while panning with the middle mouse button; null when not panning
+    private Point panAnchor;
+    // The current press started on a locked layer, so its drag and release are ignored
+    private boolean editBlocked;
+    // Told about every changed canvas region (null = everything), e.g. the navigator
+    private final List<java.util.function.Consumer<Rectangle>> dirtyListeners = new java.util.ArrayList<>();
+    // JFR event for the freehand stroke in progress and the area it has touched so far
+    private CanvasEvents.StrokeCommit strokeEvent;
+    private Rectangle strokeDirty;
+    // Whether the redaction being dragged is a solid mask rather than pixelation
+    private boolean redactSolid;
+    // Summed-area table of the part of the active layer a pixelating drag has covered so far
+    private Redaction redaction;
 
     // ----- History helpers -----
     private BufferedImage copyImage(BufferedImage src) {
@@ -100,70 +187,534 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         return dst;
     }
 
-    private void pushUndoSnapshot() {
+    // Before drawing on target: the current stack becomes the undo entry and target continues on
+    // its own copy of the pixels, so buffers referenced by history are never drawn on
+    private void pushUndoSnapshot(Layer target) {
+        long t0 = System.nanoTime();
         ensureCache();
-        if (highlightLayer == null || highlightLayer.getWidth() != cache.getWidth() || highlightLayer.getHeight() != cache.getHeight()) {
-            // keep highlight layer in sync
-            highlightLayer = new BufferedImage(cache.getWidth(), cache.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        }
-        undoStack.push(new LayerState(copyImage(cache), copyImage(highlightLayer)));
+        ensureHighlight();
+        List<Layer> snapshot = new ArrayList<>(layers.size());
+        for (Layer l : layers) snapshot.add(l.copy());
+        target.setImage(copyImage(target.image()));
+        // Same pixels in a new buffer: nothing needs recompositing
+        publishLayers(new Rectangle());
+        PerfMetrics.UNDO_SNAPSHOT.record(System.nanoTime() - t0);
+        pushHistory(new LayerState(snapshot, activeLayer));
+    }
+
+    // Push an entry whose Layer objects are no longer used by the live document
+    private void pushHistory(HistoryEntry state) {
+        undoStack.push(state);
         // Cap history size
         while (undoStack.size() > HISTORY_LIMIT) {
             undoStack.removeLast();
         }
         // New action invalidates redo history
         redoStack.clear();
+        coalesceKey = null;
+        publishHistoryBytes();
+    }
+
+    private void ensureHighlight() {
+        if (highlightLayer == null || highlightLayer.getWidth() != cache.getWidth() || highlightLayer.getHeight() != cache.getHeight()) {
+            // keep highlight layer in sync
+            highlightLayer = new BufferedImage(cache.getWidth(), cache.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            syncLayers();
+            notifyChanged(null);
+        }
+    }
+
+    private void publishHistoryBytes() {
+        // Buffers shared with the live document or between entries are counted once
+        java.util.Set<BufferedImage> counted = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+        for (Layer l : layers) counted.add(l.image());
+        long bytes = 0;
+        for (Deque<HistoryEntry> stack : List.of(undoStack, redoStack)) {
+            for (HistoryEntry e : stack) {
+                switch (e) {
+                    case LayerState s -> {
+                        for (Layer l : s.layers()) {
+                            if (counted.add(l.image())) bytes += PerfMetrics.imageBytes(l.image());
+                        }
+                    }
+                    case RegionEdit r -> bytes += PerfMetrics.imageBytes(r.pixels());
+                    case CompoundEdit c -> {
+                        for (RegionEdit r : c.parts()) bytes += PerfMetrics.imageBytes(r.pixels());
+                    }
+                }
+            }
+        }
+        PerfMetrics.undoBytes(bytes);
     }
 
     public boolean canUndo() { return !undoStack.isEmpty(); }
     public boolean canRedo() { return !redoStack.isEmpty(); }
 
     public void undo() {
-        if (!canUndo()) return;
+        if (!canUndo() || deferWhileRendering(this::undo)) return;
+        CanvasEvents.Undo event = CanvasEvents.begin(new CanvasEvents.Undo());
         // Drop any transient overlays (selection/paste placement) so UI matches history state
         dropOverlayAndSelection();
         ensureCache();
-        // Save current canvas to redo stack
-        if (highlightLayer == null || highlightLayer.getWidth() != cache.getWidth() || highlightLayer.getHeight() != cache.getHeight()) {
-            highlightLayer = new BufferedImage(cache.getWidth(), cache.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        }
-        redoStack.push(new LayerState(copyImage(cache), copyImage(highlightLayer)));
-        // Restore previous canvas state
-        Dimension old = getPreferredSize();
-        LayerState prev = undoStack.pop();
-        cache = copyImage(prev.base);
-        highlightLayer = copyImage(prev.highlight);
-        Dimension neu = new Dimension(cache.getWidth(), cache.getHeight());
-        setPreferredSize(neu);
-        // Notify listeners (e.g., GUI) that canvas size changed
-        firePropertyChange("canvasSize", old, neu);
-        revalidate();
-        repaint();
+        ensureHighlight();
+        // History entries own their layers exclusively, so undo/redo just swap stacks (no copies)
+        redoStack.push(restore(undoStack.pop()));
+        coalesceKey = null;
+        publishHistoryBytes();
+        CanvasEvents.commit(event, cache, CanvasEvents.bounds(cache));
     }
 
     public void redo() {
-        if (!canRedo()) return;
+        if (!canRedo() || deferWhileRendering(this::redo)) return;
+        CanvasEvents.Redo event = CanvasEvents.begin(new CanvasEvents.Redo());
         // Drop any transient overlays before changing history state
         dropOverlayAndSelection();
         ensureCache();
-        if (highlightLayer == null || highlightLayer.getWidth() != cache.getWidth() || highlightLayer.getHeight() != cache.getHeight()) {
-            highlightLayer = new BufferedImage(cache.getWidth(), cache.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        ensureHighlight();
+        undoStack.push(restore(redoStack.pop()));
+        coalesceKey = null;
+        publishHistoryBytes();
+        CanvasEvents.commit(event, cache, CanvasEvents.bounds(cache));
+    }
+
+    // Makes entry the live state and returns the entry that goes back to the current one
+    private HistoryEntry restore(HistoryEntry entry) {
+        return switch (entry) {
+            case LayerState state -> {
+                LayerState current = new LayerState(layers, activeLayer);
+                swapCanvas(state, null);
+                yield current;
+            }
+            case RegionEdit edit -> {
+                Rectangle r = edit.rect();
+                BufferedImage img = ownedPixels(edit.layer());
+                RegionEdit current = new RegionEdit(edit.layer(), r, copyRegion(img, r.x, r.y, r.width, r.height));
+                Graphics2D g = img.createGraphics();
+                try {
+                    g.setComposite(AlphaComposite.Src);
+                    g.drawImage(edit.pixels(), r.x, r.y, null);
+                } finally {
+                    g.dispose();
+                }
+                canvasChanged(edit.layer(), r);
+                repaintCanvas(r);
+                yield current;
+            }
+            case CompoundEdit compound -> {
+                // Undone last first; the inverse lists its parts in the order they were applied
+                List<RegionEdit> inverse = new ArrayList<>();
+                for (RegionEdit part : compound.parts().reversed()) inverse.add((RegionEdit) restore(part));
+                yield new CompoundEdit(inverse);
+            }
+        };
+    }
+
+    // The layer's buffer, first copied if a history entry shares it, so it can be edited in place
+    private BufferedImage ownedPixels(int index) {
+        Layer layer = layers.get(index);
+        for (Deque<HistoryEntry> stack : List.of(undoStack, redoStack)) {
+            for (HistoryEntry e : stack) {
+                if (e instanceof LayerState s && s.layers().stream().anyMatch(l -> l.image() == layer.image())) {
+                    layer.setImage(copyImage(layer.image()));
+                    // Same pixels in a new buffer: nothing needs recompositing
+                    publishLayers(new Rectangle());
+                    return layer.image();
+                }
+            }
+        }
+        return layer.image();
+    }
+
+    // ----- Layers -----
+    // Point cache/highlightLayer at the live stack and bring the compositor up to date; dirty is where
+    // replaced buffers differ from the old ones (null = everywhere, empty = same pixels)
+    private static void publishLayers(Rectangle dirty) {
+        cache = layers.get(activeLayer).image();
+        highlightLayer = layers.get(highlightsIndex()).image();
+        compositor.update(layers, activeLayer, dirty);
+        PerfMetrics.documentBytes(documentBytes());
+    }
+
+    // Re-adopts cache/highlightLayer after they were replaced from outside; true if anything changed
+    private static boolean syncLayers() {
+        if (cache == null) return false;
+        int w = cache.getWidth();
+        int h = cache.getHeight();
+        boolean fits = !layers.isEmpty();
+        for (Layer l : layers) fits &= l.image().getWidth() == w && l.image().getHeight() == h;
+        boolean highlightFits = highlightLayer != null && highlightLayer.getWidth() == w && highlightLayer.getHeight() == h;
+        if (!fits) {
+            // Start over with the two layers of a new document
+            BufferedImage hl = highlightFits ? highlightLayer : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            layers = new ArrayList<>(List.of(new Layer("Background", cache), new Layer("Highlights", hl, true)));
+            activeLayer = 0;
+        } else {
+            boolean changed = false;
+            Layer hl = layers.get(highlightsIndex());
+            if (hl.image() != highlightLayer && highlightFits) {
+                hl.setImage(highlightLayer);
+                changed = true;
+            }
+            if (layers.get(activeLayer).image() != cache) {
+                layers.get(activeLayer).setImage(cache);
+                changed = true;
+            }
+            if (!changed) {
+                highlightLayer = hl.image();
+                return false;
+            }
+        }
+        publishLayers(null);
+        return true;
+    }
+
+    private static int highlightsIndex() {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).isHighlights()) return i;
+        }
+        throw new IllegalStateException("document has no highlight layer");
+    }
+
+    // The layer a tool draws on: the highlighter always uses the highlight layer, the rest the active one
+    private Layer targetLayer(Tool tool) {
+        ensureCache();
+        return layers.get(tool == Tool.HIGHLIGHTER ? highlightsIndex() : activeLayer);
+    }
+
+    private boolean refuseLocked(Layer layer) {
+        if (!layer.isLocked()) return false;
+        Toolkit.getDefaultToolkit().beep();
+        return true;
+    }
+
+    // Memory held by the layers and the composite buffers; read on the EDT only
+    private static long documentBytes() {
+        long bytes = compositor.bytes();
+        for (Layer l : layers) bytes += PerfMetrics.imageBytes(l.image());
+        return bytes;
+    }
+
+    /** The document's layers for saving, bottom to top ({@code null} before anything was drawn). */
+    static List<Layer> documentLayers() {
+        if (cache == null) return null;
+        syncLayers();
+        return List.copyOf(layers);
+    }
+
+    static int documentActiveLayer() {
+        return activeLayer;
+    }
+
+    /** The flattened canvas, composited at least within {@code region} ({@code null} means all of it). */
+    BufferedImage composite(Rectangle region) {
+        ensureCache();
+        return compositor.flatten(region);
+    }
+
+    /** The layers, bottom to top. Change them through the methods below so the edits can be undone. */
+    List<Layer> getLayers() {
+        ensureCache();
+        return java.util.Collections.unmodifiableList(layers);
+    }
+
+    int getActiveLayerIndex() {
+        ensureCache();
+        return activeLayer;
+    }
+
+    /** Selects the layer the tools draw on (not an undoable edit). */
+    void setActiveLayer(int index) {
+        if (deferWhileRendering(() -> setActiveLayer(index))) return;
+        ensureCache();
+        if (index == activeLayer || index < 0 || index >= layers.size()) return;
+        // Pending text and placements belong to the old layer
+        commitEditorIfAny(true);
+        commitPlacement();
+        activeLayer = index;
+        publishLayers(new Rectangle());
+        fireLayersChanged();
+    }
+
+    /** Adds an empty layer above the active one and selects it. */
+    void addLayer() {
+        if (deferWhileRendering(this::addLayer)) return;
+        beginLayerEdit(null);
+        layers.add(activeLayer + 1, new Layer(nextLayerName(), blank(cache.getWidth(), cache.getHeight(), null)));
+        activeLayer++;
+        endLayerEdit();
+    }
+
+    /** Copies the active layer (pixels and properties) into a new layer above it. */
+    void duplicateLayer() {
+        if (deferWhileRendering(this::duplicateLayer)) return;
+        beginLayerEdit(null);
+        Layer src = layers.get(activeLayer);
+        Layer dup = new Layer(src.name() + " copy", copyImage(src.image()));
+        dup.setVisible(src.isVisible());
+        dup.setOpacity(src.opacity());
+        dup.setBlend(src.blend());
+        layers.add(activeLayer + 1, dup);
+        activeLayer++;
+        endLayerEdit();
+    }
+
+    /** Deletes the active layer. The highlight layer, locked layers and the last other layer stay. */
+    void deleteLayer() {
+        if (deferWhileRendering(this::deleteLayer)) return;
+        ensureCache();
+        Layer l = layers.get(activeLayer);
+        if (l.isHighlights() || l.isLocked() || layers.size() <= 2) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        beginLayerEdit(null);
+        layers.remove(activeLayer);
+        activeLayer = Math.max(0, activeLayer - 1);
+        endLayerEdit();
+    }
+
+    /** Moves the active layer up (positive) or down the stack; it stays selected. */
+    void moveLayer(int delta) {
+        if (deferWhileRendering(() -> moveLayer(delta))) return;
+        ensureCache();
+        int to = activeLayer + delta;
+        if (delta == 0 || to < 0 || to >= layers.size()) return;
+        beginLayerEdit(null);
+        Layer moved = layers.remove(activeLayer);
+        layers.add(to, moved);
+        activeLayer = to;
+        endLayerEdit();
+    }
+
+    /** Composites the active layer into the one below it, which keeps its own properties. */
+    void mergeDown() {
+        if (deferWhileRendering(this::mergeDown)) return;
+        ensureCache();
+        if (activeLayer == 0 || layers.get(activeLayer).isHighlights() || layers.get(activeLayer - 1).isLocked()) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        beginLayerEdit(null);
+        Layer top = layers.remove(activeLayer);
+        activeLayer--;
+        Layer bottom = layers.get(activeLayer);
+        // New pixels for the lower layer; the history entry keeps the old ones
+        BufferedImage merged = copyImage(bottom.image());
+        if (top.isVisible()) LayerCompositor.blendImage(top.image(), top.opacity(), top.blend(), merged);
+        bottom.setImage(merged);
+        endLayerEdit();
+    }
+
+    void setLayerVisible(int index, boolean visible) {
+        if (index < 0 || index >= getLayers().size() || layers.get(index).isVisible() == visible) return;
+        editLayer(index, null, l -> l.setVisible(visible));
+    }
+
+    /** Changes a layer's opacity; a run of changes to the same layer is undone as one. */
+    void setLayerOpacity(int index, float opacity) {
+        if (index < 0 || index >= getLayers().size() || layers.get(index).opacity() == opacity) return;
+        editLayer(index, "opacity:" + index, l -> l.setOpacity(opacity));
+    }
+
+    void setLayerBlend(int index, BlendMode blend) {
+        if (index < 0 || index >= getLayers().size() || layers.get(index).blend() == blend) return;
+        editLayer(index, null, l -> l.setBlend(blend));
+    }
+
+    void setLayerLocked(int index, boolean locked) {
+        if (index < 0 || index >= getLayers().size() || layers.get(index).isLocked() == locked) return;
+        editLayer(index, null, l -> l.setLocked(locked));
+    }
+
+    void renameLayer(int index, String name) {
+        if (name == null || name.isBlank() || index < 0 || index >= getLayers().size()) return;
+        editLayer(index, null, l -> l.setName(name.strip()));
+    }
+
+    /**
+     * Replaces the whole document, e.g. with the layers of an opened OpenRaster file (undoable).
+     * All layers must be TYPE_INT_ARGB and the same size; a highlight layer is added if missing.
+     */
+    void setDocument(List<Layer> stack, int active) {
+        if (stack.isEmpty() || deferWhileRendering(() -> setDocument(stack, active))) return;
+        commitEditorIfAny(true);
+        dropOverlayAndSelection();
+        ensureCache();
+        ensureHighlight();
+        List<Layer> next = new ArrayList<>(stack);
+        if (next.stream().noneMatch(Layer::isHighlights)) {
+            BufferedImage first = next.getFirst().image();
+            next.add(new Layer("Highlights", blank(first.getWidth(), first.getHeight(), null), true));
+        }
+        pushHistory(new LayerState(layers, activeLayer));
+        swapCanvas(new LayerState(next, Math.max(0, Math.min(active, next.size() - 1))), null);
+    }
+
+    private void editLayer(int index, String coalesce, java.util.function.Consumer<Layer> change) {
+        if (deferWhileRendering(() -> editLayer(index, coalesce, change))) return;
+        beginLayerEdit(coalesce);
+        change.accept(layers.get(index));
+        endLayerEdit();
+    }
+
+    // Starts an undoable change to the stack or layer properties. Pixels are not touched, so the
+    // history entry shares them with the live layers
+    private void beginLayerEdit(String coalesce) {
+        commitEditorIfAny(true);
+        if (placingImage) commitPlacement();
+        ensureCache();
+        ensureHighlight();
+        if (coalesce == null || !coalesce.equals(coalesceKey)) {
+            List<Layer> snapshot = new ArrayList<>(layers.size());
+            for (Layer l : layers) snapshot.add(l.copy());
+            pushHistory(new LayerState(snapshot, activeLayer));
         }
-        // Save current canvas to undo stack
-        undoStack.push(new LayerState(copyImage(cache), copyImage(highlightLayer)));
-        // Restore next canvas state
-        Dimension old = getPreferredSize();
-        LayerState next = redoStack.pop();
-        cache = copyImage(next.base);
-        highlightLayer = copyImage(next.highlight);
+        coalesceKey = coalesce;
+    }
+
+    private void endLayerEdit() {
+        publishLayers(null);
+        notifyChanged(null);
+        fireLayersChanged();
+        repaint();
+    }
+
+    private void fireLayersChanged() {
+        firePropertyChange("layers", null, List.copyOf(layers));
+    }
+
+    private static String nextLayerName() {
+        int n = layers.size();
+        while (true) {
+            String name = "Layer " + n;
+            if (layers.stream().noneMatch(l -> l.name().equals(name))) return name;
+            n++;
+        }
+    }
+
+    // ----- Whole-canvas operations -----
+    /** True while a large canvas operation is running on the render thread. */
+    public boolean isRendering() {
+        return renderWorker.isBusy();
+    }
+
+    // While a render job is in flight the canvas is read-only; queue the action behind it
+    private boolean deferWhileRendering(Runnable action) {
+        if (!renderWorker.isBusy()) return false;
+        renderWorker.defer(action);
+        return true;
+    }
+
+    // Composite revision, copied region and mask (by identity) of the last copy
+    private record CopyKey(long revision, Rectangle region, SelectionMask mask) {
+    }
+
+    // Old buffers (history, may be null to skip the undo entry) and the new live buffers
+    private record CanvasSwap(LayerState history, LayerState live, Rectangle dirty) {
+    }
+
+    /**
+     * Runs an operation that produces new canvas buffers from the current ones. {@code op} may run
+     * on the render thread: it must only read its argument and allocate new images. {@code event}
+     * may be null.
+     */
+    private void runCanvasOp(String name, CanvasEvents.CanvasEvent event, java.util.function.Function<LayerState, CanvasSwap> op) {
+        ensureCache();
+        runCanvasOp(name, event, new Dimension(cache.getWidth(), cache.getHeight()), op);
+    }
+
+    // As above for an operation whose result is w x h; the larger of the two sizes picks the thread
+    private void runCanvasOp(String name, CanvasEvents.CanvasEvent event, Dimension result, java.util.function.Function<LayerState, CanvasSwap> op) {
+        ensureCache();
+        ensureHighlight();
+        LayerState current = new LayerState(List.copyOf(layers), activeLayer);
+        long pixels = Math.max((long) cache.getWidth() * cache.getHeight(), (long) result.width * result.height) * layers.size();
+        renderWorker.run(name, pixels, () -> op.apply(current), swap -> {
+            swapCanvas(swap.live(), swap.dirty());
+            // After the swap, so the history bytes count the old buffers as no longer live
+            if (swap.history() != null) pushHistory(swap.history());
+            if (event != null) CanvasEvents.commit(event, cache, swap.dirty());
+        }, err -> JOptionPane.showMessageDialog(this,
+                "Unable to complete " + name + ": " + err.getMessage(), "Paint", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // Publish a new layer stack, announcing a size change if there is one; dirty == null means all
+    private void swapCanvas(LayerState live, Rectangle dirty) {
+        Dimension old = new Dimension(cache.getWidth(), cache.getHeight());
+        layers = new ArrayList<>(live.layers());
+        activeLayer = live.active();
+        publishLayers(dirty);
+        notifyChanged(dirty);
         Dimension neu = new Dimension(cache.getWidth(), cache.getHeight());
         setPreferredSize(neu);
         // Notify listeners (e.g., GUI) that canvas size changed
         firePropertyChange("canvasSize", old, neu);
+        fireLayersChanged();
         revalidate();
         repaint();
     }
 
+    // Copy of src at least w x h; grown area is filled with bg (null keeps it transparent)
+    private static BufferedImage grownCopy(BufferedImage src, int w, int h, Color bg) {
+        int nw = Math.max(w, src.getWidth());
+        int nh = Math.max(h, src.getHeight());
+        BufferedImage dst = new BufferedImage(nw, nh, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            if (bg != null && (nw > src.getWidth() || nh > src.getHeight())) {
+                g.setColor(bg);
+                g.fillRect(0, 0, nw, nh);
+            }
+            g.drawImage(src, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    private static BufferedImage copyRegion(BufferedImage src, int x, int y, int w, int h) {
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            // Src, so translucent pixels are copied exactly rather than blended onto nothing
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(src.getSubimage(x, y, w, h), 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    // Same size as src with its pixels at (0,0), clipped or padded with bg (null keeps it transparent)
+    private static BufferedImage resizedCopy(BufferedImage src, int w, int h, Color bg) {
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            if (bg != null) {
+                g.setColor(bg);
+                g.fillRect(0, 0, w, h);
+            }
+            g.drawImage(src, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    // Empty pixels for a layer: the bottom layer is white paper, the others are transparent
+    private static Color fillFor(List<Layer> stack, Layer l) {
+        return l == stack.getFirst() && !l.isHighlights() ? Color.WHITE : null;
+    }
+
+    private static BufferedImage blank(int w, int h, Color bg) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        if (bg != null) {
+            int[] px = LayerCompositor.pixels(img);
+            PixelKernels.fill(px, 0, px.length, bg.getRGB());
+        }
+        return img;
+    }
+
     DrawArea() {
         this(() -> null);
     }
@@ -181,10 +732,10 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         try {
             if (img == null) return Cursor.getDefaultCursor();
             Toolkit tk = Toolkit.getDefaultToolkit();
-            Dimension best = tk.getBestCursorSize(32, 32);
-            int w = best.width <= 0 ? 32 : best.width;
-            int h = best.height <= 0 ? 32 : best.height;
-            Image scaled = img.getScaledInstance(w, h, Image.SCALE_SMOOTH);
+            Dimension best = cursorSize();
+            // Atlas icons already come at the cursor size; only scale the generated fallbacks
+            Image scaled = img.getWidth() == best.width && img.getHeight() == best.height
+                    ? img : img.getScaledInstance(best.width, best.height, Image.SCALE_SMOOTH);
             Point hs = hotspot != null ? hotspot : new Point(1, 1);
             return tk.createCustomCursor(scaled, hs, name != null ? name : "tool");
         } catch (Exception ex) {
@@ -192,22 +743,17 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         }
     }
 
+    private Dimension cursorSize() {
+        Dimension best = Toolkit.getDefaultToolkit().getBestCursorSize(32, 32);
+        int w = best.width <= 0 ? 32 : best.width;
+        int h = best.height <= 0 ? 32 : best.height;
+        return new Dimension(w, h);
+    }
+
     private BufferedImage loadToolIcon(Tool tool) {
-        String res = null;
-        for (String[] m : TOOL_ICON_MAP) {
-            if (m[0].equals(tool.name())) {
-                res = m[1];
-                break;
-            }
-        }
-        if (res == null) return null;
-        try {
-            java.io.InputStream in = SideMenu.class.getResourceAsStream("/images/" + res);
-            if (in != null) {
-                return ImageIO.read(in);
-            }
-        } catch (Exception ignored) {
-        }
+        Dimension best = cursorSize();
+        BufferedImage icon = IconAtlas.icon(tool.icon(), best.width, best.height);
+        if (icon != null) return icon;
         // Fallback for move icon: draw simple cross-arrows
         if (tool == Tool.MOVE) {
             int size = 32;
@@ -271,7 +817,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         // Prefer the backing cache size; this keeps layout stable across ribbon reflows
         try {
             if (cache != null) {
-                return new Dimension(cache.getWidth(), cache.getHeight());
+                return new Dimension(toView(cache.getWidth()), toView(cache.getHeight()));
             }
             // Fallback to whatever was explicitly set or super's default without initializing cache
             Dimension d = super.getPreferredSize();
@@ -287,8 +833,8 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         // Guard against collapse to nearly zero during layout churn
         try {
             if (cache != null) {
-                int w = Math.max(32, cache.getWidth());
-                int h = Math.max(32, cache.getHeight());
+                int w = Math.max(32, toView(cache.getWidth()));
+                int h = Math.max(32, toView(cache.getHeight()));
                 return new Dimension(w, h);
             }
         } catch (Throwable ignored) {}
@@ -318,6 +864,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         setOpaque(true);
         addMouseListener(this);
         addMouseMotionListener(this);
+        addMouseWheelListener(this::mouseWheelMoved);
         // Initial fallback preferred size; actual preferred size derives from cache via getPreferredSize()
         setPreferredSize(new Dimension(700, 100));
         // Prevent layout from collapsing the canvas to 0x0 when the ribbon expands/contracts
@@ -350,7 +897,9 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                                 setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
                             }
                         } else {
-                            // Leaving Move: drop selection marquee if any
+                            // Leaving Move: drop an unfinished lasso/polygon and the selection marquee if any
+                            selectionPath = null;
+                            polygonHover = null;
                             if (selecting) {
                                 selecting = false;
                                 selectionRect = null;
@@ -376,12 +925,34 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                             } catch (Exception ignored) {}
                         });
                     }
+                    case "selectMode" -> {
+                        selectionPath = null;
+                        polygonHover = null;
+                        repaint();
+                    }
                     case "font", "fontSize" -> updateEditorFontFromState();
                     case "color" -> updateEditorColorFromState();
                 }
             });
         }
 
+        // Zoom keys; Ctrl+= and Ctrl+numpad +/- as well, since Ctrl+Shift+= is awkward to type
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, InputEvent.CTRL_DOWN_MASK), "zoomIn");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_ADD, InputEvent.CTRL_DOWN_MASK), "zoomIn");
+        getActionMap().put("zoomIn", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                zoomIn();
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_SUBTRACT, InputEvent.CTRL_DOWN_MASK), "zoomOut");
+        getActionMap().put("zoomOut", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                zoomOut();
+            }
+        });
+
         // Key binding: Ctrl+M to select Move tool
         getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_M, InputEvent.CTRL_DOWN_MASK), "selectMoveTool");
         getActionMap().put("selectMoveTool", new AbstractAction() {
@@ -410,6 +981,21 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                 copyToClipboard();
             }
         });
+        // Key bindings: Ctrl+X cuts and Delete clears the selection
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_X, InputEvent.CTRL_DOWN_MASK), "cutImage");
+        getActionMap().put("cutImage", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                cutToClipboard();
+            }
+        });
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "deleteSelection");
+        getActionMap().put("deleteSelection", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                deleteSelection();
+            }
+        });
         // Key binding: Ctrl+A to select all
         getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_A, InputEvent.CTRL_DOWN_MASK), "selectAll");
         getActionMap().put("selectAll", new AbstractAction() {
@@ -423,14 +1009,24 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         getActionMap().put("commitPlacement", new AbstractAction() {
             @Override
             public void actionPerformed(java.awt.event.ActionEvent e) {
-                commitPlacement();
+                if (selectionPath != null) {
+                    closeSelectionPath();
+                } else {
+                    commitPlacement();
+                }
             }
         });
         getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "cancelPlacement");
         getActionMap().put("cancelPlacement", new AbstractAction() {
             @Override
             public void actionPerformed(java.awt.event.ActionEvent e) {
-                cancelPlacement();
+                if (selectionPath != null) {
+                    selectionPath = null;
+                    polygonHover = null;
+                    repaint();
+                } else {
+                    cancelPlacement();
+                }
             }
         });
 
@@ -447,10 +1043,10 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             public boolean importData(TransferSupport support) {
                 if (!canImport(support)) return false;
                 try {
-                    Point p = support.getDropLocation().getDropPoint();
+                    Point p = viewToCanvas(support.getDropLocation().getDropPoint());
                     if (support.isDataFlavorSupported(DataFlavor.imageFlavor)) {
                         Image img = (Image) support.getTransferable().getTransferData(DataFlavor.imageFlavor);
-                        BufferedImage bi = toBufferedImage(img);
+                        BufferedImage bi = ImageFormats.toIntArgb(img);
                         if (bi != null) {
                             enterPlacement(bi, p.x, p.y);
                             return true;
@@ -458,16 +1054,10 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                     } else if (support.isDataFlavorSupported(DataFlavor.javaFileListFlavor)) {
                         @SuppressWarnings("unchecked")
                         List<File> files = (List<File>) support.getTransferable().getTransferData(DataFlavor.javaFileListFlavor);
-                        for (File f : files) {
-                            try {
-                                BufferedImage bi = ImageIO.read(f);
-                                if (bi != null) {
-                                    enterPlacement(bi, p.x, p.y);
-                                    return true;
-                                }
-                            } catch (Exception ignored) {
-                            }
-                        }
+                        if (files.isEmpty()) return false;
+                        // Decoded off the EDT; the images land once all of them are read
+                        BatchImporter.start(DrawArea.this, List.copyOf(files), batch -> importBatch(batch, p));
+                        return true;
                     }
                 } catch (Exception ignored) {
                 }
@@ -483,7 +1073,8 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         int idx = SideMenu.getSelectedFont();
         int size = SideMenu.getFontSize();
         String family = (idx >= 0 && idx < fonts.length) ? fonts[idx] : textEditor.getFont().getFamily();
-        textEditor.setFont(new Font(family, Font.PLAIN, size));
+        // The editor lives in view coordinates, so it follows the zoom
+        textEditor.setFont(new Font(family, Font.PLAIN, Math.max(1, toView(size))));
         // Adjust height to font metrics
         FontMetrics fm = getFontMetrics(textEditor.getFont());
         int h = fm.getHeight() + 6;
@@ -508,7 +1099,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             Transferable t = cb.getContents(null);
             if (t != null && t.isDataFlavorSupported(DataFlavor.imageFlavor)) {
                 Image img = (Image) t.getTransferData(DataFlavor.imageFlavor);
-                BufferedImage bi = toBufferedImage(img);
+                BufferedImage bi = ImageFormats.toIntArgb(img);
                 if (bi == null) return;
                 int px = (Math.max(cursorX, 0));
                 int py = (Math.max(cursorY, 0));
@@ -521,66 +1112,130 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
 
     // Copy entire image or selection to system clipboard
     public void copyToClipboard() {
-        BufferedImage img;
-        if (selectionRect != null && selectionRect.width > 0 && selectionRect.height > 0) {
-            BufferedImage flattened = getFlattenedImage();
-            if (flattened == null) return;
-            int x = Math.max(0, Math.min(selectionRect.x, flattened.getWidth() - 1));
-            int y = Math.max(0, Math.min(selectionRect.y, flattened.getHeight() - 1));
-            int w = Math.max(1, Math.min(selectionRect.width, flattened.getWidth() - x));
-            int h = Math.max(1, Math.min(selectionRect.height, flattened.getHeight() - y));
-            img = flattened.getSubimage(x, y, w, h);
-        } else {
-            img = getFlattenedImage();
-        }
-        if (img == null) return;
+        if (deferWhileRendering(this::copyToClipboard)) return;
+        copyTo(Toolkit.getDefaultToolkit().getSystemClipboard());
+    }
 
-        final BufferedImage finalImg = img;
-        Transferable transferable = new Transferable() {
-            @Override
-            public DataFlavor[] getTransferDataFlavors() {
-                return new DataFlavor[]{DataFlavor.imageFlavor};
-            }
+    /** Puts the selection or canvas on {@code clipboard}, unless it already holds exactly that. */
+    void copyTo(Clipboard clipboard) {
+        CanvasTransferable contents = clipboardContents();
+        if (contents == null) return;
+        // Already there: nothing to replace, and nothing for the owner to lose
+        if (clipboard.getContents(clipboardOwner) == contents) return;
+        clipboard.setContents(contents, clipboardOwner);
+    }
 
-            @Override
-            public boolean isDataFlavorSupported(DataFlavor flavor) {
-                return DataFlavor.imageFlavor.equals(flavor);
-            }
+    /**
+     * The selection, or the whole canvas, as clipboard contents. Copying the same pixels again
+     * (same composite revision and selection) returns the previous contents without touching any
+     * pixels, so their PNG is not encoded twice. Otherwise only the copied region is composited.
+     */
+    CanvasTransferable clipboardContents() {
+        if (cache == null) return null;
+        // Adopts replaced buffers, so the revision below is current
+        syncLayers();
+        int cw = cache.getWidth();
+        int ch = cache.getHeight();
+        Rectangle region = new Rectangle(0, 0, cw, ch);
+        SelectionMask mask = null;
+        if (selectionRect != null && selectionRect.width > 0 && selectionRect.height > 0) {
+            int x = Math.max(0, Math.min(selectionRect.x, cw - 1));
+            int y = Math.max(0, Math.min(selectionRect.y, ch - 1));
+            int w = Math.max(1, Math.min(selectionRect.width, cw - x));
+            int h = Math.max(1, Math.min(selectionRect.height, ch - y));
+            region = new Rectangle(x, y, w, h);
+            mask = activeMask();
+        }
+        CopyKey key = new CopyKey(compositor.revision(), region, mask);
+        if (key.equals(lastCopyKey)) return lastCopy;
+        // The composite keeps changing, so the clipboard gets its own copy of the pixels
+        BufferedImage img = copyRegion(compositor.flatten(region), region.x, region.y, region.width, region.height);
+        // Only the masked pixels; the rest of the bounds is transparent
+        if (mask != null) mask.fill(img, region.x, region.y, 0, false);
+        lastCopy = new CanvasTransferable(img);
+        lastCopyKey = key;
+        return lastCopy;
+    }
 
-            @Override
-            public Object getTransferData(DataFlavor flavor) throws UnsupportedOperationException {
-                if (isDataFlavorSupported(flavor)) return finalImg;
-                throw new UnsupportedOperationException();
-            }
-        };
-        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(transferable, null);
+    /** Copies the selection to the clipboard and clears it from the active layer. */
+    public void cutToClipboard() {
+        if (deferWhileRendering(this::cutToClipboard)) return;
+        if (selectionRect == null) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        copyToClipboard();
+        deleteSelection();
     }
 
     public void selectAll() {
+        if (deferWhileRendering(this::selectAll)) return;
         ensureCache();
+        setSelectionMask(null);
         selecting = false; // We are not in the middle of dragging a selection
         selectionRect = new Rectangle(0, 0, cache.getWidth(), cache.getHeight());
         repaint();
     }
 
-    private BufferedImage toBufferedImage(Image img) {
-        if (img instanceof BufferedImage b) return b;
-        int w = img.getWidth(null);
-        int h = img.getHeight(null);
-        if (w <= 0 || h <= 0) return null;
-        BufferedImage bimg = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = bimg.createGraphics();
-        try {
-            g2.drawImage(img, 0, 0, null);
-        } finally {
-            g2.dispose();
+    // ---------- Dropped files ----------
+    private void importBatch(BatchImporter.Batch batch, Point at) {
+        if (!batch.unreadable().isEmpty()) {
+            System.out.println("[Import] Skipped unreadable files: " + batch.unreadable());
         }
-        return bimg;
-    }
+        List<BatchImporter.Imported> images = batch.images();
+        if (images.isEmpty()) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        BatchImporter.Layout layout = BatchImporter.Layout.GRID;
+        if (images.size() > 1 && !GraphicsEnvironment.isHeadless()) {
+            Object choice = JOptionPane.showInputDialog(this, "Place the " + images.size() + " images as:", "Import Images",
+                    JOptionPane.QUESTION_MESSAGE, null, BatchImporter.Layout.values(), layout);
+            if (choice == null) return;
+            layout = (BatchImporter.Layout) choice;
+        }
+        importImages(images, at, layout);
+    }
+
+    /**
+     * Puts several decoded images on the canvas at {@code at}: as one floating grid of pictures, or as
+     * a new layer per picture above the active one (one undoable step, growing the canvas to fit).
+     */
+    void importImages(List<BatchImporter.Imported> images, Point at, BatchImporter.Layout layout) {
+        if (images.isEmpty() || deferWhileRendering(() -> importImages(images, at, layout))) return;
+        commitEditorIfAny(true);
+        if (placingImage) commitPlacement();
+        if (layout == BatchImporter.Layout.GRID || images.size() == 1) {
+            List<BufferedImage> pictures = images.stream().map(BatchImporter.Imported::image).toList();
+            enterPlacement(images.size() == 1 ? pictures.getFirst() : BatchImporter.grid(pictures), at.x, at.y);
+            return;
+        }
+        beginLayerEdit(null);
+        int needW = 0, needH = 0;
+        for (BatchImporter.Imported i : images) {
+            needW = Math.max(needW, at.x + i.image().getWidth());
+            needH = Math.max(needH, at.y + i.image().getHeight());
+        }
+        ensureCapacity(needW, needH);
+        for (BatchImporter.Imported i : images) {
+            BufferedImage pixels = blank(cache.getWidth(), cache.getHeight(), null);
+            Graphics2D g = pixels.createGraphics();
+            try {
+                g.drawImage(i.image(), at.x, at.y, null);
+            } finally {
+                g.dispose();
+            }
+            String name = i.file().getName().replaceFirst("\\.[^.]*$", "");
+            layers.add(++activeLayer, new Layer(name.isEmpty() ? nextLayerName() : name, pixels));
+        }
+        endLayerEdit();
+        revalidate();
+    }
 
     // ---------- Image placement mode ----------
     private void enterPlacement(BufferedImage img, int x, int y) {
-        pendingImage = img;
+        // Converted once here, so drawing it on every drag frame is a plain INT_ARGB blit
+        pendingImage = ImageFormats.toIntArgb(img);
         pendingX = x;
         pendingY = y;
         placingImage = true;
@@ -594,59 +1249,91 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
      * The user can drag to reposition and press Enter to commit or Esc to cancel.
      */
     public void startImagePlacement(BufferedImage img) {
-        if (img == null) return;
+        if (img == null || deferWhileRendering(() -> startImagePlacement(img))) return;
         // If there is an ongoing placement, commit it first to avoid losing it.
         if (placingImage) {
             commitPlacement();
         }
-        Rectangle vr = getVisibleRect();
+        Rectangle vr = viewToCanvas(getVisibleRect());
         int x = Math.max(0, vr.x + (vr.width - img.getWidth()) / 2);
         int y = Math.max(0, vr.y + (vr.height - img.getHeight()) / 2);
         enterPlacement(img, x, y);
     }
 
     private void commitPlacement() {
-        if (!placingImage || pendingImage == null) return;
-        // History snapshot before placing
-        pushUndoSnapshot();
-        // Ensure canvas can contain the placed image at its target position
-        ensureCapacity(pendingX + pendingImage.getWidth(), pendingY + pendingImage.getHeight());
-        var g2 = cache.createGraphics();
+        if (!placingImage || pendingImage == null || deferWhileRendering(this::commitPlacement)) return;
+        if (refuseLocked(targetLayer(Tool.MOVE))) return;
+        CanvasEvents.PlacementCommit event = CanvasEvents.begin(new CanvasEvents.PlacementCommit());
+        event.fromSelection = selectionPlacement;
+        Rectangle dest = new Rectangle(pendingX, pendingY, pendingImage.getWidth(), pendingImage.getHeight());
+        if (dest.x + dest.width > cache.getWidth() || dest.y + dest.height > cache.getHeight()) {
+            // The canvas grows to hold the image, so the whole stack is the undo entry. A moved
+            // selection's cut joins it: the snapshot is taken with the cut pixels back in place
+            // and the cut is made again on the live layer
+            if (selectionCut != null && undoStack.peek() == selectionCut) {
+                undoStack.pop();
+                HistoryEntry cleared = restore(selectionCut);
+                pushUndoSnapshot(targetLayer(Tool.MOVE));
+                restore(cleared);
+            } else {
+                pushUndoSnapshot(targetLayer(Tool.MOVE));
+            }
+            ensureCapacity(dest.x + dest.width, dest.y + dest.height);
+            drawPending(cache);
+        } else {
+            // Only the pixels under the drop are kept for undo; a moved selection's cut and drop
+            // become one step
+            Rectangle under = dest.intersection(new Rectangle(0, 0, cache.getWidth(), cache.getHeight()));
+            if (!under.isEmpty()) {
+                BufferedImage img = ownedPixels(activeLayer);
+                RegionEdit drop = new RegionEdit(activeLayer, under, copyRegion(img, under.x, under.y, under.width, under.height));
+                drawPending(img);
+                if (selectionCut != null && undoStack.peek() == selectionCut) {
+                    undoStack.pop();
+                    pushHistory(new CompoundEdit(List.of(selectionCut, drop)));
+                } else {
+                    pushHistory(drop);
+                }
+            }
+        }
+        lastPastedRect = dest;
+        canvasChanged(lastPastedRect);
+        CanvasEvents.commit(event, cache, lastPastedRect);
+        // Selection move was confirmed; the cut stays in history
+        selectionPlacement = false;
+        selectionCut = null;
+        cancelPlacementInternal();
+        repaint();
+    }
+
+    private void drawPending(BufferedImage target) {
+        Graphics2D g2 = target.createGraphics();
         try {
             applyRenderHints(g2);
             g2.drawImage(pendingImage, pendingX, pendingY, null);
         } finally {
             g2.dispose();
         }
-        lastPastedRect = new Rectangle(pendingX, pendingY, pendingImage.getWidth(), pendingImage.getHeight());
-        // Selection move was confirmed; discard backup
-        selectionPlacement = false;
-        selectionCutBackup = null;
-        selectionCutRect = null;
-        cancelPlacementInternal();
-        repaint();
     }
 
     private void cancelPlacement() {
-        if (!placingImage) return;
+        if (!placingImage || deferWhileRendering(this::cancelPlacement)) return;
         cancelPlacementInternal();
         repaint();
     }
 
     private void cancelPlacementInternal() {
-        // If we were moving a selection, restore the cut area
-        if (selectionPlacement && selectionCutBackup != null && selectionCutRect != null) {
+        // If we were moving a selection, put the cut pixels back; the cut leaves history with them
+        if (selectionPlacement && selectionCut != null) {
             ensureCache();
-            Graphics2D g2 = cache.createGraphics();
-            try {
-                g2.drawImage(selectionCutBackup, selectionCutRect.x, selectionCutRect.y, null);
-            } finally {
-                g2.dispose();
+            restore(selectionCut);
+            if (undoStack.peek() == selectionCut) {
+                undoStack.pop();
+                publishHistoryBytes();
             }
         }
         selectionPlacement = false;
-        selectionCutBackup = null;
-        selectionCutRect = null;
+        selectionCut = null;
         placingImage = false;
         pendingImage = null;
         pendingDragOffsetX = 0;
@@ -663,10 +1350,13 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         pendingDragOffsetX = 0;
         pendingDragOffsetY = 0;
         selectionPlacement = false;
-        selectionCutBackup = null;
-        selectionCutRect = null;
+        selectionCut = null;
         selecting = false;
         selectionRect = null;
+        selectionMask = null;
+        selectionOutline = null;
+        selectionPath = null;
+        polygonHover = null;
         updateCursorForCurrentTool();
         updatePlacementTooltip();
     }
@@ -678,32 +1368,18 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
 
     // Crop canvas to the last pasted image's size and position
     public void cropToImageSize() {
-        if (cache == null || lastPastedRect == null) return;
-        // History snapshot before crop
-        pushUndoSnapshot();
+        if (cache == null || lastPastedRect == null || deferWhileRendering(this::cropToImageSize)) return;
+        CanvasEvents.Crop event = CanvasEvents.begin(new CanvasEvents.Crop());
+        event.source = "image";
         Rectangle r = lastPastedRect;
         // Clamp within cache bounds
         int x = Math.max(0, Math.min(r.x, cache.getWidth() - 1));
         int y = Math.max(0, Math.min(r.y, cache.getHeight() - 1));
         int w = Math.max(1, Math.min(r.width, cache.getWidth() - x));
         int h = Math.max(1, Math.min(r.height, cache.getHeight() - y));
-        BufferedImage sub = cache.getSubimage(x, y, w, h);
-        BufferedImage copy = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = copy.createGraphics();
-        try {
-            g2.drawImage(sub, 0, 0, null);
-        } finally {
-            g2.dispose();
-        }
-        // Record old preferred size before mutating
-        Dimension old = getPreferredSize();
-        cache = copy;
-        Dimension neu = new Dimension(w, h);
-        setPreferredSize(neu);
-        // Notify listeners that canvas size changed
-        firePropertyChange("canvasSize", old, neu);
-        revalidate();
-        repaint();
+        // The old buffers become the history entry; the crop builds new ones
+        runCanvasOp("crop", event, old -> new CanvasSwap(old,
+                old.map((l, img) -> copyRegion(img, x, y, w, h)), new Rectangle(x, y, w, h)));
     }
 
     // Crop canvas to the current selection rectangle (from Move tool)
@@ -713,6 +1389,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             System.out.println("[CropToSelection] No cache; nothing to crop.");
             return;
         }
+        if (deferWhileRendering(this::cropToSelection)) return;
 
         // Case A: Any placement in progress (selection move OR pasted image)
         // In this state, selectionRect is cleared, and we have: placingImage=true, pendingImage != null
@@ -722,34 +1399,23 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                 Toolkit.getDefaultToolkit().beep();
                 return;
             }
-            // Crop to the content being placed (copy pendingImage into a new canvas at 0,0)
-            // If this pendingImage came from a selection cut, the undo stack already
-            // contains a snapshot from before the cut (see mouseReleased selection handling).
-            // In that case we must NOT push another snapshot here, otherwise undo will
-            // require two steps to restore the original image. Only push a snapshot
-            // when the pending image is a pasted image (selectionPlacement == false).
-            if (!selectionPlacement) pushUndoSnapshot();
-            int w = Math.max(1, pendingImage.getWidth());
-            int h = Math.max(1, pendingImage.getHeight());
-            BufferedImage copy = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2 = copy.createGraphics();
-            try {
-                g2.drawImage(pendingImage, 0, 0, null);
-            } finally {
-                g2.dispose();
-            }
-            // record old size before changing
-            Dimension old = getPreferredSize();
-            cache = copy;
-            Dimension neu = new Dimension(w, h);
-            setPreferredSize(neu);
+            // Crop to the content being placed (copy pendingImage into a new canvas at 0,0).
+            // The stack from before the crop is the undo entry; for a selection, the cut that
+            // lifted it is the entry below (undone second).
+            CanvasEvents.Crop event = CanvasEvents.begin(new CanvasEvents.Crop());
+            event.source = "placement";
+            BufferedImage placed = pendingImage;
+            boolean fromSelection = selectionPlacement;
+            int w = Math.max(1, placed.getWidth());
+            int h = Math.max(1, placed.getHeight());
             // Clear overlays/selection/placement completely
             dropOverlayAndSelection();
-            // Notify listeners that canvas size changed
-            firePropertyChange("canvasSize", old, neu);
-            revalidate();
-            repaint();
-            System.out.println("[CropToSelection] Cropped to placement (" + (selectionPlacement ? "selection" : "pasted image") + "): " + w + "x" + h);
+            // The placed content becomes the active layer; every other layer starts out empty
+            runCanvasOp("crop", event, old -> new CanvasSwap(old,
+                    old.map((l, img) -> l == old.layers().get(old.active())
+                            ? grownCopy(placed, w, h, null) : blank(w, h, fillFor(old.layers(), l))),
+                    new Rectangle(0, 0, w, h)));
+            System.out.println("[CropToSelection] Cropped to placement (" + (fromSelection ? "selection" : "pasted image") + "): " + w + "x" + h);
             return;
         }
 
@@ -760,35 +1426,30 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             return;
         }
 
-        // History snapshot before crop
-        pushUndoSnapshot();
+        CanvasEvents.Crop event = CanvasEvents.begin(new CanvasEvents.Crop());
+        event.source = "selection";
         // Clamp selection within cache bounds
         int x = Math.max(0, Math.min(selectionRect.x, cache.getWidth() - 1));
         int y = Math.max(0, Math.min(selectionRect.y, cache.getHeight() - 1));
         int w = Math.max(1, Math.min(selectionRect.width, cache.getWidth() - x));
         int h = Math.max(1, Math.min(selectionRect.height, cache.getHeight() - y));
-        BufferedImage sub = cache.getSubimage(x, y, w, h);
-        BufferedImage copy = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = copy.createGraphics();
-        try {
-            g2.drawImage(sub, 0, 0, null);
-        } finally {
-            g2.dispose();
-        }
-        cache = copy;
-    Dimension old = getPreferredSize();
-    Dimension neu = new Dimension(w, h);
-    setPreferredSize(neu);
-    // Clear overlays/selection state
+        SelectionMask mask = activeMask();
+        // Clear overlays/selection state
         selecting = false;
         selectionRect = null;
+        selectionMask = null;
+        selectionOutline = null;
         selectionPlacement = false;
-        selectionCutBackup = null;
-        selectionCutRect = null;
-        // Notify listeners that canvas size changed
-        firePropertyChange("canvasSize", old, neu);
-        revalidate();
-        repaint();
+        selectionCut = null;
+        // A mask selection crops to its bounds and clears what lies outside it on every layer
+        runCanvasOp("crop", event, old -> new CanvasSwap(old, old.map((l, img) -> {
+            BufferedImage cropped = copyRegion(img, x, y, w, h);
+            if (mask != null) {
+                Color paper = fillFor(old.layers(), l);
+                mask.fill(cropped, x, y, paper == null ? 0 : paper.getRGB(), false);
+            }
+            return cropped;
+        }), new Rectangle(x, y, w, h)));
         System.out.println("[CropToSelection] Cropped to marquee selection: x=" + x + ", y=" + y + ", w=" + w + ", h=" + h);
     }
 
@@ -806,17 +1467,13 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             int prefH = getPreferredSize() != null ? getPreferredSize().height : 0;
             int w = Math.max(1, prefW);
             int h = Math.max(1, prefH);
-            cache = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D gc = cache.createGraphics();
-            try {
-                gc.setColor(Color.WHITE);
-                gc.fillRect(0, 0, w, h);
-            } finally {
-                gc.dispose();
-            }
+            cache = blank(w, h, Color.WHITE);
             // initialize highlight layer same size (transparent)
             highlightLayer = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            // A new document starts with just the background and highlight layers
+            layers = new ArrayList<>();
         }
+        if (syncLayers()) notifyChanged(null);
     }
 
     // Grow backing cache only when content requires more space (never on window resize)
@@ -825,27 +1482,9 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         int w = Math.max(needW, cache.getWidth());
         int h = Math.max(needH, cache.getHeight());
         if (w == cache.getWidth() && h == cache.getHeight()) return;
-        BufferedImage grown = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = grown.createGraphics();
-        try {
-            g.setColor(Color.WHITE);
-            g.fillRect(0, 0, w, h);
-            g.drawImage(cache, 0, 0, null);
-        } finally {
-            g.dispose();
-        }
-        cache = grown;
-        // grow highlight layer as transparent canvas
-        BufferedImage hl = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        if (highlightLayer != null) {
-            Graphics2D gh = hl.createGraphics();
-            try {
-                gh.drawImage(highlightLayer, 0, 0, null);
-            } finally {
-                gh.dispose();
-            }
-        }
-        highlightLayer = hl;
+        // All layers grow together: the bottom one with white, the others transparent
+        for (Layer l : layers) l.setImage(grownCopy(l.image(), w, h, fillFor(layers, l)));
+        publishLayers(null);
     }
 
     private void startTextEditorAt(int x, int y) {
@@ -879,7 +1518,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         updateEditorColorFromState();
         FontMetrics fm = getFontMetrics(textEditor.getFont());
         int h = fm.getHeight() + 6;
-        textEditor.setBounds(x, y, Math.max(120, 10 * fm.charWidth('M')), h);
+        textEditor.setBounds(toView(x), toView(y), Math.max(120, 10 * fm.charWidth('M')), h);
         textEditor.setText("");
         textEditor.requestFocusInWindow();
         textEditor.setCaretPosition(0);
@@ -887,14 +1526,15 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
     }
 
     private void commitEditorIfAny(boolean commit) {
-        if (textEditor == null) return;
+        if (textEditor == null || deferWhileRendering(() -> commitEditorIfAny(commit))) return;
         String value = textEditor.getText();
-        Rectangle r = textEditor.getBounds();
+        Rectangle viewBounds = textEditor.getBounds();
         remove(textEditor);
-        repaint(r);
-        if (commit && value != null && !value.isEmpty()) {
+        repaint(viewBounds);
+        Rectangle r = viewToCanvas(viewBounds);
+        if (commit && value != null && !value.isEmpty() && !refuseLocked(targetLayer(Tool.TEXT))) {
             // Snapshot before committing text onto canvas
-            pushUndoSnapshot();
+            pushUndoSnapshot(targetLayer(Tool.TEXT));
             // Ensure capacity for the text bounds
             ensureCapacity(r.x + r.width, r.y + r.height);
             var g2 = cache.createGraphics();
@@ -911,6 +1551,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                 FontMetrics fm = g2.getFontMetrics();
                 int baselineY = r.y + fm.getAscent();
                 g2.drawString(value, r.x, baselineY);
+                canvasChanged(new Rectangle(r.x, r.y, fm.stringWidth(value) + 1, Math.max(r.height, fm.getHeight())));
             } finally {
                 g2.dispose();
             }
@@ -919,24 +1560,117 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         textEditor = null;
     }
 
+    public boolean isPerfHudVisible() {
+        return perfHud != null;
+    }
+
+    public void setPerfHudVisible(boolean visible) {
+        if (visible == isPerfHudVisible()) return;
+        if (visible) {
+            perfHud = new PerfHud(this);
+            perfHud.start();
+        } else {
+            perfHud.stop();
+            perfHud = null;
+        }
+        firePropertyChange("perfHud", !visible, visible);
+    }
+
     @Override
     public void paintComponent(Graphics g) {
+        long paintStart = System.nanoTime();
         super.paintComponent(g);
-        var g2 = (Graphics2D) g;
+        var view = (Graphics2D) g;
 
         // Keep cache content-driven only; do not auto-grow with window size
         ensureCache();
-        g2.drawImage(cache, 0, 0, null);
-        // Render highlight layer above base
-        if (highlightLayer != null) {
-            g2.drawImage(highlightLayer, 0, 0, null);
-        }
+        paintLayers(view);
         // Draw a subtle border around the canvas to delineate from non-paintable area
         Color borderColor = isDarkTheme() ? UIManager.getColor("Component.borderColor") : new Color(180, 180, 180);
         if (borderColor == null) borderColor = new Color(180, 180, 180);
-        g2.setColor(borderColor);
-        g2.drawRect(0, 0, cache.getWidth() - 1, cache.getHeight() - 1);
+        view.setColor(borderColor);
+        view.drawRect(0, 0, toView(cache.getWidth()) - 1, toView(cache.getHeight()) - 1);
 
+        // Overlays are drawn in canvas coordinates
+        var g2 = (Graphics2D) view.create();
+        try {
+            g2.scale(zoom, zoom);
+            paintOverlays(g2);
+        } finally {
+            g2.dispose();
+        }
+        PerfMetrics.PAINT.record(System.nanoTime() - paintStart);
+        // The HUD itself is not part of the measured frame
+        if (perfHud != null) perfHud.paint(view);
+        // Startup probe (no-op after the first frame)
+        StartupReport.firstFrame();
+    }
+
+    // The flattened layers at the current zoom, limited to the clip (the exposed part of the
+    // viewport), so the cost of a frame depends on the window size rather than the canvas size
+    private void paintLayers(Graphics2D view) {
+        Rectangle clip = view.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        Rectangle region = viewToCanvas(clip).intersection(new Rectangle(0, 0, cache.getWidth(), cache.getHeight()));
+        if (region.isEmpty()) return;
+        // Only composite what is about to be drawn (plus the filter margin used by drawRegion)
+        Rectangle needed = new Rectangle(region);
+        needed.grow(2, 2);
+        BufferedImage flat = compositor.flatten(needed);
+        Graphics2D g = (Graphics2D) view.create();
+        try {
+            if (zoom < 1.0) {
+                // Sample the pyramid level just above the target size, so the final filter never
+                // reduces by more than 2x
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                int level = MipmapPyramid.levelFor(zoom);
+                if (level == 0) {
+                    drawRegion(g, flat, 0, region);
+                } else {
+                    drawRegion(g, pyramid.level(compositor.flatten(null), level), level, region);
+                }
+                return;
+            }
+            // 1:1 or zoomed in: copy or scale up only the source pixels under the clip, without smoothing
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            drawRegion(g, flat, 0, region);
+            if (pixelGrid && zoom >= GRID_MIN_ZOOM) {
+                int dx0 = toView(region.x), dy0 = toView(region.y);
+                int dx1 = toView(region.x + region.width), dy1 = toView(region.y + region.height);
+                g.setColor(new Color(128, 128, 128, 90));
+                for (int x = region.x; x <= region.x + region.width; x++) g.drawLine(toView(x), dy0, toView(x), dy1);
+                for (int y = region.y; y <= region.y + region.height; y++) g.drawLine(dx0, toView(y), dx1, toView(y));
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Draws the part of img (the canvas reduced by 2^level) that covers the canvas region
+    private void drawRegion(Graphics2D g, BufferedImage img, int level, Rectangle region) {
+        Rectangle r = region;
+        if (zoom < 1.0) {
+            // A pixel of margin keeps the filter from clamping at the edge of a partial repaint
+            r = new Rectangle(region);
+            r.grow(1 << level, 1 << level);
+        }
+        int sx0 = Math.max(0, r.x >> level);
+        int sy0 = Math.max(0, r.y >> level);
+        int sx1 = Math.min(img.getWidth(), (r.x + r.width + (1 << level) - 1) >> level);
+        int sy1 = Math.min(img.getHeight(), (r.y + r.height + (1 << level) - 1) >> level);
+        if (sx1 <= sx0 || sy1 <= sy0) return;
+        // One transform for every region, so partial repaints line up exactly with full ones
+        Graphics2D rg = (Graphics2D) g.create();
+        try {
+            double scale = zoom * (1 << level);
+            rg.scale(scale, scale);
+            rg.drawImage(img, sx0, sy0, sx1, sy1, sx0, sy0, sx1, sy1, null);
+        } finally {
+            rg.dispose();
+        }
+    }
+
+    private void paintOverlays(Graphics2D g2) {
         // While placing an image, render it above the cache
         if (placingImage && pendingImage != null) {
             Graphics2D pg = (Graphics2D) g2.create();
@@ -963,16 +1697,205 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             } finally {
                 sg.dispose();
             }
-        } else if (isdragged) {
-            // Preview current shape on top of cache
+        } else if (selectionPath != null) {
+            paintSelectionPath(g2);
+        } else if (isdragged && SideMenu.getSelectedTool() == Tool.REDACT) {
+            paintRedaction(g2);
+        } else if (isdragged && !isContinuous(SideMenu.getSelectedTool())) {
+            // Preview current shape on top of cache; continuous tools are committed as they move
             drawShape(g2);
         }
+        if (selectionOutline != null && !placingImage) paintSelectionOutline(g2);
 
         // Draw brush cursor overlay last so it's above everything
         drawBrushCursor(g2);
     }
 
-    private void applyRenderHints(Graphics2D g2) {
+    // ----- Zoom -----
+    public double getZoom() {
+        return zoom;
+    }
+
+    public void setZoom(double zoom) {
+        setZoom(zoom, null);
+    }
+
+    /**
+     * Sets the zoom factor (clamped to 10%..3200%), keeping the canvas point under {@code anchor}
+     * (component coordinates; the centre of the visible area when null) at the same screen position.
+     */
+    public void setZoom(double newZoom, Point anchor) {
+        double z = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+        if (z == zoom) return;
+        // The inline editor is laid out for the old zoom
+        commitEditorIfAny(true);
+        Rectangle vis = getVisibleRect();
+        if (anchor == null) anchor = new Point(vis.x + vis.width / 2, vis.y + vis.height / 2);
+        double cx = anchor.x / zoom;
+        double cy = anchor.y / zoom;
+        JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        Point inViewport = vp != null ? SwingUtilities.convertPoint(this, anchor, vp) : null;
+        double old = zoom;
+        zoom = z;
+        revalidate();
+        if (vp != null && vp.getView() != null) {
+            // Lay out at the new size now so the view position below is final
+            vp.getParent().validate();
+            Point p = SwingUtilities.convertPoint(this, (int) Math.round(cx * zoom), (int) Math.round(cy * zoom), vp.getView());
+            Dimension extent = vp.getExtentSize();
+            Dimension size = vp.getView().getSize();
+            int x = Math.max(0, Math.min(p.x - inViewport.x, size.width - extent.width));
+            int y = Math.max(0, Math.min(p.y - inViewport.y, size.height - extent.height));
+            vp.setViewPosition(new Point(x, y));
+        }
+        firePropertyChange("zoom", old, zoom);
+        repaint();
+    }
+
+    public void zoomIn() {
+        for (double step : ZOOM_STEPS) {
+            if (step > zoom + 1e-9) {
+                setZoom(step);
+                return;
+            }
+        }
+    }
+
+    public void zoomOut() {
+        for (int i = ZOOM_STEPS.length - 1; i >= 0; i--) {
+            if (ZOOM_STEPS[i] < zoom - 1e-9) {
+                setZoom(ZOOM_STEPS[i]);
+                return;
+            }
+        }
+    }
+
+    public boolean isPixelGridVisible() {
+        return pixelGrid;
+    }
+
+    /** Shows a one-pixel grid when zoomed in to 800% or more. */
+    public void setPixelGridVisible(boolean visible) {
+        if (visible == pixelGrid) return;
+        pixelGrid = visible;
+        firePropertyChange("pixelGrid", !visible, visible);
+        repaint();
+    }
+
+    // Every pixel change of the active layer is reported here so the composite and derived views
+    // (mipmaps, navigator) stay current
+    private void canvasChanged(Rectangle dirty) {
+        canvasChanged(activeLayer, dirty);
+    }
+
+    private void canvasChanged(int layer, Rectangle dirty) {
+        compositor.changed(layer, dirty);
+        notifyChanged(dirty);
+    }
+
+    // The composite changed within dirty (null = everything)
+    private void notifyChanged(Rectangle dirty) {
+        pyramid.invalidate(dirty);
+        for (var l : dirtyListeners) l.accept(dirty);
+    }
+
+    /** Registers a listener for changed canvas regions ({@code null} means the whole canvas). */
+    void addDirtyListener(java.util.function.Consumer<Rectangle> listener) {
+        dirtyListeners.add(listener);
+    }
+
+    /** Scrolls the enclosing viewport so the given canvas pixel is in the centre. */
+    void centerOn(Point canvas) {
+        JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (vp == null || vp.getView() == null) return;
+        Point p = SwingUtilities.convertPoint(this, toView(canvas.x), toView(canvas.y), vp.getView());
+        Dimension extent = vp.getExtentSize();
+        Dimension size = vp.getView().getSize();
+        int x = Math.max(0, Math.min(p.x - extent.width / 2, size.width - extent.width));
+        int y = Math.max(0, Math.min(p.y - extent.height / 2, size.height - extent.height));
+        vp.setViewPosition(new Point(x, y));
+    }
+
+    // Canvas length to view pixels
+    private int toView(int canvas) {
+        return (int) Math.round(canvas * zoom);
+    }
+
+    /** Maps a component-space point to the canvas pixel under it. */
+    Point viewToCanvas(Point p) {
+        return new Point((int) Math.floor(p.x / zoom), (int) Math.floor(p.y / zoom));
+    }
+
+    /** Smallest canvas rectangle covering a component-space rectangle. */
+    Rectangle viewToCanvas(Rectangle r) {
+        int x0 = (int) Math.floor(r.x / zoom);
+        int y0 = (int) Math.floor(r.y / zoom);
+        int x1 = (int) Math.ceil((r.x + r.width) / zoom);
+        int y1 = (int) Math.ceil((r.y + r.height) / zoom);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    // Tools work in canvas pixels; mapped events are marked so deferred replays aren't mapped twice
+    private MouseEvent toCanvas(MouseEvent e) {
+        if (e instanceof CanvasMouseEvent) return e;
+        Point p = viewToCanvas(e.getPoint());
+        return new CanvasMouseEvent(e, p.x, p.y);
+    }
+
+    /** Smallest component-space rectangle covering a canvas rectangle. */
+    Rectangle canvasToView(Rectangle r) {
+        int x0 = (int) Math.floor(r.x * zoom);
+        int y0 = (int) Math.floor(r.y * zoom);
+        int x1 = (int) Math.ceil((r.x + r.width) * zoom);
+        int y1 = (int) Math.ceil((r.y + r.height) * zoom);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    // Repaint only the view area showing a canvas rectangle (plus antialiasing slack)
+    private void repaintCanvas(Rectangle r) {
+        Rectangle v = canvasToView(r);
+        v.grow(2, 2);
+        repaint(v);
+    }
+
+    // Canvas area covered by the brush cursor outline
+    private Rectangle brushBounds() {
+        int r = Math.max(1, Math.max(1, SideMenu.getStrokeSize()) / 2);
+        return new Rectangle(cursorX - r - 1, cursorY - r - 1, 2 * r + 3, 2 * r + 3);
+    }
+
+    private static final class CanvasMouseEvent extends MouseEvent {
+        CanvasMouseEvent(MouseEvent e, int x, int y) {
+            super(e.getComponent(), e.getID(), e.getWhen(), e.getModifiersEx(), x, y,
+                    e.getXOnScreen(), e.getYOnScreen(), e.getClickCount(), e.isPopupTrigger(), e.getButton());
+        }
+    }
+
+    private void mouseWheelMoved(MouseWheelEvent e) {
+        if (e.isControlDown()) {
+            // Ctrl+wheel zooms around the mouse pointer
+            setZoom(zoom * Math.pow(1.1, -e.getPreciseWheelRotation()), e.getPoint());
+            e.consume();
+            return;
+        }
+        // Having a wheel listener stops the event reaching the scroll pane; pass it on
+        JScrollPane sp = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, this);
+        if (sp != null) sp.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, sp));
+    }
+
+    private void panBy(Point screen) {
+        JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (vp == null || vp.getView() == null) return;
+        Point pos = vp.getViewPosition();
+        Dimension extent = vp.getExtentSize();
+        Dimension size = vp.getView().getSize();
+        int x = Math.max(0, Math.min(pos.x - (screen.x - panAnchor.x), size.width - extent.width));
+        int y = Math.max(0, Math.min(pos.y - (screen.y - panAnchor.y), size.height - extent.height));
+        vp.setViewPosition(new Point(x, y));
+        panAnchor = screen;
+    }
+
+    private static void applyRenderHints(Graphics2D g2) {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
@@ -990,7 +1913,8 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
         if (!cursorVisible || placingImage) return;
         Tool tool = SideMenu.getSelectedTool();
         // Skip tools where brush preview is not meaningful
-        if (tool == Tool.TEXT || tool == Tool.BUCKET || tool == Tool.MOVE) return; // text, bucket, move
+        if (tool == Tool.TEXT || tool == Tool.BUCKET || tool == Tool.MOVE || tool == Tool.REDACT
+                || tool == Tool.MAGIC_WAND) return;
         int size = Math.max(1, SideMenu.getStrokeSize());
         int r = Math.max(1, size / 2);
         int cx = cursorX;
@@ -1014,34 +1938,59 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
     }
 
     private void drawShape(Graphics2D g2) {
+        ShapeSpec spec = currentShape();
+        drawShape(g2, spec);
+        // Continuous tools commit segment by segment
+        if (isContinuous(spec.tool())) {
+            x1 = x2;
+            y1 = y2;
+        }
+    }
+
+    // Freehand tools draw straight into the layer as the mouse moves
+    private static boolean isContinuous(Tool tool) {
+        return tool == Tool.PENCIL || tool == Tool.ERASER || tool == Tool.HIGHLIGHTER;
+    }
+
+    // Everything needed to rasterize the current shape, captured on the EDT
+    // eraseToClear: the eraser makes pixels transparent rather than white (layers above the bottom)
+    private record ShapeSpec(Tool tool, Color color, int stroke, int highlighterOpacity, boolean eraseToClear,
+                             int x1, int y1, int x2, int y2) {
+    }
+
+    private ShapeSpec currentShape() {
+        ensureCache();
+        return new ShapeSpec(SideMenu.getSelectedTool(), SideMenu.getSelectedForeColor(), SideMenu.getStrokeSize(),
+                SideMenu.getHighlighterOpacity(), fillFor(layers, layers.get(activeLayer)) == null, x1, y1, x2, y2);
+    }
+
+    // Pure rendering of a shape; safe to call from the render thread
+    private static void drawShape(Graphics2D g2, ShapeSpec spec) {
         applyRenderHints(g2);
-        g2.setColor(SideMenu.getSelectedForeColor());
-        g2.setStroke(new BasicStroke(SideMenu.getStrokeSize()));
+        g2.setColor(spec.color());
+        g2.setStroke(new BasicStroke(spec.stroke()));
+        int x1 = spec.x1(), y1 = spec.y1(), x2 = spec.x2(), y2 = spec.y2();
 
-        Tool tool = SideMenu.getSelectedTool();
+        Tool tool = spec.tool();
         switch (tool) {
             case PENCIL -> { // Pencil (free draw, commits as we drag)
-                g2.setStroke(new BasicStroke(SideMenu.getStrokeSize(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                g2.setStroke(new BasicStroke(spec.stroke(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
                 g2.drawLine(x1, y1, x2, y2);
-                x1 = x2;
-                y1 = y2;
             }
             case HIGHLIGHTER -> { // Semi-transparent marker, continuous, non-accumulating
                 Graphics2D g = (Graphics2D) g2.create();
                 try {
                     applyRenderHints(g);
-                    float alpha = Math.max(0.05f, Math.min(1f, SideMenu.getHighlighterOpacity() / 100f));
-                    float w = Math.max(2f, SideMenu.getStrokeSize() * 1.6f);
+                    float alpha = Math.max(0.05f, Math.min(1f, spec.highlighterOpacity() / 100f));
+                    float w = Math.max(2f, spec.stroke() * 1.6f);
                     // Use SRC to overwrite previous highlight so overlapping strokes don't darken
                     g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC, alpha));
-                    g.setColor(SideMenu.getSelectedForeColor());
+                    g.setColor(spec.color());
                     g.setStroke(new BasicStroke(w, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
                     g.drawLine(x1, y1, x2, y2);
                 } finally {
                     g.dispose();
                 }
-                x1 = x2;
-                y1 = y2;
             }
             case LINE -> // Straight line preview/commit
                     g2.drawLine(x1, y1, x2, y2);
@@ -1052,7 +2001,7 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                 double dx = x2 - x1;
                 double dy = y2 - y1;
                 double angle = Math.atan2(dy, dx);
-                int stroke = Math.max(1, SideMenu.getStrokeSize());
+                int stroke = Math.max(1, spec.stroke());
                 double len = Math.hypot(dx, dy);
                 double headLen = Math.min(len * 0.35, 6 + stroke * 3.0); // size scales with stroke and length
                 double headAngle = Math.toRadians(28);
@@ -1081,19 +2030,19 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                 if (tool == Tool.OVAL) g2.drawOval(x, y, w, h);
                 if (tool == Tool.OVAL_FILLED) g2.fillOval(x, y, w, h);
             }
-            case ERASER -> { // Eraser draws in white and moves like pencil
+            case ERASER -> { // Eraser draws in white (or clears, on upper layers) and moves like pencil
                 // Do not mutate global color; just render with white locally
                 g2.setColor(Color.WHITE);
-                g2.setStroke(new BasicStroke(SideMenu.getStrokeSize(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                if (spec.eraseToClear()) g2.setComposite(AlphaComposite.Clear);
+                g2.setStroke(new BasicStroke(spec.stroke(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
                 g2.drawLine(x1, y1, x2, y2);
-                x1 = x2;
-                y1 = y2;
             }
             case TEXT -> { // Text
                 // Inline editor handles rendering on commit; no preview drawing here
             }
-            case BUCKET -> // Bucket fill
-                    cache = new ScanlineFloodFill().fill(cache, x1, y1, SideMenu.getSelectedForeColor());
+            case BUCKET -> {
+                // Bucket fill is a whole-canvas operation, see mouseReleased
+            }
             case MOVE -> {
             }
             default -> {
@@ -1104,7 +2053,15 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
 
     // MouseMotionListener
     @Override
-    public void mouseDragged(MouseEvent ev) {
+    public void mouseDragged(MouseEvent e) {
+        if (panAnchor != null) {
+            panBy(e.getLocationOnScreen());
+            return;
+        }
+        MouseEvent ev = toCanvas(e);
+        if (deferWhileRendering(() -> mouseDragged(ev))) return;
+        PerfMetrics.dragEvent();
+        Rectangle brushBefore = brushBounds();
         cursorX = ev.getX();
         cursorY = ev.getY();
         cursorVisible = true;
@@ -1123,23 +2080,41 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             repaint();
             return;
         }
+        if (toolNow == Tool.MOVE && selectionPath != null && SideMenu.getSelectMode() == SelectMode.LASSO) {
+            int last = selectionPath.npoints - 1;
+            if (selectionPath.xpoints[last] != ev.getX() || selectionPath.ypoints[last] != ev.getY()) {
+                selectionPath.addPoint(ev.getX(), ev.getY());
+                repaint();
+            }
+            return;
+        }
+        // The wand selects on press
+        if (toolNow == Tool.MAGIC_WAND) return;
+        // The stroke started on a locked layer
+        if (editBlocked) return;
         isdragged = true;
         x2 = ev.getX();
         y2 = ev.getY();
 
         Tool tool = SideMenu.getSelectedTool();
-        if (tool == Tool.PENCIL || tool == Tool.ERASER || tool == Tool.HIGHLIGHTER) {
+        if (isContinuous(tool)) {
             // Ensure backing cache exists before drawing and grow only if stroke would exceed bounds
             int extra = Math.max(1, SideMenu.getStrokeSize() * 2);
             int needW = Math.max(x1, x2) + extra + 1;
             int needH = Math.max(y1, y2) + extra + 1;
+            BufferedImage before = cache;
             ensureCapacity(needW, needH);
+            Rectangle seg = normalizedRect(x1, y1, x2, y2);
+            seg.grow(extra, extra);
+            canvasChanged(tool == Tool.HIGHLIGHTER ? highlightsIndex() : activeLayer, seg);
+            if (strokeEvent != null && strokeEvent.isEnabled()) {
+                strokeDirty = strokeDirty == null ? seg : strokeDirty.union(seg);
+                strokeEvent.segments++;
+            }
             // Commit continuous tools directly for smooth drawing
             Graphics2D cg;
             if (tool == Tool.HIGHLIGHTER) {
-                if (highlightLayer == null) {
-                    highlightLayer = new BufferedImage(cache.getWidth(), cache.getHeight(), BufferedImage.TYPE_INT_ARGB);
-                }
+                ensureHighlight();
                 cg = highlightLayer.createGraphics();
             } else {
                 cg = cache.createGraphics();
@@ -1149,28 +2124,48 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             } finally {
                 cg.dispose();
             }
+            if (cache == before) {
+                // Only the new segment and the brush outline changed on screen
+                repaintCanvas(seg.union(brushBefore).union(brushBounds()));
+                return;
+            }
+            // The canvas grew
+            revalidate();
         }
         repaint();
     }
 
     @Override
-    public void mouseMoved(MouseEvent e) {
+    public void mouseMoved(MouseEvent raw) {
+        MouseEvent e = toCanvas(raw);
+        Rectangle before = brushBounds();
+        boolean wasVisible = cursorVisible;
         cursorX = e.getX();
         cursorY = e.getY();
         cursorVisible = true;
-        repaint();
+        if (selectionPath != null && SideMenu.getSelectMode() == SelectMode.POLYGON) {
+            // Rubber band from the last corner
+            polygonHover = new Point(e.getX(), e.getY());
+            repaint();
+            return;
+        }
+        // Only the brush outline moved
+        repaintCanvas(wasVisible ? before.union(brushBounds()) : brushBounds());
     }
 
     // MouseListener
     @Override
-    public void mouseClicked(MouseEvent e) {
+    public void mouseClicked(MouseEvent raw) {
+        MouseEvent e = toCanvas(raw);
+        if (deferWhileRendering(() -> mouseClicked(e))) return;
         if (placingImage && e.getClickCount() >= 2) {
             commitPlacement();
         }
     }
 
     @Override
-    public void mouseEntered(MouseEvent e) {
+    public void mouseEntered(MouseEvent raw) {
+        MouseEvent e = toCanvas(raw);
         cursorVisible = true;
         cursorX = e.getX();
         cursorY = e.getY();
@@ -1186,7 +2181,15 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
     }
 
     @Override
-    public void mousePressed(MouseEvent ev) {
+    public void mousePressed(MouseEvent e) {
+        if (SwingUtilities.isMiddleMouseButton(e)) {
+            // Middle-drag pans the view with any tool
+            panAnchor = e.getLocationOnScreen();
+            setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            return;
+        }
+        MouseEvent ev = toCanvas(e);
+        if (deferWhileRendering(() -> mousePressed(ev))) return;
         x1 = ev.getX();
         y1 = ev.getY();
         if (placingImage && pendingImage != null) {
@@ -1204,7 +2207,38 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             return;
         }
         Tool tool = SideMenu.getSelectedTool();
+        if (tool == Tool.MAGIC_WAND) {
+            wandSelect(x1, y1, ev.getModifiersEx());
+            ispressed = false;
+            return;
+        }
         if (tool == Tool.MOVE) {
+            SelectionMask mask = activeMask();
+            if (selectionPath == null && mask != null && mask.contains(x1, y1)) {
+                // Pressing inside a mask selection lifts its pixels and drags them
+                if (refuseLocked(targetLayer(Tool.MOVE))) return;
+                liftSelection(selectionRect, mask);
+                pendingDragOffsetX = x1 - pendingX;
+                pendingDragOffsetY = y1 - pendingY;
+                ispressed = true;
+                isdragged = false;
+                return;
+            }
+            SelectMode mode = SideMenu.getSelectMode();
+            if (mode == SelectMode.POLYGON) {
+                addPolygonCorner(x1, y1, ev.getClickCount(), ev.getModifiersEx());
+                return;
+            }
+            if (mode == SelectMode.LASSO) {
+                selectionPath = new Polygon();
+                selectionPath.addPoint(x1, y1);
+                selectionPathModifiers = ev.getModifiersEx();
+                ispressed = true;
+                isdragged = false;
+                repaint();
+                return;
+            }
+            setSelectionMask(null);
             // Start rectangular selection
             selecting = true;
             selStartX = x1;
@@ -1217,25 +2251,52 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             repaint();
             return;
         }
+        // Locked layers take no edits; the rest of this press/drag/release is ignored
+        if (refuseLocked(targetLayer(tool))) {
+            editBlocked = true;
+            ispressed = false;
+            return;
+        }
         if (tool == Tool.TEXT) {
             startTextEditorAt(x1, y1);
             ispressed = false;
             isdragged = false;
             return;
         }
+        if (tool == Tool.REDACT) {
+            // The table is built for the dragged area once there is one, not for the whole layer
+            redactSolid = SideMenu.isRedactSolid();
+            redaction = null;
+        }
         // For continuous tools, capture snapshot at the beginning of the stroke
-        if (tool == Tool.PENCIL || tool == Tool.ERASER || tool == Tool.HIGHLIGHTER) {
-            pushUndoSnapshot();
+        if (isContinuous(tool)) {
+            strokeEvent = CanvasEvents.begin(new CanvasEvents.StrokeCommit());
+            strokeEvent.tool = tool.name();
+            strokeDirty = null;
+            pushUndoSnapshot(targetLayer(tool));
         }
         ispressed = true;
     }
 
     @Override
-    public void mouseReleased(MouseEvent ev) {
+    public void mouseReleased(MouseEvent e) {
+        if (panAnchor != null) {
+            if (SwingUtilities.isMiddleMouseButton(e)) {
+                panAnchor = null;
+                updateCursorForCurrentTool();
+            }
+            return;
+        }
+        MouseEvent ev = toCanvas(e);
+        if (deferWhileRendering(() -> mouseReleased(ev))) return;
         isdragged = false;
         ispressed = false;
         x2 = ev.getX();
         y2 = ev.getY();
+        if (editBlocked) {
+            editBlocked = false;
+            return;
+        }
 
         if (placingImage && pendingImage != null) {
             // Stop dragging; do not auto-commit
@@ -1245,6 +2306,11 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
 
         Tool toolNow = SideMenu.getSelectedTool();
         if (toolNow == Tool.MOVE) {
+            if (selectionPath != null && SideMenu.getSelectMode() == SelectMode.LASSO) {
+                selectionPath.addPoint(x2, y2);
+                closeSelectionPath();
+                return;
+            }
             if (selecting) {
                 selEndX = x2;
                 selEndY = y2;
@@ -1255,47 +2321,12 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
                     repaint();
                     return;
                 }
-                // Cut selection into pending image
-                // History snapshot before cutting selection from cache
-                pushUndoSnapshot();
-                ensureCache();
-                int rx = Math.max(0, Math.min(selectionRect.x, cache.getWidth() - 1));
-                int ry = Math.max(0, Math.min(selectionRect.y, cache.getHeight() - 1));
-                int rw = Math.max(1, Math.min(selectionRect.width, cache.getWidth() - rx));
-                int rh = Math.max(1, Math.min(selectionRect.height, cache.getHeight() - ry));
-                BufferedImage sub = cache.getSubimage(rx, ry, rw, rh);
-                // backup the cut region for cancel
-                selectionCutBackup = new BufferedImage(rw, rh, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D bg = selectionCutBackup.createGraphics();
-                try {
-                    bg.drawImage(sub, 0, 0, null);
-                } finally {
-                    bg.dispose();
-                }
-                selectionCutRect = new Rectangle(rx, ry, rw, rh);
-                // copy to pending image for placement
-                pendingImage = new BufferedImage(rw, rh, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D pg = pendingImage.createGraphics();
-                try {
-                    pg.drawImage(sub, 0, 0, null);
-                } finally {
-                    pg.dispose();
-                }
-                // clear original area (cut)
-                Graphics2D cg2 = cache.createGraphics();
-                try {
-                    cg2.setColor(Color.WHITE);
-                    cg2.fillRect(rx, ry, rw, rh);
-                } finally {
-                    cg2.dispose();
+                // A locked layer can still be selected (copy, crop), just not cut
+                if (refuseLocked(targetLayer(Tool.MOVE))) {
+                    repaint();
+                    return;
                 }
-                pendingX = rx;
-                pendingY = ry;
-                placingImage = true;
-                selectionPlacement = true;
-                setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
-                selectionRect = null;
-                repaint();
+                liftSelection(selectionRect, null);
                 return;
             } else {
                 // Nothing selected and not placing; nothing to commit
@@ -1309,64 +2340,486 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
             return;
         }
 
+        if (toolNow == Tool.REDACT) {
+            commitRedaction();
+            return;
+        }
+
+        if (toolNow == Tool.MAGIC_WAND) {
+            // Selected on press; nothing to commit
+            return;
+        }
+
         // Commit the final shape onto the backing image
-        // Snapshot before finalizing non-continuous shape or bucket
-        if (toolNow != Tool.PENCIL && toolNow != Tool.ERASER && toolNow != Tool.HIGHLIGHTER) {
-            pushUndoSnapshot();
+        boolean continuous = isContinuous(toolNow);
+        CanvasEvents.CanvasEvent event;
+        if (continuous) {
+            event = strokeEvent != null ? strokeEvent : CanvasEvents.begin(new CanvasEvents.StrokeCommit());
+            strokeEvent = null;
+        } else if (toolNow == Tool.BUCKET) {
+            event = CanvasEvents.begin(new CanvasEvents.FloodFill());
+        } else {
+            CanvasEvents.ShapeCommit shape = CanvasEvents.begin(new CanvasEvents.ShapeCommit());
+            shape.tool = toolNow.name();
+            event = shape;
         }
         // Ensure the canvas is large enough for the final shape
         int maxX = Math.max(x1, x2) + SideMenu.getStrokeSize() + 1;
         int maxY = Math.max(y1, y2) + SideMenu.getStrokeSize() + 1;
+        if (!continuous) {
+            // Shapes and fills rasterize into new buffers (on the render thread for large canvases);
+            // the current buffers become the undo entry, so no separate snapshot is needed
+            ShapeSpec spec = currentShape();
+            Rectangle dirty = normalizedRect(x1, y1, x2, y2);
+            dirty.grow(spec.stroke() + 1, spec.stroke() + 1);
+            strokeDirty = null;
+            repaint();
+            runCanvasOp(toolNow == Tool.BUCKET ? "fill" : "draw", event, old -> {
+                int w = Math.max(maxX, old.base().getWidth());
+                int h = Math.max(maxY, old.base().getHeight());
+                boolean grow = w > old.base().getWidth() || h > old.base().getHeight();
+                Layer target = old.layers().get(old.active());
+                if (spec.tool() == Tool.BUCKET) {
+                    // The fill itself returns a new image
+                    LayerState src = grow ? old.map((l, img) -> grownCopy(img, w, h, fillFor(old.layers(), l))) : old;
+                    BufferedImage filled = new ScanlineFloodFill().fill(src.base(), spec.x1(), spec.y1(), spec.color());
+                    return new CanvasSwap(old, src.withActive(filled), CanvasEvents.bounds(filled));
+                }
+                // Only the active layer is redrawn; the others are shared unless the canvas grows
+                LayerState next = old.map((l, img) -> grow || l == target ? grownCopy(img, w, h, fillFor(old.layers(), l)) : img);
+                Graphics2D cg = next.base().createGraphics();
+                try {
+                    drawShape(cg, spec);
+                } finally {
+                    cg.dispose();
+                }
+                return new CanvasSwap(old, next, dirty);
+            });
+            return;
+        }
         ensureCapacity(maxX, maxY);
-        // Commit final shape to appropriate layer
+        int target = toolNow == Tool.HIGHLIGHTER ? highlightsIndex() : activeLayer;
+        // Commit final segment to appropriate layer
         Graphics2D cg;
         if (toolNow == Tool.HIGHLIGHTER) {
-            if (highlightLayer == null) {
-                highlightLayer = new BufferedImage(cache.getWidth(), cache.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            }
+            ensureHighlight();
             cg = highlightLayer.createGraphics();
         } else {
             cg = cache.createGraphics();
         }
+        int stroke = SideMenu.getStrokeSize() + 1;
+        Rectangle dirty = normalizedRect(x1, y1, x2, y2);
+        dirty.grow(stroke, stroke);
+        if (strokeDirty != null) dirty = strokeDirty.union(dirty);
         try {
             drawShape(cg);
         } finally {
             cg.dispose();
         }
+        canvasChanged(target, dirty);
+        CanvasEvents.commit(event, toolNow == Tool.HIGHLIGHTER ? highlightLayer : cache, dirty);
+        strokeDirty = null;
         repaint();
     }
 
-    // Return a flattened image that includes base and highlight layers
-    public static BufferedImage getFlattenedImage() {
-        if (cache == null) return null;
-        int w = cache.getWidth();
-        int h = cache.getHeight();
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = out.createGraphics();
+    // Cuts the selection out of the active layer into a floating image to drag; with a mask
+    // only the mask's pixels are lifted and cleared
+    private void liftSelection(Rectangle sel, SelectionMask mask) {
+        ensureCache();
+        int rx = Math.max(0, Math.min(sel.x, cache.getWidth() - 1));
+        int ry = Math.max(0, Math.min(sel.y, cache.getHeight() - 1));
+        int rw = Math.max(1, Math.min(sel.width, cache.getWidth() - rx));
+        int rh = Math.max(1, Math.min(sel.height, cache.getHeight() - ry));
+        Rectangle r = new Rectangle(rx, ry, rw, rh);
+        // The cut pixels are copied once: the copy is the undo entry and, unless a mask trims it,
+        // the floating image too (neither is drawn into, so they can share it)
+        long t0 = System.nanoTime();
+        BufferedImage img = ownedPixels(activeLayer);
+        BufferedImage cut = copyRegion(img, rx, ry, rw, rh);
+        PerfMetrics.UNDO_SNAPSHOT.record(System.nanoTime() - t0);
+        selectionCut = new RegionEdit(activeLayer, r, cut);
+        pushHistory(selectionCut);
+        if (mask != null) {
+            pendingImage = copyImage(cut);
+            mask.fill(pendingImage, rx, ry, 0, false);
+        } else {
+            pendingImage = cut;
+        }
+        // clear original area (cut): white on the bottom layer, transparent above it
+        Color paper = fillFor(layers, layers.get(activeLayer));
+        int clear = paper == null ? 0 : paper.getRGB();
+        if (mask != null) {
+            mask.fill(img, 0, 0, clear, true);
+        } else {
+            Redaction.mask(img, r, clear);
+        }
+        canvasChanged(r);
+        pendingX = rx;
+        pendingY = ry;
+        placingImage = true;
+        selectionPlacement = true;
+        setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
+        selectionRect = null;
+        selectionMask = null;
+        selectionOutline = null;
+        repaint();
+    }
+
+    // ----- Redaction -----
+
+    // The dragged rectangle clipped to the canvas; null if nothing is covered
+    private Rectangle redactRect() {
+        Rectangle r = normalizedRect(x1, y1, x2, y2).intersection(new Rectangle(0, 0, cache.getWidth(), cache.getHeight()));
+        return r.isEmpty() ? null : r;
+    }
+
+    // The table for a drag now covering r, read from every visible layer as composited: built on
+    // first use and rebuilt, with room to spare, only when the drag grows out of it, so its cost
+    // follows the dragged area
+    private Redaction redactionTable(Rectangle r) {
+        if (redaction == null || !redaction.bounds().contains(r)) {
+            Rectangle area = redaction == null ? new Rectangle(r) : r.union(redaction.bounds());
+            int margin = Math.max(64, Math.max(area.width, area.height) / 2);
+            area.grow(margin, margin);
+            area = area.intersection(new Rectangle(0, 0, cache.getWidth(), cache.getHeight()));
+            redaction = Redaction.of(compositor.flatten(area), area);
+        }
+        return redaction;
+    }
+
+    // The redaction as it will be committed, drawn over the canvas
+    private void paintRedaction(Graphics2D g2) {
+        Rectangle r = redactRect();
+        if (r == null) return;
+        Graphics2D g = (Graphics2D) g2.create();
         try {
-            g.drawImage(cache, 0, 0, null);
-            if (highlightLayer != null) {
-                g.drawImage(highlightLayer, 0, 0, null);
+            g.clip(r);
+            if (redactSolid) {
+                g.setColor(SideMenu.getSelectedForeColor());
+                g.fill(r);
+                return;
             }
+            int block = SideMenu.getRedactBlockSize();
+            BufferedImage blocks = redactionTable(r).blocks(r, block);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g.drawImage(blocks, r.x, r.y, blocks.getWidth() * block, blocks.getHeight() * block, null);
         } finally {
             g.dispose();
         }
-        return out;
     }
 
-    // Utility API for future uses (e.g., File > New)
-    public void clearCanvas() {
-        if (cache == null) return;
-        // Snapshot before clearing the canvas
-        pushUndoSnapshot();
-        var g = cache.createGraphics();
+    // Writes the redaction in place into the active layer and every other layer with pixels under
+    // it, highlight and hidden layers included, so nothing under the rectangle stays readable; the
+    // undo entry keeps just the old pixels of the rectangle in each of them
+    private void commitRedaction() {
+        Rectangle r = redactRect();
+        if (r == null) {
+            redaction = null;
+            repaint();
+            return;
+        }
+        Redaction table = redactSolid ? null : redactionTable(r);
+        // The drag is over; the table goes with it
+        redaction = null;
+        List<Integer> targets = new ArrayList<>();
+        for (int i = 0; i < layers.size(); i++) {
+            if (i == activeLayer || Redaction.covers(layers.get(i).image(), r)) targets.add(i);
+        }
+        for (int i : targets) {
+            // Leaving a locked layer as it is would leave what it shows readable
+            if (refuseLocked(layers.get(i))) {
+                repaint();
+                return;
+            }
+        }
+        CanvasEvents.ShapeCommit event = CanvasEvents.begin(new CanvasEvents.ShapeCommit());
+        event.tool = Tool.REDACT.name();
+        int block = SideMenu.getRedactBlockSize();
+        BufferedImage blocks = table == null ? null : table.blocks(r, block);
+        int solid = SideMenu.getSelectedForeColor().getRGB();
+        List<RegionEdit> parts = new ArrayList<>(targets.size());
+        for (int i : targets) {
+            long t0 = System.nanoTime();
+            BufferedImage img = ownedPixels(i);
+            parts.add(new RegionEdit(i, r, copyRegion(img, r.x, r.y, r.width, r.height)));
+            PerfMetrics.UNDO_SNAPSHOT.record(System.nanoTime() - t0);
+            if (blocks == null) {
+                Redaction.mask(img, r, solid);
+            } else {
+                Redaction.paint(img, r, blocks, block);
+            }
+            canvasChanged(i, r);
+        }
+        pushHistory(new CompoundEdit(parts));
+        repaint();
+        CanvasEvents.commit(event, cache, r);
+    }
+
+    // ----- Mask selections -----
+
+    // Selects the region of the seed pixel's colour on the active layer. Shift adds it to the
+    // current mask selection, Alt subtracts it and Shift+Alt keeps only the overlap.
+    private void wandSelect(int x, int y, int modifiers) {
+        ensureCache();
+        combineSelection(new ScanlineFloodFill().select(cache, x, y), modifiers);
+    }
+
+    // Makes picked the selection, or with Shift / Alt / Shift+Alt adds it to, subtracts it from or
+    // intersects it with the current mask selection
+    private void combineSelection(SelectionMask picked, int modifiers) {
+        SelectionMask current = activeMask();
+        boolean add = (modifiers & InputEvent.SHIFT_DOWN_MASK) != 0;
+        boolean subtract = (modifiers & InputEvent.ALT_DOWN_MASK) != 0;
+        if (current != null && add && subtract) {
+            picked = current.intersect(picked);
+        } else if (current != null && add) {
+            picked = current.union(picked);
+        } else if (current != null && subtract) {
+            picked = current.subtract(picked);
+        } else if (subtract) {
+            picked = null;
+        }
+        setSelectionMask(picked);
+    }
+
+    // Replaces the mask selection; an empty mask clears the selection
+    private void setSelectionMask(SelectionMask mask) {
+        selecting = false;
+        if (mask == null || mask.isEmpty()) {
+            if (selectionMask != null) selectionRect = null;
+            selectionMask = null;
+            selectionOutline = null;
+        } else {
+            selectionMask = mask;
+            selectionOutline = mask.outline();
+            selectionRect = mask.bounds();
+            if (!antsTimer.isRunning() && isDisplayable()) antsTimer.start();
+        }
+        repaint();
+    }
+
+    // Steps the marching ants; only the selection's bounds are repainted, with the cached outline
+    private void marchAnts() {
+        if (selectionOutline == null || selectionMask == null || !isDisplayable()) {
+            antsTimer.stop();
+            return;
+        }
+        antsPhase = (antsPhase + 1) % 8;
+        if (!placingImage) repaintCanvas(selectionMask.bounds());
+    }
+
+    // ----- Lasso and polygon selection -----
+
+    // A click adds a corner; a double-click or a click on the first corner closes the polygon
+    private void addPolygonCorner(int x, int y, int clicks, int modifiers) {
+        if (selectionPath == null) {
+            selectionPath = new Polygon();
+            selectionPathModifiers = modifiers;
+        } else if (clicks >= 2 || nearFirstCorner(x, y)) {
+            closeSelectionPath();
+            return;
+        }
+        selectionPath.addPoint(x, y);
+        polygonHover = new Point(x, y);
+        repaint();
+    }
+
+    // Within 4 screen pixels of the first corner of a polygon that already has a triangle
+    private boolean nearFirstCorner(int x, int y) {
+        if (selectionPath.npoints < 3) return false;
+        double dx = (x - selectionPath.xpoints[0]) * zoom;
+        double dy = (y - selectionPath.ypoints[0]) * zoom;
+        return dx * dx + dy * dy <= 16;
+    }
+
+    // Rasterizes the lasso/polygon into the selection mask
+    private void closeSelectionPath() {
+        Polygon path = selectionPath;
+        selectionPath = null;
+        polygonHover = null;
+        ensureCache();
+        combineSelection(SelectionMask.ofPolygon(path, cache.getWidth(), cache.getHeight()), selectionPathModifiers);
+    }
+
+    // The lasso or polygon so far, plus the rubber band to the pointer
+    private void paintSelectionPath(Graphics2D g2) {
+        Graphics2D g = (Graphics2D) g2.create();
+        try {
+            float width = (float) (1 / zoom);
+            Polygon p = selectionPath;
+            Path2D.Float line = new Path2D.Float();
+            line.moveTo(p.xpoints[0], p.ypoints[0]);
+            for (int i = 1; i < p.npoints; i++) line.lineTo(p.xpoints[i], p.ypoints[i]);
+            if (polygonHover != null && SideMenu.getSelectMode() == SelectMode.POLYGON) line.lineTo(polygonHover.x, polygonHover.y);
+            g.setColor(new Color(255, 255, 255, 200));
+            g.setStroke(new BasicStroke(width));
+            g.draw(line);
+            g.setColor(new Color(0, 0, 0, 200));
+            g.setStroke(new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f,
+                    new float[]{4 * width, 4 * width}, 0f));
+            g.draw(line);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // The mask selection while it still fits the canvas (undo can change the canvas size)
+    private SelectionMask activeMask() {
+        if (selectionMask != null && (cache == null || selectionMask.width() != cache.getWidth()
+                || selectionMask.height() != cache.getHeight())) {
+            setSelectionMask(null);
+        }
+        return selectionMask;
+    }
+
+    SelectionMask getSelectionMask() {
+        return activeMask();
+    }
+
+    // Marching-ants style outline: white under black dashes, visible on any background
+    private void paintSelectionOutline(Graphics2D g2) {
+        Graphics2D g = (Graphics2D) g2.create();
         try {
-            g.setColor(Color.WHITE);
-            g.fillRect(0, 0, cache.getWidth(), cache.getHeight());
+            float width = (float) (1 / zoom);
+            g.setColor(new Color(255, 255, 255, 200));
+            g.setStroke(new BasicStroke(width));
+            g.draw(selectionOutline);
+            g.setColor(new Color(0, 0, 0, 200));
+            g.setStroke(new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f,
+                    new float[]{4 * width, 4 * width}, antsPhase * width));
+            g.draw(selectionOutline);
         } finally {
             g.dispose();
         }
+    }
+
+    /** Clears the selected pixels of the active layer: white on the bottom layer, transparent above. */
+    public void deleteSelection() {
+        if (deferWhileRendering(this::deleteSelection)) return;
+        if (placingImage) {
+            // Floating pixels were already cut out of the layer; dropping them deletes them
+            dropOverlayAndSelection();
+            repaint();
+            return;
+        }
+        ensureCache();
+        Color paper = fillFor(layers, layers.get(activeLayer));
+        editSelection("delete", paper == null ? 0 : paper.getRGB());
+    }
+
+    /** Fills the selected pixels of the active layer with the foreground colour. */
+    public void fillSelection() {
+        if (deferWhileRendering(this::fillSelection)) return;
+        ensureCache();
+        editSelection("fill", SideMenu.getSelectedForeColor().getRGB());
+    }
+
+    // Sets every selected pixel of the active layer to argb in place; like a redaction, the undo
+    // entry keeps only the old pixels of the selection's bounds
+    private void editSelection(String operation, int argb) {
+        commitEditorIfAny(true);
+        Rectangle r = selectionRegion();
+        if (r == null) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        if (refuseLocked(layers.get(activeLayer))) return;
+        SelectionMask mask = activeMask();
+        CanvasEvents.SelectionEdit event = CanvasEvents.begin(new CanvasEvents.SelectionEdit());
+        event.operation = operation;
+        event.masked = mask != null;
+        long t0 = System.nanoTime();
+        BufferedImage img = ownedPixels(activeLayer);
+        BufferedImage before = copyRegion(img, r.x, r.y, r.width, r.height);
+        PerfMetrics.UNDO_SNAPSHOT.record(System.nanoTime() - t0);
+        if (mask != null) {
+            mask.fill(img, 0, 0, argb, true);
+        } else {
+            Redaction.mask(img, r, argb);
+        }
+        pushHistory(new RegionEdit(activeLayer, r, before));
+        canvasChanged(r);
         repaint();
+        CanvasEvents.commit(event, cache, r);
+    }
+
+    // Return a flattened image of all visible layers
+    public static BufferedImage getFlattenedImage() {
+        if (cache == null) return null;
+        syncLayers();
+        BufferedImage flat = compositor.flatten(null);
+        BufferedImage out = new BufferedImage(flat.getWidth(), flat.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.drawImage(flat, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    // ----- Filters -----
+
+    /**
+     * The pixels a filter would change, for its preview: the floating selection if there is one,
+     * else the active layer inside the selection rectangle, else the whole active layer.
+     */
+    BufferedImage filterSource() {
+        ensureCache();
+        if (placingImage && pendingImage != null) return pendingImage;
+        Rectangle r = selectionRegion();
+        return r == null ? cache : cache.getSubimage(r.x, r.y, r.width, r.height);
+    }
+
+    // The selection clipped to the canvas; null when nothing is selected
+    private Rectangle selectionRegion() {
+        if (selectionRect == null) return null;
+        Rectangle r = selectionRect.intersection(new Rectangle(0, 0, cache.getWidth(), cache.getHeight()));
+        return r.isEmpty() ? null : r;
+    }
+
+    /** Applies a filter to the pixels {@link #filterSource()} describes (undoable). */
+    void applyFilter(ImageFilters.Filter filter) {
+        if (deferWhileRendering(() -> applyFilter(filter))) return;
+        commitEditorIfAny(true);
+        ensureCache();
+        CanvasEvents.Filter event = CanvasEvents.begin(new CanvasEvents.Filter());
+        event.filter = filter.kind().toString();
+        event.radius = filter.radius();
+        if (placingImage && pendingImage != null) {
+            // Floating pixels are not on a layer yet; the cut that lifted them is the undo step
+            pendingImage = ImageFilters.apply(pendingImage, null, filter);
+            repaint();
+            CanvasEvents.commit(event, cache, new Rectangle(pendingX, pendingY, pendingImage.getWidth(), pendingImage.getHeight()));
+            return;
+        }
+        if (refuseLocked(layers.get(activeLayer))) return;
+        Rectangle region = selectionRegion();
+        SelectionMask mask = activeMask();
+        runCanvasOp("filter", event, old -> {
+            BufferedImage filtered = ImageFilters.apply(old.base(), region, filter);
+            if (mask != null) {
+                // Pixels of the bounds outside a mask selection keep their old values
+                int[] src = LayerCompositor.pixels(old.base());
+                int[] dst = LayerCompositor.pixels(filtered);
+                int w = filtered.getWidth();
+                mask.forEachRun(region, false, (y, x0, x1) -> System.arraycopy(src, y * w + x0, dst, y * w + x0, x1 - x0));
+            }
+            return new CanvasSwap(old, old.withActive(filtered), region == null ? CanvasEvents.bounds(filtered) : region);
+        });
+    }
+
+    // Utility API for future uses (e.g., File > New)
+    public void clearCanvas() {
+        if (cache == null || deferWhileRendering(this::clearCanvas)) return;
+        ensureCache();
+        if (refuseLocked(layers.get(activeLayer))) return;
+        // Clears the active layer (white for the bottom one); the other layers are kept
+        runCanvasOp("clear", null, old -> {
+            BufferedImage empty = blank(old.base().getWidth(), old.base().getHeight(),
+                    fillFor(old.layers(), old.layers().get(old.active())));
+            return new CanvasSwap(old, old.withActive(empty), CanvasEvents.bounds(empty));
+        });
     }
 
     // Expose current canvas size
@@ -1383,43 +2836,91 @@ public class DrawArea extends JPanel implements MouseListener, MouseMotionListen
     // Resize canvas to exact width/height, preserving existing pixels at (0,0)
     // If new size is smaller, content beyond bounds will be clipped.
     public void resizeCanvas(int newW, int newH) {
-        newW = Math.max(1, newW);
-        newH = Math.max(1, newH);
+        int w = Math.max(1, newW);
+        int h = Math.max(1, newH);
+        if (deferWhileRendering(() -> resizeCanvas(w, h))) return;
         ensureCache();
-        if (newW == cache.getWidth() && newH == cache.getHeight()) {
+        if (w == cache.getWidth() && h == cache.getHeight()) {
             return;
         }
-        // Snapshot before resizing
-        pushUndoSnapshot();
+        if (refuseSize("resize", w, h)) return;
+        CanvasEvents.Resize event = CanvasEvents.begin(new CanvasEvents.Resize());
+        // Existing pixels stay at (0,0); content beyond the new bounds is clipped. The bottom layer
+        // is padded with white, the others stay transparent
+        runCanvasOp("resize", event, new Dimension(w, h), old -> new CanvasSwap(old,
+                old.map((l, img) -> resizedCopy(img, w, h, fillFor(old.layers(), l))), new Rectangle(0, 0, w, h)));
+    }
 
-        BufferedImage resized = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = resized.createGraphics();
-        try {
-            g2.setColor(Color.WHITE);
-            g2.fillRect(0, 0, newW, newH);
-            g2.drawImage(cache, 0, 0, null);
-        } finally {
-            g2.dispose();
+    /**
+     * Whether a canvas of {@code w x h} with {@code layerCount} layers is out of reach: a layer
+     * larger than one array holds, or new layers that would not fit in {@code freeBytes}.
+     */
+    static boolean tooLarge(int w, int h, int layerCount, long freeBytes) {
+        long pixels = (long) w * h;
+        return pixels > MAX_LAYER_PIXELS || 4 * pixels * layerCount > freeBytes;
+    }
+
+    // Tells the user and returns true when the canvas cannot become w x h; the old layers stay
+    // in the undo history, so only the heap not yet in use counts
+    private boolean refuseSize(String name, int w, int h) {
+        Runtime rt = Runtime.getRuntime();
+        long free = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+        if (!tooLarge(w, h, layers.size(), free)) return false;
+        String msg = String.format(java.util.Locale.ROOT, "Unable to %s to %d x %d: %d MB of layers would not fit in the %d MB of memory left.",
+                name, w, h, 4L * w * h * layers.size() >> 20, free >> 20);
+        System.out.println("[Canvas] " + msg);
+        if (!GraphicsEnvironment.isHeadless()) {
+            JOptionPane.showMessageDialog(this, msg, "Paint", JOptionPane.ERROR_MESSAGE);
         }
-    cache = resized;
-        // Resize highlight layer as transparent image and copy existing
-        BufferedImage newHL = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_ARGB);
-        if (highlightLayer != null) {
-            Graphics2D gh = newHL.createGraphics();
-            try {
-                gh.drawImage(highlightLayer, 0, 0, null);
-            } finally {
-                gh.dispose();
-            }
+        return true;
+    }
+
+    /**
+     * Scales the content of every layer to {@code newW x newH} with the given kernel (Image > Scale),
+     * as one undoable step. Unlike {@link #resizeCanvas}, the pixels are resampled rather than clipped.
+     */
+    public void scaleImage(int newW, int newH, Resampler.Kernel kernel) {
+        int w = Math.max(1, newW);
+        int h = Math.max(1, newH);
+        if (deferWhileRendering(() -> scaleImage(w, h, kernel))) return;
+        commitEditorIfAny(true);
+        commitPlacement();
+        ensureCache();
+        if (w == cache.getWidth() && h == cache.getHeight()) return;
+        if (refuseSize("scale", w, h)) return;
+        CanvasEvents.Scale event = CanvasEvents.begin(new CanvasEvents.Scale());
+        event.kernel = kernel.name();
+        runCanvasOp("scale", event, new Dimension(w, h), old -> new CanvasSwap(old,
+                old.map((l, img) -> Resampler.scale(img, w, h, kernel)), new Rectangle(0, 0, w, h)));
+    }
+
+    /**
+     * Rotates or flips the floating image while one is being placed, otherwise every layer of the
+     * canvas (undoable; a rotation by 90 degrees swaps the canvas width and height).
+     */
+    public void transform(ImageTransforms.Op op) {
+        if (deferWhileRendering(() -> transform(op))) return;
+        commitEditorIfAny(true);
+        ensureCache();
+        CanvasEvents.Transform event = CanvasEvents.begin(new CanvasEvents.Transform());
+        event.operation = op.name();
+        if (placingImage && pendingImage != null) {
+            // Turn the floating image about its centre
+            int cx = pendingX + pendingImage.getWidth() / 2;
+            int cy = pendingY + pendingImage.getHeight() / 2;
+            pendingImage = ImageTransforms.apply(pendingImage, op);
+            pendingX = cx - pendingImage.getWidth() / 2;
+            pendingY = cy - pendingImage.getHeight() / 2;
+            repaint();
+            CanvasEvents.commit(event, cache, new Rectangle(pendingX, pendingY, pendingImage.getWidth(), pendingImage.getHeight()));
+            return;
         }
-        highlightLayer = newHL;
-        Dimension old = getPreferredSize();
-        Dimension neu = new Dimension(newW, newH);
-        setPreferredSize(neu);
-        // Notify listeners that canvas size changed
-        firePropertyChange("canvasSize", old, neu);
-        revalidate();
-        repaint();
+        // A selection rectangle would no longer cover the same pixels
+        dropOverlayAndSelection();
+        runCanvasOp("transform", event, old -> {
+            LayerState next = old.map((l, img) -> ImageTransforms.apply(img, op));
+            return new CanvasSwap(old, next, CanvasEvents.bounds(next.base()));
+        });
     }
 
     // Helper to keep a persistent tooltip visible during image placement
@@ -0,0 +1,158 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Format and quality settings for a flattened save (File > Save), showing what the current
+ * settings cost: output size and encoding time.
+ * <p>
+ * The estimate encodes the whole canvas, not a shrunk preview, since compressed sizes do not scale
+ * with area; it runs on a background thread and writes nothing. A change made while one is running
+ * interrupts it, as does closing the dialog, and it stops at the next strip. The save itself also
+ * runs off the EDT, behind a modal notice so the canvas cannot change under the encoder.
+ */
+final class ExportDialog extends JPanel {
+    private final List<Layer> layers;
+    private final JComboBox<CanvasExport.Format> format = new JComboBox<>(CanvasExport.Format.values());
+    private final JSlider quality = new JSlider(1, 100, 90);
+    private final JComboBox<CanvasExport.Chroma> chroma = new JComboBox<>(CanvasExport.Chroma.values());
+    private final JSpinner colours = new JSpinner(new SpinnerNumberModel(256, 2, 256, 1));
+    private final JCheckBox dither = new JCheckBox("Ordered dithering");
+    private final JLabel estimate = new JLabel(" ");
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "export-estimate");
+        t.setDaemon(true);
+        return t;
+    });
+    // Bumped on every change; queued estimates for older settings are skipped
+    private volatile int generation;
+    // The latest estimate, interrupted when the settings change again
+    private Future<?> running;
+
+    private ExportDialog(List<Layer> layers, CanvasExport.Format initial) {
+        super(new BorderLayout(8, 8));
+        this.layers = layers;
+        format.setName("exportFormat");
+        format.setSelectedItem(initial);
+        quality.setName("exportQuality");
+        quality.setMajorTickSpacing(25);
+        quality.setPaintTicks(true);
+        quality.setPaintLabels(true);
+        chroma.setName("exportChroma");
+        chroma.setSelectedItem(CanvasExport.Chroma.QUARTER);
+        colours.setName("exportColours");
+        dither.setName("exportDither");
+        estimate.setName("exportEstimate");
+
+        JPanel controls = new JPanel(new GridLayout(0, 2, 8, 4));
+        controls.add(new JLabel("Format"));
+        controls.add(format);
+        controls.add(new JLabel("JPEG quality (%)"));
+        controls.add(quality);
+        controls.add(new JLabel("JPEG chroma subsampling"));
+        controls.add(chroma);
+        controls.add(new JLabel("PNG-8 colours"));
+        controls.add(colours);
+        controls.add(new JLabel(""));
+        controls.add(dither);
+        add(controls, BorderLayout.CENTER);
+        add(estimate, BorderLayout.SOUTH);
+
+        format.addActionListener(_ -> refresh());
+        quality.addChangeListener(_ -> {
+            if (!quality.getValueIsAdjusting()) refresh();
+        });
+        chroma.addActionListener(_ -> refresh());
+        colours.addChangeListener(_ -> refresh());
+        dither.addActionListener(_ -> refresh());
+        refresh();
+    }
+
+    /** Asks how to encode {@code layers}; null if cancelled. */
+    static CanvasExport.Options show(Component parent, List<Layer> layers, CanvasExport.Format initial) {
+        ExportDialog dialog = new ExportDialog(layers, initial);
+        try {
+            int res = JOptionPane.showConfirmDialog(parent, dialog, "Save As",
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            return res == JOptionPane.OK_OPTION ? dialog.options() : null;
+        } finally {
+            dialog.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Encodes {@code layers} to {@code file} on a background thread while a modal notice keeps the
+     * document still, then hands the result (or the failure) to {@code done} on the EDT. A
+     * {@link CanvasEvents.Save} event times the encoding.
+     */
+    static void save(Component parent, List<Layer> layers, CanvasExport.Options options, File file,
+                     Consumer<CanvasExport.Result> done, Consumer<IOException> failed) {
+        JOptionPane pane = new JOptionPane("Saving " + file.getName() + "…", JOptionPane.INFORMATION_MESSAGE,
+                JOptionPane.DEFAULT_OPTION, null, new Object[0]);
+        JDialog notice = pane.createDialog(parent, "Save");
+        notice.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        Thread.ofVirtual().name("export").start(() -> {
+            try {
+                // Timed here rather than on the EDT: the event covers the encoding alone, and its
+                // allocation count is this thread's
+                CanvasEvents.Save event = CanvasEvents.begin(new CanvasEvents.Save());
+                event.path = file.getAbsolutePath();
+                CanvasExport.Result result = CanvasExport.write(layers, options, file);
+                BufferedImage canvas = layers.getFirst().image();
+                CanvasEvents.commit(event, canvas, CanvasEvents.bounds(canvas));
+                SwingUtilities.invokeLater(() -> {
+                    notice.dispose();
+                    done.accept(result);
+                });
+            } catch (IOException | RuntimeException e) {
+                IOException error = e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+                SwingUtilities.invokeLater(() -> {
+                    notice.dispose();
+                    failed.accept(error);
+                });
+            }
+        });
+        // Returns once the encoder has finished and disposed the notice
+        notice.setVisible(true);
+    }
+
+    CanvasExport.Options options() {
+        return new CanvasExport.Options((CanvasExport.Format) format.getSelectedItem(), quality.getValue() / 100f,
+                (CanvasExport.Chroma) chroma.getSelectedItem(), (Integer) colours.getValue(), dither.isSelected());
+    }
+
+    private void refresh() {
+        CanvasExport.Options options = options();
+        quality.setEnabled(options.format() == CanvasExport.Format.JPEG);
+        chroma.setEnabled(options.format() == CanvasExport.Format.JPEG);
+        colours.setEnabled(options.format() == CanvasExport.Format.PNG8);
+        dither.setEnabled(options.format() == CanvasExport.Format.PNG8);
+        int gen = ++generation;
+        estimate.setText("Estimating size…");
+        if (running != null) running.cancel(true);
+        running = executor.submit(() -> {
+            if (gen != generation) return;
+            String text;
+            try {
+                text = options.format() + ": " + CanvasExport.estimate(layers, options).summary();
+            } catch (IOException | RuntimeException e) {
+                // Superseded or the dialog closed
+                if (Thread.currentThread().isInterrupted()) return;
+                text = "Cannot encode as " + options.format() + ": " + e.getMessage();
+            }
+            String shown = text;
+            SwingUtilities.invokeLater(() -> {
+                if (gen == generation) estimate.setText(shown);
+            });
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Settings for one of the {@link ImageFilters} with a live preview (Filter menu).
+ * <p>
+ * The preview filters a copy of the target pixels shrunk to at most {@link #PREVIEW_SIZE} pixels,
+ * with the radius scaled to match, on a background thread; only the latest slider position is
+ * shown. The full-resolution filter runs once, when the dialog is confirmed.
+ */
+final class FilterDialog extends JPanel {
+    static final int PREVIEW_SIZE = 320;
+
+    private final ImageFilters.Kind kind;
+    private final BufferedImage small;
+    private final double scale;
+    private final JSlider radius;
+    private final JSlider amount;
+    private final JLabel preview = new JLabel("", SwingConstants.CENTER);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "filter-preview");
+        t.setDaemon(true);
+        return t;
+    });
+    // Bumped on every change; a finished preview is dropped if it is no longer the latest
+    private int generation;
+
+    private FilterDialog(ImageFilters.Kind kind, BufferedImage source) {
+        super(new BorderLayout(8, 8));
+        this.kind = kind;
+        scale = Math.min(1.0, (double) PREVIEW_SIZE / Math.max(source.getWidth(), source.getHeight()));
+        small = shrink(source, scale);
+
+        radius = new JSlider(1, kind == ImageFilters.Kind.BOX_BLUR ? 50 : 100,
+                kind == ImageFilters.Kind.UNSHARP_MASK ? 2 : 5);
+        radius.setName("filterRadius");
+        amount = new JSlider(0, 500, 100);
+        amount.setName("filterAmount");
+
+        JPanel controls = new JPanel(new GridLayout(0, 1, 4, 4));
+        controls.add(new JLabel("Radius (px)"));
+        controls.add(labelled(radius));
+        if (kind == ImageFilters.Kind.UNSHARP_MASK) {
+            controls.add(new JLabel("Amount (%)"));
+            controls.add(labelled(amount));
+        }
+        add(controls, BorderLayout.NORTH);
+        preview.setPreferredSize(new Dimension(PREVIEW_SIZE, PREVIEW_SIZE));
+        preview.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+        add(preview, BorderLayout.CENTER);
+
+        radius.addChangeListener(_ -> refresh());
+        amount.addChangeListener(_ -> refresh());
+        refresh();
+    }
+
+    /**
+     * Shows the dialog for the area's current selection (or whole layer) and applies the filter if
+     * the user confirms.
+     */
+    static void show(Component parent, DrawArea area, ImageFilters.Kind kind) {
+        FilterDialog dialog = new FilterDialog(kind, area.filterSource());
+        try {
+            int res = JOptionPane.showConfirmDialog(parent, dialog, kind.toString(),
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            if (res == JOptionPane.OK_OPTION) area.applyFilter(dialog.filter());
+        } finally {
+            dialog.executor.shutdownNow();
+        }
+    }
+
+    ImageFilters.Filter filter() {
+        return new ImageFilters.Filter(kind, radius.getValue(), amount.getValue() / 100f);
+    }
+
+    private void refresh() {
+        int gen = ++generation;
+        ImageFilters.Filter f = filter().scaled(scale);
+        executor.execute(() -> {
+            BufferedImage out = ImageFilters.apply(small, null, f);
+            SwingUtilities.invokeLater(() -> {
+                if (gen == generation) preview.setIcon(new ImageIcon(out));
+            });
+        });
+    }
+
+    private static JSlider labelled(JSlider s) {
+        s.setMajorTickSpacing((s.getMaximum() - s.getMinimum() + 1) / 5);
+        s.setPaintTicks(true);
+        s.setPaintLabels(true);
+        return s;
+    }
+
+    // Bilinear downscale into a fresh INT_ARGB image
+    private static BufferedImage shrink(BufferedImage src, double scale) {
+        int w = Math.max(1, (int) Math.round(src.getWidth() * scale));
+        int h = Math.max(1, (int) Math.round(src.getHeight() * scale));
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+}
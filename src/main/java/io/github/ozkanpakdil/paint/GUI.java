@@ -12,6 +12,8 @@ public class GUI extends JPanel {
     private final JSpinner wSpin;
     private final JSpinner hSpin;
     private boolean initialSized = false;
+    private final NavigatorPanel navigator;
+    private final LayersPanel layersPanel;
 
     public GUI() throws IOException {
         this.setLayout(new java.awt.BorderLayout());
@@ -36,7 +38,7 @@ public class GUI extends JPanel {
         centerPanel.setOpaque(false);
 
         // Center holder to keep canvas centered when smaller than viewport
-        JPanel holder = new JPanel(new java.awt.GridBagLayout());
+        CanvasHolder holder = new CanvasHolder();
         // Use theme color if dark theme, otherwise light gray
         Color holderBg = isDarkTheme() ? UIManager.getColor("Panel.background") : new Color(230, 230, 230);
         holder.setBackground(holderBg);
@@ -46,8 +48,32 @@ public class GUI extends JPanel {
         gbc.anchor = java.awt.GridBagConstraints.CENTER;
         holder.add(drawAreaPanel, gbc);
 
+        // Scroll pane so zoomed-in or large canvases can be panned
+        JScrollPane scroll = new JScrollPane(holder);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        scroll.getViewport().setBackground(holderBg);
+        // Scrolling copies the pixels already on screen and only paints the newly exposed strip;
+        // DrawArea paints just the clip, so panning cost is independent of the canvas size
+        scroll.getViewport().setScrollMode(JViewport.BLIT_SCROLL_MODE);
+        scroll.getVerticalScrollBar().setUnitIncrement(16);
+        scroll.getHorizontalScrollBar().setUnitIncrement(16);
+
+        // Overview of the whole canvas (View > Navigator), hidden by default
+        navigator = new NavigatorPanel(drawAreaPanel);
+        navigator.setBorder(new javax.swing.border.EmptyBorder(4, 4, 4, 4));
+        navigator.setVisible(false);
+
+        // Layer list (View > Layers), hidden by default; shares the right column with the navigator
+        layersPanel = new LayersPanel(drawAreaPanel);
+        layersPanel.setVisible(false);
+        JPanel rightColumn = new JPanel(new BorderLayout());
+        rightColumn.setOpaque(false);
+        rightColumn.add(navigator, BorderLayout.NORTH);
+        rightColumn.add(layersPanel, BorderLayout.CENTER);
+
         centerPanel.add(sidebar, BorderLayout.WEST);
-        centerPanel.add(holder, BorderLayout.CENTER);
+        centerPanel.add(scroll, BorderLayout.CENTER);
+        centerPanel.add(rightColumn, BorderLayout.EAST);
         add(centerPanel, java.awt.BorderLayout.CENTER);
 
         // Status bar
@@ -83,6 +109,16 @@ public class GUI extends JPanel {
                 }
             }
         });
+        // Large canvas operations run in the background; show that the canvas is busy
+        drawAreaPanel.addPropertyChangeListener("rendering", evt -> {
+            if (Boolean.TRUE.equals(evt.getNewValue())) {
+                message.setText("Rendering…");
+            } else {
+                message.setText("Canvas: " + drawAreaPanel.getCanvasWidth() + " x " + drawAreaPanel.getCanvasHeight());
+            }
+        });
+        drawAreaPanel.addPropertyChangeListener("zoom", evt ->
+                message.setText(String.format(java.util.Locale.ROOT, "Zoom: %.0f%%", 100 * (Double) evt.getNewValue())));
         JButton apply = new JButton("Resize");
         apply.setToolTipText("Resize the canvas to the specified width and height");
         status.add(apply);
@@ -132,12 +168,12 @@ public class GUI extends JPanel {
         });
 
         // One-time auto-size of canvas to (almost) available center size
-        holder.addComponentListener(new java.awt.event.ComponentAdapter() {
+        scroll.getViewport().addComponentListener(new java.awt.event.ComponentAdapter() {
             @Override
             public void componentResized(java.awt.event.ComponentEvent e) {
                 if (initialSized)
                     return;
-                java.awt.Dimension size = holder.getSize();
+                java.awt.Dimension size = scroll.getViewport().getExtentSize();
                 if (size.width <= 0 || size.height <= 0)
                     return;
                 int margin = 40; // keep a small margin
@@ -160,6 +196,24 @@ public class GUI extends JPanel {
         return drawAreaPanel;
     }
 
+    public boolean isNavigatorVisible() {
+        return navigator.isVisible();
+    }
+
+    public void setNavigatorVisible(boolean visible) {
+        navigator.setVisible(visible);
+        revalidate();
+    }
+
+    public boolean isLayersVisible() {
+        return layersPanel.isVisible();
+    }
+
+    public void setLayersVisible(boolean visible) {
+        layersPanel.setVisible(visible);
+        revalidate();
+    }
+
     public SideMenu getSideMenu() {
         return sidemenu;
     }
@@ -175,7 +229,9 @@ public class GUI extends JPanel {
                 new Object[] { "text", "text.png", 6 },
                 new Object[] { "bucket", "bucket.png", 10 },
                 new Object[] { "move", "move.png", 11 },
-                new Object[] { "arrow", "arrow.png", 13 }
+                new Object[] { "arrow", "arrow.png", 13 },
+                new Object[] { "redact", "redact.png", 14 },
+                new Object[] { "wand", "wand.png", 15 }
         };
         for (Object tool : tools) {
             Object[] def = (Object[]) tool;
@@ -229,6 +285,41 @@ public class GUI extends JPanel {
         return capitalize(s.replace('-', ' ').replace("_", " "));
     }
 
+    /**
+     * Centers the canvas while it is smaller than the viewport and otherwise lets the scroll pane
+     * scroll it.
+     */
+    private static final class CanvasHolder extends JPanel implements Scrollable {
+        CanvasHolder() {
+            super(new java.awt.GridBagLayout());
+        }
+
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return 16;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+            return Math.max(16, (orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width) - 16);
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return getParent() instanceof JViewport vp && vp.getWidth() > getPreferredSize().width;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return getParent() instanceof JViewport vp && vp.getHeight() > getPreferredSize().height;
+        }
+    }
+
     private boolean isDarkTheme() {
         // Check if FlatLaf dark theme is active
         String lafClass = UIManager.getLookAndFeel().getClass().getName();
@@ -236,13 +327,7 @@ public class GUI extends JPanel {
     }
 
     private JLabel makeIconButton(String resource, String name, String tooltip) {
-        java.awt.image.BufferedImage img = null;
-        try {
-            java.io.InputStream in = SideMenu.class.getResourceAsStream("/images/" + resource);
-            if (in != null)
-                img = javax.imageio.ImageIO.read(in);
-        } catch (Exception ignored) {
-        }
+        java.awt.image.BufferedImage img = IconAtlas.icon(resource, 24, 24);
         if (img == null) {
             img = new java.awt.image.BufferedImage(24, 24, java.awt.image.BufferedImage.TYPE_INT_ARGB);
             Graphics2D g = img.createGraphics();
@@ -255,8 +340,7 @@ public class GUI extends JPanel {
             g.drawRect(3, 3, 18, 18);
             g.dispose();
         }
-        Image scaled = img.getScaledInstance(24, 24, Image.SCALE_SMOOTH);
-        JLabel lab = new JLabel(new ImageIcon(scaled));
+        JLabel lab = new JLabel(new ImageIcon(img));
         // Use theme colors if dark theme, otherwise light colors
         Color borderColor = isDarkTheme() ? UIManager.getColor("Component.borderColor") : new Color(220, 220, 220);
         Color bgColor = isDarkTheme() ? UIManager.getColor("Button.background") : new Color(250, 250, 250);
@@ -0,0 +1,135 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-scaled tool icons packed into a single raw ARGB resource at build time by
+ * {@link IconAtlasBuilder}. The whole atlas is read with one call into one buffer and icons are
+ * sliced out of it on demand, so the startup path never initializes ImageIO decoders.
+ * <p>
+ * Layout (big-endian): magic, entry count, then per entry {name length, UTF-8 name, width,
+ * height, pixel offset}, padding to a 4-byte boundary, then all pixels as packed ARGB ints.
+ * <p>
+ * The static state deliberately touches no AWT classes so the class can be initialized at
+ * native-image build time.
+ */
+final class IconAtlas {
+    static final String RESOURCE = "/images/icons.atlas";
+    static final int MAGIC = 0x50494131; // "PIA1"
+    // 1x and 2x variants of the sizes used by the UI (toolbar 24, side menu 28, cursors 32)
+    static final int[] SIZES = {24, 28, 32, 48, 56, 64};
+
+    private record Entry(int width, int height, int offset) {
+    }
+
+    private static final Map<String, Entry> ENTRIES = new HashMap<>();
+    private static final IntBuffer PIXELS;
+
+    static {
+        IntBuffer pixels = null;
+        try (InputStream in = IconAtlas.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                ByteBuffer buf = ByteBuffer.wrap(in.readAllBytes());
+                if (buf.getInt() == MAGIC) {
+                    int count = buf.getInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] name = new byte[buf.getShort()];
+                        buf.get(name);
+                        int w = buf.getShort();
+                        int h = buf.getShort();
+                        int offset = buf.getInt();
+                        ENTRIES.put(key(new String(name, StandardCharsets.UTF_8), w, h), new Entry(w, h, offset));
+                    }
+                    buf.position((buf.position() + 3) & ~3);
+                    pixels = buf.slice().asIntBuffer();
+                }
+            }
+        } catch (Exception ex) {
+            ENTRIES.clear();
+            System.err.println("[IconAtlas] Failed to read " + RESOURCE + ": " + ex.getMessage());
+        }
+        PIXELS = pixels;
+    }
+
+    private IconAtlas() {
+    }
+
+    private static String key(String name, int w, int h) {
+        return name + '@' + w + 'x' + h;
+    }
+
+    static boolean isAvailable() {
+        return PIXELS != null && !ENTRIES.isEmpty();
+    }
+
+    /**
+     * Returns the named icon (e.g. {@code "pencil.png"}) scaled to {@code width x height}, or null
+     * if there is no such resource. Exact atlas sizes are sliced without any scaling; other sizes
+     * are derived from the nearest larger atlas entry. When the atlas is missing (e.g. running from
+     * classes compiled without the build step) the original resource is decoded instead.
+     */
+    static BufferedImage icon(String name, int width, int height) {
+        if (isAvailable()) {
+            Entry exact = ENTRIES.get(key(name, width, height));
+            if (exact != null) return slice(exact);
+            Entry best = null;
+            for (int size : SIZES) {
+                Entry e = ENTRIES.get(key(name, size, size));
+                if (e == null) continue;
+                best = e;
+                if (size >= Math.max(width, height)) break;
+            }
+            if (best != null) return scale(slice(best), width, height);
+        }
+        return decode(name, width, height);
+    }
+
+    private static BufferedImage slice(Entry e) {
+        int[] argb = new int[e.width * e.height];
+        PIXELS.get(e.offset, argb);
+        BufferedImage img = new BufferedImage(e.width, e.height, BufferedImage.TYPE_INT_ARGB);
+        img.getRaster().setDataElements(0, 0, e.width, e.height, argb);
+        return img;
+    }
+
+    private static BufferedImage scale(BufferedImage src, int width, int height) {
+        BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    // Slow path kept for builds without the generated atlas
+    private static BufferedImage decode(String name, int width, int height) {
+        try (InputStream in = IconAtlas.class.getResourceAsStream("/images/" + name)) {
+            if (in == null) return null;
+            BufferedImage src = ImageIO.read(in);
+            if (src == null) return null;
+            Image scaled = new javax.swing.ImageIcon(src.getScaledInstance(width, height, Image.SCALE_SMOOTH)).getImage();
+            BufferedImage dst = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = dst.createGraphics();
+            try {
+                g.drawImage(scaled, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            return dst;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+}
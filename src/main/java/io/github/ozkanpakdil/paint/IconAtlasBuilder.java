@@ -0,0 +1,102 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Build-time generator for {@code images/icons.atlas} (see {@link IconAtlas} for the format).
+ * <p>
+ * Invoked by the exec-maven-plugin in the {@code process-classes} phase:
+ * {@code IconAtlasBuilder <images-dir> <output-file>}. Every PNG/JPEG icon in the directory is
+ * decoded once here and stored pre-scaled at each size in {@link IconAtlas#SIZES}, so the
+ * application never needs ImageIO on its startup path.
+ */
+final class IconAtlasBuilder {
+
+    private IconAtlasBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: IconAtlasBuilder <images-dir> <output-file>");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        Path dir = Path.of(args[0]);
+        Path out = Path.of(args[1]);
+
+        File[] files = dir.toFile().listFiles((d, n) -> {
+            String l = n.toLowerCase();
+            return l.endsWith(".png") || l.endsWith(".jpeg") || l.endsWith(".jpg");
+        });
+        if (files == null) throw new IOException("Not a directory: " + dir);
+        // Stable order keeps the generated resource reproducible
+        Arrays.sort(files);
+
+        List<String> names = new ArrayList<>();
+        List<int[]> slices = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (File f : files) {
+            BufferedImage src = ImageIO.read(f);
+            if (src == null) {
+                System.err.println("[IconAtlas] Skipping unreadable image: " + f.getName());
+                continue;
+            }
+            for (int size : IconAtlas.SIZES) {
+                names.add(f.getName());
+                sizes.add(size);
+                slices.add(scale(src, size));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            data.writeInt(IconAtlas.MAGIC);
+            data.writeInt(names.size());
+            int offset = 0;
+            for (int i = 0; i < names.size(); i++) {
+                byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                data.writeShort(name.length);
+                data.write(name);
+                data.writeShort(sizes.get(i));
+                data.writeShort(sizes.get(i));
+                data.writeInt(offset);
+                offset += slices.get(i).length;
+            }
+            // Pad the header so the pixel block starts on an int boundary
+            while (data.size() % 4 != 0) data.writeByte(0);
+            for (int[] slice : slices) {
+                for (int argb : slice) data.writeInt(argb);
+            }
+        }
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        Files.write(out, bytes.toByteArray());
+        System.out.println("[IconAtlas] Wrote " + names.size() + " icons (" + bytes.size() + " bytes) to " + out);
+    }
+
+    // Same smooth scaling the UI used to do at runtime, so icons look identical
+    private static int[] scale(BufferedImage src, int size) {
+        // ImageIcon waits for the asynchronous scale filter to finish producing pixels
+        Image scaled = new ImageIcon(src.getScaledInstance(size, size, Image.SCALE_SMOOTH)).getImage();
+        BufferedImage dst = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.drawImage(scaled, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return dst.getRGB(0, 0, size, size, null, 0, size);
+    }
+}
@@ -0,0 +1,318 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Gaussian blur, box blur and unsharp mask on INT_ARGB pixels.
+ * <p>
+ * Every blur is separable: a horizontal pass over rows into a scratch buffer, then a vertical pass
+ * over columns back. Both passes are split into stripes of rows or columns that run on the
+ * common {@link ForkJoinPool}; the vertical pass walks each column stripe row by row so memory is
+ * still read in order. Colours are blurred premultiplied, so transparent pixels do not darken
+ * their neighbours. Box blurs use a running sum (cost independent of the radius); Gaussian blurs
+ * convolve with the exact kernel for small radii and use three box passes for large ones.
+ */
+final class ImageFilters {
+    // Rows or columns per fork-join task
+    private static final int STRIPE = 32;
+    // Above this sigma a Gaussian is approximated by three box blurs
+    private static final float EXACT_GAUSSIAN_MAX_SIGMA = 4f;
+
+    enum Kind {
+        GAUSSIAN_BLUR("Gaussian Blur"),
+        BOX_BLUR("Box Blur"),
+        UNSHARP_MASK("Unsharp Mask");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * A filter and its settings: {@code radius} in pixels (the standard deviation for the Gaussian
+     * and unsharp mask), {@code amount} the unsharp mask strength (1 = 100%).
+     */
+    record Filter(Kind kind, float radius, float amount) {
+        /** The same filter for an image scaled by {@code factor}, e.g. a preview. */
+        Filter scaled(double factor) {
+            return new Filter(kind, (float) (radius * factor), amount);
+        }
+    }
+
+    private ImageFilters() {
+    }
+
+    /**
+     * Returns a copy of {@code src} with the filter applied inside {@code region} ({@code null}
+     * means everywhere). Pixels outside the region are neither changed nor sampled.
+     */
+    static BufferedImage apply(BufferedImage src, Rectangle region, Filter f) {
+        Rectangle r = region == null ? new Rectangle(0, 0, src.getWidth(), src.getHeight())
+                : region.intersection(new Rectangle(0, 0, src.getWidth(), src.getHeight()));
+        BufferedImage out = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(src, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        if (r.isEmpty()) return out;
+        int[] px = LayerCompositor.pixels(out);
+        int stride = out.getWidth();
+        int[] work = new int[r.width * r.height];
+        for (int y = 0; y < r.height; y++) {
+            System.arraycopy(px, (r.y + y) * stride + r.x, work, y * r.width, r.width);
+        }
+        filter(work, r.width, r.height, f);
+        for (int y = 0; y < r.height; y++) {
+            System.arraycopy(work, y * r.width, px, (r.y + y) * stride + r.x, r.width);
+        }
+        return out;
+    }
+
+    /** Filters a {@code w x h} block of straight-alpha ARGB pixels in place. */
+    static void filter(int[] px, int w, int h, Filter f) {
+        if (f.radius() <= 0 || w == 0 || h == 0) return;
+        stripes(h, (y0, y1) -> PixelKernels.premultiply(px, y0 * w, (y1 - y0) * w));
+        int[] original = f.kind() == Kind.UNSHARP_MASK ? px.clone() : null;
+        int[] scratch = new int[px.length];
+        switch (f.kind()) {
+            case BOX_BLUR -> box(px, scratch, w, h, Math.round(f.radius()));
+            case GAUSSIAN_BLUR, UNSHARP_MASK -> gaussian(px, scratch, w, h, f.radius());
+        }
+        if (original != null) {
+            int amount = Math.round(f.amount() * 256);
+            stripes(h, (y0, y1) -> sharpen(original, px, y0 * w, y1 * w, amount));
+        }
+        stripes(h, (y0, y1) -> PixelKernels.unpremultiply(px, y0 * w, (y1 - y0) * w));
+    }
+
+    private static void gaussian(int[] px, int[] scratch, int w, int h, float sigma) {
+        if (sigma <= EXACT_GAUSSIAN_MAX_SIGMA) {
+            int[] kernel = gaussianKernel(sigma);
+            stripes(h, (y0, y1) -> convolveRows(px, scratch, w, y0, y1, kernel));
+            stripes(w, (x0, x1) -> convolveColumns(scratch, px, w, h, x0, x1, kernel));
+            return;
+        }
+        // Three box blurs whose combined variance matches the Gaussian's
+        for (int r : boxRadiiForGaussian(sigma, 3)) box(px, scratch, w, h, r);
+    }
+
+    private static void box(int[] px, int[] scratch, int w, int h, int r) {
+        if (r <= 0) return;
+        stripes(h, (y0, y1) -> boxRows(px, scratch, w, y0, y1, r));
+        stripes(w, (x0, x1) -> boxColumns(scratch, px, w, h, x0, x1, r));
+    }
+
+    // Normalised to 1 << 16, half-width ceil(3 sigma)
+    static int[] gaussianKernel(float sigma) {
+        int half = Math.max(1, (int) Math.ceil(3 * sigma));
+        double[] weights = new double[2 * half + 1];
+        double sum = 0;
+        for (int i = -half; i <= half; i++) {
+            weights[i + half] = Math.exp(-(i * i) / (2.0 * sigma * sigma));
+            sum += weights[i + half];
+        }
+        int[] kernel = new int[weights.length];
+        int total = 0;
+        for (int i = 0; i < kernel.length; i++) {
+            kernel[i] = (int) Math.round(weights[i] / sum * 65536);
+            total += kernel[i];
+        }
+        // Put the rounding error in the centre so flat areas stay exactly flat
+        kernel[half] += 65536 - total;
+        return kernel;
+    }
+
+    // Box radii for n passes approximating a Gaussian of the given sigma (Kovesi's method)
+    static int[] boxRadiiForGaussian(float sigma, int n) {
+        double ideal = Math.sqrt(12.0 * sigma * sigma / n + 1);
+        int lower = (int) Math.floor(ideal);
+        if (lower % 2 == 0) lower--;
+        int upper = lower + 2;
+        double m = (12.0 * sigma * sigma - n * lower * lower - 4.0 * n * lower - 3.0 * n) / (-4.0 * lower - 4);
+        int small = (int) Math.round(m);
+        int[] radii = new int[n];
+        for (int i = 0; i < n; i++) radii[i] = ((i < small ? lower : upper) - 1) / 2;
+        return radii;
+    }
+
+    private static void convolveRows(int[] src, int[] dst, int w, int y0, int y1, int[] kernel) {
+        int half = kernel.length / 2;
+        for (int y = y0; y < y1; y++) {
+            int row = y * w;
+            for (int x = 0; x < w; x++) {
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int k = -half; k <= half; k++) {
+                    int p = src[row + clamp(x + k, w)];
+                    int wt = kernel[k + half];
+                    a += (p >>> 24) * wt;
+                    r += (p >> 16 & 0xFF) * wt;
+                    g += (p >> 8 & 0xFF) * wt;
+                    b += (p & 0xFF) * wt;
+                }
+                dst[row + x] = pack(a, r, g, b);
+            }
+        }
+    }
+
+    // Column stripe [x0, x1) walked row by row, one accumulator per column
+    private static void convolveColumns(int[] src, int[] dst, int w, int h, int x0, int x1, int[] kernel) {
+        int half = kernel.length / 2;
+        int n = x1 - x0;
+        int[] a = new int[n], r = new int[n], g = new int[n], b = new int[n];
+        for (int y = 0; y < h; y++) {
+            java.util.Arrays.fill(a, 0);
+            java.util.Arrays.fill(r, 0);
+            java.util.Arrays.fill(g, 0);
+            java.util.Arrays.fill(b, 0);
+            for (int k = -half; k <= half; k++) {
+                int row = clamp(y + k, h) * w + x0;
+                int wt = kernel[k + half];
+                for (int i = 0; i < n; i++) {
+                    int p = src[row + i];
+                    a[i] += (p >>> 24) * wt;
+                    r[i] += (p >> 16 & 0xFF) * wt;
+                    g[i] += (p >> 8 & 0xFF) * wt;
+                    b[i] += (p & 0xFF) * wt;
+                }
+            }
+            int out = y * w + x0;
+            for (int i = 0; i < n; i++) dst[out + i] = pack(a[i], r[i], g[i], b[i]);
+        }
+    }
+
+    private static void boxRows(int[] src, int[] dst, int w, int y0, int y1, int radius) {
+        int size = 2 * radius + 1;
+        for (int y = y0; y < y1; y++) {
+            int row = y * w;
+            int a = 0, r = 0, g = 0, b = 0;
+            for (int k = -radius; k <= radius; k++) {
+                int p = src[row + clamp(k, w)];
+                a += p >>> 24;
+                r += p >> 16 & 0xFF;
+                g += p >> 8 & 0xFF;
+                b += p & 0xFF;
+            }
+            for (int x = 0; x < w; x++) {
+                dst[row + x] = average(a, r, g, b, size);
+                int in = src[row + clamp(x + radius + 1, w)];
+                int out = src[row + clamp(x - radius, w)];
+                a += (in >>> 24) - (out >>> 24);
+                r += (in >> 16 & 0xFF) - (out >> 16 & 0xFF);
+                g += (in >> 8 & 0xFF) - (out >> 8 & 0xFF);
+                b += (in & 0xFF) - (out & 0xFF);
+            }
+        }
+    }
+
+    private static void boxColumns(int[] src, int[] dst, int w, int h, int x0, int x1, int radius) {
+        int size = 2 * radius + 1;
+        int n = x1 - x0;
+        int[] a = new int[n], r = new int[n], g = new int[n], b = new int[n];
+        for (int k = -radius; k <= radius; k++) {
+            int row = clamp(k, h) * w + x0;
+            for (int i = 0; i < n; i++) {
+                int p = src[row + i];
+                a[i] += p >>> 24;
+                r[i] += p >> 16 & 0xFF;
+                g[i] += p >> 8 & 0xFF;
+                b[i] += p & 0xFF;
+            }
+        }
+        for (int y = 0; y < h; y++) {
+            int out = y * w + x0;
+            int inRow = clamp(y + radius + 1, h) * w + x0;
+            int outRow = clamp(y - radius, h) * w + x0;
+            for (int i = 0; i < n; i++) {
+                dst[out + i] = average(a[i], r[i], g[i], b[i], size);
+                int pin = src[inRow + i];
+                int pout = src[outRow + i];
+                a[i] += (pin >>> 24) - (pout >>> 24);
+                r[i] += (pin >> 16 & 0xFF) - (pout >> 16 & 0xFF);
+                g[i] += (pin >> 8 & 0xFF) - (pout >> 8 & 0xFF);
+                b[i] += (pin & 0xFF) - (pout & 0xFF);
+            }
+        }
+    }
+
+    // original + amount * (original - blurred), premultiplied, amount in 1/256
+    private static void sharpen(int[] original, int[] blurred, int from, int to, int amount) {
+        for (int i = from; i < to; i++) {
+            int o = original[i];
+            int bl = blurred[i];
+            int a = o >>> 24;
+            int r = sharpenChannel(o >> 16 & 0xFF, bl >> 16 & 0xFF, amount, a);
+            int g = sharpenChannel(o >> 8 & 0xFF, bl >> 8 & 0xFF, amount, a);
+            int b = sharpenChannel(o & 0xFF, bl & 0xFF, amount, a);
+            blurred[i] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+
+    // Premultiplied channels cannot exceed alpha
+    private static int sharpenChannel(int o, int blurred, int amount, int alpha) {
+        int v = o + ((o - blurred) * amount + 128 >> 8);
+        return Math.max(0, Math.min(alpha, v));
+    }
+
+    private static int pack(int a, int r, int g, int b) {
+        return (a + 32768 >>> 16) << 24 | (r + 32768 >>> 16) << 16 | (g + 32768 >>> 16) << 8 | (b + 32768 >>> 16);
+    }
+
+    private static int average(int a, int r, int g, int b, int size) {
+        int half = size / 2;
+        return (a + half) / size << 24 | (r + half) / size << 16 | (g + half) / size << 8 | (b + half) / size;
+    }
+
+    // Edge pixels repeat outwards
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : i >= n ? n - 1 : i;
+    }
+
+    /** A half-open span of rows or columns. */
+    interface Range {
+        void run(int from, int to);
+    }
+
+    /** Runs {@code body} over rows or columns {@code [0, n)} in stripes on the common pool. */
+    static void stripes(int n, Range body) {
+        if (n <= STRIPE) {
+            body.run(0, n);
+        } else {
+            ForkJoinPool.commonPool().invoke(new Stripes(0, n, body));
+        }
+    }
+
+    private static final class Stripes extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final Range body;
+
+        Stripes(int from, int to, Range body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= STRIPE) {
+                body.run(from, to);
+                return;
+            }
+            int mid = from + (to - from) / 2;
+            invokeAll(new Stripes(from, mid, body), new Stripes(mid, to, body));
+        }
+    }
+}
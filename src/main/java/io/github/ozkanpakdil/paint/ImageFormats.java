@@ -0,0 +1,197 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Brings images from outside (opened files, pastes, drops) into the INT_ARGB layout the canvas,
+ * the compositor and the kernels work on.
+ * <p>
+ * {@code ImageIO} mostly returns 3- or 4-byte interleaved, grey or palette images. Drawn as they
+ * are, every repaint of a floating image goes through Java2D's generic conversion loops, so they
+ * are converted once, up front. The common layouts are read straight from the raster's backing
+ * array in stripes of rows on the common fork-join pool; anything else (16-bit samples, ICC
+ * colour spaces) is drawn through Java2D once. Every path gives the pixels Java2D would draw,
+ * grey included (premultiplied input may round one level differently).
+ */
+final class ImageFormats {
+
+    // Converts rows [y0, y1) into the width-wide INT_ARGB array
+    private interface Rows {
+        void convert(int y0, int y1, int[] out);
+    }
+
+    private ImageFormats() {
+    }
+
+    /** Whether {@code img} is INT_ARGB and its pixel array holds exactly its own pixels, row by row. */
+    static boolean isPlainIntArgb(BufferedImage img) {
+        WritableRaster r = img.getRaster();
+        return img.getType() == BufferedImage.TYPE_INT_ARGB
+                && r.getDataBuffer().getSize() == img.getWidth() * img.getHeight()
+                && r.getDataBuffer().getOffset() == 0
+                && r.getSampleModelTranslateX() == 0 && r.getSampleModelTranslateY() == 0;
+    }
+
+    /** {@code img} as INT_ARGB: the image itself if it already is, otherwise a converted copy. */
+    static BufferedImage toIntArgb(Image img) {
+        if (img instanceof BufferedImage b) return toIntArgb(b);
+        int w = img.getWidth(null);
+        int h = img.getHeight(null);
+        if (w <= 0 || h <= 0) return null;
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        draw(img, out);
+        return out;
+    }
+
+    /** {@code src} as INT_ARGB: {@code src} itself if it already is, otherwise a converted copy. */
+    static BufferedImage toIntArgb(BufferedImage src) {
+        if (isPlainIntArgb(src)) return src;
+        BufferedImage out = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Rows rows = rowsOf(src);
+        if (rows == null) {
+            draw(src, out);
+        } else {
+            int[] px = LayerCompositor.pixels(out);
+            ImageFilters.stripes(src.getHeight(), (y0, y1) -> rows.convert(y0, y1, px));
+        }
+        return out;
+    }
+
+    // A direct converter for the raster's layout, or null if it has none
+    private static Rows rowsOf(BufferedImage src) {
+        WritableRaster raster = src.getRaster();
+        DataBuffer db = raster.getDataBuffer();
+        ColorModel cm = src.getColorModel();
+        int w = src.getWidth();
+        // Where pixel (0, 0) sits in the sample model (non-zero for subimages)
+        int tx = -raster.getSampleModelTranslateX();
+        int ty = -raster.getSampleModelTranslateY();
+
+        if (db instanceof DataBufferInt ints && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sm) {
+            int[] data = ints.getData();
+            int scan = sm.getScanlineStride();
+            int base = db.getOffset() + ty * scan + tx;
+            return switch (src.getType()) {
+                case BufferedImage.TYPE_INT_ARGB -> (y0, y1, out) -> {
+                    for (int y = y0; y < y1; y++) System.arraycopy(data, base + y * scan, out, y * w, w);
+                };
+                case BufferedImage.TYPE_INT_ARGB_PRE -> (y0, y1, out) -> {
+                    for (int y = y0; y < y1; y++) System.arraycopy(data, base + y * scan, out, y * w, w);
+                    PixelKernels.unpremultiply(out, y0 * w, (y1 - y0) * w);
+                };
+                case BufferedImage.TYPE_INT_RGB -> (y0, y1, out) -> {
+                    for (int y = y0; y < y1; y++) {
+                        int from = base + y * scan;
+                        int to = y * w;
+                        for (int x = 0; x < w; x++) out[to + x] = 0xFF000000 | data[from + x];
+                    }
+                };
+                default -> null;
+            };
+        }
+        if (!(db instanceof DataBufferByte bytes)) return null;
+        byte[] data = bytes.getData();
+
+        if (raster.getSampleModel() instanceof PixelInterleavedSampleModel sm) {
+            int scan = sm.getScanlineStride();
+            int step = sm.getPixelStride();
+            int base = db.getOffset() + ty * scan + tx * step;
+            int[] off = sm.getBandOffsets();
+            if (cm instanceof IndexColorModel icm && off.length == 1) {
+                int[] lut = palette(icm);
+                return (y0, y1, out) -> {
+                    for (int y = y0; y < y1; y++) {
+                        for (int x = 0, i = base + y * scan + off[0], o = y * w; x < w; x++, i += step) {
+                            out[o + x] = lut[data[i] & 0xFF];
+                        }
+                    }
+                };
+            }
+            if (!(cm instanceof ComponentColorModel) || cm.isAlphaPremultiplied() || !eightBit(cm)) return null;
+            if (off.length == 1 && cm.getColorSpace() == ColorSpace.getInstance(ColorSpace.CS_GRAY)) {
+                // Java2D draws grey levels as they are, with no gamma conversion
+                return (y0, y1, out) -> {
+                    for (int y = y0; y < y1; y++) {
+                        for (int x = 0, i = base + y * scan + off[0], o = y * w; x < w; x++, i += step) {
+                            out[o + x] = 0xFF000000 | (data[i] & 0xFF) * 0x010101;
+                        }
+                    }
+                };
+            }
+            if (!cm.getColorSpace().isCS_sRGB() || off.length != (cm.hasAlpha() ? 4 : 3)) return null;
+            int r = off[0], g = off[1], b = off[2];
+            if (!cm.hasAlpha()) {
+                return (y0, y1, out) -> {
+                    for (int y = y0; y < y1; y++) {
+                        for (int x = 0, i = base + y * scan, o = y * w; x < w; x++, i += step) {
+                            out[o + x] = 0xFF000000 | (data[i + r] & 0xFF) << 16 | (data[i + g] & 0xFF) << 8 | data[i + b] & 0xFF;
+                        }
+                    }
+                };
+            }
+            int a = off[3];
+            return (y0, y1, out) -> {
+                for (int y = y0; y < y1; y++) {
+                    for (int x = 0, i = base + y * scan, o = y * w; x < w; x++, i += step) {
+                        out[o + x] = (data[i + a] & 0xFF) << 24 | (data[i + r] & 0xFF) << 16 | (data[i + g] & 0xFF) << 8 | data[i + b] & 0xFF;
+                    }
+                }
+            };
+        }
+
+        if (raster.getSampleModel() instanceof MultiPixelPackedSampleModel sm && cm instanceof IndexColorModel icm) {
+            // 1, 2 or 4 bits per pixel, first pixel in the high bits
+            int bits = sm.getPixelBitStride();
+            int mask = (1 << bits) - 1;
+            int[] lut = palette(icm);
+            return (y0, y1, out) -> {
+                for (int y = y0; y < y1; y++) {
+                    for (int x = 0, o = y * w; x < w; x++) {
+                        int i = db.getOffset() + sm.getOffset(x + tx, y + ty);
+                        int shift = 8 - bits - sm.getBitOffset(x + tx);
+                        out[o + x] = lut[data[i] >> shift & mask];
+                    }
+                }
+            };
+        }
+        return null;
+    }
+
+    // A 256-entry lookup table, so out-of-range indices read as transparent black
+    private static int[] palette(IndexColorModel icm) {
+        int[] lut = new int[256];
+        int[] rgbs = new int[icm.getMapSize()];
+        icm.getRGBs(rgbs);
+        System.arraycopy(rgbs, 0, lut, 0, Math.min(256, rgbs.length));
+        return lut;
+    }
+
+    private static boolean eightBit(ColorModel cm) {
+        for (int size : cm.getComponentSize()) {
+            if (size != 8) return false;
+        }
+        return true;
+    }
+
+    private static void draw(Image src, BufferedImage out) {
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(src, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Views and annotates an image too large to decode in full. File > Open uses it instead of the
+ * canvas when the image's pixels would take more than {@link #STREAM_THRESHOLD} bytes.
+ * <p>
+ * Only the tiles under the viewport are decoded, on a background thread, at the power-of-two
+ * subsampling that matches the zoom; until a tile arrives its area shows a coarser cached tile
+ * or grey. Where the decoder cannot seek to a region (PNG, JPEG), a tile is decoded together with
+ * its neighbours in the same row of tiles, so a screenful costs one read per row rather than one
+ * per tile. Decoded tiles live in a {@link TileCache} bounded to a share of the heap. Drawing (the
+ * current colour and stroke size) goes to a {@link SparseOverlay}, and Export writes the image
+ * with the annotations to PNG strip by strip in one pass over the file, so neither viewing nor
+ * saving holds the whole image.
+ */
+final class LargeImageView extends JComponent {
+    /** Pixel bytes from which File > Open streams an image ({@code -Dpaint.largeImageBytes}). */
+    static final long STREAM_THRESHOLD = Long.getLong("paint.largeImageBytes", Runtime.getRuntime().maxMemory() / 4);
+    /** Tile edge in pixels of the tile's own level. */
+    static final int TILE = 512;
+    private static final double MIN_ZOOM = 1.0 / 256;
+    private static final double MAX_ZOOM = 8;
+
+    /** A tile of level {@code level} (subsampled by {@code 2^level}). */
+    record TileKey(int level, int tx, int ty) {
+    }
+
+    private final RegionDecoder decoder;
+    private final TileCache<TileKey> cache;
+    private final SparseOverlay overlay;
+    private final ExecutorService decodeThread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tile-decode");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Set<TileKey> pending = ConcurrentHashMap.newKeySet();
+    private final int maxLevel;
+    private double zoom = 1;
+    // Image area and level on screen as of the last paint; queued tiles outside it are skipped
+    private volatile Rectangle shown = new Rectangle();
+    private volatile int shownLevel;
+    private Point2D lastPoint;
+
+    LargeImageView(RegionDecoder decoder, long cacheBytes) {
+        this.decoder = decoder;
+        this.cache = new TileCache<>(cacheBytes);
+        this.overlay = new SparseOverlay(decoder.width(), decoder.height());
+        int levels = 0;
+        while ((Math.max(decoder.width(), decoder.height()) >> levels) > TILE) levels++;
+        maxLevel = levels;
+        setOpaque(true);
+        setBackground(Color.LIGHT_GRAY);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) return;
+                lastPoint = toImage(e.getPoint());
+                stroke(lastPoint, lastPoint);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (lastPoint == null) return;
+                Point2D p = toImage(e.getPoint());
+                stroke(lastPoint, p);
+                lastPoint = p;
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                lastPoint = null;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (!e.isControlDown()) {
+                    // Plain wheel scrolls the enclosing scroll pane
+                    getParent().dispatchEvent(SwingUtilities.convertMouseEvent(LargeImageView.this, e, getParent()));
+                    return;
+                }
+                setZoom(zoom * Math.pow(1.25, -e.getPreciseWheelRotation()), e.getPoint());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /** Whether an image of this size should be opened here rather than decoded onto the canvas. */
+    static boolean needsStreaming(Dimension size) {
+        return 4L * size.width * size.height > STREAM_THRESHOLD;
+    }
+
+    /** Opens {@code f} in a window of its own. */
+    static void open(Component parent, File f) throws IOException {
+        RegionDecoder decoder = RegionDecoder.open(f);
+        LargeImageView view = new LargeImageView(decoder, Runtime.getRuntime().maxMemory() / 8);
+        JFrame frame = new JFrame(f.getName() + " (" + decoder.width() + " x " + decoder.height() + ")");
+        JScrollPane scroll = new JScrollPane(view);
+        scroll.getViewport().setScrollMode(JViewport.BLIT_SCROLL_MODE);
+        scroll.getVerticalScrollBar().setUnitIncrement(32);
+        scroll.getHorizontalScrollBar().setUnitIncrement(32);
+        JLabel status = new JLabel(" ");
+        JButton export = new JButton("Export PNG…");
+        export.setName("largeExport");
+        export.addActionListener(_ -> view.exportInteractively(frame, status));
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 2));
+        bar.add(export);
+        bar.add(new JLabel("Ctrl+wheel zooms; drag to draw with the current colour and stroke."));
+        bar.add(status);
+        view.addPropertyChangeListener("zoom", evt ->
+                status.setText(String.format(java.util.Locale.ROOT, "Zoom: %.1f%%", 100 * (Double) evt.getNewValue())));
+        frame.add(scroll, BorderLayout.CENTER);
+        frame.add(bar, BorderLayout.SOUTH);
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                view.close();
+            }
+        });
+        frame.setSize(1200, 800);
+        frame.setLocationRelativeTo(parent);
+        frame.setVisible(true);
+        // Start with the whole image in view
+        Dimension extent = scroll.getViewport().getExtentSize();
+        view.setZoom(Math.min(1, Math.min((double) extent.width / decoder.width(), (double) extent.height / decoder.height())), null);
+    }
+
+    double getZoom() {
+        return zoom;
+    }
+
+    /** Sets the zoom, keeping the image point under {@code anchor} (view coordinates) in place. */
+    void setZoom(double newZoom, Point anchor) {
+        double z = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+        if (z == zoom) return;
+        Rectangle vis = getVisibleRect();
+        if (anchor == null) anchor = new Point(vis.x + vis.width / 2, vis.y + vis.height / 2);
+        double cx = anchor.x / zoom;
+        double cy = anchor.y / zoom;
+        int ax = anchor.x - vis.x;
+        int ay = anchor.y - vis.y;
+        double old = zoom;
+        zoom = z;
+        revalidate();
+        JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (vp != null) {
+            vp.validate();
+            Dimension extent = vp.getExtentSize();
+            Dimension size = getPreferredSize();
+            int x = Math.max(0, Math.min((int) Math.round(cx * zoom) - ax, size.width - extent.width));
+            int y = Math.max(0, Math.min((int) Math.round(cy * zoom) - ay, size.height - extent.height));
+            vp.setViewPosition(new Point(x, y));
+        }
+        firePropertyChange("zoom", old, zoom);
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension((int) Math.ceil(decoder.width() * zoom), (int) Math.ceil(decoder.height() * zoom));
+    }
+
+    SparseOverlay overlay() {
+        return overlay;
+    }
+
+    TileCache<TileKey> cache() {
+        return cache;
+    }
+
+    /** The subsampling level drawn at the current zoom. */
+    int level() {
+        return Math.min(maxLevel, MipmapPyramid.levelFor(zoom));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) clip = new Rectangle(getSize());
+            g2.setColor(getBackground());
+            g2.fill(clip);
+            Rectangle region = toImage(clip).intersection(new Rectangle(decoder.width(), decoder.height()));
+            if (region.isEmpty()) return;
+            int level = level();
+            shown = region;
+            shownLevel = level;
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            int span = TILE << level;
+            for (int ty = region.y / span; ty <= (region.y + region.height - 1) / span; ty++) {
+                for (int tx = region.x / span; tx <= (region.x + region.width - 1) / span; tx++) {
+                    drawTile(g2, new TileKey(level, tx, ty));
+                }
+            }
+            g2.scale(zoom, zoom);
+            overlay.paint(g2, region);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    // Draws a tile, or while it is being decoded the part of a coarser cached tile that covers it
+    private void drawTile(Graphics2D g, TileKey key) {
+        BufferedImage tile = cache.get(key);
+        if (tile == null) {
+            request(key);
+            for (int up = 1; up <= 3 && key.level() + up <= maxLevel; up++) {
+                TileKey coarse = new TileKey(key.level() + up, key.tx() >> up, key.ty() >> up);
+                BufferedImage c = cache.get(coarse);
+                if (c == null) continue;
+                // The covered part of the coarse tile, in its own pixels
+                int part = TILE >> up;
+                int sx = (key.tx() - (coarse.tx() << up)) * part;
+                int sy = (key.ty() - (coarse.ty() << up)) * part;
+                Rectangle dst = toView(imageArea(key));
+                int sw = Math.min(part, c.getWidth() - sx);
+                int sh = Math.min(part, c.getHeight() - sy);
+                if (sw > 0 && sh > 0) {
+                    g.drawImage(c, dst.x, dst.y, dst.x + dst.width, dst.y + dst.height, sx, sy, sx + sw, sy + sh, null);
+                }
+                return;
+            }
+            return;
+        }
+        Rectangle dst = toView(imageArea(key));
+        g.drawImage(tile, dst.x, dst.y, dst.width, dst.height, null);
+    }
+
+    // Queues a tile for decoding unless it is already queued
+    private void request(TileKey key) {
+        if (!pending.add(key)) return;
+        decodeThread.execute(() -> {
+            try {
+                // Scrolled or zoomed away while waiting
+                if (key.level() != shownLevel || !imageArea(key).intersects(shown)) return;
+                // Decoded along with a neighbour while waiting
+                if (cache.get(key) != null) return;
+                Rectangle area = decoder.randomAccess() ? decodeTile(key) : decodeRow(key);
+                SwingUtilities.invokeLater(() -> repaint(toView(area)));
+            } catch (IOException e) {
+                System.err.println("[LargeImage] Unable to decode tile " + key + ": " + e.getMessage());
+            } finally {
+                pending.remove(key);
+            }
+        });
+    }
+
+    private Rectangle decodeTile(TileKey key) throws IOException {
+        Rectangle area = imageArea(key);
+        cache.put(key, decoder.read(area, 1 << key.level()));
+        return area;
+    }
+
+    // Decodes key with the tiles either side of it in one read, as many as a quarter of the cache
+    // holds, and returns the area they cover
+    private Rectangle decodeRow(TileKey key) throws IOException {
+        int span = TILE << key.level();
+        int columns = (decoder.width() + span - 1) / span;
+        int count = (int) Math.max(1, Math.min(columns, cache.budget() / 4 / (4L * TILE * TILE)));
+        int lo = Math.max(0, Math.min(key.tx() - count / 2, columns - count));
+        int hi = lo + count - 1;
+        Rectangle area = imageArea(new TileKey(key.level(), lo, key.ty())).union(imageArea(new TileKey(key.level(), hi, key.ty())));
+        BufferedImage row = decoder.read(area, 1 << key.level());
+        // Farthest from the tile asked for first, so those are the first to be evicted
+        for (int d = count; d >= 0; d--) {
+            int left = key.tx() - d, right = key.tx() + d;
+            if (left >= lo) cache.put(new TileKey(key.level(), left, key.ty()), tileOf(row, (left - lo) * TILE));
+            if (d > 0 && right <= hi) cache.put(new TileKey(key.level(), right, key.ty()), tileOf(row, (right - lo) * TILE));
+        }
+        return area;
+    }
+
+    // A copy of the tile starting at column x of a decoded row of tiles
+    private static BufferedImage tileOf(BufferedImage row, int x) {
+        int w = Math.min(TILE, row.getWidth() - x);
+        int h = row.getHeight();
+        BufferedImage tile = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] src = LayerCompositor.pixels(row);
+        int[] dst = LayerCompositor.pixels(tile);
+        for (int y = 0; y < h; y++) System.arraycopy(src, y * row.getWidth() + x, dst, y * w, w);
+        return tile;
+    }
+
+    // The full-resolution pixels a tile covers
+    private Rectangle imageArea(TileKey key) {
+        int span = TILE << key.level();
+        return new Rectangle(key.tx() * span, key.ty() * span, span, span)
+                .intersection(new Rectangle(decoder.width(), decoder.height()));
+    }
+
+    private void stroke(Point2D from, Point2D to) {
+        Stroke stroke = new BasicStroke(SideMenu.getStrokeSize(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+        Rectangle touched = overlay.draw(new Line2D.Double(from, to), SideMenu.getSelectedForeColor(), stroke);
+        if (!touched.isEmpty()) repaint(toView(touched));
+    }
+
+    private Point2D toImage(Point p) {
+        return new Point2D.Double(p.x / zoom, p.y / zoom);
+    }
+
+    private Rectangle toImage(Rectangle r) {
+        int x0 = (int) Math.floor(r.x / zoom);
+        int y0 = (int) Math.floor(r.y / zoom);
+        int x1 = (int) Math.ceil((r.x + r.width) / zoom);
+        int y1 = (int) Math.ceil((r.y + r.height) / zoom);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    private Rectangle toView(Rectangle r) {
+        int x0 = (int) Math.floor(r.x * zoom);
+        int y0 = (int) Math.floor(r.y * zoom);
+        int x1 = (int) Math.ceil((r.x + r.width) * zoom);
+        int y1 = (int) Math.ceil((r.y + r.height) * zoom);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * The image with the annotations on top, as rows produced a strip at a time: each strip comes
+     * from {@code source} and the overlay is laid over it.
+     */
+    private StreamedImage annotated(StreamedImage.RowSource source) {
+        return new StreamedImage(decoder.width(), decoder.height(), (y0, rows, argb) -> {
+            source.rows(y0, rows, argb);
+            overlay.composeInto(argb, y0, rows);
+        });
+    }
+
+    /** Writes the annotated image to {@code file} as PNG without holding more than a strip of it. */
+    void export(File file) throws IOException {
+        try (RegionDecoder.Rows rows = decoder.rows()) {
+            if (!ImageIO.write(annotated(rows), "png", file)) throw new IOException("No PNG writer available");
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportInteractively(Component parent, JLabel status) {
+        JFileChooser chooser = new JFileChooser(new File(System.getProperty("user.home", ".")));
+        chooser.setSelectedFile(new File("annotated.png"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) return;
+        File chosen = chooser.getSelectedFile();
+        File file = chosen.getName().toLowerCase().endsWith(".png") ? chosen : new File(chosen.getPath() + ".png");
+        status.setText("Exporting…");
+        Thread.ofVirtual().name("large-export").start(() -> {
+            long t0 = System.nanoTime();
+            String result;
+            try {
+                export(file);
+                result = String.format(java.util.Locale.ROOT, "Exported %s in %.1f s", file.getName(), (System.nanoTime() - t0) / 1e9);
+            } catch (IOException e) {
+                result = "Export failed: " + e.getMessage();
+            }
+            String text = result;
+            SwingUtilities.invokeLater(() -> status.setText(text));
+        });
+    }
+
+    /** Stops decoding and releases the file. */
+    void close() {
+        decodeThread.shutdownNow();
+        cache.clear();
+        try {
+            decoder.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * One layer of the document: its pixels (TYPE_INT_ARGB, canvas-sized) and how they are composited
+ * over the layers below. Layers are only changed through {@link DrawArea}, which keeps undo history
+ * and the composite caches in step; history entries hold their own {@code Layer} objects but may
+ * share pixels with the live document until one side is edited.
+ */
+final class Layer {
+    private BufferedImage image;
+    private String name;
+    private boolean visible = true;
+    private float opacity = 1f;
+    private BlendMode blend = BlendMode.NORMAL;
+    private boolean locked;
+    // The highlighter paints into this layer; a document has exactly one
+    private final boolean highlights;
+
+    Layer(String name, BufferedImage image) {
+        this(name, image, false);
+    }
+
+    Layer(String name, BufferedImage image, boolean highlights) {
+        this.name = name;
+        this.image = image;
+        this.highlights = highlights;
+    }
+
+    /** Same pixels, separate properties. */
+    Layer copy() {
+        return withImage(image);
+    }
+
+    /** A copy of this layer's properties with other pixels. */
+    Layer withImage(BufferedImage pixels) {
+        Layer l = new Layer(name, pixels, highlights);
+        l.visible = visible;
+        l.opacity = opacity;
+        l.blend = blend;
+        l.locked = locked;
+        return l;
+    }
+
+    BufferedImage image() {
+        return image;
+    }
+
+    void setImage(BufferedImage image) {
+        this.image = image;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    boolean isVisible() {
+        return visible;
+    }
+
+    void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    float opacity() {
+        return opacity;
+    }
+
+    void setOpacity(float opacity) {
+        this.opacity = Math.max(0f, Math.min(1f, opacity));
+    }
+
+    BlendMode blend() {
+        return blend;
+    }
+
+    void setBlend(BlendMode blend) {
+        this.blend = blend;
+    }
+
+    boolean isLocked() {
+        return locked;
+    }
+
+    void setLocked(boolean locked) {
+        this.locked = locked;
+    }
+
+    boolean isHighlights() {
+        return highlights;
+    }
+
+    // Composites exactly like its pixels drawn with plain SRC_OVER (so it can stand in for a group)
+    boolean isPlain() {
+        return visible && opacity >= 1f && blend == BlendMode.NORMAL;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
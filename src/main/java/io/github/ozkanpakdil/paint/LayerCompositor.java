@@ -0,0 +1,298 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flattens the layer stack for display and export without touching every layer on every edit.
+ * <p>
+ * The layers under the active one are kept pre-flattened in one buffer and the layers over it in
+ * another, so the composite of a region is always built from three images: below, active, above.
+ * Editing the active layer therefore costs the same however many layers there are; the group
+ * buffers are only recomputed where a layer inside them changes. A group of one plain layer is
+ * used as-is instead of being copied. Layers above the active one are only pre-flattened while
+ * they all use {@link BlendMode#NORMAL} (source-over is associative, the other modes are not);
+ * otherwise they are composited one by one.
+ * <p>
+ * All buffers are split into {@value #TILE}-pixel tiles with their own stale flags, and only the
+ * tiles a caller asks for are brought up to date, so painting a zoomed-in corner of a large canvas
+ * never composites the rest.
+ */
+final class LayerCompositor {
+    static final int TILE = 256;
+
+    // Copies of the stack as last seen (same pixels), so in-place property edits can be detected
+    private final List<Layer> seen = new ArrayList<>();
+    private int active;
+    private int width;
+    private int height;
+    private int tilesX;
+    private int tilesY;
+    private final Group below = new Group();
+    private final Group above = new Group();
+    // Whether the layers above the active one can be pre-flattened (all NORMAL)
+    private boolean aboveCached;
+    private BufferedImage flat;
+    private boolean[] flatStale;
+    // Bumped whenever the composite may have changed
+    private long revision;
+
+    /**
+     * Brings the compositor in line with the document. If only pixels were replaced (same layers,
+     * properties and size) just {@code dirty} of those layers is recomposited ({@code null} means
+     * all of it); any other change rebuilds the groups.
+     */
+    void update(List<Layer> layers, int activeIndex, Rectangle dirty) {
+        BufferedImage img = layers.get(activeIndex).image();
+        boolean restack = flat == null || activeIndex != active || layers.size() != seen.size()
+                || img.getWidth() != width || img.getHeight() != height;
+        for (int i = 0; !restack && i < layers.size(); i++) {
+            restack = !sameProperties(seen.get(i), layers.get(i));
+        }
+        if (restack) {
+            restack(layers, activeIndex);
+            return;
+        }
+        for (int i = 0; i < layers.size(); i++) {
+            BufferedImage pixels = layers.get(i).image();
+            if (seen.get(i).image() != pixels) {
+                seen.get(i).setImage(pixels);
+                changed(i, dirty);
+            }
+        }
+    }
+
+    /** Pixels of layer {@code index} changed in place within {@code r} ({@code null} means all). */
+    void changed(int index, Rectangle r) {
+        revision++;
+        if (flat == null) return;
+        if (index < active) {
+            below.markStale(r);
+        } else if (index > active && aboveCached) {
+            above.markStale(r);
+        }
+        markStale(flatStale, r);
+    }
+
+    /** Returns the flattened document, first compositing any stale tiles that overlap {@code region}. */
+    BufferedImage flatten(Rectangle region) {
+        if (flat == null) return null;
+        Rectangle r = region == null ? new Rectangle(0, 0, width, height) : region.intersection(new Rectangle(0, 0, width, height));
+        if (r.isEmpty()) return flat;
+        for (int ty = r.y / TILE; ty <= (r.y + r.height - 1) / TILE; ty++) {
+            for (int tx = r.x / TILE; tx <= (r.x + r.width - 1) / TILE; tx++) {
+                int t = ty * tilesX + tx;
+                if (flatStale[t]) {
+                    composite(t, tile(tx, ty));
+                    flatStale[t] = false;
+                }
+            }
+        }
+        return flat;
+    }
+
+    /** A counter that changes whenever the flattened document may have; equal values mean same pixels. */
+    long revision() {
+        return revision;
+    }
+
+    /** Memory held by the composite buffers (not the layers themselves). */
+    long bytes() {
+        return PerfMetrics.imageBytes(flat) + below.bytes() + above.bytes();
+    }
+
+    private static boolean sameProperties(Layer a, Layer b) {
+        return a.isVisible() == b.isVisible() && a.opacity() == b.opacity() && a.blend() == b.blend()
+                && a.image().getWidth() == b.image().getWidth() && a.image().getHeight() == b.image().getHeight();
+    }
+
+    private void restack(List<Layer> layers, int activeIndex) {
+        revision++;
+        seen.clear();
+        for (Layer l : layers) seen.add(l.copy());
+        active = activeIndex;
+        BufferedImage img = seen.get(active).image();
+        if (flat == null || flat.getWidth() != img.getWidth() || flat.getHeight() != img.getHeight()) {
+            flat = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        }
+        width = img.getWidth();
+        height = img.getHeight();
+        tilesX = (width + TILE - 1) / TILE;
+        tilesY = (height + TILE - 1) / TILE;
+        below.rebuild(seen.subList(0, active));
+        List<Layer> upper = seen.subList(active + 1, seen.size());
+        aboveCached = upper.stream().allMatch(l -> !l.isVisible() || l.blend() == BlendMode.NORMAL);
+        above.rebuild(aboveCached ? upper : List.of());
+        flatStale = new boolean[tilesX * tilesY];
+        Arrays.fill(flatStale, true);
+    }
+
+    // below + active + above for one tile
+    private void composite(int t, Rectangle r) {
+        int[] out = pixels(flat);
+        BufferedImage b = below.image(t, r);
+        if (b != null) {
+            int[] src = pixels(b);
+            for (int y = r.y; y < r.y + r.height; y++) {
+                System.arraycopy(src, y * width + r.x, out, y * width + r.x, r.width);
+            }
+        } else {
+            for (int y = r.y; y < r.y + r.height; y++) {
+                PixelKernels.fill(out, y * width + r.x, r.width, 0);
+            }
+        }
+        Layer act = seen.get(active);
+        if (act.isVisible()) blendRect(act.image(), alpha(act), act.blend(), out, r);
+        if (aboveCached) {
+            BufferedImage a = above.image(t, r);
+            if (a != null) blendRect(a, 255, BlendMode.NORMAL, out, r);
+        } else {
+            for (Layer l : seen.subList(active + 1, seen.size())) {
+                if (l.isVisible()) blendRect(l.image(), alpha(l), l.blend(), out, r);
+            }
+        }
+    }
+
+    private Rectangle tile(int tx, int ty) {
+        int x = tx * TILE;
+        int y = ty * TILE;
+        return new Rectangle(x, y, Math.min(TILE, width - x), Math.min(TILE, height - y));
+    }
+
+    private void markStale(boolean[] stale, Rectangle r) {
+        if (r == null) {
+            Arrays.fill(stale, true);
+            return;
+        }
+        Rectangle c = r.intersection(new Rectangle(0, 0, width, height));
+        if (c.isEmpty()) return;
+        for (int ty = c.y / TILE; ty <= (c.y + c.height - 1) / TILE; ty++) {
+            for (int tx = c.x / TILE; tx <= (c.x + c.width - 1) / TILE; tx++) {
+                stale[ty * tilesX + tx] = true;
+            }
+        }
+    }
+
+    private void blendRect(BufferedImage src, int alpha, BlendMode mode, int[] dst, Rectangle r) {
+        int[] s = pixels(src);
+        for (int y = r.y; y < r.y + r.height; y++) {
+            int off = y * width + r.x;
+            blendRow(s, off, dst, off, r.width, alpha, mode);
+        }
+    }
+
+    private static int alpha(Layer l) {
+        return Math.round(l.opacity() * 255);
+    }
+
+    /** Composites a whole layer onto a same-sized image, e.g. when merging layers. */
+    static void blendImage(BufferedImage src, float opacity, BlendMode mode, BufferedImage dst) {
+        int[] s = pixels(src);
+        int[] d = pixels(dst);
+        blendRow(s, 0, d, 0, Math.min(s.length, d.length), Math.round(opacity * 255), mode);
+    }
+
+    /**
+     * Flattens {@code rows} full-width rows of the visible layers, starting at row {@code y0}, onto
+     * transparent into {@code out}. Needs no buffers of its own, so a document can be exported a
+     * strip at a time without a flattened copy; rows are split across the common pool.
+     */
+    static void compositeRows(List<Layer> layers, int y0, int rows, int[] out) {
+        int w = layers.getFirst().image().getWidth();
+        ImageFilters.stripes(rows, (from, to) -> {
+            PixelKernels.fill(out, from * w, (to - from) * w, 0);
+            for (Layer l : layers) {
+                if (l.isVisible()) blendRow(pixels(l.image()), (y0 + from) * w, out, from * w, (to - from) * w, alpha(l), l.blend());
+            }
+        });
+    }
+
+    /** Composites {@code len} source pixels onto the destination row with the given opacity (0..255). */
+    static void blendRow(int[] src, int srcOff, int[] dst, int dstOff, int len, int alpha, BlendMode mode) {
+        if (mode == BlendMode.NORMAL) {
+            PixelKernels.srcOver(src, srcOff, dst, dstOff, len, alpha);
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = blend(src[srcOff + i], dst[dstOff + i], alpha, mode);
+        }
+    }
+
+    /**
+     * One non-premultiplied ARGB pixel {@code s} over {@code d}: the blend mode mixes the colours
+     * where the backdrop is opaque, then the result is laid over with the source alpha times
+     * {@code alpha} (0..255).
+     */
+    static int blend(int s, int d, int alpha, BlendMode mode) {
+        int sa = alpha == 255 ? s >>> 24 : ((s >>> 24) * alpha + 127) / 255;
+        if (sa == 0) return d;
+        int rgb = s & 0xFFFFFF;
+        int da = d >>> 24;
+        if (mode != BlendMode.NORMAL && da != 0) {
+            int r = mix(d >> 16 & 0xFF, s >> 16 & 0xFF, da, mode);
+            int g = mix(d >> 8 & 0xFF, s >> 8 & 0xFF, da, mode);
+            int b = mix(d & 0xFF, s & 0xFF, da, mode);
+            rgb = r << 16 | g << 8 | b;
+        }
+        return MipmapPyramid.over(sa << 24 | rgb, d);
+    }
+
+    // Source colour after blending with a backdrop of coverage da
+    private static int mix(int cb, int cs, int da, BlendMode mode) {
+        return ((255 - da) * cs + da * mode.apply(cb, cs) + 127) / 255;
+    }
+
+    static int[] pixels(BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+
+    // A run of layers flattened onto transparent: nothing, a single plain layer used as-is, or an
+    // owned buffer that is refreshed tile by tile
+    private final class Group {
+        private List<Layer> members = List.of();
+        private BufferedImage buffer;
+        private boolean owned;
+        private boolean[] stale;
+
+        void rebuild(List<Layer> layers) {
+            members = layers.stream().filter(Layer::isVisible).toList();
+            owned = members.size() > 1 || members.size() == 1 && !members.getFirst().isPlain();
+            if (!owned) {
+                buffer = null;
+                stale = null;
+                return;
+            }
+            if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) {
+                buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+            stale = new boolean[tilesX * tilesY];
+            Arrays.fill(stale, true);
+        }
+
+        void markStale(Rectangle r) {
+            if (owned) LayerCompositor.this.markStale(stale, r);
+        }
+
+        // The group's pixels, up to date within tile t
+        BufferedImage image(int t, Rectangle r) {
+            if (!owned) return members.isEmpty() ? null : members.getFirst().image();
+            if (stale[t]) {
+                int[] out = pixels(buffer);
+                for (int y = r.y; y < r.y + r.height; y++) {
+                    PixelKernels.fill(out, y * width + r.x, r.width, 0);
+                }
+                for (Layer l : members) blendRect(l.image(), alpha(l), l.blend(), out, r);
+                stale[t] = false;
+            }
+            return buffer;
+        }
+
+        long bytes() {
+            return owned ? PerfMetrics.imageBytes(buffer) : 0;
+        }
+    }
+}
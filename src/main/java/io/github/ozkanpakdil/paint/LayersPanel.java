@@ -0,0 +1,174 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Layer list with visibility, opacity, blend mode and lock controls (View > Layers). The list
+ * shows the top layer first; every change goes through {@link DrawArea} so it can be undone.
+ */
+final class LayersPanel extends JPanel {
+    // Width of the visibility check box at the left of each row
+    private static final int EYE_WIDTH = 22;
+
+    private final DrawArea area;
+    private final DefaultListModel<Layer> model = new DefaultListModel<>();
+    private final JList<Layer> list = new JList<>(model);
+    private final JComboBox<BlendMode> blend = new JComboBox<>(BlendMode.values());
+    private final JSlider opacity = new JSlider(0, 100, 100);
+    private final JLabel opacityLabel = new JLabel("100%");
+    private final JCheckBox lock = new JCheckBox("Lock");
+    // Set while the controls are being refreshed from the document
+    private boolean refreshing;
+
+    LayersPanel(DrawArea area) {
+        super(new BorderLayout(0, 4));
+        this.area = area;
+        setPreferredSize(new Dimension(220, 260));
+
+        blend.setToolTipText("How the layer's colours combine with the layers below");
+        blend.addActionListener(_ -> {
+            if (!refreshing) area.setLayerBlend(area.getActiveLayerIndex(), (BlendMode) blend.getSelectedItem());
+        });
+        opacity.setToolTipText("Layer opacity");
+        opacity.addChangeListener(_ -> {
+            opacityLabel.setText(opacity.getValue() + "%");
+            if (!refreshing) area.setLayerOpacity(area.getActiveLayerIndex(), opacity.getValue() / 100f);
+        });
+        lock.setToolTipText("Protect the layer's pixels from the drawing tools");
+        lock.addActionListener(_ -> {
+            if (!refreshing) area.setLayerLocked(area.getActiveLayerIndex(), lock.isSelected());
+        });
+        JPanel props = new JPanel(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.insets = new Insets(1, 2, 1, 2);
+        c.anchor = GridBagConstraints.WEST;
+        c.gridx = 0;
+        c.gridy = 0;
+        props.add(new JLabel("Blend:"), c);
+        c.gridx = 1;
+        c.gridwidth = 2;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.weightx = 1;
+        props.add(blend, c);
+        c.gridx = 0;
+        c.gridy = 1;
+        c.gridwidth = 1;
+        c.fill = GridBagConstraints.NONE;
+        c.weightx = 0;
+        props.add(new JLabel("Opacity:"), c);
+        c.gridx = 1;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.weightx = 1;
+        props.add(opacity, c);
+        c.gridx = 2;
+        c.fill = GridBagConstraints.NONE;
+        c.weightx = 0;
+        props.add(opacityLabel, c);
+        c.gridx = 0;
+        c.gridy = 2;
+        c.gridwidth = 3;
+        props.add(lock, c);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new LayerRenderer());
+        list.addListSelectionListener(e -> {
+            if (refreshing || e.getValueIsAdjusting() || list.getSelectedIndex() < 0) return;
+            area.setActiveLayer(toLayerIndex(list.getSelectedIndex()));
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (row < 0 || !list.getCellBounds(row, row).contains(e.getPoint())) return;
+                int index = toLayerIndex(row);
+                if (e.getX() < EYE_WIDTH) {
+                    area.setLayerVisible(index, !model.get(row).isVisible());
+                } else if (e.getClickCount() == 2) {
+                    String name = JOptionPane.showInputDialog(LayersPanel.this, "Layer name:", model.get(row).name());
+                    area.renameLayer(index, name);
+                }
+            }
+        });
+
+        JPanel buttons = new JPanel(new GridLayout(2, 3, 2, 2));
+        buttons.add(button("New", "Add an empty layer above the active one", area::addLayer));
+        buttons.add(button("Copy", "Duplicate the active layer", area::duplicateLayer));
+        buttons.add(button("Delete", "Delete the active layer", area::deleteLayer));
+        buttons.add(button("Up", "Move the active layer up", () -> area.moveLayer(1)));
+        buttons.add(button("Down", "Move the active layer down", () -> area.moveLayer(-1)));
+        buttons.add(button("Merge", "Merge the active layer into the one below", area::mergeDown));
+
+        setBorder(new EmptyBorder(4, 4, 4, 4));
+        add(props, BorderLayout.NORTH);
+        add(new JScrollPane(list), BorderLayout.CENTER);
+        add(buttons, BorderLayout.SOUTH);
+
+        area.addPropertyChangeListener("layers", _ -> refresh());
+        refresh();
+    }
+
+    /** Reloads the list and controls from the document. */
+    void refresh() {
+        refreshing = true;
+        try {
+            List<Layer> layers = area.getLayers();
+            model.clear();
+            for (int i = layers.size() - 1; i >= 0; i--) model.addElement(layers.get(i));
+            int active = area.getActiveLayerIndex();
+            list.setSelectedIndex(layers.size() - 1 - active);
+            Layer l = layers.get(active);
+            blend.setSelectedItem(l.blend());
+            opacity.setValue(Math.round(l.opacity() * 100));
+            opacityLabel.setText(opacity.getValue() + "%");
+            lock.setSelected(l.isLocked());
+        } finally {
+            refreshing = false;
+        }
+    }
+
+    // List rows are top layer first
+    private int toLayerIndex(int row) {
+        return model.size() - 1 - row;
+    }
+
+    private static JButton button(String text, String tip, Runnable action) {
+        JButton b = new JButton(text);
+        b.setToolTipText(tip);
+        b.setMargin(new Insets(2, 4, 2, 4));
+        b.addActionListener(_ -> action.run());
+        return b;
+    }
+
+    private static final class LayerRenderer extends JPanel implements ListCellRenderer<Layer> {
+        private final JCheckBox eye = new JCheckBox();
+        private final JLabel label = new JLabel();
+
+        LayerRenderer() {
+            super(new BorderLayout(4, 0));
+            eye.setOpaque(false);
+            eye.setPreferredSize(new Dimension(EYE_WIDTH, 20));
+            add(eye, BorderLayout.WEST);
+            add(label, BorderLayout.CENTER);
+            setBorder(new EmptyBorder(2, 0, 2, 4));
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Layer> list, Layer layer, int index,
+                                                      boolean selected, boolean focused) {
+            eye.setSelected(layer.isVisible());
+            StringBuilder text = new StringBuilder(layer.name());
+            if (layer.blend() != BlendMode.NORMAL) text.append("  ").append(layer.blend());
+            if (layer.opacity() < 1f) text.append("  ").append(Math.round(layer.opacity() * 100)).append('%');
+            if (layer.isLocked()) text.append("  (locked)");
+            label.setText(text.toString());
+            setBackground(selected ? list.getSelectionBackground() : list.getBackground());
+            label.setForeground(selected ? list.getSelectionForeground() : list.getForeground());
+            return this;
+        }
+    }
+}
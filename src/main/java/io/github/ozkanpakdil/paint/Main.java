@@ -13,7 +13,6 @@ import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
 // macOS application integration (Java 9+)
 import java.awt.desktop.*;
 
@@ -61,7 +60,13 @@ public class Main extends JFrame {
 
         javax.swing.SwingUtilities.invokeLater(() -> {
             try {
-                new Main(fileToOpen);
+                Main frame = new Main(fileToOpen);
+                // Expose canvas metrics over JMX (jconsole / VisualVM)
+                PerfMetrics.registerMBean();
+                // Scripted session for PGO/CDS training runs (-Dpaint.training=true)
+                if (TrainingSession.isRequested()) {
+                    TrainingSession.start(frame);
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -225,6 +230,10 @@ public class Main extends JFrame {
     }
 
 
+    GUI getGui() {
+        return gui;
+    }
+
     public void initializeGUI() throws IOException {
         gui = new GUI();
         add(gui);
@@ -263,29 +272,27 @@ public class Main extends JFrame {
             // Best-effort: if not supported, default behavior remains
         }
 
-        // Set app/window icon so Alt-Tab/taskbar shows our custom icon instead of the Java Duke
-        try {
-            URL iconUrl = getClass().getResource("/images/app.png");
-            if (iconUrl != null) {
-                BufferedImage icon = ImageIO.read(iconUrl);
-                if (icon != null) {
-                    // Window icon (affects Windows taskbar and many Linux WMs)
-                    setIconImage(icon);
-                    // Taskbar/Dock icon (Java 9+) where supported (e.g., macOS Dock, some Linux desktops)
-                    try {
-                        if (Taskbar.isTaskbarSupported()) {
-                            Taskbar taskbar = Taskbar.getTaskbar();
-                            if (taskbar.isSupported(Taskbar.Feature.ICON_IMAGE)) {
-                                taskbar.setIconImage(icon);
-                            }
-                        }
-                    } catch (UnsupportedOperationException | SecurityException ignore) {
-                        // Best-effort; safely ignore if not allowed/supported
+        // Set app/window icon so Alt-Tab/taskbar shows our custom icon instead of the Java Duke.
+        // Served from the pre-scaled icon atlas so no image decoder is initialized at startup.
+        java.util.List<Image> icons = new java.util.ArrayList<>();
+        for (int size : IconAtlas.SIZES) {
+            BufferedImage icon = IconAtlas.icon("app.png", size, size);
+            if (icon != null) icons.add(icon);
+        }
+        if (!icons.isEmpty()) {
+            // Window icons (affects Windows taskbar and many Linux WMs); the WM picks the best size
+            setIconImages(icons);
+            // Taskbar/Dock icon (Java 9+) where supported (e.g., macOS Dock, some Linux desktops)
+            try {
+                if (Taskbar.isTaskbarSupported()) {
+                    Taskbar taskbar = Taskbar.getTaskbar();
+                    if (taskbar.isSupported(Taskbar.Feature.ICON_IMAGE)) {
+                        taskbar.setIconImage(icons.getLast());
                     }
                 }
+            } catch (UnsupportedOperationException | SecurityException ignore) {
+                // Best-effort; safely ignore if not allowed/supported
             }
-        } catch (IOException ignore) {
-            // If the icon can't be loaded, continue without failing the app
         }
 
         setLocation(100, 0);
@@ -299,8 +306,10 @@ public class Main extends JFrame {
         JMenu edit = new JMenu("Edit");
         JMenu tools = new JMenu("Tools");
         JMenu textMenu = new JMenu("Text");
+        JMenu view = new JMenu("View");
         JMenu help = new JMenu("Help");
         tools.setMnemonic(KeyEvent.VK_T);
+        view.setMnemonic(KeyEvent.VK_V);
         file.setMnemonic(KeyEvent.VK_F);
         JMenuItem exitMenuItem = new JMenuItem("Exit");
         exitMenuItem.setMnemonic(KeyEvent.VK_E);
@@ -319,7 +328,7 @@ public class Main extends JFrame {
         });
 
         JMenuItem saveMenuItem = new JMenuItem("Save");
-        saveMenuItem.setToolTipText("Save current image as PNG");
+        saveMenuItem.setToolTipText("Save as PNG, PNG-8, JPEG, BMP or OpenRaster (.ora)");
         saveMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, java.awt.event.InputEvent.CTRL_DOWN_MASK));
         saveMenuItem.addActionListener(_ -> {
             if (gui != null) gui.getSideMenu().triggerSave();
@@ -353,6 +362,28 @@ public class Main extends JFrame {
         });
         edit.add(copyItem);
 
+        // Cut / Delete / Fill act on the selection (rectangle or magic-wand mask)
+        JMenuItem cutItem = new JMenuItem("Cut");
+        cutItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_X, java.awt.event.InputEvent.CTRL_DOWN_MASK));
+        cutItem.addActionListener(_ -> {
+            if (gui != null) gui.getDrawArea().cutToClipboard();
+        });
+        edit.add(cutItem);
+
+        JMenuItem deleteItem = new JMenuItem("Delete Selection");
+        deleteItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0));
+        deleteItem.addActionListener(_ -> {
+            if (gui != null) gui.getDrawArea().deleteSelection();
+        });
+        edit.add(deleteItem);
+
+        JMenuItem fillSelItem = new JMenuItem("Fill Selection");
+        fillSelItem.setToolTipText("Fill the selection with the selected color");
+        fillSelItem.addActionListener(_ -> {
+            if (gui != null) gui.getDrawArea().fillSelection();
+        });
+        edit.add(fillSelItem);
+
         // Select All menu item
         JMenuItem selectAllItem = new JMenuItem("Select All");
         selectAllItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_A, java.awt.event.InputEvent.CTRL_DOWN_MASK));
@@ -443,6 +474,16 @@ public class Main extends JFrame {
         moveToolItem.addActionListener(_ -> { if (gui != null) gui.getSideMenu().selectTool(Tool.MOVE); });
         tools.add(moveToolItem);
 
+        JMenuItem redactToolItem = new JMenuItem("Redact");
+        redactToolItem.setToolTipText("Pixelate or mask a dragged rectangle");
+        redactToolItem.addActionListener(_ -> { if (gui != null) gui.getSideMenu().selectTool(Tool.REDACT); });
+        tools.add(redactToolItem);
+
+        JMenuItem wandToolItem = new JMenuItem("Magic Wand");
+        wandToolItem.setToolTipText("Select a region of one color (Shift adds, Alt subtracts, Shift+Alt intersects)");
+        wandToolItem.addActionListener(_ -> { if (gui != null) gui.getSideMenu().selectTool(Tool.MAGIC_WAND); });
+        tools.add(wandToolItem);
+
         // Colors chooser (matches ribbon "More…")
         JMenuItem colorChooserItem = new JMenuItem("Choose Color…");
         colorChooserItem.setToolTipText("Open color chooser");
@@ -504,6 +545,116 @@ public class Main extends JFrame {
         textColorItem.addActionListener(_ -> { if (gui != null) gui.getSideMenu().triggerColorChooser(); });
         textMenu.add(textColorItem);
 
+        // View > Performance HUD (paint/undo/fill timings, drag rate, memory, GC)
+        JCheckBoxMenuItem perfHudItem = new JCheckBoxMenuItem("Performance HUD");
+        perfHudItem.setName("perfHud");
+        perfHudItem.setToolTipText("Show paint, undo and fill timings, memory and GC pauses over the canvas");
+        perfHudItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F12, 0));
+        perfHudItem.addActionListener(_ -> {
+            if (gui != null) gui.getDrawArea().setPerfHudVisible(perfHudItem.isSelected());
+        });
+        view.add(perfHudItem);
+        // View > Navigator (thumbnail of the whole canvas, click/drag to scroll)
+        JCheckBoxMenuItem navigatorItem = new JCheckBoxMenuItem("Navigator");
+        navigatorItem.setName("navigator");
+        navigatorItem.setToolTipText("Show an overview of the whole canvas with the visible area outlined");
+        navigatorItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F9, 0));
+        navigatorItem.addActionListener(_ -> {
+            if (gui != null) gui.setNavigatorVisible(navigatorItem.isSelected());
+        });
+        view.add(navigatorItem);
+        // View > Layers (layer list with visibility, opacity, blend mode and lock)
+        JCheckBoxMenuItem layersItem = new JCheckBoxMenuItem("Layers");
+        layersItem.setName("layersPanel");
+        layersItem.setToolTipText("Show the layer list");
+        layersItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F7, 0));
+        layersItem.addActionListener(_ -> {
+            if (gui != null) gui.setLayersVisible(layersItem.isSelected());
+        });
+        view.add(layersItem);
+        view.addSeparator();
+
+        // Layer menu (the same actions as the buttons under the layer list)
+        JMenu layer = new JMenu("Layer");
+        layer.setMnemonic(KeyEvent.VK_L);
+        int shortcutMask = java.awt.event.InputEvent.CTRL_DOWN_MASK;
+        JMenuItem newLayerItem = new JMenuItem("New Layer");
+        newLayerItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N, shortcutMask | java.awt.event.InputEvent.SHIFT_DOWN_MASK));
+        newLayerItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().addLayer(); });
+        layer.add(newLayerItem);
+        JMenuItem duplicateLayerItem = new JMenuItem("Duplicate Layer");
+        duplicateLayerItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_J, shortcutMask));
+        duplicateLayerItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().duplicateLayer(); });
+        layer.add(duplicateLayerItem);
+        JMenuItem deleteLayerItem = new JMenuItem("Delete Layer");
+        deleteLayerItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().deleteLayer(); });
+        layer.add(deleteLayerItem);
+        layer.addSeparator();
+        JMenuItem layerUpItem = new JMenuItem("Move Layer Up");
+        layerUpItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_CLOSE_BRACKET, shortcutMask));
+        layerUpItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().moveLayer(1); });
+        layer.add(layerUpItem);
+        JMenuItem layerDownItem = new JMenuItem("Move Layer Down");
+        layerDownItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_OPEN_BRACKET, shortcutMask));
+        layerDownItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().moveLayer(-1); });
+        layer.add(layerDownItem);
+        JMenuItem mergeDownItem = new JMenuItem("Merge Down");
+        mergeDownItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_E, shortcutMask));
+        mergeDownItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().mergeDown(); });
+        layer.add(mergeDownItem);
+
+        // Image menu: operations on the content of every layer
+        JMenu imageMenu = new JMenu("Image");
+        imageMenu.setMnemonic(KeyEvent.VK_I);
+        JMenuItem scaleItem = new JMenuItem("Scale…");
+        scaleItem.setName("scaleImage");
+        scaleItem.setToolTipText("Resample the image to a new size");
+        scaleItem.addActionListener(_ -> { if (gui != null) ScaleDialog.show(this, gui.getDrawArea()); });
+        imageMenu.add(scaleItem);
+        imageMenu.addSeparator();
+        for (ImageTransforms.Op op : ImageTransforms.Op.values()) {
+            JMenuItem item = new JMenuItem(op.toString());
+            item.setName(op.name());
+            if (op == ImageTransforms.Op.ROTATE_CW) {
+                item.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, shortcutMask));
+            } else if (op == ImageTransforms.Op.ROTATE_CCW) {
+                item.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, shortcutMask | java.awt.event.InputEvent.SHIFT_DOWN_MASK));
+            }
+            item.addActionListener(_ -> { if (gui != null) gui.getDrawArea().transform(op); });
+            imageMenu.add(item);
+        }
+
+        // Filter menu: acts on the selection, the floating selection or the whole active layer
+        JMenu filterMenu = new JMenu("Filter");
+        filterMenu.setMnemonic(KeyEvent.VK_R);
+        for (ImageFilters.Kind kind : ImageFilters.Kind.values()) {
+            JMenuItem item = new JMenuItem(kind + "…");
+            item.addActionListener(_ -> { if (gui != null) FilterDialog.show(this, gui.getDrawArea(), kind); });
+            filterMenu.add(item);
+        }
+
+        // View > Zoom (Ctrl+wheel zooms around the pointer, middle-drag pans)
+        JMenuItem zoomInItem = new JMenuItem("Zoom In");
+        zoomInItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, java.awt.event.InputEvent.CTRL_DOWN_MASK));
+        zoomInItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().zoomIn(); });
+        view.add(zoomInItem);
+        JMenuItem zoomOutItem = new JMenuItem("Zoom Out");
+        zoomOutItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, java.awt.event.InputEvent.CTRL_DOWN_MASK));
+        zoomOutItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().zoomOut(); });
+        view.add(zoomOutItem);
+        JMenuItem actualSizeItem = new JMenuItem("Actual Size");
+        actualSizeItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, java.awt.event.InputEvent.CTRL_DOWN_MASK));
+        actualSizeItem.addActionListener(_ -> { if (gui != null) gui.getDrawArea().setZoom(1.0); });
+        view.add(actualSizeItem);
+        JCheckBoxMenuItem pixelGridItem = new JCheckBoxMenuItem("Pixel Grid");
+        pixelGridItem.setName("pixelGrid");
+        pixelGridItem.setToolTipText("Outline individual pixels when zoomed in to 800% or more");
+        pixelGridItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_QUOTE, java.awt.event.InputEvent.CTRL_DOWN_MASK));
+        pixelGridItem.addActionListener(_ -> {
+            if (gui != null) gui.getDrawArea().setPixelGridVisible(pixelGridItem.isSelected());
+        });
+        view.add(pixelGridItem);
+
         // Help > Keyboard Shortcuts
         JMenuItem shortcutsItem = new JMenuItem("Keyboard Shortcuts...");
         shortcutsItem.addActionListener(_ -> {
@@ -513,10 +664,24 @@ public class Main extends JFrame {
                     - Open: Ctrl+O
                     - Save: Ctrl+S
                     - Copy: Ctrl+C
+                    - Cut: Ctrl+X
+                    - Delete Selection: Delete
                     - Select All: Ctrl+A
                     - Move Tool: Ctrl+M
                     - Undo: Ctrl+Z
                     - Redo: Ctrl+Y or Ctrl+Shift+Z
+                    - Performance HUD: F12
+                    - Navigator: F9
+                    - Layers: F7
+                    - New Layer: Ctrl+Shift+N
+                    - Duplicate Layer: Ctrl+J
+                    - Merge Down: Ctrl+E
+                    - Rotate 90° Clockwise / Counter-clockwise: Ctrl+R / Ctrl+Shift+R
+                    - Move Layer Up / Down: Ctrl+] / Ctrl+[
+                    - Zoom In / Out: Ctrl+= / Ctrl+- (or Ctrl+mouse wheel)
+                    - Actual Size: Ctrl+0
+                    - Pixel Grid: Ctrl+'
+                    - Pan: middle mouse drag
                     - Exit: Ctrl+Q (Cmd+Q on macOS)""";
             JOptionPane.showMessageDialog(this, msg, "Keyboard Shortcuts", JOptionPane.INFORMATION_MESSAGE);
         });
@@ -545,6 +710,8 @@ public class Main extends JFrame {
                 extSet.add("bmp");
                 extSet.add("gif");
             }
+            // Layered documents
+            extSet.add("ora");
             String[] exts = extSet.toArray(new String[0]);
             String label = "Image Files (" + String.join(", ", exts) + ")";
             chooser.setFileFilter(new FileNameExtensionFilter(label, exts));
@@ -552,12 +719,25 @@ public class Main extends JFrame {
             if (res == JFileChooser.APPROVE_OPTION) {
                 File f = chooser.getSelectedFile();
                 try {
+                    CanvasEvents.Open event = CanvasEvents.begin(new CanvasEvents.Open());
+                    event.path = f.getAbsolutePath();
+                    if (OpenRaster.isOpenRaster(f)) {
+                        openLayered(f, event);
+                        return;
+                    }
+                    Dimension size = RegionDecoder.size(f);
+                    if (size != null && LargeImageView.needsStreaming(size)) {
+                        LargeImageView.open(this, f);
+                        CanvasEvents.commit(event, null, new Rectangle(size));
+                        return;
+                    }
                     BufferedImage img = ImageIO.read(f);
                     if (img == null) {
                         JOptionPane.showMessageDialog(this, "Unsupported or corrupted image.", "Open Image", JOptionPane.ERROR_MESSAGE);
                         return;
                     }
                     gui.getDrawArea().startImagePlacement(img);
+                    CanvasEvents.commit(event, DrawArea.cache, CanvasEvents.bounds(img));
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(this, "Failed to open image: " + ex.getMessage(), "Open Image", JOptionPane.ERROR_MESSAGE);
                 }
@@ -570,6 +750,10 @@ public class Main extends JFrame {
         jMenuBar.add(file);
         jMenuBar.add(edit);
         jMenuBar.add(tools);
+        jMenuBar.add(view);
+        jMenuBar.add(imageMenu);
+        jMenuBar.add(layer);
+        jMenuBar.add(filterMenu);
         jMenuBar.add(help);
         setJMenuBar(jMenuBar);
     }
@@ -593,7 +777,14 @@ public class Main extends JFrame {
         }
     }
 
-    private void openImageFile(String filename) {
+    // Replaces the document with the layers of an OpenRaster file
+    private void openLayered(File f, CanvasEvents.Open event) throws IOException {
+        OpenRaster.Document doc = OpenRaster.read(f);
+        gui.getDrawArea().setDocument(doc.layers(), doc.active());
+        CanvasEvents.commit(event, DrawArea.cache, CanvasEvents.bounds(DrawArea.cache));
+    }
+
+        private void openImageFile(String filename) {
         if (gui == null) return;
 
         File file = new File(filename);
@@ -607,6 +798,20 @@ public class Main extends JFrame {
         }
 
         try {
+            CanvasEvents.Open event = CanvasEvents.begin(new CanvasEvents.Open());
+            event.path = file.getAbsolutePath();
+            if (OpenRaster.isOpenRaster(file)) {
+                openLayered(file, event);
+                System.out.println("Loaded image: " + filename);
+                return;
+            }
+            Dimension size = RegionDecoder.size(file);
+            if (size != null && LargeImageView.needsStreaming(size)) {
+                LargeImageView.open(this, file);
+                CanvasEvents.commit(event, null, new Rectangle(size));
+                System.out.println("Streaming large image: " + filename + " (" + size.width + " x " + size.height + ")");
+                return;
+            }
             BufferedImage img = ImageIO.read(file);
             if (img == null) {
                 System.err.println("Unsupported or corrupted image: " + filename);
@@ -617,6 +822,7 @@ public class Main extends JFrame {
                 return;
             }
             gui.getDrawArea().startImagePlacement(img);
+            CanvasEvents.commit(event, DrawArea.cache, CanvasEvents.bounds(img));
             System.out.println("Loaded image: " + filename);
         } catch (Exception ex) {
             System.err.println("Failed to open image: " + ex.getMessage());
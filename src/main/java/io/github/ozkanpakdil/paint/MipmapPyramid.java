@@ -0,0 +1,139 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Successively halved copies of the flattened canvas (every visible layer, as the compositor
+ * produces it), used to draw zoomed-out views without filtering the full-resolution image every
+ * frame.
+ * <p>
+ * Level {@code k} is the canvas reduced by {@code 2^k} with a 2x2 box filter; level 0 is the canvas
+ * itself and is not stored. Levels are built lazily on first use and afterwards only the region
+ * reported through {@link #invalidate(Rectangle)} is recomputed, so a brush stroke costs a few
+ * small rectangles per level instead of a full rebuild. A size change drops all levels.
+ */
+final class MipmapPyramid {
+    // Levels below this size are not worth keeping
+    private static final int MIN_SIZE = 8;
+
+    private final List<BufferedImage> levels = new ArrayList<>();
+    // Per level, region (in that level's pixels) that is stale; null when up to date
+    private final List<Rectangle> stale = new ArrayList<>();
+    private int width = -1;
+    private int height = -1;
+
+    /** Marks a canvas region (full-resolution pixels) as changed; {@code null} means everything. */
+    void invalidate(Rectangle canvasRegion) {
+        for (int k = 1; k <= levels.size(); k++) {
+            Rectangle r = canvasRegion == null
+                    ? new Rectangle(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE)
+                    : shrink(canvasRegion, k);
+            Rectangle old = stale.get(k - 1);
+            stale.set(k - 1, old == null ? r : old.union(r));
+        }
+    }
+
+    /** Drops all levels, e.g. when the canvas is replaced. */
+    void clear() {
+        levels.clear();
+        stale.clear();
+        width = -1;
+        height = -1;
+    }
+
+    /** Deepest level whose scale ({@code 1 / 2^k}) is still at least {@code scale}. */
+    static int levelFor(double scale) {
+        int k = 0;
+        while (k < 30 && 1.0 / (1L << (k + 1)) >= scale) k++;
+        return k;
+    }
+
+    /**
+     * Returns level {@code k} (k &gt;= 1) of the flattened canvas {@code flat}, bringing it up to
+     * date first. The pyramid may stop early for tiny canvases, in which case the deepest level is
+     * returned.
+     */
+    BufferedImage level(BufferedImage flat, int k) {
+        if (flat.getWidth() != width || flat.getHeight() != height) {
+            clear();
+            width = flat.getWidth();
+            height = flat.getHeight();
+        }
+        for (int i = 1; i <= k; i++) {
+            if (i > levels.size()) {
+                int w = Math.max(1, (width + (1 << i) - 1) >> i);
+                int h = Math.max(1, (height + (1 << i) - 1) >> i);
+                if (i > 1 && Math.max(w, h) < MIN_SIZE) return levels.get(i - 2);
+                levels.add(new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB));
+                stale.add(new Rectangle(0, 0, w, h));
+            }
+            Rectangle r = stale.get(i - 1);
+            if (r != null) {
+                BufferedImage dst = levels.get(i - 1);
+                r = r.intersection(new Rectangle(0, 0, dst.getWidth(), dst.getHeight()));
+                if (!r.isEmpty()) reduce(i == 1 ? flat : levels.get(i - 2), dst, r);
+                stale.set(i - 1, null);
+            }
+        }
+        return levels.get(k - 1);
+    }
+
+    // Region of level k covering the canvas region (rounded outwards)
+    private static Rectangle shrink(Rectangle r, int k) {
+        int x0 = Math.max(0, r.x) >> k;
+        int y0 = Math.max(0, r.y) >> k;
+        int x1 = (int) Math.min(Integer.MAX_VALUE, ((long) r.x + r.width + (1L << k) - 1) >> k);
+        int y1 = (int) Math.min(Integer.MAX_VALUE, ((long) r.y + r.height + (1L << k) - 1) >> k);
+        return new Rectangle(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+    }
+
+    private static void reduce(BufferedImage srcImg, BufferedImage dst, Rectangle r) {
+        int sw = srcImg.getWidth();
+        int sh = srcImg.getHeight();
+        int[] src = pixels(srcImg);
+        int[] out = pixels(dst);
+        int dw = dst.getWidth();
+        for (int y = r.y; y < r.y + r.height; y++) {
+            int row0 = 2 * y * sw;
+            int row1 = Math.min(sh - 1, 2 * y + 1) * sw;
+            for (int x = r.x; x < r.x + r.width; x++) {
+                int sx0 = 2 * x;
+                int sx1 = Math.min(sw - 1, sx0 + 1);
+                out[y * dw + x] = average(src[row0 + sx0], src[row0 + sx1], src[row1 + sx0], src[row1 + sx1]);
+            }
+        }
+    }
+
+    // Source-over of a non-premultiplied ARGB pixel onto another
+    static int over(int top, int bottom) {
+        int ta = top >>> 24;
+        if (ta == 0) return bottom;
+        if (ta == 255) return top;
+        int ba = bottom >>> 24;
+        int oa = ta + ba * (255 - ta) / 255;
+        if (oa == 0) return 0;
+        int r = (((top >> 16) & 0xFF) * ta + ((bottom >> 16) & 0xFF) * ba * (255 - ta) / 255) / oa;
+        int g = (((top >> 8) & 0xFF) * ta + ((bottom >> 8) & 0xFF) * ba * (255 - ta) / 255) / oa;
+        int b = ((top & 0xFF) * ta + (bottom & 0xFF) * ba * (255 - ta) / 255) / oa;
+        return (oa << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    // Alpha-weighted mean of four ARGB pixels (rounded)
+    static int average(int p0, int p1, int p2, int p3) {
+        int a0 = p0 >>> 24, a1 = p1 >>> 24, a2 = p2 >>> 24, a3 = p3 >>> 24;
+        int as = a0 + a1 + a2 + a3;
+        if (as == 0) return 0;
+        int r = ((p0 >> 16 & 0xFF) * a0 + (p1 >> 16 & 0xFF) * a1 + (p2 >> 16 & 0xFF) * a2 + (p3 >> 16 & 0xFF) * a3 + as / 2) / as;
+        int g = ((p0 >> 8 & 0xFF) * a0 + (p1 >> 8 & 0xFF) * a1 + (p2 >> 8 & 0xFF) * a2 + (p3 >> 8 & 0xFF) * a3 + as / 2) / as;
+        int b = ((p0 & 0xFF) * a0 + (p1 & 0xFF) * a1 + (p2 & 0xFF) * a2 + (p3 & 0xFF) * a3 + as / 2) / as;
+        return ((as + 2) / 4) << 24 | r << 16 | g << 8 | b;
+    }
+
+    private static int[] pixels(BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,263 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Small overview of the whole canvas with the visible part outlined (View > Navigator). Clicking
+ * or dragging in it scrolls the canvas.
+ * <p>
+ * The thumbnail is never rescaled from the full canvas on the EDT. Changed regions reported by
+ * {@link DrawArea#addDirtyListener} are coalesced and, at most {@link #getRefreshRate()} times per
+ * second, a background thread resamples just the matching thumbnail pixels (a few samples per
+ * pixel, not a full box filter); the EDT then copies that small block in. The background thread's
+ * CPU time is recorded in {@link PerfMetrics#NAVIGATOR} so its overhead shows up in the HUD.
+ * <p>
+ * The sampler reads the live canvas while the EDT may be drawing into it; a torn read only lasts
+ * until the next refresh, which the ongoing edit has already scheduled.
+ */
+final class NavigatorPanel extends JComponent {
+    /** Default refreshes per second ({@code -Dpaint.navigatorFps}). */
+    static final int DEFAULT_FPS = Integer.getInteger("paint.navigatorFps", 10);
+    static final int MAX_SIZE = 200;
+    // Samples per thumbnail pixel along each axis
+    private static final int SAMPLES = 4;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    // Marker for "rebuild everything"
+    private static final Rectangle FULL = new Rectangle(0, 0, -1, -1);
+
+    private final DrawArea area;
+    private final Timer timer;
+    private ExecutorService executor;
+    private BufferedImage thumb;
+    // Canvas the thumbnail was built from (identity and size)
+    private BufferedImage source;
+    // Pending canvas region; null when clean, FULL for a full rebuild
+    private Rectangle dirty;
+    private boolean updating;
+
+    NavigatorPanel(DrawArea area) {
+        this.area = area;
+        setPreferredSize(new Dimension(MAX_SIZE + 8, MAX_SIZE + 8));
+        setToolTipText("Click or drag to scroll the canvas");
+        timer = new Timer(1000 / Math.max(1, DEFAULT_FPS), _ -> flush());
+        timer.setCoalesce(true);
+        area.addDirtyListener(this::markDirty);
+        // Zoom, resize and scrolling only move the outline
+        area.addPropertyChangeListener(evt -> {
+            switch (evt.getPropertyName()) {
+                case "zoom" -> repaint();
+                case "canvasSize" -> markDirty(null);
+                default -> {
+                }
+            }
+        });
+        MouseAdapter pan = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                scrollTo(e.getPoint());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                scrollTo(e.getPoint());
+            }
+        };
+        addMouseListener(pan);
+        addMouseMotionListener(pan);
+        markDirty(null);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        JViewport vp = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, area);
+        if (vp != null) vp.addChangeListener(_ -> repaint());
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    int getRefreshRate() {
+        return 1000 / Math.max(1, timer.getDelay());
+    }
+
+    /** Sets the maximum number of thumbnail refreshes per second. */
+    void setRefreshRate(int fps) {
+        timer.setDelay(1000 / Math.max(1, Math.min(60, fps)));
+    }
+
+    private void markDirty(Rectangle r) {
+        if (r == null || dirty == FULL) {
+            dirty = FULL;
+        } else {
+            dirty = dirty == null ? new Rectangle(r) : dirty.union(r);
+        }
+    }
+
+    /** Starts a refresh of the pending region if one is due and none is running. */
+    void flush() {
+        // While hidden the pending region just keeps growing
+        if (updating || dirty == null || DrawArea.cache == null || !isShowing()) return;
+        Dimension canvas = new Dimension(DrawArea.cache.getWidth(), DrawArea.cache.getHeight());
+        Dimension size = thumbSize(canvas.width, canvas.height);
+        Rectangle region;
+        BufferedImage target;
+        boolean full = dirty == FULL || source == null || thumb == null
+                || source.getWidth() != canvas.width || source.getHeight() != canvas.height
+                || thumb.getWidth() != size.width || thumb.getHeight() != size.height;
+        // The sampler reads the flattened layers, so composite the part it is about to read first
+        BufferedImage base = area.composite(full ? null : dirty);
+        if (full) {
+            // Keep showing the old thumbnail until the new one is complete
+            target = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+            region = new Rectangle(0, 0, size.width, size.height);
+        } else {
+            target = thumb;
+            region = thumbRegion(dirty, canvas.width, canvas.height, size.width, size.height);
+        }
+        source = base;
+        dirty = null;
+        if (region.isEmpty()) return;
+        updating = true;
+        executor().execute(() -> {
+            long cpu0 = cpuTime();
+            long t0 = System.nanoTime();
+            int[] pixels = null;
+            try {
+                pixels = sample(base, region, target.getWidth(), target.getHeight());
+            } finally {
+                PerfMetrics.navigatorUpdate(System.nanoTime() - t0, Math.max(0, cpuTime() - cpu0));
+                int[] px = pixels;
+                SwingUtilities.invokeLater(() -> {
+                    updating = false;
+                    if (px == null) {
+                        markDirty(null);
+                        return;
+                    }
+                    target.setRGB(region.x, region.y, region.width, region.height, px, 0, region.width);
+                    thumb = target;
+                    repaint();
+                });
+            }
+        });
+    }
+
+    /** Thumbnail size for a canvas: fits in MAX_SIZE x MAX_SIZE, never enlarged. */
+    static Dimension thumbSize(int w, int h) {
+        double scale = Math.min(1.0, Math.min((double) MAX_SIZE / w, (double) MAX_SIZE / h));
+        return new Dimension(Math.max(1, (int) Math.round(w * scale)), Math.max(1, (int) Math.round(h * scale)));
+    }
+
+    /** Thumbnail pixels whose samples may fall in the canvas region (rounded outwards). */
+    static Rectangle thumbRegion(Rectangle canvas, int w, int h, int tw, int th) {
+        int x0 = (int) Math.floor((double) canvas.x * tw / w);
+        int y0 = (int) Math.floor((double) canvas.y * th / h);
+        int x1 = (int) Math.ceil((double) (canvas.x + canvas.width) * tw / w);
+        int y1 = (int) Math.ceil((double) (canvas.y + canvas.height) * th / h);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0).intersection(new Rectangle(0, 0, tw, th));
+    }
+
+    /**
+     * Computes thumbnail pixels for {@code region} by averaging a SAMPLES x SAMPLES grid of canvas
+     * pixels of the flattened canvas {@code flat} under each one. Returns them row by row.
+     */
+    static int[] sample(BufferedImage flat, Rectangle region, int tw, int th) {
+        int w = flat.getWidth();
+        int h = flat.getHeight();
+        double fx = (double) w / tw;
+        double fy = (double) h / th;
+        int[] out = new int[region.width * region.height];
+        int i = 0;
+        for (int ty = region.y; ty < region.y + region.height; ty++) {
+            for (int tx = region.x; tx < region.x + region.width; tx++) {
+                long a = 0, r = 0, g = 0, b = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    int y = Math.min(h - 1, (int) ((ty + (sy + 0.5) / SAMPLES) * fy));
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        int x = Math.min(w - 1, (int) ((tx + (sx + 0.5) / SAMPLES) * fx));
+                        int p = flat.getRGB(x, y);
+                        int pa = p >>> 24;
+                        a += pa;
+                        r += (long) (p >> 16 & 0xFF) * pa;
+                        g += (long) (p >> 8 & 0xFF) * pa;
+                        b += (long) (p & 0xFF) * pa;
+                    }
+                }
+                out[i++] = a == 0 ? 0 : (int) ((a + SAMPLES * SAMPLES / 2) / (SAMPLES * SAMPLES)) << 24
+                        | (int) (r / a) << 16 | (int) (g / a) << 8 | (int) (b / a);
+            }
+        }
+        return out;
+    }
+
+    // Where the thumbnail is drawn inside the component
+    private Rectangle thumbBounds() {
+        if (thumb == null) return new Rectangle();
+        return new Rectangle((getWidth() - thumb.getWidth()) / 2, (getHeight() - thumb.getHeight()) / 2,
+                thumb.getWidth(), thumb.getHeight());
+    }
+
+    private void scrollTo(Point p) {
+        if (thumb == null || DrawArea.cache == null) return;
+        Rectangle tb = thumbBounds();
+        double sx = (double) DrawArea.cache.getWidth() / tb.width;
+        double sy = (double) DrawArea.cache.getHeight() / tb.height;
+        area.centerOn(new Point((int) ((p.x - tb.x) * sx), (int) ((p.y - tb.y) * sy)));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (thumb == null || DrawArea.cache == null) return;
+        Rectangle tb = thumbBounds();
+        g.drawImage(thumb, tb.x, tb.y, null);
+        g.setColor(new Color(128, 128, 128));
+        g.drawRect(tb.x - 1, tb.y - 1, tb.width + 1, tb.height + 1);
+        // Visible part of the canvas
+        Rectangle vis = area.viewToCanvas(area.getVisibleRect());
+        double sx = (double) tb.width / DrawArea.cache.getWidth();
+        double sy = (double) tb.height / DrawArea.cache.getHeight();
+        Rectangle outline = new Rectangle(tb.x + (int) Math.floor(vis.x * sx), tb.y + (int) Math.floor(vis.y * sy),
+                (int) Math.ceil(vis.width * sx), (int) Math.ceil(vis.height * sy)).intersection(tb);
+        if (outline.isEmpty()) return;
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(new Color(230, 40, 40));
+            g2.setStroke(new BasicStroke(1.5f));
+            g2.drawRect(outline.x, outline.y, Math.max(1, outline.width - 1), Math.max(1, outline.height - 1));
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "paint-navigator");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    private static long cpuTime() {
+        try {
+            return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+        } catch (UnsupportedOperationException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.ozkanpakdil.paint;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Reads and writes layered documents in the OpenRaster format (.ora): a zip holding one PNG per
+ * layer, a {@code stack.xml} describing their order and properties, and a flattened preview.
+ * Other editors (GIMP, Krita, MyPaint) open the layers; the highlight layer is marked with a
+ * {@code paint:highlights} attribute so it comes back as such.
+ */
+final class OpenRaster {
+    private static final String MIMETYPE = "image/openraster";
+    private static final String NS = "https://github.com/ozkanpakdil/paint";
+    private static final int THUMBNAIL = 256;
+
+    /** A document read from a file: its layers bottom to top and the selected one. */
+    record Document(List<Layer> layers, int active) {
+    }
+
+    private OpenRaster() {
+    }
+
+    static boolean isOpenRaster(File f) {
+        return f.getName().toLowerCase(Locale.ROOT).endsWith(".ora");
+    }
+
+    /** Writes {@code layers} (bottom to top) and their flattened composite {@code merged}. */
+    static void write(File file, List<Layer> layers, int active, BufferedImage merged) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+            // The mimetype must come first and uncompressed so the file can be sniffed
+            byte[] mime = MIMETYPE.getBytes(StandardCharsets.US_ASCII);
+            ZipEntry entry = new ZipEntry("mimetype");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(mime.length);
+            CRC32 crc = new CRC32();
+            crc.update(mime);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(mime);
+            zip.closeEntry();
+
+            StringBuilder xml = new StringBuilder();
+            xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            xml.append("<image version=\"0.0.5\" w=\"").append(merged.getWidth())
+                    .append("\" h=\"").append(merged.getHeight())
+                    .append("\" xmlns:paint=\"").append(NS).append("\">\n");
+            xml.append("  <stack>\n");
+            // stack.xml lists the top layer first
+            for (int i = layers.size() - 1; i >= 0; i--) {
+                Layer l = layers.get(i);
+                xml.append("    <layer name=\"").append(escape(l.name()))
+                        .append("\" src=\"data/layer").append(i).append(".png\" x=\"0\" y=\"0\"")
+                        .append(" opacity=\"").append(String.format(Locale.ROOT, "%.3f", l.opacity())).append('"')
+                        .append(" visibility=\"").append(l.isVisible() ? "visible" : "hidden").append('"')
+                        .append(" composite-op=\"").append(l.blend().compositeOp()).append('"');
+                if (l.isLocked()) xml.append(" edit-locked=\"true\"");
+                if (i == active) xml.append(" selected=\"true\"");
+                if (l.isHighlights()) xml.append(" paint:highlights=\"true\"");
+                xml.append("/>\n");
+            }
+            xml.append("  </stack>\n</image>\n");
+            putEntry(zip, "stack.xml", xml.toString().getBytes(StandardCharsets.UTF_8));
+
+            for (int i = 0; i < layers.size(); i++) {
+                putImage(zip, "data/layer" + i + ".png", layers.get(i).image());
+            }
+            putImage(zip, "mergedimage.png", merged);
+            putImage(zip, "Thumbnails/thumbnail.png", thumbnail(merged));
+        }
+    }
+
+    /** Reads a document; every layer comes back as a canvas-sized TYPE_INT_ARGB image. */
+    static Document read(File file) throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            ZipEntry stackEntry = zip.getEntry("stack.xml");
+            if (stackEntry == null) throw new IOException("Not an OpenRaster file: stack.xml is missing");
+            Element image = parse(zip, stackEntry).getDocumentElement();
+            int w = intAttr(image, "w", 0);
+            int h = intAttr(image, "h", 0);
+            if (w <= 0 || h <= 0) throw new IOException("Invalid image size in stack.xml");
+
+            // Nested stacks are flattened into one list, top first as in the file
+            List<Element> elements = new ArrayList<>();
+            collectLayers(image, elements);
+            List<Layer> layers = new ArrayList<>();
+            int active = -1;
+            for (int i = elements.size() - 1; i >= 0; i--) {
+                Element e = elements.get(i);
+                ZipEntry src = zip.getEntry(e.getAttribute("src"));
+                if (src == null) throw new IOException("Missing layer image: " + e.getAttribute("src"));
+                BufferedImage png;
+                try (var in = zip.getInputStream(src)) {
+                    png = ImageIO.read(in);
+                }
+                if (png == null) throw new IOException("Unreadable layer image: " + e.getAttribute("src"));
+                BufferedImage pixels = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = pixels.createGraphics();
+                try {
+                    g.drawImage(png, intAttr(e, "x", 0), intAttr(e, "y", 0), null);
+                } finally {
+                    g.dispose();
+                }
+                boolean highlights = "true".equals(e.getAttributeNS(NS, "highlights"))
+                        && layers.stream().noneMatch(Layer::isHighlights);
+                String name = e.getAttribute("name");
+                Layer l = new Layer(name.isEmpty() ? "Layer " + (layers.size() + 1) : name, pixels, highlights);
+                l.setVisible(!"hidden".equals(e.getAttribute("visibility")));
+                l.setOpacity(floatAttr(e, "opacity", 1f));
+                l.setBlend(BlendMode.fromCompositeOp(e.getAttribute("composite-op")));
+                l.setLocked("true".equals(e.getAttribute("edit-locked")));
+                if ("true".equals(e.getAttribute("selected"))) active = layers.size();
+                layers.add(l);
+            }
+            if (layers.isEmpty()) throw new IOException("The file has no layers");
+            if (active < 0 || layers.get(active).isHighlights()) active = 0;
+            return new Document(layers, active);
+        }
+    }
+
+    private static org.w3c.dom.Document parse(ZipFile zip, ZipEntry entry) throws IOException {
+        try (var in = zip.getInputStream(entry)) {
+            DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+            f.setNamespaceAware(true);
+            // No DTDs or external entities from untrusted files
+            f.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            f.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            f.setExpandEntityReferences(false);
+            return f.newDocumentBuilder().parse(in);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Invalid stack.xml: " + e.getMessage(), e);
+        }
+    }
+
+    private static void collectLayers(Element parent, List<Element> out) {
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (!(n instanceof Element e)) continue;
+            if ("layer".equals(e.getLocalName())) {
+                out.add(e);
+            } else if ("stack".equals(e.getLocalName())) {
+                collectLayers(e, out);
+            }
+        }
+    }
+
+    private static int intAttr(Element e, String name, int fallback) {
+        try {
+            return e.hasAttribute(name) ? (int) Math.round(Double.parseDouble(e.getAttribute(name))) : fallback;
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    private static float floatAttr(Element e, String name, float fallback) {
+        try {
+            return e.hasAttribute(name) ? Float.parseFloat(e.getAttribute(name)) : fallback;
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    private static void putImage(ZipOutputStream zip, String name, BufferedImage img) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", png);
+        putEntry(zip, name, png.toByteArray());
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private static BufferedImage thumbnail(BufferedImage merged) {
+        double scale = Math.min(1.0, (double) THUMBNAIL / Math.max(merged.getWidth(), merged.getHeight()));
+        int w = Math.max(1, (int) Math.round(merged.getWidth() * scale));
+        int h = Math.max(1, (int) Math.round(merged.getHeight() * scale));
+        BufferedImage thumb = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = thumb.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(merged, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return thumb;
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Locale;
+
+/**
+ * Performance overlay drawn in the top-left corner of the visible canvas (View > Performance HUD,
+ * F12). Figures come from {@link PerfMetrics}; a one-second timer refreshes the box so rates and GC
+ * figures keep moving while the canvas itself is idle.
+ */
+final class PerfHud {
+    private static final int PAD = 6;
+    private final JComponent owner;
+    private final Timer timer;
+    private final Rectangle bounds = new Rectangle();
+    // The box is pinned to the viewport, so scrolling (which blits the old box along) must repaint it
+    private final javax.swing.event.ChangeListener onScroll = _ -> refresh();
+    private JViewport viewport;
+    private String[] lines = new String[0];
+    private long lastGcCount = -1;
+    private long lastGcTime;
+    private long gcPausesInLastSecond;
+    private long gcMillisInLastSecond;
+    private long lastNavigatorCpu = -1;
+    private double navigatorCpuPercent;
+
+    PerfHud(JComponent owner) {
+        this.owner = owner;
+        this.timer = new Timer(1000, _ -> tick());
+        this.timer.setRepeats(true);
+    }
+
+    void start() {
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, owner);
+        if (viewport != null) viewport.addChangeListener(onScroll);
+        tick();
+        timer.start();
+    }
+
+    void stop() {
+        timer.stop();
+        if (viewport != null) viewport.removeChangeListener(onScroll);
+        viewport = null;
+        owner.repaint(bounds);
+    }
+
+    private void tick() {
+        long[] gc = PerfMetrics.gcTotals();
+        if (lastGcCount >= 0) {
+            gcPausesInLastSecond = gc[0] - lastGcCount;
+            gcMillisInLastSecond = gc[1] - lastGcTime;
+        }
+        lastGcCount = gc[0];
+        lastGcTime = gc[1];
+        // Navigator overhead as a share of one core over the last second
+        long navCpu = PerfMetrics.navigatorCpuNanos();
+        if (lastNavigatorCpu >= 0) navigatorCpuPercent = (navCpu - lastNavigatorCpu) / 1e7;
+        lastNavigatorCpu = navCpu;
+        lines = new String[]{
+                String.format(Locale.ROOT, "paint   %6.2f ms avg  %6.2f p95  %6.2f max  (%d)",
+                        PerfMetrics.PAINT.meanMillis(), PerfMetrics.PAINT.percentileMillis(0.95),
+                        PerfMetrics.PAINT.maxMillis(), PerfMetrics.PAINT.count()),
+                String.format(Locale.ROOT, "drag    %6.0f events/s", PerfMetrics.dragEventsPerSecond()),
+                String.format(Locale.ROOT, "undo    %6.2f ms avg  %6.2f p95  (%d snapshots)",
+                        PerfMetrics.UNDO_SNAPSHOT.meanMillis(), PerfMetrics.UNDO_SNAPSHOT.percentileMillis(0.95),
+                        PerfMetrics.UNDO_SNAPSHOT.count()),
+                String.format(Locale.ROOT, "fill    %6.2f ms avg  %,d px total  (%d fills)",
+                        PerfMetrics.FLOOD_FILL.meanMillis(), PerfMetrics.totalFloodFillPixels(),
+                        PerfMetrics.FLOOD_FILL.count()),
+                String.format(Locale.ROOT, "nav     %6.2f ms avg  %5.1f%% CPU  (%d refreshes)",
+                        PerfMetrics.NAVIGATOR.meanMillis(), navigatorCpuPercent, PerfMetrics.NAVIGATOR.count()),
+                "memory  canvas " + mib(PerfMetrics.canvasMemoryBytes()) + "  undo " + mib(PerfMetrics.undoMemoryBytes()),
+                String.format(Locale.ROOT, "gc      %d pauses / %d ms last second  (%d / %d ms total)",
+                        gcPausesInLastSecond, gcMillisInLastSecond, gc[0], gc[1])
+        };
+        refresh();
+    }
+
+    private void refresh() {
+        // Only the box itself needs repainting, not the whole canvas
+        Rectangle old = new Rectangle(bounds);
+        owner.repaint(old);
+        owner.repaint(layout(owner.getVisibleRect()));
+    }
+
+    private static String mib(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+
+    private Rectangle layout(Rectangle visible) {
+        Font font = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+        FontMetrics fm = owner.getFontMetrics(font);
+        int w = 0;
+        for (String l : lines) w = Math.max(w, fm.stringWidth(l));
+        bounds.setBounds(visible.x + PAD, visible.y + PAD, w + 2 * PAD, lines.length * fm.getHeight() + 2 * PAD);
+        return bounds;
+    }
+
+    void paint(Graphics2D g2) {
+        if (lines.length == 0) return;
+        Rectangle r = layout(owner.getVisibleRect());
+        Graphics2D g = (Graphics2D) g2.create();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+            FontMetrics fm = g.getFontMetrics();
+            g.setColor(new Color(0, 0, 0, 170));
+            g.fillRoundRect(r.x, r.y, r.width, r.height, 8, 8);
+            g.setColor(new Color(140, 255, 140));
+            int y = r.y + PAD + fm.getAscent();
+            for (String l : lines) {
+                g.drawString(l, r.x + PAD, y);
+                y += fm.getHeight();
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on, low-overhead performance counters for the canvas, shown by {@link PerfHud} and
+ * exported over JMX as {@code io.github.ozkanpakdil.paint:type=PerfMetrics}.
+ * <p>
+ * Recording is a {@link System#nanoTime()} pair plus a few {@link LongAdder} increments, so it can
+ * stay enabled in production; anything more expensive (GC beans, memory gauges, percentiles) is
+ * only computed when somebody reads it.
+ */
+final class PerfMetrics implements PerfMetricsMBean {
+    static final String OBJECT_NAME = "io.github.ozkanpakdil.paint:type=PerfMetrics";
+
+    static final Histogram PAINT = new Histogram();
+    static final Histogram UNDO_SNAPSHOT = new Histogram();
+    static final Histogram FLOOD_FILL = new Histogram();
+    // Wall time of navigator thumbnail refreshes; their CPU time is summed separately
+    static final Histogram NAVIGATOR = new Histogram();
+    private static final LongAdder NAVIGATOR_CPU_NANOS = new LongAdder();
+    private static final LongAdder FLOOD_FILL_PIXELS = new LongAdder();
+    private static final LongAdder DRAG_EVENTS = new LongAdder();
+    private static final RateWindow DRAG_RATE = new RateWindow();
+    // Published by DrawArea (on the EDT) whenever its history or its layer stack changes
+    private static volatile long undoBytes;
+    private static volatile long documentBytes;
+
+    private static volatile boolean registered;
+
+    private PerfMetrics() {
+    }
+
+    /** Registers the MBean with the platform MBean server once; failures only disable JMX export. */
+    static void registerMBean() {
+        if (registered) return;
+        synchronized (PerfMetrics.class) {
+            if (registered) return;
+            registered = true;
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName name = new ObjectName(OBJECT_NAME);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(new StandardMBean(new PerfMetrics(), PerfMetricsMBean.class), name);
+                }
+            } catch (Throwable t) {
+                System.err.println("[PerfMetrics] JMX export unavailable: " + t);
+            }
+        }
+    }
+
+    static void dragEvent() {
+        DRAG_EVENTS.increment();
+        DRAG_RATE.record(System.nanoTime());
+    }
+
+    static void floodFill(long nanos, long pixels) {
+        FLOOD_FILL.record(nanos);
+        FLOOD_FILL_PIXELS.add(pixels);
+    }
+
+    static void navigatorUpdate(long nanos, long cpuNanos) {
+        NAVIGATOR.record(nanos);
+        NAVIGATOR_CPU_NANOS.add(cpuNanos);
+    }
+
+    static long navigatorCpuNanos() {
+        return NAVIGATOR_CPU_NANOS.sum();
+    }
+
+    static void undoBytes(long bytes) {
+        undoBytes = bytes;
+    }
+
+    static void documentBytes(long bytes) {
+        documentBytes = bytes;
+    }
+
+    static long imageBytes(BufferedImage img) {
+        // All canvas images are TYPE_INT_ARGB: one int per pixel
+        return img == null ? 0 : 4L * img.getWidth() * img.getHeight();
+    }
+
+    static double dragEventsPerSecond() {
+        return DRAG_RATE.perSecond(System.nanoTime());
+    }
+
+    static long totalFloodFillPixels() {
+        return FLOOD_FILL_PIXELS.sum();
+    }
+
+    static long undoMemoryBytes() {
+        return undoBytes;
+    }
+
+    static long canvasMemoryBytes() {
+        return documentBytes;
+    }
+
+    /** {count, accumulated time in ms} over all garbage collectors since JVM start. */
+    static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    static void resetAll() {
+        PAINT.reset();
+        UNDO_SNAPSHOT.reset();
+        FLOOD_FILL.reset();
+        FLOOD_FILL_PIXELS.reset();
+        NAVIGATOR.reset();
+        NAVIGATOR_CPU_NANOS.reset();
+        DRAG_EVENTS.reset();
+    }
+
+    // ----- PerfMetricsMBean -----
+    @Override
+    public long getPaintCount() {
+        return PAINT.count();
+    }
+
+    @Override
+    public double getPaintMeanMillis() {
+        return PAINT.meanMillis();
+    }
+
+    @Override
+    public double getPaintP95Millis() {
+        return PAINT.percentileMillis(0.95);
+    }
+
+    @Override
+    public double getPaintMaxMillis() {
+        return PAINT.maxMillis();
+    }
+
+    @Override
+    public long getDragEventCount() {
+        return DRAG_EVENTS.sum();
+    }
+
+    @Override
+    public double getDragEventsPerSecond() {
+        return dragEventsPerSecond();
+    }
+
+    @Override
+    public long getUndoSnapshotCount() {
+        return UNDO_SNAPSHOT.count();
+    }
+
+    @Override
+    public double getUndoSnapshotMeanMillis() {
+        return UNDO_SNAPSHOT.meanMillis();
+    }
+
+    @Override
+    public double getUndoSnapshotP95Millis() {
+        return UNDO_SNAPSHOT.percentileMillis(0.95);
+    }
+
+    @Override
+    public long getFloodFillCount() {
+        return FLOOD_FILL.count();
+    }
+
+    @Override
+    public double getFloodFillMeanMillis() {
+        return FLOOD_FILL.meanMillis();
+    }
+
+    @Override
+    public long getFloodFillPixels() {
+        return totalFloodFillPixels();
+    }
+
+    @Override
+    public long getNavigatorUpdateCount() {
+        return NAVIGATOR.count();
+    }
+
+    @Override
+    public double getNavigatorUpdateMeanMillis() {
+        return NAVIGATOR.meanMillis();
+    }
+
+    @Override
+    public double getNavigatorCpuMillis() {
+        return navigatorCpuNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public long getUndoMemoryBytes() {
+        return undoMemoryBytes();
+    }
+
+    @Override
+    public long getCanvasMemoryBytes() {
+        return canvasMemoryBytes();
+    }
+
+    @Override
+    public long getGcCount() {
+        return gcTotals()[0];
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        return gcTotals()[1];
+    }
+
+    @Override
+    public void reset() {
+        resetAll();
+    }
+
+    /**
+     * Lock-free latency histogram with power-of-two nanosecond buckets. Percentiles are reported as
+     * the upper bound of the bucket they fall into, which is plenty for spotting slow frames.
+     */
+    static final class Histogram {
+        private static final int BUCKETS = 40; // 2^39 ns is about 9 minutes
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+        }
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+            buckets[bucket].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double meanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / (double) n / 1_000_000.0;
+        }
+
+        double maxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        double percentileMillis(double p) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(p * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    // Bucket i holds values below 2^i ns; never report more than the observed max
+                    return Math.min(1L << i, maxNanos.get()) / 1_000_000.0;
+                }
+            }
+            return maxMillis();
+        }
+
+        void reset() {
+            for (LongAdder b : buckets) b.reset();
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    }
+
+    /** Events per second over the last completed one-second window (recorded from the EDT). */
+    static final class RateWindow {
+        private static final long WINDOW = 1_000_000_000L;
+        private long windowStart;
+        private long inWindow;
+        private volatile double lastRate;
+        private volatile long lastEvent;
+
+        void record(long now) {
+            if (now - windowStart >= WINDOW) {
+                // Only a window with continuous activity yields a meaningful rate
+                lastRate = now - windowStart < 2 * WINDOW ? inWindow * 1e9 / (now - windowStart) : 0;
+                windowStart = now;
+                inWindow = 0;
+            }
+            inWindow++;
+            lastEvent = now;
+        }
+
+        double perSecond(long now) {
+            // Decay to zero once events stop arriving
+            return now - lastEvent > 2 * WINDOW ? 0 : lastRate;
+        }
+    }
+}
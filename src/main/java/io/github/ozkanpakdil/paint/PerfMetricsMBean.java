@@ -0,0 +1,49 @@
+package io.github.ozkanpakdil.paint;
+
+/**
+ * JMX view of {@link PerfMetrics} (standard MBean; must be public for the MBean introspector).
+ * Times are in milliseconds, memory in bytes.
+ */
+public interface PerfMetricsMBean {
+    long getPaintCount();
+
+    double getPaintMeanMillis();
+
+    double getPaintP95Millis();
+
+    double getPaintMaxMillis();
+
+    long getDragEventCount();
+
+    double getDragEventsPerSecond();
+
+    long getUndoSnapshotCount();
+
+    double getUndoSnapshotMeanMillis();
+
+    double getUndoSnapshotP95Millis();
+
+    long getFloodFillCount();
+
+    double getFloodFillMeanMillis();
+
+    long getFloodFillPixels();
+
+    long getNavigatorUpdateCount();
+
+    double getNavigatorUpdateMeanMillis();
+
+    /** CPU time spent refreshing the navigator thumbnail. */
+    double getNavigatorCpuMillis();
+
+    long getUndoMemoryBytes();
+
+    long getCanvasMemoryBytes();
+
+    long getGcCount();
+
+    long getGcTimeMillis();
+
+    /** Clears the latency histograms and event counters (gauges are unaffected). */
+    void reset();
+}
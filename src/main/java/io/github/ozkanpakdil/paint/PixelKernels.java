@@ -0,0 +1,160 @@
+package io.github.ozkanpakdil.paint;
+
+/**
+ * Inner loops over INT_ARGB pixel arrays: source-over compositing, span fills, colour-run scanning
+ * for flood fill and alpha premultiplication.
+ * <p>
+ * Each kernel has a scalar version here and a SIMD version in {@link VectorKernels}, built on the
+ * incubating Vector API. The SIMD versions are used when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} (the launchers and installers do this) and the CPU has
+ * vectors of at least four ints; {@code -Dpaint.simd=false} forces the scalar code. Both versions
+ * give bit-identical results, so which one ran never shows in the pixels.
+ */
+final class PixelKernels {
+    /** Whether the SIMD kernels are in use. */
+    static final boolean VECTORIZED = detectVectorSupport();
+
+    private PixelKernels() {
+    }
+
+    private static boolean detectVectorSupport() {
+        if (!Boolean.parseBoolean(System.getProperty("paint.simd", "true"))) return false;
+        // Native images are built without the incubator module
+        if (System.getProperty("org.graalvm.nativeimage.imagecode") != null) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            return VectorKernels.lanes() >= 4;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /** "vector (N x int)" or "scalar", for diagnostics. */
+    static String implementation() {
+        return VECTORIZED ? "vector (" + VectorKernels.lanes() + " x int)" : "scalar";
+    }
+
+    /**
+     * Composites {@code len} non-premultiplied source pixels over the destination with SRC_OVER,
+     * the source alpha scaled by {@code alpha} (0..255). Same result as
+     * {@link MipmapPyramid#over} per pixel.
+     */
+    static void srcOver(int[] src, int srcOff, int[] dst, int dstOff, int len, int alpha) {
+        if (alpha == 0) return;
+        if (VECTORIZED) {
+            VectorKernels.srcOver(src, srcOff, dst, dstOff, len, alpha);
+        } else {
+            srcOverScalar(src, srcOff, dst, dstOff, len, alpha);
+        }
+    }
+
+    static void srcOverScalar(int[] src, int srcOff, int[] dst, int dstOff, int len, int alpha) {
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = srcOver(src[srcOff + i], dst[dstOff + i], alpha);
+        }
+    }
+
+    /** One pixel of {@link #srcOver(int[], int, int[], int, int, int)}. */
+    static int srcOver(int s, int d, int alpha) {
+        int sa = alpha == 255 ? s >>> 24 : ((s >>> 24) * alpha + 127) / 255;
+        if (sa == 0) return d;
+        return MipmapPyramid.over(sa << 24 | (s & 0xFFFFFF), d);
+    }
+
+    /** Sets {@code len} pixels starting at {@code off} to {@code argb}. */
+    static void fill(int[] dst, int off, int len, int argb) {
+        if (VECTORIZED) {
+            VectorKernels.fill(dst, off, len, argb);
+        } else {
+            java.util.Arrays.fill(dst, off, off + len, argb);
+        }
+    }
+
+    /** First index in {@code [from, to)} whose pixel is not {@code color}, or {@code to}. */
+    static int runEnd(int[] px, int from, int to, int color) {
+        if (VECTORIZED) return VectorKernels.runEnd(px, from, to, color);
+        return runEndScalar(px, from, to, color);
+    }
+
+    static int runEndScalar(int[] px, int from, int to, int color) {
+        int i = from;
+        while (i < to && px[i] == color) i++;
+        return i;
+    }
+
+    /** Smallest index {@code i >= lo} such that all of {@code [i, end)} is {@code color}. */
+    static int runStart(int[] px, int lo, int end, int color) {
+        if (VECTORIZED) return VectorKernels.runStart(px, lo, end, color);
+        return runStartScalar(px, lo, end, color);
+    }
+
+    static int runStartScalar(int[] px, int lo, int end, int color) {
+        int i = end;
+        while (i > lo && px[i - 1] == color) i--;
+        return i;
+    }
+
+    /** First index in {@code [from, to)} whose pixel is {@code color}, or {@code to}. */
+    static int find(int[] px, int from, int to, int color) {
+        if (VECTORIZED) return VectorKernels.find(px, from, to, color);
+        return findScalar(px, from, to, color);
+    }
+
+    static int findScalar(int[] px, int from, int to, int color) {
+        int i = from;
+        while (i < to && px[i] != color) i++;
+        return i;
+    }
+
+    /** Converts {@code len} pixels in place from straight to premultiplied alpha. */
+    static void premultiply(int[] px, int off, int len) {
+        if (VECTORIZED) {
+            VectorKernels.premultiply(px, off, len);
+        } else {
+            premultiplyScalar(px, off, len);
+        }
+    }
+
+    static void premultiplyScalar(int[] px, int off, int len) {
+        for (int i = off; i < off + len; i++) px[i] = premultiply(px[i]);
+    }
+
+    static int premultiply(int p) {
+        int a = p >>> 24;
+        if (a == 255) return p;
+        int r = div255((p >> 16 & 0xFF) * a + 127);
+        int g = div255((p >> 8 & 0xFF) * a + 127);
+        int b = div255((p & 0xFF) * a + 127);
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    /** Converts {@code len} pixels in place from premultiplied back to straight alpha. */
+    static void unpremultiply(int[] px, int off, int len) {
+        if (VECTORIZED) {
+            VectorKernels.unpremultiply(px, off, len);
+        } else {
+            unpremultiplyScalar(px, off, len);
+        }
+    }
+
+    static void unpremultiplyScalar(int[] px, int off, int len) {
+        for (int i = off; i < off + len; i++) px[i] = unpremultiply(px[i]);
+    }
+
+    static int unpremultiply(int p) {
+        int a = p >>> 24;
+        if (a == 255) return p;
+        if (a == 0) return 0;
+        // Float maths so the SIMD version can reproduce it exactly
+        float scale = 255f / a;
+        int r = Math.min(255, (int) ((p >> 16 & 0xFF) * scale + 0.5f));
+        int g = Math.min(255, (int) ((p >> 8 & 0xFF) * scale + 0.5f));
+        int b = Math.min(255, (int) ((p & 0xFF) * scale + 0.5f));
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    /** {@code x / 255} rounded down, exact for {@code 0 <= x < 65535}. */
+    static int div255(int x) {
+        return (x + 1 + (x >> 8)) >> 8;
+    }
+}
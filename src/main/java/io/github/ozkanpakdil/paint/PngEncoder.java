@@ -0,0 +1,367 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes PNG files sized to what is in them, in place of the JDK's PNG writer for File > Save.
+ * <p>
+ * A first pass over the pixels picks the smallest colour type that holds them exactly:
+ * <ul>
+ * <li>a palette of 1, 2, 4 or 8 bits a pixel when there are at most 256 colours (most screenshots
+ * and diagrams), except for 8-bit grey below;</li>
+ * <li>8-bit grey when every pixel is opaque grey with more than 16 levels;</li>
+ * <li>RGB when every pixel is opaque, which is nearly always, as the base layer is white-filled;</li>
+ * <li>RGBA otherwise.</li>
+ * </ul>
+ * The JDK writer keeps RGBA and only filters palette images, leaving every other row unfiltered.
+ * Here each row of a grey, RGB or RGBA image gets the filter whose output has the smallest sum of
+ * absolute (signed byte) values, the heuristic the PNG specification suggests, except that rows made
+ * mostly of runs stay unfiltered; so do palette and sub-byte rows, as the specification also
+ * suggests. Strips whose rows are mostly filtered, that is photo-like ones, deflate at level 4
+ * rather than 6. In a palette, fully transparent pixels share one entry whatever their colour.
+ * <p>
+ * Both passes read a strip of rows at a time ({@link StreamedImage#stripRows}), so the image never
+ * has to exist in one piece; the rows of a strip are packed and filtered in parallel, and deflated
+ * on the calling thread. {@code -Dpaint.pngEncoder=false} saves with the JDK writer instead.
+ */
+final class PngEncoder {
+    /** Whether File > Save writes PNG through this encoder. */
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("paint.pngEncoder", "true"));
+
+    static final int GREY = 0;
+    static final int RGB = 2;
+    static final int PALETTE = 3;
+    static final int RGBA = 6;
+
+    static final int NONE = 0;
+    static final int SUB = 1;
+    static final int UP = 2;
+    static final int AVERAGE = 3;
+    static final int PAETH = 4;
+
+    private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    // Deflate levels: zlib's and libpng's default, and the JDK writer's, which on photo-like strips
+    // is faster and no bigger, as longer searches find no more matches in noise
+    private static final int LEVEL = 6;
+    private static final int PHOTO_LEVEL = 4;
+    private static final int CHUNK = 64 << 10;
+
+    private PngEncoder() {
+    }
+
+    /** How the pixels are stored: colour type, bits per sample and, for {@link #PALETTE}, the colours. */
+    record Layout(int colorType, int bitDepth, int[] palette) {
+        int rowBytes(int width) {
+            int channels = switch (colorType) {
+                case RGB -> 3;
+                case RGBA -> 4;
+                default -> 1;
+            };
+            return (int) (((long) width * channels * bitDepth + 7) / 8);
+        }
+
+        // Bytes per complete pixel, rounded up, as the filters count them
+        int filterStride() {
+            return colorType == RGB ? 3 : colorType == RGBA ? 4 : 1;
+        }
+
+        boolean filtered() {
+            return colorType != PALETTE && bitDepth == 8;
+        }
+    }
+
+    /** Encodes an image; INT_ARGB images are read in place, others are converted first. */
+    static Layout write(BufferedImage image, DataOutput out) throws IOException {
+        int w = image.getWidth();
+        int[] px = LayerCompositor.pixels(ImageFormats.toIntArgb(image));
+        return write(w, image.getHeight(), (y0, count, argb) -> System.arraycopy(px, y0 * w, argb, 0, count * w), out);
+    }
+
+    /** Encodes a {@code width} x {@code height} image whose rows {@code rows} supplies, twice. */
+    static Layout write(int width, int height, StreamedImage.RowSource rows, DataOutput out) throws IOException {
+        int stripRows = StreamedImage.stripRows(width, height);
+        int[] argb = new int[width * stripRows];
+        Colours colours = analyse(width, height, rows, argb);
+        Layout layout = colours.layout();
+
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = (byte) layout.bitDepth();
+        header[9] = (byte) layout.colorType();
+        chunk(out, "IHDR", header, header.length);
+        if (layout.colorType() == PALETTE) palette(out, layout.palette());
+
+        int rowBytes = layout.rowBytes(width);
+        int stride = layout.filterStride();
+        boolean adaptive = layout.filtered();
+        // Row 0 holds the row above the strip: zeros above the image, as the filters expect
+        byte[] raw = new byte[(stripRows + 1) * rowBytes];
+        byte[] filtered = new byte[stripRows * (rowBytes + 1)];
+        Deflater deflater = new Deflater(LEVEL);
+        if (adaptive) deflater.setStrategy(Deflater.FILTERED);
+        byte[] idat = new byte[CHUNK];
+        int pending = 0;
+        try {
+            for (int y0 = 0; y0 < height; y0 += stripRows) {
+                int count = Math.min(stripRows, height - y0);
+                rows.rows(y0, count, argb);
+                ImageFilters.stripes(count, (from, to) -> {
+                    for (int y = from; y < to; y++) pack(argb, y * width, width, layout, colours, raw, (y + 1) * rowBytes);
+                });
+                ImageFilters.stripes(count, (from, to) -> {
+                    for (int y = from; y < to; y++) {
+                        filterRow(raw, y * rowBytes, (y + 1) * rowBytes, rowBytes, stride, adaptive, filtered, y * (rowBytes + 1));
+                    }
+                });
+                System.arraycopy(raw, count * rowBytes, raw, 0, rowBytes);
+                if (adaptive) deflater.setLevel(mostlyFiltered(filtered, count, rowBytes + 1) ? PHOTO_LEVEL : LEVEL);
+                deflater.setInput(filtered, 0, count * (rowBytes + 1));
+                while (!deflater.needsInput()) pending = drain(deflater, idat, pending, out);
+            }
+            deflater.finish();
+            while (!deflater.finished()) pending = drain(deflater, idat, pending, out);
+            if (pending > 0) chunk(out, "IDAT", idat, pending);
+        } finally {
+            deflater.end();
+        }
+        chunk(out, "IEND", idat, 0);
+        return layout;
+    }
+
+    // First pass: opacity, greyness and, while there are at most 256, the distinct colours
+    private static Colours analyse(int width, int height, StreamedImage.RowSource rows, int[] argb) {
+        Colours colours = new Colours();
+        int stripRows = argb.length / width;
+        for (int y0 = 0; y0 < height; y0 += stripRows) {
+            int count = Math.min(stripRows, height - y0);
+            rows.rows(y0, count, argb);
+            colours.scan(argb, width * count);
+            // Translucent with many colours: RGBA whatever the rest holds
+            if (colours.many && !colours.opaque) break;
+        }
+        return colours;
+    }
+
+    // One row of ARGB pixels as PNG samples
+    private static void pack(int[] argb, int from, int width, Layout layout, Colours colours, byte[] raw, int at) {
+        switch (layout.colorType()) {
+            case RGBA -> {
+                for (int i = from, end = from + width; i < end; i++) {
+                    int px = argb[i];
+                    raw[at++] = (byte) (px >> 16);
+                    raw[at++] = (byte) (px >> 8);
+                    raw[at++] = (byte) px;
+                    raw[at++] = (byte) (px >>> 24);
+                }
+            }
+            case RGB -> {
+                for (int i = from, end = from + width; i < end; i++) {
+                    int px = argb[i];
+                    raw[at++] = (byte) (px >> 16);
+                    raw[at++] = (byte) (px >> 8);
+                    raw[at++] = (byte) px;
+                }
+            }
+            case GREY -> {
+                for (int i = from, end = from + width; i < end; i++) raw[at++] = (byte) argb[i];
+            }
+            default -> {
+                // Leftmost pixel in the high bits
+                int depth = layout.bitDepth();
+                int perByte = 8 / depth;
+                Arrays.fill(raw, at, at + layout.rowBytes(width), (byte) 0);
+                for (int x = 0; x < width; x++) {
+                    int index = colours.indexOf(key(argb[from + x]));
+                    raw[at + x / perByte] |= (byte) (index << (8 - depth - x % perByte * depth));
+                }
+            }
+        }
+    }
+
+    /**
+     * Filters the row at {@code raw[cur, cur + len)}, the row above being at {@code prev}, into
+     * {@code out[at]} (the filter type) and the {@code len} bytes after it. With {@code adaptive} the
+     * filter is the one whose output has the smallest sum of absolute values, unless at least three
+     * quarters of the bytes repeat the pixel to their left; otherwise it is None. Returns the filter
+     * type used.
+     */
+    static int filterRow(byte[] raw, int prev, int cur, int len, int stride, boolean adaptive, byte[] out, int at) {
+        int filter = NONE;
+        if (adaptive) {
+            long[] sums = new long[5];
+            int repeats = 0;
+            for (int i = 0; i < len; i++) {
+                int x = raw[cur + i] & 0xFF;
+                int a = i >= stride ? raw[cur + i - stride] & 0xFF : 0;
+                int b = raw[prev + i] & 0xFF;
+                int c = i >= stride ? raw[prev + i - stride] & 0xFF : 0;
+                if (x == a) repeats++;
+                sums[NONE] += Math.abs((byte) x);
+                sums[SUB] += Math.abs((byte) (x - a));
+                sums[UP] += Math.abs((byte) (x - b));
+                sums[AVERAGE] += Math.abs((byte) (x - (a + b >> 1)));
+                sums[PAETH] += Math.abs((byte) (x - paeth(a, b, c)));
+            }
+            // Ties go to the simpler filter
+            for (int f = SUB; f <= PAETH; f++) if (sums[f] < sums[filter]) filter = f;
+            // Mostly runs, as in screenshots and drawings: deflate already matches those, and repeated
+            // glyphs or edges only stay byte-for-byte repeats unfiltered
+            if (repeats >= len - len / 4) filter = NONE;
+        }
+        out[at++] = (byte) filter;
+        for (int i = 0; i < len; i++) {
+            int x = raw[cur + i] & 0xFF;
+            int a = i >= stride ? raw[cur + i - stride] & 0xFF : 0;
+            int b = raw[prev + i] & 0xFF;
+            int c = i >= stride ? raw[prev + i - stride] & 0xFF : 0;
+            out[at + i] = (byte) (x - switch (filter) {
+                case SUB -> a;
+                case UP -> b;
+                case AVERAGE -> a + b >> 1;
+                case PAETH -> paeth(a, b, c);
+                default -> 0;
+            });
+        }
+        return filter;
+    }
+
+    // Whether more than half the rows of a filtered strip got a filter other than None
+    private static boolean mostlyFiltered(byte[] filtered, int rows, int step) {
+        int n = 0;
+        for (int y = 0; y < rows; y++) if (filtered[y * step] != NONE) n++;
+        return n > rows / 2;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    // PLTE, and tRNS for the translucent entries, which sort first
+    private static void palette(DataOutput out, int[] palette) throws IOException {
+        byte[] rgb = new byte[palette.length * 3];
+        byte[] alpha = new byte[palette.length];
+        int translucent = 0;
+        for (int i = 0; i < palette.length; i++) {
+            int c = palette[i];
+            rgb[i * 3] = (byte) (c >> 16);
+            rgb[i * 3 + 1] = (byte) (c >> 8);
+            rgb[i * 3 + 2] = (byte) c;
+            alpha[i] = (byte) (c >>> 24);
+            if (c >>> 24 != 0xFF) translucent = i + 1;
+        }
+        chunk(out, "PLTE", rgb, rgb.length);
+        if (translucent > 0) chunk(out, "tRNS", alpha, translucent);
+    }
+
+    // Moves deflated bytes into idat[pending...], writing an IDAT chunk whenever it fills
+    private static int drain(Deflater deflater, byte[] idat, int pending, DataOutput out) throws IOException {
+        pending += deflater.deflate(idat, pending, idat.length - pending);
+        if (pending == idat.length) {
+            chunk(out, "IDAT", idat, pending);
+            return 0;
+        }
+        return pending;
+    }
+
+    private static void chunk(DataOutput out, String type, byte[] data, int len) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, len);
+        out.writeInt(len);
+        out.write(name);
+        out.write(data, 0, len);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] b, int at, int v) {
+        b[at] = (byte) (v >>> 24);
+        b[at + 1] = (byte) (v >>> 16);
+        b[at + 2] = (byte) (v >>> 8);
+        b[at + 3] = (byte) v;
+    }
+
+    // Fully transparent pixels are all the same colour
+    private static int key(int px) {
+        return px >>> 24 == 0 ? 0 : px;
+    }
+
+    // What the first pass found
+    private static final class Colours {
+        // Open addressing, at most a quarter full; 0 marks a free slot, so colour 0 is kept apart
+        private final int[] keys = new int[1024];
+        private final int[] index = new int[1024];
+        private boolean zero;
+        private int zeroIndex;
+        private int size;
+        boolean many;
+        boolean opaque = true;
+        boolean grey = true;
+
+        void scan(int[] argb, int len) {
+            for (int i = 0; i < len; i++) {
+                int px = argb[i];
+                if (px >>> 24 != 0xFF) opaque = false;
+                if (((px >> 16 ^ px) & 0xFF | (px >> 8 ^ px) & 0xFF) != 0) grey = false;
+                if (!many) add(key(px));
+            }
+        }
+
+        private void add(int c) {
+            if (c == 0) {
+                if (!zero) {
+                    zero = true;
+                    size++;
+                }
+            } else {
+                int slot = slot(c);
+                if (keys[slot] == 0) {
+                    keys[slot] = c;
+                    size++;
+                }
+            }
+            many = size > 256;
+        }
+
+        private int slot(int c) {
+            int i = c * 0x9E3779B9 >>> 22;
+            while (keys[i] != 0 && keys[i] != c) i = i + 1 & keys.length - 1;
+            return i;
+        }
+
+        int indexOf(int c) {
+            return c == 0 ? zeroIndex : index[slot(c)];
+        }
+
+        Layout layout() {
+            if (!many && !(opaque && grey && size > 16)) {
+                // Ascending unsigned ARGB puts every translucent entry before the opaque ones
+                int[] palette = new int[size];
+                int n = 0;
+                if (zero) palette[n++] = 0;
+                for (int k : keys) if (k != 0) palette[n++] = k;
+                for (int i = 0; i < n; i++) palette[i] ^= Integer.MIN_VALUE;
+                Arrays.sort(palette);
+                for (int i = 0; i < n; i++) {
+                    palette[i] ^= Integer.MIN_VALUE;
+                    if (palette[i] == 0) zeroIndex = i;
+                    else index[slot(palette[i])] = i;
+                }
+                int depth = size <= 2 ? 1 : size <= 4 ? 2 : size <= 16 ? 4 : 8;
+                return new Layout(PALETTE, depth, palette);
+            }
+            if (opaque) return new Layout(grey ? GREY : RGB, 8, null);
+            return new Layout(RGBA, 8, null);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package io.github.ozkanpakdil.paint;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a non-interlaced PNG a row at a time, top to bottom, as ARGB, inflating the image data as
+ * it goes. The file is read once from start to end and only two rows of it are held, whatever its
+ * size; reading rows above the current one means starting over with a new reader.
+ * <p>
+ * An {@link javax.imageio.ImageReader} restarts the inflater from the first row on every call, so
+ * reading a tall PNG strip by strip through one costs a full decode per strip; this is what
+ * {@link RegionDecoder} uses for PNG instead. Every colour type and bit depth is read: 16-bit
+ * samples keep their high byte, grey and palette samples below 8 bits are scaled up, and tRNS
+ * transparency is applied. Ancillary chunks (gamma, colour profiles) are skipped, as they are when
+ * the canvas opens a file.
+ */
+final class PngRowReader implements Closeable {
+    private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int TRNS = 0x74524E53;
+    private static final int IDAT = 0x49444154;
+
+    private final DataInputStream in;
+    private final int width;
+    private final int height;
+    private final int depth;
+    private final int colorType;
+    private final int channels;
+    // Bytes per complete pixel, rounded up, as the filters count them
+    private final int stride;
+    private final int rowBytes;
+    private final int[] palette = new int[256];
+    // The tRNS colour of a grey or RGB image, as 16-bit samples packed r:g:b; -1 if there is none
+    private long transparent = -1;
+    private final Inflater inflater = new Inflater();
+    private final byte[] input = new byte[64 << 10];
+    private int idatLeft;
+    // Filter type byte plus the row, for the current and the previous row
+    private byte[] current;
+    private byte[] previous;
+    private int row;
+
+    private PngRowReader(DataInputStream in, int width, int height, int depth, int colorType) {
+        this.in = in;
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.colorType = colorType;
+        this.channels = switch (colorType) {
+            case 2 -> 3;
+            case 4 -> 2;
+            case 6 -> 4;
+            default -> 1;
+        };
+        this.stride = Math.max(1, channels * depth / 8);
+        this.rowBytes = (int) (((long) width * channels * depth + 7) / 8);
+        this.current = new byte[rowBytes + 1];
+        this.previous = new byte[rowBytes + 1];
+        Arrays.fill(palette, 0xFF000000);
+    }
+
+    /** Opens {@code f} at its first row; null if it is not a PNG that can be read this way. */
+    static PngRowReader open(File f) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 64 << 10));
+        try {
+            PngRowReader reader = header(in);
+            if (reader == null) {
+                in.close();
+                return null;
+            }
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // Reads up to the first IDAT chunk; null if this is not a non-interlaced PNG
+    private static PngRowReader header(DataInputStream in) throws IOException {
+        try {
+            if (in.readLong() != SIGNATURE || in.readInt() != 13 || in.readInt() != IHDR) return null;
+        } catch (EOFException e) {
+            return null;
+        }
+        int w = in.readInt();
+        int h = in.readInt();
+        int depth = in.readUnsignedByte();
+        int colorType = in.readUnsignedByte();
+        in.readUnsignedByte();
+        in.readUnsignedByte();
+        int interlace = in.readUnsignedByte();
+        in.readInt();
+        boolean valid = switch (colorType) {
+            case 0 -> depth == 1 || depth == 2 || depth == 4 || depth == 8 || depth == 16;
+            case 3 -> depth == 1 || depth == 2 || depth == 4 || depth == 8;
+            case 2, 4, 6 -> depth == 8 || depth == 16;
+            default -> false;
+        };
+        if (!valid || interlace != 0 || w <= 0 || h <= 0) return null;
+        PngRowReader reader = new PngRowReader(in, w, h, depth, colorType);
+        while (true) {
+            int length = in.readInt();
+            int type = in.readInt();
+            if (type == IDAT) {
+                reader.idatLeft = length;
+                return reader;
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            in.readInt();
+            if (type == PLTE) reader.readPalette(data);
+            if (type == TRNS) reader.readTransparency(data);
+        }
+    }
+
+    private void readPalette(byte[] data) {
+        for (int i = 0; i < Math.min(256, data.length / 3); i++) {
+            palette[i] = 0xFF000000 | (data[i * 3] & 0xFF) << 16 | (data[i * 3 + 1] & 0xFF) << 8 | data[i * 3 + 2] & 0xFF;
+        }
+    }
+
+    private void readTransparency(byte[] data) {
+        if (colorType == 3) {
+            for (int i = 0; i < Math.min(256, data.length); i++) palette[i] = palette[i] & 0xFFFFFF | (data[i] & 0xFF) << 24;
+        } else if (colorType == 0 && data.length >= 2) {
+            transparent = (data[0] & 0xFF) << 8 | data[1] & 0xFF;
+        } else if (colorType == 2 && data.length >= 6) {
+            for (int c = 0; c < 3; c++) transparent = (transparent < 0 ? 0 : transparent << 16) | (data[2 * c] & 0xFF) << 8 | data[2 * c + 1] & 0xFF;
+        }
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    /** The index of the row the next {@link #read} returns. */
+    int row() {
+        return row;
+    }
+
+    /** Reads the next row into {@code argb[offset, offset + width)}. */
+    void read(int[] argb, int offset) throws IOException {
+        next();
+        convert(argb, offset);
+    }
+
+    /** Passes over {@code rows} rows; they still have to be inflated, as each depends on the last. */
+    void skip(int rows) throws IOException {
+        for (int i = 0; i < rows; i++) next();
+    }
+
+    // Inflates and unfilters the next row into current
+    private void next() throws IOException {
+        if (row >= height) throw new EOFException("No rows left");
+        byte[] t = previous;
+        previous = current;
+        current = t;
+        int filled = 0;
+        try {
+            while (filled < current.length) {
+                int n = inflater.inflate(current, filled, current.length - filled);
+                filled += n;
+                if (n == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) throw new IOException("PNG image data ends early");
+                    if (inflater.needsInput()) feed();
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt PNG image data", e);
+        }
+        unfilter();
+        row++;
+    }
+
+    // Hands the inflater the next piece of image data, moving on to the next IDAT chunk if needed
+    private void feed() throws IOException {
+        while (idatLeft == 0) {
+            in.readInt();
+            int length = in.readInt();
+            if (in.readInt() != IDAT) throw new IOException("PNG image data ends early");
+            idatLeft = length;
+        }
+        int n = Math.min(idatLeft, input.length);
+        in.readFully(input, 0, n);
+        idatLeft -= n;
+        inflater.setInput(input, 0, n);
+    }
+
+    private void unfilter() throws IOException {
+        byte[] cur = current;
+        // The row above the first one is all zeros
+        byte[] up = row == 0 ? new byte[cur.length] : previous;
+        int filter = cur[0];
+        switch (filter) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = 1 + stride; i < cur.length; i++) cur[i] += cur[i - stride];
+            }
+            case 2 -> {
+                for (int i = 1; i < cur.length; i++) cur[i] += up[i];
+            }
+            case 3 -> {
+                for (int i = 1; i < cur.length; i++) {
+                    int a = i > stride ? cur[i - stride] & 0xFF : 0;
+                    cur[i] += (byte) (a + (up[i] & 0xFF) >> 1);
+                }
+            }
+            case 4 -> {
+                for (int i = 1; i < cur.length; i++) {
+                    int a = i > stride ? cur[i - stride] & 0xFF : 0;
+                    int c = i > stride ? up[i - stride] & 0xFF : 0;
+                    cur[i] += (byte) paeth(a, up[i] & 0xFF, c);
+                }
+            }
+            default -> throw new IOException("Unknown PNG filter type " + filter);
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    // The current row as ARGB
+    private void convert(int[] argb, int offset) {
+        byte[] b = current;
+        if (depth == 8) {
+            switch (colorType) {
+                case 6 -> {
+                    for (int x = 0, i = 1; x < width; x++, i += 4) {
+                        argb[offset + x] = (b[i + 3] & 0xFF) << 24 | (b[i] & 0xFF) << 16 | (b[i + 1] & 0xFF) << 8 | b[i + 2] & 0xFF;
+                    }
+                    return;
+                }
+                case 2 -> {
+                    int key = key8();
+                    for (int x = 0, i = 1; x < width; x++, i += 3) {
+                        int rgb = (b[i] & 0xFF) << 16 | (b[i + 1] & 0xFF) << 8 | b[i + 2] & 0xFF;
+                        argb[offset + x] = rgb == key ? rgb : 0xFF000000 | rgb;
+                    }
+                    return;
+                }
+                default -> {
+                }
+            }
+        }
+        for (int x = 0; x < width; x++) argb[offset + x] = pixel(x);
+    }
+
+    // The tRNS colour of an 8-bit RGB image as 0xRRGGBB, or -1
+    private int key8() {
+        if (transparent < 0) return -1;
+        return (int) ((transparent >> 32 & 0xFF) << 16 | (transparent >> 16 & 0xFF) << 8 | transparent & 0xFF);
+    }
+
+    // Any other layout, one pixel at a time
+    private int pixel(int x) {
+        if (depth < 8) {
+            int bits = x * depth;
+            int v = current[1 + bits / 8] >> (8 - depth - bits % 8) & (1 << depth) - 1;
+            if (colorType == 3) return palette[v];
+            int grey = v * 255 / ((1 << depth) - 1);
+            return (v == transparent ? 0 : 0xFF000000) | grey * 0x010101;
+        }
+        int s0 = sample(x, 0);
+        return switch (colorType) {
+            case 0 -> (s0 == transparent ? 0 : 0xFF000000) | (s0 >> depth - 8) * 0x010101;
+            case 3 -> palette[s0];
+            case 4 -> (sample(x, 1) >> depth - 8) << 24 | (s0 >> depth - 8) * 0x010101;
+            case 2 -> {
+                int s1 = sample(x, 1), s2 = sample(x, 2);
+                long key = (long) s0 << 32 | (long) s1 << 16 | s2;
+                yield (key == transparent ? 0 : 0xFF000000) | (s0 >> depth - 8) << 16 | (s1 >> depth - 8) << 8 | s2 >> depth - 8;
+            }
+            default -> (sample(x, 3) >> depth - 8) << 24 | (s0 >> depth - 8) << 16 | (sample(x, 1) >> depth - 8) << 8 | sample(x, 2) >> depth - 8;
+        };
+    }
+
+    // Sample c of pixel x at 8 or 16 bits
+    private int sample(int x, int c) {
+        int i = x * channels + c;
+        return depth == 8 ? current[1 + i] & 0xFF : (current[1 + 2 * i] & 0xFF) << 8 | current[2 + 2 * i] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+}
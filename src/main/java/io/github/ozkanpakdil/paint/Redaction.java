@@ -0,0 +1,141 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Block averages for the Redact tool's pixelate mode, read from a summed-area table.
+ * <p>
+ * The table covers one region of the flattened canvas, usually the dragged rectangle with some
+ * room to grow, and holds for every pixel of it the premultiplied channel sums of everything above
+ * and to the left of it within the region. It takes one pass over the region to build; any block's
+ * average is then four lookups, so the live preview costs one lookup per block however large the
+ * blocks are, and neither time nor memory depends on the size of the canvas. Sums are kept in
+ * {@code int}s and allowed to wrap: the difference of four entries is still exact as long as the
+ * block's own sum fits, i.e. for blocks below 8 million pixels.
+ */
+final class Redaction {
+    private final int x0;
+    private final int y0;
+    private final int width;
+    private final int height;
+    // (width + 1) x (height + 1) entries of a, r, g, b; row 0 and column 0 are zero
+    private final int[] sums;
+
+    private Redaction(Rectangle region, int[] sums) {
+        this.x0 = region.x;
+        this.y0 = region.y;
+        this.width = region.width;
+        this.height = region.height;
+        this.sums = sums;
+    }
+
+    /** Builds the table for a whole INT_ARGB image. */
+    static Redaction of(BufferedImage img) {
+        return of(img, new Rectangle(0, 0, img.getWidth(), img.getHeight()));
+    }
+
+    /** Builds the table for {@code region} (inside the image) of an INT_ARGB image. */
+    static Redaction of(BufferedImage img, Rectangle region) {
+        int w = region.width;
+        int h = region.height;
+        int[] px = LayerCompositor.pixels(img);
+        int scan = img.getWidth();
+        int stride = (w + 1) * 4;
+        int[] sums = new int[stride * (h + 1)];
+        for (int y = 0; y < h; y++) {
+            int a = 0, r = 0, g = 0, b = 0;
+            int above = y * stride + 4;
+            int out = above + stride;
+            for (int x = 0, i = (region.y + y) * scan + region.x; x < w; x++, i++) {
+                int p = PixelKernels.premultiply(px[i]);
+                a += p >>> 24;
+                r += p >> 16 & 0xFF;
+                g += p >> 8 & 0xFF;
+                b += p & 0xFF;
+                int k = x * 4;
+                sums[out + k] = sums[above + k] + a;
+                sums[out + k + 1] = sums[above + k + 1] + r;
+                sums[out + k + 2] = sums[above + k + 2] + g;
+                sums[out + k + 3] = sums[above + k + 3] + b;
+            }
+        }
+        return new Redaction(region, sums);
+    }
+
+    /** The part of the image the table covers. */
+    Rectangle bounds() {
+        return new Rectangle(x0, y0, width, height);
+    }
+
+    /** Average colour (straight ARGB) of the {@code w x h} block at {@code (x, y)}; must lie in {@link #bounds}. */
+    int average(int x, int y, int w, int h) {
+        int stride = (width + 1) * 4;
+        int tl = (y - y0) * stride + (x - x0) * 4;
+        int tr = tl + w * 4;
+        int bl = tl + h * stride;
+        int br = bl + w * 4;
+        int area = w * h;
+        int half = area / 2;
+        int a = (sums[br] - sums[bl] - sums[tr] + sums[tl] + half) / area;
+        int r = (sums[br + 1] - sums[bl + 1] - sums[tr + 1] + sums[tl + 1] + half) / area;
+        int g = (sums[br + 2] - sums[bl + 2] - sums[tr + 2] + sums[tl + 2] + half) / area;
+        int b = (sums[br + 3] - sums[bl + 3] - sums[tr + 3] + sums[tl + 3] + half) / area;
+        return PixelKernels.unpremultiply(a << 24 | r << 16 | g << 8 | b);
+    }
+
+    /**
+     * The pixelated look of {@code r} (inside {@link #bounds}) as one pixel per block: blocks start at
+     * the rectangle's corner and the last row and column are cut short.
+     */
+    BufferedImage blocks(Rectangle r, int block) {
+        int cols = (r.width + block - 1) / block;
+        int rows = (r.height + block - 1) / block;
+        BufferedImage out = new BufferedImage(cols, rows, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(out);
+        for (int j = 0; j < rows; j++) {
+            int y = r.y + j * block;
+            int bh = Math.min(block, r.y + r.height - y);
+            for (int i = 0; i < cols; i++) {
+                int x = r.x + i * block;
+                px[j * cols + i] = average(x, y, Math.min(block, r.x + r.width - x), bh);
+            }
+        }
+        return out;
+    }
+
+    /** Writes {@link #blocks} output, each pixel grown back to a block, into {@code r} of an INT_ARGB image. */
+    static void paint(BufferedImage dst, Rectangle r, BufferedImage blocks, int block) {
+        int[] px = LayerCompositor.pixels(dst);
+        int[] colours = LayerCompositor.pixels(blocks);
+        int stride = dst.getWidth();
+        int cols = blocks.getWidth();
+        for (int y = 0; y < r.height; y++) {
+            int row = (r.y + y) * stride + r.x;
+            int src = y / block * cols;
+            for (int i = 0; i < cols; i++) {
+                int x = i * block;
+                PixelKernels.fill(px, row + x, Math.min(block, r.width - x), colours[src + i]);
+            }
+        }
+    }
+
+    /** Whether any pixel of {@code r} of an INT_ARGB image is not fully transparent. */
+    static boolean covers(BufferedImage img, Rectangle r) {
+        int[] px = LayerCompositor.pixels(img);
+        int stride = img.getWidth();
+        for (int y = r.y; y < r.y + r.height; y++) {
+            for (int i = y * stride + r.x, end = i + r.width; i < end; i++) {
+                if (px[i] >>> 24 != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Fills {@code r} of an INT_ARGB image with one colour (solid mask mode). */
+    static void mask(BufferedImage dst, Rectangle r, int argb) {
+        int[] px = LayerCompositor.pixels(dst);
+        int stride = dst.getWidth();
+        for (int y = r.y; y < r.y + r.height; y++) PixelKernels.fill(px, y * stride + r.x, r.width, argb);
+    }
+}
@@ -0,0 +1,175 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Decodes parts of an image file on demand, for images too large to decode whole (see
+ * {@link LargeImageView}).
+ * <p>
+ * An {@link ImageReader} with a source region and subsampling only produces the pixels asked for,
+ * so a tile of a zoomed-out view costs its own size in memory. How much of the file is parsed
+ * depends on the format: TIFFs go straight to the tiles or strips under the region, while other
+ * formats decode the rows above it without keeping them. PNG, where that would mean inflating from
+ * the top on every read, is read with a {@link PngRowReader} that stays where the last read ended,
+ * so reads that move down the image cost only the rows in between. One reader serves every
+ * request, one at a time; {@link #rows()} reads the image once from top to bottom on its own.
+ */
+final class RegionDecoder implements Closeable {
+    private final File file;
+    private final ImageInputStream in;
+    private final ImageReader reader;
+    private final int width;
+    private final int height;
+    // Whether rows can be streamed with a PngRowReader
+    private final boolean streamable;
+    private final boolean randomAccess;
+    // Where the last PNG read ended; null until the first
+    private PngRowReader png;
+
+    private RegionDecoder(File file, ImageInputStream in, ImageReader reader) throws IOException {
+        this.file = file;
+        this.in = in;
+        this.reader = reader;
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+        try (PngRowReader probe = PngRowReader.open(file)) {
+            this.streamable = probe != null;
+        }
+        this.randomAccess = reader.getFormatName().toLowerCase(Locale.ROOT).startsWith("tif");
+    }
+
+    static RegionDecoder open(File f) throws IOException {
+        ImageInputStream in = ImageIO.createImageInputStream(f);
+        if (in == null) throw new IOException("Cannot read " + f.getName());
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IOException("Unsupported image format: " + f.getName());
+            ImageReader reader = readers.next();
+            // Seekable, since regions are read in any order; metadata is not needed
+            reader.setInput(in, false, true);
+            return new RegionDecoder(f, in, reader);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** The size of the first image in {@code f}, read from its header; null if it is not an image. */
+    static Dimension size(File f) {
+        try (RegionDecoder d = open(f)) {
+            return new Dimension(d.width, d.height);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    /**
+     * Whether a region costs about its own size to read wherever it is. When it does not, a read
+     * also decodes everything above it, and wide reads are cheaper than several narrow ones.
+     */
+    boolean randomAccess() {
+        return randomAccess;
+    }
+
+    /**
+     * The pixels of {@code region} (clipped to the image), keeping every {@code subsample}-th column
+     * and row, as INT_ARGB.
+     */
+    synchronized BufferedImage read(Rectangle region, int subsample) throws IOException {
+        Rectangle r = region.intersection(new Rectangle(width, height));
+        if (streamable && !r.isEmpty()) return readRows(r, subsample);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(r);
+        param.setSourceSubsampling(subsample, subsample, 0, 0);
+        return ImageFormats.toIntArgb(reader.read(0, param));
+    }
+
+    // A region of a PNG, continuing from the last read if it ended above the region
+    private BufferedImage readRows(Rectangle r, int s) throws IOException {
+        int w = (r.width + s - 1) / s;
+        int h = (r.height + s - 1) / s;
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(out);
+        int[] row = new int[width];
+        png = seek(png, r.y);
+        for (int y = 0; y < h; y++) {
+            if (y > 0) png.skip(s - 1);
+            png.read(row, 0);
+            for (int x = 0, sx = r.x; x < w; x++, sx += s) px[y * w + x] = row[sx];
+        }
+        return out;
+    }
+
+    // A reader whose next row is y: r itself if it has not gone past y, otherwise a new one
+    private PngRowReader seek(PngRowReader r, int y) throws IOException {
+        if (r == null || r.row() > y) {
+            if (r != null) r.close();
+            r = PngRowReader.open(file);
+            if (r == null) throw new IOException(file.getName() + " is no longer a PNG");
+        }
+        r.skip(y - r.row());
+        return r;
+    }
+
+    /**
+     * Full-width rows of the image for one pass from top to bottom, as {@link StreamedImage} asks
+     * for them. A PNG is inflated once in all, on a stream of its own so tile reads can go on at the
+     * same time; other formats are read a region at a time. Close it when done.
+     */
+    Rows rows() {
+        return new Rows();
+    }
+
+    final class Rows implements StreamedImage.RowSource, Closeable {
+        private PngRowReader rows;
+
+        private Rows() {
+        }
+
+        @Override
+        public void rows(int y0, int count, int[] argb) {
+            try {
+                if (!streamable) {
+                    BufferedImage strip = read(new Rectangle(0, y0, width, count), 1);
+                    System.arraycopy(LayerCompositor.pixels(strip), 0, argb, 0, width * count);
+                    return;
+                }
+                rows = seek(rows, y0);
+                for (int y = 0; y < count; y++) rows.read(argb, y * width);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rows != null) rows.close();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        reader.dispose();
+        in.close();
+        if (png != null) png.close();
+    }
+}
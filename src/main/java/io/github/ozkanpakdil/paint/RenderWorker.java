@@ -0,0 +1,120 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs expensive canvas operations on a dedicated "paint-render" thread while the EDT keeps
+ * handling input and repaints.
+ * <p>
+ * Every operation is split into a {@code compute} phase that only reads buffers the EDT has
+ * promised not to mutate and returns new ones, and an {@code apply} phase that publishes the
+ * result on the EDT (swap the canvas buffer, push history, repaint). Operations on canvases below
+ * {@link #ASYNC_THRESHOLD} pixels run both phases inline, so small images behave exactly as before.
+ * <p>
+ * While a job is in flight the canvas is read-only: canvas-mutating input is queued with
+ * {@link #defer(Runnable)} and replayed on the EDT in arrival order once the result has been
+ * applied, which keeps drawing order and undo history identical to the synchronous case.
+ * All methods must be called on the EDT.
+ */
+final class RenderWorker {
+    /** Canvas size in pixels from which operations leave the EDT ({@code -Dpaint.asyncThreshold}). */
+    static final long ASYNC_THRESHOLD = Long.getLong("paint.asyncThreshold", 4_000_000L);
+
+    private final ArrayDeque<Runnable> deferred = new ArrayDeque<>();
+    private final Runnable busyChanged;
+    private ExecutorService executor;
+    private boolean busy;
+
+    RenderWorker(Runnable busyChanged) {
+        this.busyChanged = busyChanged;
+    }
+
+    boolean isBusy() {
+        return busy;
+    }
+
+    /** Queues a canvas-mutating action behind the job in flight (runs immediately when idle). */
+    void defer(Runnable action) {
+        if (busy) {
+            deferred.addLast(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Runs {@code compute} then {@code apply}; off the EDT when {@code pixels} reaches the
+     * threshold. {@code onError} is called on the EDT if compute fails (e.g. out of memory).
+     */
+    <T> void run(String name, long pixels, Supplier<T> compute, Consumer<T> apply, Consumer<Throwable> onError) {
+        if (busy) {
+            deferred.addLast(() -> run(name, pixels, compute, apply, onError));
+            return;
+        }
+        if (pixels < ASYNC_THRESHOLD) {
+            T result;
+            try {
+                result = compute.get();
+            } catch (Throwable t) {
+                System.err.println("[RenderWorker] " + name + " failed: " + t);
+                onError.accept(t);
+                return;
+            }
+            apply.accept(result);
+            return;
+        }
+        setBusy(true);
+        executor().execute(() -> {
+            T result = null;
+            Throwable failure = null;
+            try {
+                result = compute.get();
+            } catch (Throwable t) {
+                failure = t;
+            }
+            T r = result;
+            Throwable f = failure;
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    if (f == null) {
+                        apply.accept(r);
+                    } else {
+                        System.err.println("[RenderWorker] " + name + " failed: " + f);
+                        onError.accept(f);
+                    }
+                } finally {
+                    setBusy(false);
+                    drain();
+                }
+            });
+        });
+    }
+
+    private void drain() {
+        // A replayed action may start another job; the rest then waits for that one
+        while (!busy && !deferred.isEmpty()) {
+            deferred.pollFirst().run();
+        }
+    }
+
+    private void setBusy(boolean b) {
+        busy = b;
+        busyChanged.run();
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "paint-render");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+}
@@ -14,6 +14,8 @@ import java.awt.event.MouseEvent;
 public class RibbonBar extends JPanel {
     private final SideMenu controller; // reused for event handling/state
     private JPanel textGroup;
+    private JPanel redactGroup;
+    private JPanel selectGroup;
     private JComboBox<String> fontCombo;
     private JSpinner sizeSpinner;
     private JPanel textColorBtn;
@@ -40,12 +42,18 @@ public class RibbonBar extends JPanel {
         topBar.add(buildColorBar());
         textGroup = createTextGroup();
         topBar.add(textGroup);
+        redactGroup = createRedactGroup();
+        topBar.add(redactGroup);
+        selectGroup = createSelectGroup();
+        topBar.add(selectGroup);
         
         controller.addPropertyChangeListener(evt -> {
             switch (evt.getPropertyName()) {
                 case "tool" -> {
                     Tool tool = (Tool) evt.getNewValue();
                     if (textGroup != null) textGroup.setVisible(tool == Tool.TEXT);
+                    if (redactGroup != null) redactGroup.setVisible(tool == Tool.REDACT);
+                    if (selectGroup != null) selectGroup.setVisible(tool == Tool.MOVE);
                     configureSizeSliderForTool(tool);
                     topBar.revalidate();
                     topBar.repaint();
@@ -78,6 +86,8 @@ public class RibbonBar extends JPanel {
         });
         
         if (textGroup != null) textGroup.setVisible(SideMenu.getSelectedTool() == Tool.TEXT);
+        if (redactGroup != null) redactGroup.setVisible(SideMenu.getSelectedTool() == Tool.REDACT);
+        if (selectGroup != null) selectGroup.setVisible(SideMenu.getSelectedTool() == Tool.MOVE);
         return topBar;
     }
     
@@ -190,6 +200,57 @@ public class RibbonBar extends JPanel {
         return g;
     }
 
+    private JPanel createRedactGroup() {
+        JPanel g = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 2));
+        g.setOpaque(false);
+        g.setBorder(new EmptyBorder(2, 4, 2, 4));
+
+        JComboBox<String> mode = new JComboBox<>(new String[]{"Pixelate", "Solid"});
+        mode.setName("redactMode");
+        mode.setFont(new Font("Dialog", Font.PLAIN, 10));
+        mode.setToolTipText("Pixelate, or cover with the selected color");
+        mode.setSelectedIndex(SideMenu.isRedactSolid() ? 1 : 0);
+        g.add(mode);
+
+        JLabel bl = new JLabel("Block:");
+        bl.setFont(new Font("Dialog", Font.PLAIN, 10));
+        g.add(bl);
+        JSpinner block = new JSpinner(new SpinnerNumberModel(SideMenu.getRedactBlockSize(), 2, 128, 1));
+        block.setName("redactBlock");
+        block.setPreferredSize(new Dimension(50, 24));
+        block.addChangeListener(_ -> controller.setRedactBlockSize((Integer) block.getValue()));
+        g.add(block);
+
+        mode.addActionListener(_ -> {
+            controller.setRedactSolid(mode.getSelectedIndex() == 1);
+            block.setEnabled(mode.getSelectedIndex() == 0);
+        });
+        block.setEnabled(!SideMenu.isRedactSolid());
+
+        g.setVisible(false);
+        return g;
+    }
+
+    private JPanel createSelectGroup() {
+        JPanel g = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 2));
+        g.setOpaque(false);
+        g.setBorder(new EmptyBorder(2, 4, 2, 4));
+
+        JLabel label = new JLabel("Select:");
+        label.setFont(new Font("Dialog", Font.PLAIN, 10));
+        g.add(label);
+        JComboBox<SelectMode> mode = new JComboBox<>(SelectMode.values());
+        mode.setName("selectMode");
+        mode.setFont(new Font("Dialog", Font.PLAIN, 10));
+        mode.setToolTipText("Rectangle, freehand lasso, or polygon (click corners, double-click to close)");
+        mode.setSelectedItem(SideMenu.getSelectMode());
+        mode.addActionListener(_ -> controller.setSelectMode((SelectMode) mode.getSelectedItem()));
+        g.add(mode);
+
+        g.setVisible(false);
+        return g;
+    }
+
     private void configureSizeSliderForTool(Tool tool) {
         if (opacitySlider != null) {
             boolean enableOpacity = (tool == Tool.HIGHLIGHTER);
@@ -0,0 +1,61 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Target size and kernel for Image > Scale. Width and height stay in proportion unless
+ * "Keep aspect ratio" is cleared.
+ */
+final class ScaleDialog extends JPanel {
+    private static final int MAX_SIZE = 65536;
+
+    private final JSpinner width;
+    private final JSpinner height;
+    private final JCheckBox keepAspect = new JCheckBox("Keep aspect ratio", true);
+    private final JComboBox<Resampler.Kernel> kernel = new JComboBox<>(Resampler.Kernel.values());
+    // Guards against the two spinners updating each other in a loop
+    private boolean syncing;
+
+    private ScaleDialog(int w, int h) {
+        super(new GridLayout(0, 2, 6, 6));
+        width = new JSpinner(new SpinnerNumberModel(w, 1, MAX_SIZE, 1));
+        width.setName("scaleWidth");
+        height = new JSpinner(new SpinnerNumberModel(h, 1, MAX_SIZE, 1));
+        height.setName("scaleHeight");
+        kernel.setName("scaleKernel");
+        kernel.setSelectedItem(Resampler.Kernel.LANCZOS3);
+
+        width.addChangeListener(_ -> follow(width, height, (double) h / w));
+        height.addChangeListener(_ -> follow(height, width, (double) w / h));
+
+        add(new JLabel("Width (px)"));
+        add(width);
+        add(new JLabel("Height (px)"));
+        add(height);
+        add(new JLabel("Resampling"));
+        add(kernel);
+        add(keepAspect);
+    }
+
+    /** Asks for a new size for the area's image and scales it if the user confirms. */
+    static void show(Component parent, DrawArea area) {
+        ScaleDialog dialog = new ScaleDialog(area.getCanvasWidth(), area.getCanvasHeight());
+        int res = JOptionPane.showConfirmDialog(parent, dialog, "Scale Image",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (res != JOptionPane.OK_OPTION) return;
+        area.scaleImage((Integer) dialog.width.getValue(), (Integer) dialog.height.getValue(),
+                (Resampler.Kernel) dialog.kernel.getSelectedItem());
+    }
+
+    private void follow(JSpinner changed, JSpinner other, double ratio) {
+        if (syncing || !keepAspect.isSelected()) return;
+        syncing = true;
+        try {
+            long v = Math.round((Integer) changed.getValue() * ratio);
+            other.setValue((int) Math.max(1, Math.min(MAX_SIZE, v)));
+        } finally {
+            syncing = false;
+        }
+    }
+}
@@ -14,6 +14,8 @@ import java.util.Objects;
  * - Uses ArrayDeque instead of LinkedList for the work queue.
  * - Early exits for out-of-bounds and same-color seeds.
  * - Uses consistent precomputed row offsets to reduce repeated multiplications.
+ * - Scans and fills spans with {@link PixelKernels} (SIMD when available).
+ * - The same span walk backs the magic wand, which records the spans in a {@link SelectionMask}.
  */
 public class ScanlineFloodFill {
 
@@ -23,6 +25,7 @@ public class ScanlineFloodFill {
      * containing the result. The original image is not modified.
      */
     public BufferedImage fill(Image img, int xSeed, int ySeed, Color col) {
+        long t0 = System.nanoTime();
         Objects.requireNonNull(img, "img");
         Objects.requireNonNull(col, "col");
 
@@ -45,11 +48,33 @@ public class ScanlineFloodFill {
             return bi; // nothing to do
         }
 
-        floodIt(pixels, xSeed, ySeed, w, h, oldColor, fillColor);
+        long filled = floodIt(pixels, xSeed, ySeed, w, h, oldColor, fillColor, null);
+        PerfMetrics.floodFill(System.nanoTime() - t0, filled);
         return bi;
     }
 
-    private void floodIt(int[] pixels, int x, int y, int width, int height, int oldColor, int fillColor) {
+    /**
+     * Selects the contiguous region of an INT_ARGB image that has the same color as the seed pixel
+     * (magic wand). The image is not modified; an empty mask is returned for a seed outside it.
+     */
+    public SelectionMask select(BufferedImage img, int xSeed, int ySeed) {
+        Objects.requireNonNull(img, "img");
+        int w = img.getWidth();
+        int h = img.getHeight();
+        SelectionMask mask = new SelectionMask(w, h);
+        if (xSeed < 0 || xSeed >= w || ySeed < 0 || ySeed >= h) return mask;
+        // The walk marks visited spans by recolouring them, so it runs on a scratch copy; any
+        // color other than the seed's will do as the mark
+        int[] pixels = LayerCompositor.pixels(img).clone();
+        int oldColor = pixels[ySeed * w + xSeed];
+        floodIt(pixels, xSeed, ySeed, w, h, oldColor, ~oldColor, mask);
+        return mask;
+    }
+
+    // Returns the number of pixels filled; every span filled is also added to mask when given
+    private long floodIt(int[] pixels, int x, int y, int width, int height, int oldColor, int fillColor,
+                         SelectionMask mask) {
+        long filled = 0;
         // Work queue of points to process
         ArrayDeque<int[]> stack = new ArrayDeque<>();
         stack.addLast(new int[]{x, y});
@@ -65,57 +90,28 @@ public class ScanlineFloodFill {
                 continue;
             }
 
-            // Expand to the right
-            int xr = x;
-            while (xr < width && pixels[yp + xr] == oldColor) {
-                pixels[yp + xr] = fillColor;
-                xr++;
-            }
+            // Expand to both sides with the run scanners, then fill the span in one go
+            int left = PixelKernels.runStart(pixels, yp, yp + x, oldColor) - yp;
+            int right = PixelKernels.runEnd(pixels, yp + x, yp + width, oldColor) - yp - 1;
+            PixelKernels.fill(pixels, yp + left, right - left + 1, fillColor);
+            filled += right - left + 1;
+            if (mask != null) mask.add(y, left, right + 1);
 
-            // Expand to the left
-            int xl = x - 1;
-            while (xl >= 0 && pixels[yp + xl] == oldColor) {
-                pixels[yp + xl] = fillColor;
-                xl--;
-            }
+            // Seed one point per run of oldColor in the neighbouring rows under the span
+            if (y > 0) seedRuns(pixels, yp - width, left, right, y - 1, oldColor, stack);
+            if (y + 1 < height) seedRuns(pixels, yp + width, left, right, y + 1, oldColor, stack);
+        }
+        return filled;
+    }
 
-            // Now [xl+1, xr-1] is the filled horizontal span at row y
-            int left = xl + 1;
-            int right = xr - 1;
-
-            // Check the two neighboring rows for spans that still have oldColor.
-            boolean upPending = false;
-            boolean downPending = false;
-
-            int yUp = y - 1;
-            int yDown = y + 1;
-            int ypUp = yUp * width;
-            int ypDown = yDown * width;
-
-            for (int xi = left; xi <= right; xi++) {
-                // Row above
-                if (yUp >= 0) {
-                    if (pixels[ypUp + xi] == oldColor) {
-                        if (!upPending) {
-                            stack.addLast(new int[]{xi, yUp});
-                            upPending = true;
-                        }
-                    } else {
-                        upPending = false;
-                    }
-                }
-                // Row below
-                if (yDown < height) {
-                    if (pixels[ypDown + xi] == oldColor) {
-                        if (!downPending) {
-                            stack.addLast(new int[]{xi, yDown});
-                            downPending = true;
-                        }
-                    } else {
-                        downPending = false;
-                    }
-                }
-            }
+    // Pushes the first pixel of every run of oldColor within [left, right] of the row at offset rowStart
+    private static void seedRuns(int[] pixels, int rowStart, int left, int right, int y, int oldColor,
+                                 ArrayDeque<int[]> stack) {
+        int end = rowStart + right + 1;
+        int i = PixelKernels.find(pixels, rowStart + left, end, oldColor);
+        while (i < end) {
+            stack.addLast(new int[]{i - rowStart, y});
+            i = PixelKernels.find(pixels, PixelKernels.runEnd(pixels, i, end, oldColor), end, oldColor);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package io.github.ozkanpakdil.paint;
+
+/**
+ * Shape of the selection the Move tool makes when dragged outside a selection.
+ */
+public enum SelectMode {
+    RECTANGLE("Rectangle"),
+    // Freehand: the drag path, closed back to its start on release
+    LASSO("Lasso"),
+    // One corner per click; double-click, Enter or a click on the first corner closes it
+    POLYGON("Polygon");
+
+    private final String label;
+
+    SelectMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
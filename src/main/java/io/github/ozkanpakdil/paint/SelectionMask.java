@@ -0,0 +1,306 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * A selection of arbitrary shape over a {@code width x height} canvas, one bit per pixel.
+ * <p>
+ * Each row is packed into {@code long} words (bit {@code x & 63} of word {@code x >> 6}), so a
+ * 4000 x 3000 mask takes 1.5 MB instead of the 48 MB of an ARGB image. Union, intersection and
+ * subtraction combine whole words at a time, and the pixel operations walk runs of set or clear
+ * bits found with {@link Long#numberOfTrailingZeros}, filling each run in one go. Bits beyond
+ * {@code width} in a row's last word are always zero.
+ */
+final class SelectionMask {
+    private final int width;
+    private final int height;
+    // Words per row
+    private final int stride;
+    private final long[] bits;
+    // Cached bounds; recomputed after the mask changes
+    private Rectangle bounds;
+    private boolean boundsValid;
+
+    /** Receives the half-open run {@code [x0, x1)} of row {@code y}. */
+    @FunctionalInterface
+    interface RunConsumer {
+        void accept(int y, int x0, int x1);
+    }
+
+    /** An empty mask. */
+    SelectionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = (width + 63) >>> 6;
+        this.bits = new long[stride * height];
+    }
+
+    /** A mask holding {@code r} clipped to the canvas. */
+    static SelectionMask of(Rectangle r, int width, int height) {
+        SelectionMask m = new SelectionMask(width, height);
+        Rectangle c = r.intersection(new Rectangle(0, 0, width, height));
+        for (int y = c.y; y < c.y + c.height; y++) m.add(y, c.x, c.x + c.width);
+        return m;
+    }
+
+    /**
+     * The pixels whose centres lie inside {@code p} under the even-odd rule (lasso and polygon
+     * selections). Edges are bucketed by the first pixel row they cross; each row then only
+     * sorts the crossings of the edges active on it and sets the spans between pairs, so a
+     * freehand path with thousands of points stays cheap where {@link java.awt.geom.Area} would
+     * not.
+     */
+    static SelectionMask ofPolygon(Polygon p, int width, int height) {
+        SelectionMask m = new SelectionMask(width, height);
+        int n = p.npoints;
+        if (n < 3 || height == 0) return m;
+        // Per edge: x where it crosses the current row's centre line, its step per row, and the
+        // row it ends before
+        double[] ex = new double[n];
+        double[] dx = new double[n];
+        int[] endRow = new int[n];
+        // Edges starting on each row, chained through nextEdge
+        int[] head = new int[height];
+        int[] nextEdge = new int[n];
+        java.util.Arrays.fill(head, -1);
+        for (int i = 0; i < n; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            double xa = p.xpoints[i], ya = p.ypoints[i];
+            double xb = p.xpoints[j], yb = p.ypoints[j];
+            if (ya == yb) continue;
+            if (ya > yb) {
+                double t = xa; xa = xb; xb = t;
+                t = ya; ya = yb; yb = t;
+            }
+            // Rows whose centre y + 0.5 lies in [ya, yb)
+            int r0 = Math.max(0, (int) Math.ceil(ya - 0.5));
+            int r1 = Math.min(height, (int) Math.ceil(yb - 0.5));
+            if (r0 >= r1) continue;
+            dx[i] = (xb - xa) / (yb - ya);
+            ex[i] = xa + (r0 + 0.5 - ya) * dx[i];
+            endRow[i] = r1;
+            nextEdge[i] = head[r0];
+            head[r0] = i;
+        }
+        int[] active = new int[n];
+        int count = 0;
+        double[] xs = new double[n];
+        for (int y = 0; y < height; y++) {
+            for (int e = head[y]; e >= 0; e = nextEdge[e]) active[count++] = e;
+            int live = 0;
+            for (int k = 0; k < count; k++) {
+                int e = active[k];
+                if (endRow[e] > y) active[live++] = e;
+            }
+            count = live;
+            if (count == 0) continue;
+            for (int k = 0; k < count; k++) xs[k] = ex[active[k]];
+            java.util.Arrays.sort(xs, 0, count);
+            // A pixel is inside when its centre x + 0.5 lies in [left, right)
+            for (int k = 0; k + 1 < count; k += 2) {
+                int x0 = Math.max(0, (int) Math.ceil(xs[k] - 0.5));
+                int x1 = Math.min(width, (int) Math.ceil(xs[k + 1] - 0.5));
+                if (x0 < x1) m.add(y, x0, x1);
+            }
+            for (int k = 0; k < count; k++) ex[active[k]] += dx[active[k]];
+        }
+        return m;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    boolean contains(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return (bits[y * stride + (x >>> 6)] >>> x & 1) != 0;
+    }
+
+    /** Selects the pixels {@code [x0, x1)} of row {@code y}. */
+    void add(int y, int x0, int x1) {
+        if (x0 >= x1) return;
+        int row = y * stride;
+        int w0 = x0 >>> 6;
+        int w1 = (x1 - 1) >>> 6;
+        long first = -1L << x0;
+        long last = -1L >>> -x1;
+        if (w0 == w1) {
+            bits[row + w0] |= first & last;
+        } else {
+            bits[row + w0] |= first;
+            for (int w = w0 + 1; w < w1; w++) bits[row + w] = -1L;
+            bits[row + w1] |= last;
+        }
+        boundsValid = false;
+    }
+
+    /** Pixels in this mask or in {@code other}. */
+    SelectionMask union(SelectionMask other) {
+        SelectionMask out = sameSize(other);
+        for (int i = 0; i < bits.length; i++) out.bits[i] = bits[i] | other.bits[i];
+        return out;
+    }
+
+    /** Pixels in both masks. */
+    SelectionMask intersect(SelectionMask other) {
+        SelectionMask out = sameSize(other);
+        for (int i = 0; i < bits.length; i++) out.bits[i] = bits[i] & other.bits[i];
+        return out;
+    }
+
+    /** Pixels in this mask but not in {@code other}. */
+    SelectionMask subtract(SelectionMask other) {
+        SelectionMask out = sameSize(other);
+        for (int i = 0; i < bits.length; i++) out.bits[i] = bits[i] & ~other.bits[i];
+        return out;
+    }
+
+    private SelectionMask sameSize(SelectionMask other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("mask sizes differ: " + width + "x" + height
+                    + " and " + other.width + "x" + other.height);
+        }
+        return new SelectionMask(width, height);
+    }
+
+    boolean isEmpty() {
+        return bounds() == null;
+    }
+
+    /** Number of selected pixels. */
+    long count() {
+        long n = 0;
+        for (long word : bits) n += Long.bitCount(word);
+        return n;
+    }
+
+    /** The smallest rectangle holding every selected pixel; null when nothing is selected. */
+    Rectangle bounds() {
+        if (boundsValid) return bounds == null ? null : new Rectangle(bounds);
+        int minX = width, maxX = -1, minY = -1, maxY = -1;
+        for (int y = 0; y < height; y++) {
+            int row = y * stride;
+            for (int w = 0; w < stride; w++) {
+                long word = bits[row + w];
+                if (word == 0) continue;
+                if (minY < 0) minY = y;
+                maxY = y;
+                minX = Math.min(minX, (w << 6) + Long.numberOfTrailingZeros(word));
+                break;
+            }
+            for (int w = stride - 1; w >= 0 && minY >= 0; w--) {
+                long word = bits[row + w];
+                if (word == 0) continue;
+                maxX = Math.max(maxX, (w << 6) + 63 - Long.numberOfLeadingZeros(word));
+                break;
+            }
+        }
+        bounds = minY < 0 ? null : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+        boundsValid = true;
+        return bounds == null ? null : new Rectangle(bounds);
+    }
+
+    /**
+     * Calls {@code action} for every run of selected pixels ({@code selected}) or unselected ones
+     * inside {@code r}, which is clipped to the canvas.
+     */
+    void forEachRun(Rectangle r, boolean selected, RunConsumer action) {
+        Rectangle c = r.intersection(new Rectangle(0, 0, width, height));
+        for (int y = c.y; y < c.y + c.height; y++) runs(bits, y * stride, y, c.x, c.x + c.width, selected, action);
+    }
+
+    // Runs of bits equal to `set` in [from, to) of the row starting at word `row`
+    private static void runs(long[] words, int row, int y, int from, int to, boolean set, RunConsumer action) {
+        int x = next(words, row, from, to, set);
+        while (x < to) {
+            int end = next(words, row, x, to, !set);
+            action.accept(y, x, end);
+            x = next(words, row, end, to, set);
+        }
+    }
+
+    // First x in [from, to) of the row whose bit equals `set`; `to` if there is none
+    private static int next(long[] words, int row, int from, int to, boolean set) {
+        if (from >= to) return to;
+        int w = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long word = (set ? words[row + w] : ~words[row + w]) & -1L << from;
+        while (word == 0) {
+            if (++w > last) return to;
+            word = set ? words[row + w] : ~words[row + w];
+        }
+        return Math.min(to, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Fills the selected ({@code selected}) or unselected pixels of an INT_ARGB image with one
+     * colour. The image covers the canvas area starting at {@code (ox, oy)}.
+     */
+    void fill(BufferedImage img, int ox, int oy, int argb, boolean selected) {
+        int[] px = LayerCompositor.pixels(img);
+        int w = img.getWidth();
+        Rectangle area = new Rectangle(ox, oy, w, img.getHeight());
+        if (selected) {
+            Rectangle b = bounds();
+            if (b == null) return;
+            area = area.intersection(b);
+        }
+        forEachRun(area, selected, (y, x0, x1) -> PixelKernels.fill(px, (y - oy) * w + x0 - ox, x1 - x0, argb));
+    }
+
+    /**
+     * The boundary between selected and unselected pixels as pixel-aligned line segments, for
+     * drawing the selection outline. Horizontal edges are runs of the XOR of each row with the row
+     * above. Vertical edges sit where a row's bit differs from its left neighbour's; comparing
+     * those transition words with the previous row's shows where edges start and end, so each
+     * vertical edge becomes one segment and dashes run along it unbroken.
+     */
+    Path2D outline() {
+        Path2D.Float path = new Path2D.Float();
+        long[] above = new long[stride];
+        long[] edges = new long[stride];
+        // Transitions at x = 0..width, so one more word than a row when width is a multiple of 64
+        long[] vertical = new long[stride + 1];
+        long[] previous = new long[stride + 1];
+        int[] openedAt = new int[width + 1];
+        for (int y = 0; y <= height; y++) {
+            int row = y * stride;
+            long carry = 0;
+            for (int w = 0; w <= stride; w++) {
+                long cur = y < height && w < stride ? bits[row + w] : 0;
+                if (w < stride) {
+                    edges[w] = cur ^ above[w];
+                    above[w] = cur;
+                }
+                vertical[w] = cur ^ (cur << 1 | carry);
+                carry = cur >>> 63;
+            }
+            runs(edges, 0, y, 0, width, true, (ey, x0, x1) -> {
+                path.moveTo(x0, ey);
+                path.lineTo(x1, ey);
+            });
+            for (int w = 0; w <= stride; w++) {
+                long ended = previous[w] & ~vertical[w];
+                while (ended != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(ended);
+                    path.moveTo(x, openedAt[x]);
+                    path.lineTo(x, y);
+                    ended &= ended - 1;
+                }
+                long started = vertical[w] & ~previous[w];
+                while (started != 0) {
+                    openedAt[(w << 6) + Long.numberOfTrailingZeros(started)] = y;
+                    started &= started - 1;
+                }
+                previous[w] = vertical[w];
+            }
+        }
+        return path;
+    }
+}
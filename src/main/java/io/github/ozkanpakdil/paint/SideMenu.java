@@ -1,6 +1,5 @@
 package io.github.ozkanpakdil.paint;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -10,6 +9,7 @@ import java.awt.event.MouseListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 
 public class SideMenu extends JPanel implements MouseListener, ChangeListener {
@@ -21,6 +21,9 @@ public class SideMenu extends JPanel implements MouseListener, ChangeListener {
     private static Color for_color = colors[0];
     private static int font;
     private static int fontSize = 15;
+    private static int redactBlockSize = 12; // pixelate block edge in pixels
+    private static boolean redactSolid = false; // solid mask in the foreground colour instead of pixelating
+    private static SelectMode selectMode = SelectMode.RECTANGLE; // shape of Move tool selections
     private final JPanel colorChooserPanel = new JPanel();
 
     SideMenu() throws IOException {
@@ -57,24 +60,16 @@ public class SideMenu extends JPanel implements MouseListener, ChangeListener {
          * 	Tool Picker Starts
          */
 
-        String[] tool_names = {"pencil", "line-tool", "rectangle", "oval", "polygon", "eraser", "text", "rectangle_fill", "oval_fill", "polygon_fill", "bucket", "move", "highlighter", "arrow"};
+        String[] tool_names = {"pencil", "line-tool", "rectangle", "oval", "polygon", "eraser", "text", "rectangle_fill", "oval_fill", "polygon_fill", "bucket", "move", "highlighter", "arrow", "redact", "wand"};
         // Compact tools grid similar to MS Paint
         JPanel tool_panel = new JPanel(new GridLayout(0, 4, 4, 4));
         for (int i = 0; i < tool_names.length; i++) {
-            BufferedImage myPicture = null;
-            try {
-                java.io.InputStream in = SideMenu.class.getResourceAsStream("/images/" + tool_names[i] + ".png");
-                if (in != null) {
-                    myPicture = ImageIO.read(in);
-                }
-            } catch (Exception ignored) {
-            }
+            BufferedImage myPicture = IconAtlas.icon(tool_names[i] + ".png", 28, 28);
             if (myPicture == null) {
                 // Fallback: generate a simple icon if resource is missing (e.g., for Move)
                 myPicture = generateToolIcon(tool_names[i]);
             }
-            Image dimg = myPicture.getScaledInstance(28, 28, Image.SCALE_SMOOTH);
-            JLabel toolLabel = new JLabel(new ImageIcon(dimg));
+            JLabel toolLabel = new JLabel(new ImageIcon(myPicture));
             toolLabel.setOpaque(true);
             toolLabel.setBackground(new Color(245, 245, 245));
             toolLabel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
@@ -106,18 +101,14 @@ public class SideMenu extends JPanel implements MouseListener, ChangeListener {
          * 		Import Export
          */
         JPanel i_e = new JPanel();
-        BufferedImage myPicture = ImageIO.read(SideMenu.class.getResourceAsStream("/images/Save.png"));
-        Image dimg = myPicture.getScaledInstance(28, 28,
-                Image.SCALE_SMOOTH);
-        JLabel picLabel = new JLabel(new ImageIcon(dimg));
+        BufferedImage myPicture = IconAtlas.icon("Save.png", 28, 28);
+        JLabel picLabel = new JLabel(new ImageIcon(myPicture));
         picLabel.setSize(10, 10);
         picLabel.addMouseListener(this);
         picLabel.setName("SAVE");
         i_e.add(picLabel);
-        myPicture = ImageIO.read(SideMenu.class.getResourceAsStream("/images/upload.jpeg"));
-        dimg = myPicture.getScaledInstance(50, 50,
-                Image.SCALE_SMOOTH);
-        JLabel upload = new JLabel(new ImageIcon(dimg));
+        myPicture = IconAtlas.icon("upload.jpeg", 50, 50);
+        JLabel upload = new JLabel(new ImageIcon(myPicture));
         upload.setSize(10, 10);
         upload.addMouseListener(this);
         upload.setName("UPLOAD");
@@ -152,6 +143,36 @@ public class SideMenu extends JPanel implements MouseListener, ChangeListener {
         firePropertyChange("opacity", old, highlighter_opacity);
     }
 
+    public static int getRedactBlockSize() {
+        return redactBlockSize;
+    }
+
+    public void setRedactBlockSize(int size) {
+        int old = redactBlockSize;
+        redactBlockSize = Math.max(2, Math.min(128, size));
+        firePropertyChange("redactBlock", old, redactBlockSize);
+    }
+
+    public static boolean isRedactSolid() {
+        return redactSolid;
+    }
+
+    public void setRedactSolid(boolean solid) {
+        boolean old = redactSolid;
+        redactSolid = solid;
+        firePropertyChange("redactSolid", old, solid);
+    }
+
+    public static SelectMode getSelectMode() {
+        return selectMode;
+    }
+
+    public void setSelectMode(SelectMode mode) {
+        SelectMode old = selectMode;
+        selectMode = mode;
+        firePropertyChange("selectMode", old, mode);
+    }
+
     public static void setForeColor(Color c) {
         for_color = c;
     }
@@ -283,30 +304,43 @@ public class SideMenu extends JPanel implements MouseListener, ChangeListener {
             JFileChooser jf = new JFileChooser(new File(System.getProperty("user.home", ".")));
             jf.setSelectedFile(new File("image.png"));
             int actionDialog = jf.showSaveDialog(this);
-            if (actionDialog == JFileChooser.APPROVE_OPTION) {
-                File file = jf.getSelectedFile();
-                String path = file.getAbsolutePath();
-                if (!path.toLowerCase().endsWith(".png")) {
-                    file = new File(path + ".png");
-                }
-                if (file.exists()) {
-                    int answer = JOptionPane.showConfirmDialog(this, "Replace existing file?", "Confirm", JOptionPane.YES_NO_OPTION);
-                    if (answer != JOptionPane.YES_OPTION) return;
-                }
+            if (actionDialog != JFileChooser.APPROVE_OPTION) return;
+            File file = jf.getSelectedFile();
+            // .ora keeps the layers; anything else is flattened in the format picked in the export dialog
+            if (OpenRaster.isOpenRaster(file)) {
+                if (!confirmReplace(file)) return;
+                CanvasEvents.Save event = CanvasEvents.begin(new CanvasEvents.Save());
+                event.path = file.getAbsolutePath();
                 java.awt.image.BufferedImage out = DrawArea.getFlattenedImage();
-                if (out == null) {
-                    JOptionPane.showMessageDialog(this, "Nothing to save yet.", "Save", JOptionPane.INFORMATION_MESSAGE);
-                    return;
-                }
-                ImageIO.write(out, "png", file);
+                OpenRaster.write(file, DrawArea.documentLayers(), DrawArea.documentActiveLayer(), out);
+                CanvasEvents.commit(event, DrawArea.cache, CanvasEvents.bounds(DrawArea.cache));
                 System.out.println("File Saved: " + file.getAbsolutePath());
+                return;
             }
+            List<Layer> layers = DrawArea.documentLayers();
+            CanvasExport.Options options = ExportDialog.show(this, layers, CanvasExport.Format.forFile(file));
+            if (options == null) return;
+            File target = options.format().fileFor(file);
+            if (!confirmReplace(target)) return;
+            ExportDialog.save(this, layers, options, target, result -> {
+                String text = "Saved " + target.getName() + " (" + options.format() + ", " + result.summary() + ")";
+                System.out.println("[Export] " + text + ": " + target.getAbsolutePath());
+                if (SwingUtilities.getAncestorOfClass(GUI.class, this) instanceof GUI gui) gui.message.setText(text);
+            }, e -> {
+                e.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Failed to save: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            });
         } catch (IOException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, "Failed to save: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    private boolean confirmReplace(File file) {
+        return !file.exists() || JOptionPane.showConfirmDialog(this, "Replace existing file?", "Confirm",
+                JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
+    }
+
     // Public wrapper to trigger save from menus/shortcuts
     public void triggerSave() {
         saveImage();
@@ -0,0 +1,100 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Annotations drawn over a {@link LargeImageView}: transparent INT_ARGB tiles of {@value #TILE}
+ * pixels at full resolution, created only where something has been drawn. A few strokes on a
+ * 30000 x 30000 image cost a few tiles rather than a 3.6 GB layer. Thread-safe, so an export can
+ * read the tiles while the view paints.
+ */
+final class SparseOverlay {
+    static final int TILE = 256;
+
+    private final int width;
+    private final int height;
+    // Keyed by ty << 32 | tx
+    private final Map<Long, BufferedImage> tiles = new HashMap<>();
+
+    SparseOverlay(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /** Strokes {@code shape} (in image pixels) with antialiasing; returns the image area touched. */
+    synchronized Rectangle draw(Shape shape, Paint paint, Stroke stroke) {
+        Rectangle area = stroke.createStrokedShape(shape).getBounds();
+        area.grow(1, 1);
+        area = area.intersection(new Rectangle(width, height));
+        if (area.isEmpty()) return area;
+        forTiles(area, (tx, ty) -> {
+            BufferedImage tile = tiles.computeIfAbsent(key(tx, ty), _ -> new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_ARGB));
+            Graphics2D g = tile.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.translate(-tx * TILE, -ty * TILE);
+                g.setPaint(paint);
+                g.setStroke(stroke);
+                g.draw(shape);
+            } finally {
+                g.dispose();
+            }
+        });
+        return area;
+    }
+
+    /** Draws the tiles overlapping {@code region} onto {@code g}, which is in image coordinates. */
+    synchronized void paint(Graphics2D g, Rectangle region) {
+        Rectangle r = region.intersection(new Rectangle(width, height));
+        if (r.isEmpty()) return;
+        forTiles(r, (tx, ty) -> {
+            BufferedImage tile = tiles.get(key(tx, ty));
+            if (tile != null) g.drawImage(tile, tx * TILE, ty * TILE, null);
+        });
+    }
+
+    /**
+     * Lays the annotations over {@code rows} full-width rows of ARGB pixels starting at image row
+     * {@code y0}.
+     */
+    synchronized void composeInto(int[] argb, int y0, int rows) {
+        if (tiles.isEmpty()) return;
+        forTiles(new Rectangle(0, y0, width, rows), (tx, ty) -> {
+            BufferedImage tile = tiles.get(key(tx, ty));
+            if (tile == null) return;
+            int[] src = LayerCompositor.pixels(tile);
+            int x0 = tx * TILE;
+            int len = Math.min(TILE, width - x0);
+            int from = Math.max(y0, ty * TILE);
+            int to = Math.min(y0 + rows, Math.min(height, (ty + 1) * TILE));
+            for (int y = from; y < to; y++) {
+                PixelKernels.srcOver(src, (y - ty * TILE) * TILE, argb, (y - y0) * width + x0, len, 255);
+            }
+        });
+    }
+
+    synchronized int tileCount() {
+        return tiles.size();
+    }
+
+    synchronized long bytes() {
+        return (long) tiles.size() * TILE * TILE * 4;
+    }
+
+    private interface TileAction {
+        void run(int tx, int ty);
+    }
+
+    private static void forTiles(Rectangle r, TileAction action) {
+        for (int ty = r.y / TILE; ty <= (r.y + r.height - 1) / TILE; ty++) {
+            for (int tx = r.x / TILE; tx <= (r.x + r.width - 1) / TILE; tx++) action.run(tx, ty);
+        }
+    }
+
+    private static long key(int tx, int ty) {
+        return (long) ty << 32 | tx;
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup/footprint probe used by the startup report harness (src/installer/ci/bin/startup-report.sh).
+ * <p>
+ * When {@code -Dpaint.startupReport=<file>} (or {@code PAINT_STARTUP_REPORT}) is set, the first
+ * completed canvas paint records the time since process start (time-to-first-frame) together with
+ * the resident set size from /proc/self/status and writes them as key=value lines. With
+ * {@code -Dpaint.exitAfterFirstFrame=true} (or {@code PAINT_EXIT_AFTER_FIRST_FRAME=true}) the
+ * application exits right after, so the harness can launch jars and native binaries alike.
+ */
+final class StartupReport {
+    private static volatile boolean firstFrameSeen = false;
+
+    private StartupReport() {
+    }
+
+    /** Called at the end of every canvas paint; only the first call does any work. */
+    static void firstFrame() {
+        if (firstFrameSeen) return;
+        firstFrameSeen = true;
+        String target = setting("paint.startupReport", "PAINT_STARTUP_REPORT");
+        if (target != null && !target.isBlank()) {
+            try {
+                write(Path.of(target), collect());
+            } catch (IOException ex) {
+                System.err.println("[StartupReport] Failed to write " + target + ": " + ex.getMessage());
+            }
+        }
+        if (Boolean.parseBoolean(setting("paint.exitAfterFirstFrame", "PAINT_EXIT_AFTER_FIRST_FRAME"))) {
+            // Let the current paint finish before tearing the process down
+            SwingUtilities.invokeLater(() -> System.exit(0));
+        }
+    }
+
+    // System property first, environment variable as fallback (same convention as paint.theme)
+    private static String setting(String property, String env) {
+        String v = System.getProperty(property);
+        return v != null ? v : System.getenv(env);
+    }
+
+    static Map<String, String> collect() {
+        Map<String, String> out = new LinkedHashMap<>();
+        Instant start = ProcessHandle.current().info().startInstant().orElse(null);
+        if (start != null) {
+            out.put("timeToFirstFrameMs", Long.toString(Duration.between(start, Instant.now()).toMillis()));
+        }
+        Map<String, Long> mem = readProcStatus();
+        // VmRSS is the footprint right now, VmHWM the peak seen during startup
+        if (mem.containsKey("VmRSS")) out.put("rssKb", Long.toString(mem.get("VmRSS")));
+        if (mem.containsKey("VmHWM")) out.put("peakRssKb", Long.toString(mem.get("VmHWM")));
+        out.put("runtime", isNativeImage() ? "native-image" : "jvm " + System.getProperty("java.vm.version", "?"));
+        // "sharing" here means the CDS/AOT archive was actually mapped
+        out.put("vmInfo", System.getProperty("java.vm.info", ""));
+        return out;
+    }
+
+    static Map<String, Long> readProcStatus() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        Path status = Path.of("/proc/self/status");
+        if (!Files.isReadable(status)) return out;
+        try {
+            List<String> lines = Files.readAllLines(status);
+            for (String line : lines) {
+                int colon = line.indexOf(':');
+                if (colon <= 0 || !line.startsWith("Vm")) continue;
+                String value = line.substring(colon + 1).trim();
+                if (!value.endsWith(" kB")) continue;
+                try {
+                    out.put(line.substring(0, colon), Long.parseLong(value.substring(0, value.length() - 3).trim()));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return out;
+    }
+
+    private static void write(Path file, Map<String, String> values) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        values.forEach((k, v) -> sb.append(k).append('=').append(v).append('\n'));
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.writeString(file, sb.toString());
+    }
+
+    private static boolean isNativeImage() {
+        return System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+    }
+}
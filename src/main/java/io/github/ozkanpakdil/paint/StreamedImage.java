@@ -0,0 +1,264 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.*;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Vector;
+
+/**
+ * A read-only INT_ARGB (or INT_RGB, or 8-bit indexed) {@link RenderedImage} whose rows are produced
+ * on demand, one strip at a time, so an image writer that pulls rows can encode an image that never
+ * exists in memory as a whole. Only the current strip is kept: as many rows as {@link #STRIP_BYTES}
+ * holds at four bytes a pixel, or a single row, whichever is more. Rows should be asked for top to
+ * bottom; going back recomputes the strip.
+ * <p>
+ * The JDK's PNG writer asks for one row at a time through {@link #getData(Rectangle)}. Its JPEG
+ * writer wants the single tile of a one-tile image and reads it a row at a time through
+ * {@link Raster#createChild}, so the image is one tile, a {@link Raster} whose reads are served from
+ * the strips. Only {@code createChild}, {@code getPixels} and {@code getDataElements} are supported
+ * on that tile; anything that reaches for its data buffer directly gets nothing useful.
+ */
+final class StreamedImage implements RenderedImage {
+    /** Target size of one strip. */
+    static final int STRIP_BYTES = 4 << 20;
+
+    /** Fills {@code count} full-width rows starting at row {@code y0}, as non-premultiplied ARGB. */
+    @FunctionalInterface
+    interface RowSource {
+        void rows(int y0, int count, int[] argb);
+    }
+
+    /** Fills {@code count} full-width rows starting at row {@code y0} with palette indices. */
+    @FunctionalInterface
+    interface IndexSource {
+        void rows(int y0, int count, byte[] indices);
+    }
+
+    // Fills a strip's buffer, whatever its type
+    private interface StripSource {
+        void rows(int y0, int count, DataBuffer buffer);
+    }
+
+    private final int width;
+    private final int height;
+    private final int stripRows;
+    private final StripSource source;
+    private final ColorModel colorModel;
+    private WritableRaster strip;
+    private int stripIndex = -1;
+
+    StreamedImage(int width, int height, RowSource source) {
+        this(width, height, false, source);
+    }
+
+    /** With {@code opaque} the image is INT_RGB: the alpha byte the source writes is ignored. */
+    StreamedImage(int width, int height, boolean opaque, RowSource source) {
+        this(width, height, opaque ? new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF) : ColorModel.getRGBdefault(),
+                (y0, count, buffer) -> source.rows(y0, count, ((DataBufferInt) buffer).getData()));
+    }
+
+    private StreamedImage(int width, int height, ColorModel colorModel, StripSource source) {
+        this.width = width;
+        this.height = height;
+        this.stripRows = stripRows(width, height);
+        this.source = source;
+        this.colorModel = colorModel;
+    }
+
+    /** An image of indices into {@code palette}, which must be 8 bits a pixel. */
+    static StreamedImage indexed(int width, int height, IndexColorModel palette, IndexSource source) {
+        return new StreamedImage(width, height, palette,
+                (y0, count, buffer) -> source.rows(y0, count, ((DataBufferByte) buffer).getData()));
+    }
+
+    /** Rows per strip. */
+    int stripRows() {
+        return stripRows;
+    }
+
+    /** Rows per strip of an image {@code width} pixels wide. */
+    static int stripRows(int width, int height) {
+        return (int) Math.max(1, Math.min(height, STRIP_BYTES / (4L * width)));
+    }
+
+    // Strip number i, in image coordinates
+    private synchronized Raster strip(int i) {
+        if (i != stripIndex) {
+            int y0 = i * stripRows;
+            int rows = Math.min(stripRows, height - y0);
+            if (strip == null || strip.getHeight() != rows) {
+                strip = colorModel.createCompatibleWritableRaster(width, rows);
+            }
+            source.rows(y0, rows, strip.getDataBuffer());
+            stripIndex = i;
+        }
+        return strip.createTranslatedChild(0, i * stripRows);
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        return new StripRaster(this);
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        Rectangle r = rect.intersection(new Rectangle(width, height));
+        int first = r.y / stripRows;
+        int last = (r.y + r.height - 1) / stripRows;
+        if (first == last) {
+            // Within one strip: a view of it, no copy (writers only read what they are given)
+            return strip(first).createChild(r.x, r.y, r.width, r.height, r.x, r.y, null);
+        }
+        WritableRaster out = colorModel.createCompatibleWritableRaster(r.width, r.height).createWritableTranslatedChild(r.x, r.y);
+        for (int i = first; i <= last; i++) {
+            Raster s = strip(i);
+            Rectangle part = r.intersection(s.getBounds());
+            out.setRect(s.createChild(part.x, part.y, part.width, part.height, part.x, part.y, null));
+        }
+        return out;
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(width, height));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        Rectangle r = raster == null ? new Rectangle(width, height) : raster.getBounds();
+        WritableRaster out = raster != null ? raster
+                : colorModel.createCompatibleWritableRaster(width, height);
+        out.setRect(getData(r));
+        return out;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    /** The layout of one strip (a full-size sample model could overflow for huge images). */
+    @Override
+    public SampleModel getSampleModel() {
+        return colorModel.createCompatibleSampleModel(width, stripRows);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    // The whole image as one tile; reads go through getData, one strip at a time
+    private static final class StripRaster extends Raster {
+        private final StreamedImage image;
+
+        StripRaster(StreamedImage image) {
+            super(image.getSampleModel(), image.getSampleModel().getTransferType() == DataBuffer.TYPE_BYTE
+                    ? new DataBufferByte(1) : new DataBufferInt(1), new Rectangle(image.width, image.height), new Point(), null);
+            this.image = image;
+        }
+
+        @Override
+        public Raster createChild(int parentX, int parentY, int w, int h, int childMinX, int childMinY, int[] bandList) {
+            return image.getData(new Rectangle(parentX, parentY, w, h)).createChild(parentX, parentY, w, h, childMinX, childMinY, bandList);
+        }
+
+        @Override
+        public Object getDataElements(int x, int y, Object outData) {
+            return image.getData(new Rectangle(x, y, 1, 1)).getDataElements(x, y, outData);
+        }
+
+        @Override
+        public Object getDataElements(int x, int y, int w, int h, Object outData) {
+            return image.getData(new Rectangle(x, y, w, h)).getDataElements(x, y, w, h, outData);
+        }
+
+        @Override
+        public int[] getPixel(int x, int y, int[] iArray) {
+            return image.getData(new Rectangle(x, y, 1, 1)).getPixel(x, y, iArray);
+        }
+
+        @Override
+        public int[] getPixels(int x, int y, int w, int h, int[] iArray) {
+            return image.getData(new Rectangle(x, y, w, h)).getPixels(x, y, w, h, iArray);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.ozkanpakdil.paint;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded tiles, least recently used first out, bounded by their total size in bytes rather than
+ * their number: a zoomed-out tile and a full-resolution one share the same budget at their real
+ * cost. Thread-safe.
+ */
+final class TileCache<K> {
+    private final long budget;
+    // Access order, so iteration starts at the least recently used tile
+    private final LinkedHashMap<K, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    TileCache(long budgetBytes) {
+        this.budget = budgetBytes;
+    }
+
+    synchronized BufferedImage get(K key) {
+        return tiles.get(key);
+    }
+
+    /** Adds a tile, then evicts the least recently used ones until the cache is within budget. */
+    synchronized void put(K key, BufferedImage tile) {
+        BufferedImage old = tiles.put(key, tile);
+        bytes += PerfMetrics.imageBytes(tile) - PerfMetrics.imageBytes(old);
+        for (Iterator<Map.Entry<K, BufferedImage>> it = tiles.entrySet().iterator(); bytes > budget && it.hasNext(); ) {
+            Map.Entry<K, BufferedImage> e = it.next();
+            // The newest tile stays even if it alone is over budget
+            if (e.getKey().equals(key)) continue;
+            bytes -= PerfMetrics.imageBytes(e.getValue());
+            it.remove();
+        }
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    synchronized int size() {
+        return tiles.size();
+    }
+
+    long budget() {
+        return budget;
+    }
+
+    synchronized void clear() {
+        tiles.clear();
+        bytes = 0;
+    }
+}
@@ -3,27 +3,33 @@ package io.github.ozkanpakdil.paint;
 /**
  * Drawing tools used by the application.
  * The order/index is preserved for compatibility with toolbar button indices.
+ * Each tool also names the icon resource (under /images) used for its cursor; the table has no
+ * AWT dependencies so it can be initialized at native-image build time.
  */
 public enum Tool {
-    PENCIL(0),
-    LINE(1),
-    RECT(2),
-    OVAL(3),
-    ROUNDED_RECT(4),
-    ERASER(5),
-    TEXT(6),
-    RECT_FILLED(7),
-    OVAL_FILLED(8),
-    ROUNDED_RECT_FILLED(9),
-    BUCKET(10),
-    MOVE(11),
-    HIGHLIGHTER(12),
-    ARROW(13);
+    PENCIL(0, "pencil.png"),
+    LINE(1, "line-tool.png"),
+    RECT(2, "rectangle.png"),
+    OVAL(3, "oval.png"),
+    ROUNDED_RECT(4, "rectangle.png"),
+    ERASER(5, "eraser.png"),
+    TEXT(6, "text.png"),
+    RECT_FILLED(7, "rectangle_fill.png"),
+    OVAL_FILLED(8, "oval_fill.png"),
+    ROUNDED_RECT_FILLED(9, "rectangle_fill.png"),
+    BUCKET(10, "bucket.png"),
+    MOVE(11, "move.png"),
+    HIGHLIGHTER(12, "highlight.png"),
+    ARROW(13, "arrow.png"),
+    REDACT(14, "redact.png"),
+    MAGIC_WAND(15, "wand.png");
 
     private final int index;
+    private final String icon;
 
-    Tool(int index) {
+    Tool(int index, String icon) {
         this.index = index;
+        this.icon = icon;
     }
 
     public static Tool fromIndex(int idx) {
@@ -33,4 +39,9 @@ public enum Tool {
         throw new IllegalArgumentException("Unknown tool index: " + idx);
     }
 
+    /** Icon resource name under /images used for this tool's cursor. */
+    public String icon() {
+        return icon;
+    }
+
 }
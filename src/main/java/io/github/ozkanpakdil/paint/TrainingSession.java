@@ -0,0 +1,130 @@
+package io.github.ozkanpakdil.paint;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.io.File;
+
+/**
+ * Scripted drawing session used to train profile-guided builds (GraalVM PGO) and class-sharing
+ * archives. Enabled with {@code -Dpaint.training=true}: once the window is up it exercises every
+ * tool, selection/placement, undo/redo, resize, copy and PNG save on the EDT, then exits.
+ * <p>
+ * {@code -Dpaint.training.iterations=N} repeats the script (default 3) so hot paths get
+ * representative counts.
+ */
+final class TrainingSession {
+    private static final Tool[] STROKE_TOOLS = {
+            Tool.PENCIL, Tool.LINE, Tool.RECT, Tool.OVAL, Tool.ROUNDED_RECT, Tool.RECT_FILLED,
+            Tool.OVAL_FILLED, Tool.ROUNDED_RECT_FILLED, Tool.ERASER, Tool.HIGHLIGHTER, Tool.ARROW
+    };
+
+    private TrainingSession() {
+    }
+
+    static boolean isRequested() {
+        return Boolean.getBoolean("paint.training");
+    }
+
+    static void start(Main frame) {
+        // Queue behind the window's initial layout/paint
+        SwingUtilities.invokeLater(() -> {
+            int code = 0;
+            try {
+                int iterations = Math.max(1, Integer.getInteger("paint.training.iterations", 3));
+                long t0 = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    runOnce(frame.getGui().getDrawArea(), frame.getGui().getSideMenu(), i);
+                }
+                System.out.println("[Training] Completed " + iterations + " iteration(s) in "
+                        + (System.nanoTime() - t0) / 1_000_000 + " ms");
+            } catch (Throwable t) {
+                System.err.println("[Training] Session failed: " + t);
+                code = 1;
+            }
+            frame.dispose();
+            System.exit(code);
+        });
+    }
+
+    private static void runOnce(DrawArea canvas, SideMenu menu, int iteration) throws Exception {
+        int w = Math.max(200, canvas.getCanvasWidth());
+        int h = Math.max(200, canvas.getCanvasHeight());
+        canvas.resizeCanvas(w, h);
+
+        menu.selectForeColor(iteration % 2 == 0 ? Color.BLUE : Color.RED);
+        for (int t = 0; t < STROKE_TOOLS.length; t++) {
+            menu.selectTool(STROKE_TOOLS[t]);
+            menu.setStrokeSize(1 + (t * 3) % 20);
+            int y = 10 + (t * (h - 20)) / STROKE_TOOLS.length;
+            drag(canvas, 10, y, w - 10, Math.min(h - 10, y + 40), 24);
+            paintNow(canvas);
+        }
+
+        // Bucket fill the large white area and some stroke interior
+        menu.selectTool(Tool.BUCKET);
+        click(canvas, w - 5, h - 5);
+        click(canvas, w / 2, h / 2);
+        paintNow(canvas);
+
+        // Text: pressing opens the inline editor; switching tools commits it
+        menu.selectTool(Tool.TEXT);
+        click(canvas, 20, h / 2);
+        for (Component c : canvas.getComponents()) {
+            if (c instanceof JTextField field) field.setText("Training " + iteration);
+        }
+        menu.selectTool(Tool.PENCIL);
+        paintNow(canvas);
+
+        // Move tool: cut a selection, drag the floating pixels, commit by switching tools
+        menu.selectTool(Tool.MOVE);
+        drag(canvas, 20, 20, w / 3, h / 3, 8);
+        drag(canvas, 30, 30, w / 2, h / 2, 8);
+        paintNow(canvas);
+        menu.selectTool(Tool.PENCIL);
+
+        canvas.selectAll();
+        canvas.copyToClipboard();
+
+        canvas.undo();
+        canvas.undo();
+        canvas.undo();
+        canvas.redo();
+        canvas.redo();
+        paintNow(canvas);
+
+        canvas.resizeCanvas(w + 64, h + 32);
+        canvas.undo();
+
+        File out = File.createTempFile("paint-training", ".png");
+        try {
+            CanvasExport.write(DrawArea.documentLayers(), CanvasExport.Options.of(CanvasExport.Format.PNG), out);
+        } finally {
+            out.delete();
+        }
+        canvas.clearCanvas();
+    }
+
+    private static void paintNow(JComponent c) {
+        c.paintImmediately(0, 0, c.getWidth(), c.getHeight());
+    }
+
+    private static void click(Component target, int x, int y) {
+        dispatch(target, MouseEvent.MOUSE_PRESSED, x, y);
+        dispatch(target, MouseEvent.MOUSE_RELEASED, x, y);
+        dispatch(target, MouseEvent.MOUSE_CLICKED, x, y);
+    }
+
+    private static void drag(Component target, int x1, int y1, int x2, int y2, int steps) {
+        dispatch(target, MouseEvent.MOUSE_PRESSED, x1, y1);
+        for (int i = 1; i <= steps; i++) {
+            dispatch(target, MouseEvent.MOUSE_DRAGGED, x1 + (x2 - x1) * i / steps, y1 + (y2 - y1) * i / steps);
+        }
+        dispatch(target, MouseEvent.MOUSE_RELEASED, x2, y2);
+    }
+
+    private static void dispatch(Component target, int id, int x, int y) {
+        target.dispatchEvent(new MouseEvent(target, id, System.currentTimeMillis(),
+                MouseEvent.BUTTON1_DOWN_MASK, x, y, 1, false, MouseEvent.BUTTON1));
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.ozkanpakdil.paint;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the {@link PixelKernels}, one vector of ints (pixels) at a time with the scalar
+ * code for the tail. Only loaded once {@link PixelKernels} has checked that the incubator module
+ * is present, so nothing else may refer to this class.
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = INTS.length();
+
+    private VectorKernels() {
+    }
+
+    static int lanes() {
+        return LANES;
+    }
+
+    static void srcOver(int[] src, int srcOff, int[] dst, int dstOff, int len, int alpha) {
+        int i = 0;
+        for (int upper = INTS.loopBound(len); i < upper; i += LANES) {
+            IntVector s = IntVector.fromArray(INTS, src, srcOff + i);
+            IntVector sa = s.lanewise(VectorOperators.LSHR, 24);
+            if (alpha != 255) sa = div255(sa.mul(alpha).add(127));
+            VectorMask<Integer> visible = sa.compare(VectorOperators.NE, 0);
+            // Transparent runs (most of an upper layer) leave the destination untouched
+            if (!visible.anyTrue()) continue;
+            IntVector d = IntVector.fromArray(INTS, dst, dstOff + i);
+            VectorMask<Integer> opaque = sa.compare(VectorOperators.EQ, 255);
+            if (opaque.allTrue()) {
+                s.intoArray(dst, dstOff + i);
+                continue;
+            }
+            // Translucent over opaque stays opaque: c = (cs * sa + cd * (255 - sa)) / 255
+            IntVector inv = sa.neg().add(255);
+            IntVector r = div255(channel(s, 16).mul(sa).add(channel(d, 16).mul(inv)));
+            IntVector g = div255(channel(s, 8).mul(sa).add(channel(d, 8).mul(inv)));
+            IntVector b = div255(channel(s, 0).mul(sa).add(channel(d, 0).mul(inv)));
+            IntVector mixed = r.lanewise(VectorOperators.LSHL, 16)
+                    .or(g.lanewise(VectorOperators.LSHL, 8)).or(b).or(0xFF000000);
+            VectorMask<Integer> backdropOpaque = d.lanewise(VectorOperators.LSHR, 24).compare(VectorOperators.EQ, 255);
+            IntVector out = d.blend(mixed, visible.and(backdropOpaque)).blend(s, opaque);
+            out.intoArray(dst, dstOff + i);
+            // Translucent over translucent needs a division per pixel; rare enough to do one by one
+            VectorMask<Integer> rest = visible.andNot(opaque).andNot(backdropOpaque);
+            if (rest.anyTrue()) {
+                for (int k = 0; k < LANES; k++) {
+                    if (rest.laneIsSet(k)) dst[dstOff + i + k] = PixelKernels.srcOver(src[srcOff + i + k], d.lane(k), alpha);
+                }
+            }
+        }
+        PixelKernels.srcOverScalar(src, srcOff + i, dst, dstOff + i, len - i, alpha);
+    }
+
+    static void fill(int[] dst, int off, int len, int argb) {
+        IntVector v = IntVector.broadcast(INTS, argb);
+        int i = 0;
+        for (int upper = INTS.loopBound(len); i < upper; i += LANES) {
+            v.intoArray(dst, off + i);
+        }
+        java.util.Arrays.fill(dst, off + i, off + len, argb);
+    }
+
+    static int runEnd(int[] px, int from, int to, int color) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            VectorMask<Integer> other = IntVector.fromArray(INTS, px, i).compare(VectorOperators.NE, color);
+            if (other.anyTrue()) return i + other.firstTrue();
+        }
+        return PixelKernels.runEndScalar(px, i, to, color);
+    }
+
+    static int runStart(int[] px, int lo, int end, int color) {
+        int i = end;
+        for (; i - LANES >= lo; i -= LANES) {
+            VectorMask<Integer> other = IntVector.fromArray(INTS, px, i - LANES).compare(VectorOperators.NE, color);
+            if (other.anyTrue()) return i - LANES + other.lastTrue() + 1;
+        }
+        return PixelKernels.runStartScalar(px, lo, i, color);
+    }
+
+    static int find(int[] px, int from, int to, int color) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            VectorMask<Integer> same = IntVector.fromArray(INTS, px, i).compare(VectorOperators.EQ, color);
+            if (same.anyTrue()) return i + same.firstTrue();
+        }
+        return PixelKernels.findScalar(px, i, to, color);
+    }
+
+    static void premultiply(int[] px, int off, int len) {
+        int i = 0;
+        for (int upper = INTS.loopBound(len); i < upper; i += LANES) {
+            IntVector p = IntVector.fromArray(INTS, px, off + i);
+            IntVector a = p.lanewise(VectorOperators.LSHR, 24);
+            IntVector r = div255(channel(p, 16).mul(a).add(127));
+            IntVector g = div255(channel(p, 8).mul(a).add(127));
+            IntVector b = div255(channel(p, 0).mul(a).add(127));
+            a.lanewise(VectorOperators.LSHL, 24).or(r.lanewise(VectorOperators.LSHL, 16))
+                    .or(g.lanewise(VectorOperators.LSHL, 8)).or(b).intoArray(px, off + i);
+        }
+        PixelKernels.premultiplyScalar(px, off + i, len - i);
+    }
+
+    static void unpremultiply(int[] px, int off, int len) {
+        int i = 0;
+        if (FLOATS.length() == LANES) {
+            for (int upper = INTS.loopBound(len); i < upper; i += LANES) {
+                IntVector p = IntVector.fromArray(INTS, px, off + i);
+                IntVector a = p.lanewise(VectorOperators.LSHR, 24);
+                FloatVector scale = FloatVector.broadcast(FLOATS, 255f).div(toFloat(a));
+                IntVector r = unscale(channel(p, 16), scale);
+                IntVector g = unscale(channel(p, 8), scale);
+                IntVector b = unscale(channel(p, 0), scale);
+                IntVector out = a.lanewise(VectorOperators.LSHL, 24).or(r.lanewise(VectorOperators.LSHL, 16))
+                        .or(g.lanewise(VectorOperators.LSHL, 8)).or(b);
+                // Fully transparent pixels have no colour to recover
+                out.blend(0, a.compare(VectorOperators.EQ, 0)).intoArray(px, off + i);
+            }
+        }
+        PixelKernels.unpremultiplyScalar(px, off + i, len - i);
+    }
+
+    private static IntVector unscale(IntVector c, FloatVector scale) {
+        FloatVector f = toFloat(c).mul(scale).add(0.5f);
+        return ((IntVector) f.convert(VectorOperators.F2I, 0)).min(255);
+    }
+
+    private static FloatVector toFloat(IntVector v) {
+        return (FloatVector) v.convert(VectorOperators.I2F, 0);
+    }
+
+    private static IntVector channel(IntVector p, int shift) {
+        return (shift == 0 ? p : p.lanewise(VectorOperators.LSHR, shift)).and(0xFF);
+    }
+
+    // PixelKernels.div255 for each lane
+    private static IntVector div255(IntVector x) {
+        return x.add(1).add(x.lanewise(VectorOperators.ASHR, 8)).lanewise(VectorOperators.ASHR, 8);
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchImporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodesEveryReadableFileInDropOrder() throws Exception {
+        List<File> files = screenshots(12);
+        File junk = dir.resolve("notes.png").toFile();
+        Files.writeString(junk.toPath(), "not an image");
+        files.add(5, junk);
+        AtomicInteger progress = new AtomicInteger();
+
+        BatchImporter.Batch batch = BatchImporter.decode(files, 4, n -> progress.accumulateAndGet(n, Math::max), new AtomicBoolean());
+
+        assertEquals(12, batch.images().size());
+        assertEquals(List.of(junk), batch.unreadable());
+        assertEquals(13, progress.get());
+        for (int i = 0; i < 12; i++) {
+            BatchImporter.Imported imported = batch.images().get(i);
+            assertEquals("shot" + i + ".png", imported.file().getName());
+            assertEquals(BufferedImage.TYPE_INT_ARGB, imported.image().getType());
+            assertEquals(colour(i).getRGB(), imported.image().getRGB(1, 1));
+        }
+    }
+
+    @Test
+    void cancelledBatchDecodesNothing() throws Exception {
+        BatchImporter.Batch batch = BatchImporter.decode(screenshots(5), 2, _ -> { }, new AtomicBoolean(true));
+        assertTrue(batch.images().isEmpty());
+        assertTrue(batch.unreadable().isEmpty(), "skipped files are not reported as unreadable");
+    }
+
+    @Test
+    void gridRowsAreAsTallAsTheirTallestPicture() {
+        List<BufferedImage> images = List.of(image(30, 10), image(20, 40), image(10, 10), image(50, 5), image(5, 5));
+        List<Point> at = BatchImporter.gridPositions(images);
+        int gap = BatchImporter.GAP;
+        // Three per row: ceil(sqrt(5))
+        assertEquals(new Point(0, 0), at.get(0));
+        assertEquals(new Point(30 + gap, 0), at.get(1));
+        assertEquals(new Point(50 + 2 * gap, 0), at.get(2));
+        assertEquals(new Point(0, 40 + gap), at.get(3));
+        assertEquals(new Point(50 + gap, 40 + gap), at.get(4));
+        BufferedImage sheet = BatchImporter.grid(images);
+        assertEquals(60 + 2 * gap, sheet.getWidth());
+        assertEquals(45 + gap, sheet.getHeight());
+    }
+
+    @Test
+    void layersLayoutAddsOneUndoableLayerPerImage() throws Exception {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(100, 60);
+        int before = area.getLayers().size();
+        BatchImporter.Batch batch = BatchImporter.decode(screenshots(3), 2, _ -> { }, new AtomicBoolean());
+
+        area.importImages(batch.images(), new Point(90, 10), BatchImporter.Layout.LAYERS);
+
+        assertEquals(before + 3, area.getLayers().size());
+        Layer top = area.getLayers().get(area.getActiveLayerIndex());
+        assertEquals("shot2", top.name());
+        assertEquals(90 + 40, DrawArea.cache.getWidth(), "the canvas grew to fit");
+        assertEquals(colour(2).getRGB(), top.image().getRGB(91, 11));
+        area.undo();
+        assertEquals(before, area.getLayers().size());
+    }
+
+    private List<File> screenshots(int n) throws Exception {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            BufferedImage img = new BufferedImage(40, 30, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = img.createGraphics();
+            g.setColor(colour(i));
+            g.fillRect(0, 0, 40, 30);
+            g.dispose();
+            File f = dir.resolve("shot" + i + ".png").toFile();
+            ImageIO.write(img, "png", f);
+            files.add(f);
+        }
+        return files;
+    }
+
+    private static Color colour(int i) {
+        return new Color(i * 20, 255 - i * 20, 100);
+    }
+
+    private static BufferedImage image(int w, int h) {
+        return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    }
+}
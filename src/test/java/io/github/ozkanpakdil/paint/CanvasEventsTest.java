@@ -0,0 +1,60 @@
+package io.github.ozkanpakdil.paint;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CanvasEventsTest {
+
+    @Test
+    void resizeAndUndoEmitFlightRecorderEvents() throws Exception {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(120, 80);
+
+        Path file = Files.createTempFile("paint-canvas", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("io.github.ozkanpakdil.paint.Resize").withThreshold(java.time.Duration.ZERO);
+            recording.enable("io.github.ozkanpakdil.paint.Undo").withThreshold(java.time.Duration.ZERO);
+            recording.start();
+            area.resizeCanvas(300, 200);
+            area.undo();
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+
+        RecordedEvent resize = events.stream()
+                .filter(e -> e.getEventType().getName().equals("io.github.ozkanpakdil.paint.Resize"))
+                .findFirst().orElseThrow();
+        assertEquals(300, resize.getInt("canvasWidth"));
+        assertEquals(200, resize.getInt("canvasHeight"));
+        assertEquals(300L * 200, resize.getLong("dirtyArea"));
+        // Resizing allocates the new canvas and the undo snapshot
+        assertTrue(resize.getLong("bytesAllocated") > 0);
+
+        RecordedEvent undo = events.stream()
+                .filter(e -> e.getEventType().getName().equals("io.github.ozkanpakdil.paint.Undo"))
+                .findFirst().orElseThrow();
+        assertEquals(120, undo.getInt("canvasWidth"));
+        assertEquals(80, undo.getInt("canvasHeight"));
+    }
+
+    @Test
+    void disabledEventsAreNotTimed() {
+        // No recording running: begin/commit must be no-ops
+        CanvasEvents.Resize e = CanvasEvents.begin(new CanvasEvents.Resize());
+        CanvasEvents.commit(e, null, null);
+        assertFalse(e.isEnabled());
+        assertEquals(0, e.canvasWidth);
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Element;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CanvasExportTest {
+    private static final int HUGE = 20_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void streamedRowsMatchTheCompositor() {
+        Random rnd = new Random(3);
+        BlendMode[] modes = BlendMode.values();
+        List<Layer> stack = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            BufferedImage img = new BufferedImage(700, 2100, BufferedImage.TYPE_INT_ARGB);
+            int[] px = LayerCompositor.pixels(img);
+            for (int p = 0; p < px.length; p++) px[p] = rnd.nextInt(3) == 0 ? 0 : rnd.nextInt();
+            Layer l = new Layer("L" + i, img);
+            l.setOpacity(rnd.nextFloat());
+            l.setBlend(modes[i % modes.length]);
+            stack.add(l);
+        }
+        stack.get(2).setVisible(false);
+        LayerCompositor compositor = new LayerCompositor();
+        compositor.update(stack, 1, null);
+
+        StreamedImage streamed = CanvasExport.flattened(stack, false);
+        assertTrue(streamed.stripRows() < 2100);
+        int[] rows = ((DataBufferInt) streamed.copyData(null).getDataBuffer()).getData();
+
+        assertArrayEquals(LayerCompositor.pixels(compositor.flatten(null)), rows);
+    }
+
+    @Test
+    void jpegIsStreamedOntoWhite() throws Exception {
+        BufferedImage img = new BufferedImage(640, 3000, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.BLUE);
+        g.fillRect(0, 2000, 640, 1000);
+        g.dispose();
+        File out = dir.resolve("canvas.jpg").toFile();
+        assertEquals(CanvasExport.Format.JPEG, CanvasExport.Format.forFile(out));
+
+        CanvasExport.write(List.of(new Layer("Background", img)), CanvasExport.Options.of(CanvasExport.Format.JPEG), out);
+
+        BufferedImage back = ImageIO.read(out);
+        assertEquals(640, back.getWidth());
+        assertEquals(3000, back.getHeight());
+        // Transparent becomes white, not black
+        assertEquals(Color.WHITE.getRGB(), back.getRGB(100, 100) | 0x030303);
+        Color blue = new Color(back.getRGB(100, 2500));
+        assertTrue(blue.getBlue() > 240 && blue.getRed() < 16 && blue.getGreen() < 16, blue.toString());
+    }
+
+    @Test
+    void jpegQualityAndChromaSubsamplingAreApplied() throws Exception {
+        List<Layer> layers = List.of(new Layer("Background", noise(400, 300)));
+        CanvasExport.Options base = CanvasExport.Options.of(CanvasExport.Format.JPEG);
+        long low = CanvasExport.estimate(layers, withQuality(base, 0.3f)).bytes();
+        long high = CanvasExport.estimate(layers, withQuality(base, 0.95f)).bytes();
+        assertTrue(high > low, high + " vs " + low);
+
+        File full = dir.resolve("full.jpg").toFile();
+        CanvasExport.write(layers, new CanvasExport.Options(CanvasExport.Format.JPEG, 0.9f, CanvasExport.Chroma.FULL, 256, false), full);
+        File quarter = dir.resolve("quarter.jpg").toFile();
+        CanvasExport.write(layers, base, quarter);
+        assertEquals("1x1", lumaSampling(full));
+        assertEquals("2x2", lumaSampling(quarter));
+        assertTrue(full.length() > quarter.length());
+    }
+
+    @Test
+    void anInterruptedEstimateStopsAtTheNextStrip() {
+        List<Layer> layers = List.of(new Layer("Background", noise(400, 300)));
+        for (CanvasExport.Format f : CanvasExport.Format.values()) {
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(InterruptedIOException.class, () -> CanvasExport.estimate(layers, CanvasExport.Options.of(f)), f.toString());
+            } finally {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    @Test
+    void bmpRoundTripsExactly() throws Exception {
+        BufferedImage img = noise(333, 257);
+        File out = dir.resolve("canvas.bmp").toFile();
+
+        CanvasExport.write(List.of(new Layer("Background", img)), CanvasExport.Options.of(CanvasExport.Format.BMP), out);
+
+        BufferedImage back = ImageIO.read(out);
+        for (int y = 0; y < img.getHeight(); y += 7) {
+            for (int x = 0; x < img.getWidth(); x += 5) assertEquals(img.getRGB(x, y), back.getRGB(x, y));
+        }
+    }
+
+    @Test
+    void png8KeepsFewColoursExactlyAndTransparency() throws Exception {
+        BufferedImage img = new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(new Color(0x1E1E1E));
+        g.fillRect(0, 0, 150, 200);
+        g.setColor(new Color(0x3D7EFF));
+        g.fillRect(150, 0, 100, 200);
+        g.dispose();
+        File out = dir.resolve("small.png").toFile();
+
+        CanvasExport.write(List.of(new Layer("Background", img)), CanvasExport.Options.of(CanvasExport.Format.PNG8), out);
+
+        BufferedImage back = ImageIO.read(out);
+        assertInstanceOf(IndexColorModel.class, back.getColorModel());
+        assertEquals(0xFF1E1E1E, back.getRGB(10, 10));
+        assertEquals(0xFF3D7EFF, back.getRGB(200, 10));
+        assertEquals(0, back.getRGB(290, 10) >>> 24);
+    }
+
+    @Test
+    void estimateMatchesTheWrittenFile() throws Exception {
+        List<Layer> layers = List.of(new Layer("Background", noise(256, 256)));
+        for (CanvasExport.Format f : CanvasExport.Format.values()) {
+            CanvasExport.Options options = CanvasExport.Options.of(f);
+            File out = f.fileFor(dir.resolve("estimate").toFile());
+            assertEquals(f.extension, out.getName().substring(out.getName().lastIndexOf('.') + 1));
+
+            CanvasExport.Result written = CanvasExport.write(layers, options, out);
+
+            assertEquals(out.length(), written.bytes(), f.toString());
+            assertEquals(written.bytes(), CanvasExport.estimate(layers, options).bytes(), f.toString());
+        }
+    }
+
+    @Test
+    void fileNamesFollowTheChosenFormat() {
+        File png = new File("shot.png");
+        assertSame(png, CanvasExport.Format.PNG8.fileFor(png));
+        assertEquals("shot.jpg", CanvasExport.Format.JPEG.fileFor(png).getName());
+        assertEquals("shot.bmp", CanvasExport.Format.BMP.fileFor(new File("shot")).getName());
+        assertEquals("shot.v2.png", CanvasExport.Format.PNG.fileFor(new File("shot.v2")).getName());
+        File jpeg = new File("photo.JPEG");
+        assertSame(jpeg, CanvasExport.Format.JPEG.fileFor(jpeg));
+    }
+
+    /**
+     * Saves a 20000 x 20000 canvas (1.6 GB of pixels) in a JVM whose heap has room for the canvas
+     * and little else: a flattened copy would not fit.
+     */
+    @Test
+    void savesAHugeCanvasWithoutAFlattenedCopy() throws Exception {
+        File out = dir.resolve("huge.png").toFile();
+        long canvasMb = 4L * HUGE * HUGE >> 20;
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-Xmx" + (canvasMb + 160) + "m");
+        // Serial/Parallel old generations are too small for the canvas array; G1 can use the whole heap
+        cmd.add("-XX:+UseG1GC");
+        cmd.add("-Djava.awt.headless=true");
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("--add-modules") || arg.equals("--enable-preview") || arg.startsWith("-Dpaint.")) cmd.add(arg);
+        }
+        cmd.add("-cp");
+        cmd.add(location(CanvasExport.class) + File.pathSeparator + location(CanvasExportTest.class));
+        cmd.add(CanvasExportTest.class.getName());
+        cmd.add(out.getAbsolutePath());
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        String log = new String(p.getInputStream().readAllBytes());
+        assertTrue(p.waitFor(5, TimeUnit.MINUTES));
+        assertEquals(0, p.exitValue(), log);
+
+        assertEquals(new Dimension(HUGE, HUGE), RegionDecoder.size(out));
+        try (RegionDecoder d = RegionDecoder.open(out)) {
+            BufferedImage corner = d.read(new Rectangle(HUGE - 120, HUGE - 120, 120, 120), 1);
+            assertEquals(Color.WHITE.getRGB(), corner.getRGB(0, 0));
+            assertEquals(Color.RED.getRGB(), corner.getRGB(60, 60));
+        }
+    }
+
+    // Child JVM for savesAHugeCanvasWithoutAFlattenedCopy
+    public static void main(String[] args) throws Exception {
+        BufferedImage canvas = new BufferedImage(HUGE, HUGE, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(canvas);
+        PixelKernels.fill(px, 0, px.length, 0xFFFFFFFF);
+        for (int y = HUGE - 100; y < HUGE; y++) PixelKernels.fill(px, y * HUGE + HUGE - 100, 100, 0xFFFF0000);
+        long t0 = System.nanoTime();
+        CanvasExport.write(List.of(new Layer("Background", canvas)), CanvasExport.Options.of(CanvasExport.Format.PNG), new File(args[0]));
+        System.out.printf("Saved %dx%d in %.1f s%n", HUGE, HUGE, (System.nanoTime() - t0) / 1e9);
+    }
+
+    private static CanvasExport.Options withQuality(CanvasExport.Options o, float quality) {
+        return new CanvasExport.Options(o.format(), quality, o.chroma(), o.colours(), o.dither());
+    }
+
+    // HsamplingFactor x VsamplingFactor of the first (luma) component
+    private static String lumaSampling(File jpeg) throws Exception {
+        try (ImageInputStream in = ImageIO.createImageInputStream(jpeg)) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            reader.setInput(in);
+            IIOMetadata meta = reader.getImageMetadata(0);
+            Element tree = (Element) meta.getAsTree(meta.getNativeMetadataFormatName());
+            Element luma = (Element) tree.getElementsByTagName("componentSpec").item(0);
+            reader.dispose();
+            return luma.getAttribute("HsamplingFactor") + "x" + luma.getAttribute("VsamplingFactor");
+        }
+    }
+
+    private static BufferedImage noise(int w, int h) {
+        Random rnd = new Random(w * 31L + h);
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        for (int i = 0; i < px.length; i++) px[i] = 0xFF000000 | rnd.nextInt(0x1000000);
+        return img;
+    }
+
+    private static String location(Class<?> c) throws Exception {
+        return Path.of(c.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+}
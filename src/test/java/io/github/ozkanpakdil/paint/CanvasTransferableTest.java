@@ -0,0 +1,91 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CanvasTransferableTest {
+    private DrawArea area;
+
+    @BeforeEach
+    void setUp() {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        area = new DrawArea();
+        area.resizeCanvas(120, 80);
+        DrawArea.cache.setRGB(5, 5, Color.RED.getRGB());
+        DrawArea.cache.setRGB(6, 5, 0x80336699);
+    }
+
+    @Test
+    void offersPngBytesFirstAndTheImage() throws Exception {
+        CanvasTransferable t = area.clipboardContents();
+        DataFlavor[] flavors = t.getTransferDataFlavors();
+        assertEquals(CanvasTransferable.PNG_FLAVOR, flavors[0]);
+        assertEquals(DataFlavor.imageFlavor, flavors[1]);
+        assertEquals("image/png", CanvasTransferable.PNG_FLAVOR.getMimeType().split(";")[0]);
+        assertTrue(CanvasTransferable.PNG_FLAVOR.isRepresentationClassInputStream());
+
+        BufferedImage img = (BufferedImage) t.getTransferData(DataFlavor.imageFlavor);
+        BufferedImage decoded;
+        try (InputStream in = (InputStream) t.getTransferData(CanvasTransferable.PNG_FLAVOR)) {
+            decoded = ImageIO.read(in);
+        }
+        assertEquals(120, decoded.getWidth());
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) assertEquals(img.getRGB(x, y), decoded.getRGB(x, y));
+        }
+        assertThrows(UnsupportedFlavorException.class, () -> t.getTransferData(DataFlavor.stringFlavor));
+    }
+
+    @Test
+    void pastesShareOneEncoding() throws Exception {
+        CanvasTransferable t = area.clipboardContents();
+        assertSame(t.png(), t.png());
+    }
+
+    @Test
+    void copyingUnchangedPixelsAgainReusesTheContents() {
+        CanvasTransferable first = area.clipboardContents();
+        assertSame(first, area.clipboardContents());
+
+        area.selectAll();
+        area.fillSelection();
+        CanvasTransferable second = area.clipboardContents();
+        assertNotSame(first, second);
+        assertEquals(Color.RED.getRGB(), first.image().getRGB(5, 5), "earlier contents keep the pixels copied");
+        assertEquals(Color.BLACK.getRGB(), second.image().getRGB(5, 5));
+    }
+
+    @Test
+    void copyingTwiceThroughAClipboardKeepsTheEncodedPng() throws Exception {
+        Clipboard clipboard = new Clipboard("test");
+        area.copyTo(clipboard);
+        CanvasTransferable first = (CanvasTransferable) clipboard.getContents(null);
+        byte[] png = first.png();
+
+        area.copyTo(clipboard);
+        // Ownership changes are reported on the EDT
+        SwingUtilities.invokeAndWait(() -> { });
+
+        assertSame(first, clipboard.getContents(null));
+        assertSame(first, area.clipboardContents());
+        assertSame(png, ((CanvasTransferable) clipboard.getContents(null)).png());
+
+        // Once something else takes the clipboard the copy is let go
+        clipboard.setContents(new StringSelection("elsewhere"), null);
+        SwingUtilities.invokeAndWait(() -> { });
+        assertNotSame(first, area.clipboardContents());
+    }
+}
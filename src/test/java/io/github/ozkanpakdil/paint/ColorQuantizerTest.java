@@ -0,0 +1,109 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.IndexColorModel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColorQuantizerTest {
+
+    @Test
+    void gradientIsReducedToTheRequestedColours() {
+        // Red across, green down: 64 colours cover it as an 8 x 8 grid
+        int w = 512, h = 256;
+        int[] argb = gradient(w, h);
+        for (int i = 0; i < argb.length; i++) argb[i] = argb[i] & 0xFFFFFF00 | 0x80;
+        ColorQuantizer.Histogram hist = new ColorQuantizer.Histogram();
+        hist.add(argb, argb.length);
+
+        ColorQuantizer.Palette palette = hist.palette(64);
+        IndexColorModel model = palette.model();
+        assertTrue(model.getMapSize() <= 64);
+        byte[] indices = new byte[argb.length];
+        palette.map(argb, w, 0, h, indices, false);
+
+        // Every pixel lands on a nearby palette colour
+        double error = 0;
+        for (int i = 0; i < argb.length; i++) error += distance(argb[i], model.getRGB(indices[i] & 0xFF));
+        assertTrue(error / argb.length < 16, "mean error " + error / argb.length);
+    }
+
+    @Test
+    void histogramIsTheSameWhetherFedAtOnceOrInStrips() {
+        int w = 800, h = 600;
+        int[] argb = gradient(w, h);
+        ColorQuantizer.Histogram whole = new ColorQuantizer.Histogram();
+        whole.add(argb, argb.length);
+        ColorQuantizer.Histogram strips = new ColorQuantizer.Histogram();
+        int[] strip = new int[w * 37];
+        for (int y0 = 0; y0 < h; y0 += 37) {
+            int rows = Math.min(37, h - y0);
+            System.arraycopy(argb, y0 * w, strip, 0, rows * w);
+            strips.add(strip, rows * w);
+        }
+
+        IndexColorModel a = whole.palette(100).model();
+        IndexColorModel b = strips.palette(100).model();
+        assertEquals(a.getMapSize(), b.getMapSize());
+        for (int i = 0; i < a.getMapSize(); i++) assertEquals(a.getRGB(i), b.getRGB(i));
+    }
+
+    @Test
+    void orderedDitherKeepsTheAverageColourOfFlatAreas() {
+        // A grey between two palette entries: plain mapping snaps it, dithering mixes the two
+        int w = 64, h = 64;
+        int[] argb = new int[w * h];
+        for (int i = 0; i < argb.length; i++) argb[i] = i % 2 == 0 ? 0xFF000000 : 0xFFFFFFFF;
+        ColorQuantizer.Histogram hist = new ColorQuantizer.Histogram();
+        hist.add(argb, argb.length);
+        ColorQuantizer.Palette palette = hist.palette(2);
+        int[] grey = new int[w * h];
+        java.util.Arrays.fill(grey, 0xFF606060);
+
+        byte[] plain = new byte[grey.length];
+        palette.map(grey, w, 0, h, plain, false);
+        byte[] dithered = new byte[grey.length];
+        palette.map(grey, w, 0, h, dithered, true);
+
+        assertEquals(0, meanGrey(palette.model(), plain));
+        double mean = meanGrey(palette.model(), dithered);
+        assertTrue(Math.abs(mean - 0x60) < 24, "mean " + mean);
+    }
+
+    @Test
+    void translucentPixelsShareOneTransparentEntry() {
+        int[] argb = {0x00000000, 0x40FF0000, 0xFFFF0000, 0xFF00FF00};
+        ColorQuantizer.Histogram hist = new ColorQuantizer.Histogram();
+        hist.add(argb, argb.length);
+
+        ColorQuantizer.Palette palette = hist.palette(256);
+        byte[] indices = new byte[4];
+        palette.map(argb, 4, 0, 1, indices, false);
+
+        assertEquals(3, palette.model().getMapSize());
+        assertEquals(0, palette.model().getAlpha(indices[0] & 0xFF));
+        assertEquals(indices[0], indices[1]);
+        assertEquals(0xFFFF0000, palette.model().getRGB(indices[2] & 0xFF));
+        assertEquals(0xFF00FF00, palette.model().getRGB(indices[3] & 0xFF));
+    }
+
+    private static int[] gradient(int w, int h) {
+        int[] argb = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) argb[y * w + x] = 0xFF000000 | (x * 255 / w) << 16 | (y * 255 / h) << 8 | ((x + y) & 0xFF);
+        }
+        return argb;
+    }
+
+    private static double distance(int a, int b) {
+        int dr = (a >> 16 & 0xFF) - (b >> 16 & 0xFF), dg = (a >> 8 & 0xFF) - (b >> 8 & 0xFF), db = (a & 0xFF) - (b & 0xFF);
+        return Math.sqrt(dr * dr + dg * dg + db * db);
+    }
+
+    private static double meanGrey(IndexColorModel model, byte[] indices) {
+        double sum = 0;
+        for (byte i : indices) sum += model.getGreen(i & 0xFF);
+        return sum / indices.length;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatingSelectionTest {
+    private DrawArea area;
+    // History left by the canvas resize in setUp
+    private long baseBytes;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        area = new DrawArea();
+        area.resizeCanvas(400, 300);
+        new SideMenu().selectTool(Tool.MOVE);
+        BufferedImage img = DrawArea.cache;
+        for (int y = 20; y < 60; y++) {
+            for (int x = 20; x < 60; x++) img.setRGB(x, y, Color.RED.getRGB());
+        }
+        baseBytes = PerfMetrics.undoMemoryBytes();
+    }
+
+    @Test
+    void moveIsOneUndoStepOverBothRectangles() {
+        select(20, 20, 60, 60);
+        drag(40, 40, 240, 140);
+        commit(240, 140);
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(30, 30), "the source was cut");
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(230, 130));
+
+        area.undo();
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(30, 30));
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(230, 130));
+        // One undo took back both the cut and the drop
+        assertEquals(2L * 40 * 40 * 4, PerfMetrics.undoMemoryBytes() - baseBytes, "the move sits on the redo stack");
+
+        area.redo();
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(30, 30));
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(230, 130));
+    }
+
+    @Test
+    void aMoveThatGrowsTheCanvasIsOneUndoStepToo() {
+        select(20, 20, 60, 60);
+        // Dropped 10 pixels past the right edge
+        drag(40, 40, 390, 140);
+        commit(390, 140);
+        assertEquals(410, DrawArea.cache.getWidth());
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(30, 30), "the source was cut");
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(405, 130));
+
+        area.undo();
+        assertEquals(400, DrawArea.cache.getWidth());
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(30, 30));
+
+        area.redo();
+        assertEquals(410, DrawArea.cache.getWidth());
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(30, 30));
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(405, 130));
+    }
+
+    @Test
+    void historyHoldsOnlyTheTwoRectangles() {
+        select(20, 20, 60, 60);
+        drag(40, 40, 240, 140);
+        commit(240, 140);
+        // Source and destination, 40 x 40 ARGB each, instead of the 400 x 300 layer
+        assertEquals(2L * 40 * 40 * 4, PerfMetrics.undoMemoryBytes() - baseBytes);
+    }
+
+    @Test
+    void cancelRestoresTheSourceAndLeavesNoHistory() {
+        select(20, 20, 60, 60);
+        drag(40, 40, 240, 140);
+        area.getActionMap().get("cancelPlacement").actionPerformed(new ActionEvent(area, ActionEvent.ACTION_PERFORMED, null));
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(30, 30));
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(230, 130));
+        assertEquals(baseBytes, PerfMetrics.undoMemoryBytes(), "the cut left history with the cancel");
+    }
+
+    @Test
+    void translucentPixelsSurviveTheRoundTrip() {
+        int glass = 0x80336699;
+        DrawArea.cache.setRGB(30, 30, glass);
+        select(20, 20, 60, 60);
+        drag(40, 40, 240, 140);
+        commit(240, 140);
+        area.undo();
+        assertEquals(glass, DrawArea.cache.getRGB(30, 30));
+    }
+
+    private void select(int x0, int y0, int x1, int y1) {
+        area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, x0, y0, 0, 1));
+        area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, x1, y1, MouseEvent.BUTTON1_DOWN_MASK, 1));
+        area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, x1, y1, 0, 1));
+    }
+
+    private void drag(int fromX, int fromY, int toX, int toY) {
+        area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, fromX, fromY, 0, 1));
+        area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, toX, toY, MouseEvent.BUTTON1_DOWN_MASK, 1));
+        area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, toX, toY, 0, 1));
+    }
+
+    private void commit(int x, int y) {
+        area.mouseClicked(mouse(MouseEvent.MOUSE_CLICKED, x, y, 0, 2));
+    }
+
+    private MouseEvent mouse(int id, int x, int y, int mods, int clicks) {
+        return new MouseEvent(area, id, System.currentTimeMillis(), mods, x, y, clicks, false, MouseEvent.BUTTON1);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class IconAtlasTest {
+
+    @Test
+    void atlasIsGeneratedAtBuildTime() {
+        assertNotNull(IconAtlas.class.getResource(IconAtlas.RESOURCE), "icons.atlas should be produced by the build");
+        assertTrue(IconAtlas.isAvailable(), "atlas should parse");
+    }
+
+    @Test
+    void exactSizeMatchesRuntimeScaledResource() throws Exception {
+        assumeTrue(IconAtlas.isAvailable(), "atlas not generated");
+        BufferedImage fromAtlas = IconAtlas.icon("pencil.png", 24, 24);
+        assertNotNull(fromAtlas);
+        assertEquals(24, fromAtlas.getWidth());
+        assertEquals(24, fromAtlas.getHeight());
+
+        // Reference: what GUI.makeIconButton used to compute at startup
+        BufferedImage src;
+        try (InputStream in = IconAtlas.class.getResourceAsStream("/images/pencil.png")) {
+            src = ImageIO.read(in);
+        }
+        Image scaled = new ImageIcon(src.getScaledInstance(24, 24, Image.SCALE_SMOOTH)).getImage();
+        BufferedImage ref = new BufferedImage(24, 24, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = ref.createGraphics();
+        g.drawImage(scaled, 0, 0, null);
+        g.dispose();
+
+        for (int y = 0; y < 24; y++) {
+            for (int x = 0; x < 24; x++) {
+                assertEquals(ref.getRGB(x, y), fromAtlas.getRGB(x, y), "pixel mismatch at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void nonAtlasSizeIsDerivedAndMissingIconIsNull() {
+        assumeTrue(IconAtlas.isAvailable(), "atlas not generated");
+        BufferedImage odd = IconAtlas.icon("upload.jpeg", 50, 50);
+        assertNotNull(odd);
+        assertEquals(50, odd.getWidth());
+        assertEquals(50, odd.getHeight());
+        assertNull(IconAtlas.icon("does-not-exist.png", 24, 24));
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.ozkanpakdil.paint;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter throughput on a 2048 x 2048 image: {@code mvn -Pbench -DskipTests verify
+ * -Djmh.args=ImageFilters}. Each operation is one pixel and times are in microseconds, so the
+ * ops/us score reads directly as megapixels per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(ImageFiltersBenchmark.W * ImageFiltersBenchmark.H)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class ImageFiltersBenchmark {
+    static final int W = 2048;
+    static final int H = 2048;
+
+    @Param({"GAUSSIAN_BLUR", "BOX_BLUR", "UNSHARP_MASK"})
+    public ImageFilters.Kind kind;
+
+    // 2 uses the exact Gaussian kernel, 20 the three-box approximation
+    @Param({"2", "20"})
+    public float radius;
+
+    private int[] source;
+    private int[] work;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        source = new int[W * H];
+        for (int i = 0; i < source.length; i++) source[i] = 0xFF000000 | rnd.nextInt(0x1000000);
+        work = new int[source.length];
+    }
+
+    @Benchmark
+    public int[] filter() {
+        System.arraycopy(source, 0, work, 0, source.length);
+        ImageFilters.filter(work, W, H, new ImageFilters.Filter(kind, radius, 1f));
+        return work;
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageFiltersTest {
+
+    @Test
+    void flatImagesStayFlat() {
+        for (ImageFilters.Kind kind : ImageFilters.Kind.values()) {
+            for (float radius : new float[]{1, 3, 12}) {
+                int[] px = new int[70 * 50];
+                Arrays.fill(px, 0xFF336699);
+                ImageFilters.filter(px, 70, 50, new ImageFilters.Filter(kind, radius, 1f));
+                for (int p : px) assertEquals(0xFF336699, p, kind + " r=" + radius);
+            }
+        }
+    }
+
+    @Test
+    void blurSpreadsADotSymmetrically() {
+        for (ImageFilters.Kind kind : new ImageFilters.Kind[]{ImageFilters.Kind.GAUSSIAN_BLUR, ImageFilters.Kind.BOX_BLUR}) {
+            for (float radius : new float[]{2, 6}) {
+                int w = 41, h = 41;
+                int[] px = new int[w * h];
+                Arrays.fill(px, 0xFF000000);
+                px[20 * w + 20] = 0xFFFFFFFF;
+                ImageFilters.filter(px, w, h, new ImageFilters.Filter(kind, radius, 1f));
+                int centre = px[20 * w + 20] & 0xFF;
+                assertTrue(centre < 255 && centre > 0, kind + " centre " + centre);
+                for (int d = 1; d < 20; d++) {
+                    int right = px[20 * w + 20 + d];
+                    assertEquals(right, px[20 * w + 20 - d], kind + " left/right " + d);
+                    int down = px[(20 + d) * w + 20];
+                    assertEquals(down, px[(20 - d) * w + 20], kind + " up/down " + d);
+                    // The passes round to 8 bits in between, so rows and columns may differ by one
+                    assertEquals(right & 0xFF, down & 0xFF, 1, kind + " right/down " + d);
+                }
+            }
+        }
+    }
+
+    @Test
+    void stripesGiveTheSameResultAsOneThread() {
+        // Tall and wide enough to be split into several stripes each way
+        int w = 150, h = 130;
+        int[] px = PixelKernelsTest.pixels(new java.util.Random(5), w * h);
+        int[] whole = px.clone();
+        ImageFilters.Filter f = new ImageFilters.Filter(ImageFilters.Kind.GAUSSIAN_BLUR, 2.5f, 1f);
+        ImageFilters.filter(whole, w, h, f);
+        // Filter each half of a copy in isolation: the top rows of the full result must match
+        // wherever the kernel did not reach the other half
+        int[] top = Arrays.copyOf(px, w * 60);
+        ImageFilters.filter(top, w, 60, f);
+        int reach = (int) Math.ceil(3 * 2.5f);
+        for (int i = 0; i < w * (60 - reach); i++) assertEquals(whole[i], top[i], "pixel " + i);
+    }
+
+    @Test
+    void onlyTheRegionChanges() {
+        BufferedImage src = new BufferedImage(60, 40, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 60; x++) src.setRGB(x, y, (x + y) % 2 == 0 ? 0xFFFFFFFF : 0xFF000000);
+        }
+        Rectangle region = new Rectangle(10, 5, 20, 15);
+        BufferedImage out = ImageFilters.apply(src, region,
+                new ImageFilters.Filter(ImageFilters.Kind.BOX_BLUR, 1, 1f));
+        assertNotSame(src, out);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 60; x++) {
+                if (region.contains(x, y)) {
+                    int c = out.getRGB(x, y) & 0xFF;
+                    assertTrue(c > 0 && c < 255, "blurred at " + x + "," + y);
+                } else {
+                    assertEquals(src.getRGB(x, y), out.getRGB(x, y), "untouched at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void transparentNeighboursDoNotDarkenColours() {
+        int w = 21;
+        int[] px = new int[w * w];
+        px[10 * w + 10] = 0xFFFF0000;
+        ImageFilters.filter(px, w, w, new ImageFilters.Filter(ImageFilters.Kind.GAUSSIAN_BLUR, 2, 1f));
+        for (int p : px) {
+            if (p >>> 24 == 0) continue;
+            // Pure red fading out, never towards black
+            assertTrue((p >> 16 & 0xFF) >= 250, Integer.toHexString(p));
+            assertEquals(0, p & 0xFFFF, Integer.toHexString(p));
+        }
+    }
+
+    @Test
+    void unsharpMaskIncreasesEdgeContrast() {
+        int w = 40, h = 10;
+        int[] px = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) px[y * w + x] = x < 20 ? 0xFF404040 : 0xFFC0C0C0;
+        }
+        ImageFilters.filter(px, w, h, new ImageFilters.Filter(ImageFilters.Kind.UNSHARP_MASK, 2, 1f));
+        int dark = px[5 * w + 19] & 0xFF;
+        int light = px[5 * w + 20] & 0xFF;
+        assertTrue(dark < 0x40, "dark side " + dark);
+        assertTrue(light > 0xC0, "light side " + light);
+        // Far from the edge nothing changes
+        assertEquals(0xFF404040, px[5 * w]);
+        assertEquals(0xFFC0C0C0, px[5 * w + w - 1]);
+    }
+
+    @Test
+    void drawAreaFilterIsUndoable() {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(40, 30);
+        DrawArea.cache.setRGB(20, 15, 0xFF000000);
+        area.applyFilter(new ImageFilters.Filter(ImageFilters.Kind.GAUSSIAN_BLUR, 1.5f, 1f));
+        int blurred = DrawArea.cache.getRGB(21, 15);
+        assertNotEquals(0xFFFFFFFF, blurred);
+        assertNotEquals(0xFF000000, DrawArea.cache.getRGB(20, 15));
+        area.undo();
+        assertEquals(0xFF000000, DrawArea.cache.getRGB(20, 15));
+        assertEquals(0xFFFFFFFF, DrawArea.cache.getRGB(21, 15));
+    }
+
+    @Test
+    void gaussianKernelIsNormalisedAndSymmetric() {
+        for (float sigma : new float[]{0.5f, 1, 2.7f, 4}) {
+            int[] k = ImageFilters.gaussianKernel(sigma);
+            assertEquals(65536, Arrays.stream(k).sum());
+            for (int i = 0; i < k.length / 2; i++) assertEquals(k[i], k[k.length - 1 - i]);
+        }
+    }
+
+    @Test
+    void boxRadiiMatchTheGaussianVariance() {
+        for (float sigma : new float[]{5, 10, 25}) {
+            int[] radii = ImageFilters.boxRadiiForGaussian(sigma, 3);
+            double variance = 0;
+            for (int r : radii) {
+                int size = 2 * r + 1;
+                variance += (size * size - 1) / 12.0;
+            }
+            assertEquals(sigma, Math.sqrt(variance), 0.6, "sigma " + sigma);
+        }
+    }
+}
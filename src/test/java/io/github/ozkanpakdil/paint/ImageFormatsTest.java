@@ -0,0 +1,88 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageFormatsTest {
+    private static final int[] TYPES = {
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_USHORT_GRAY,
+    };
+
+    @Test
+    void everyFormatConvertsToWhatJava2DDraws() {
+        for (int type : TYPES) {
+            BufferedImage src = random(new Random(type), 301, 203, type);
+            assertSameAsDrawn(src, "type " + type);
+        }
+    }
+
+    @Test
+    void subimagesUseTheirOwnOrigin() {
+        for (int type : new int[]{BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_INT_ARGB}) {
+            BufferedImage src = random(new Random(type), 120, 90, type);
+            assertSameAsDrawn(src.getSubimage(13, 7, 61, 40), "subimage of type " + type);
+        }
+    }
+
+    @Test
+    void plainIntArgbIsReturnedAsIs() {
+        BufferedImage img = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        assertSame(img, ImageFormats.toIntArgb(img));
+        assertTrue(ImageFormats.isPlainIntArgb(img));
+        assertFalse(ImageFormats.isPlainIntArgb(img.getSubimage(1, 1, 5, 5)));
+    }
+
+    private static void assertSameAsDrawn(BufferedImage src, String what) {
+        BufferedImage expected = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = expected.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        BufferedImage out = ImageFormats.toIntArgb(src);
+        assertTrue(ImageFormats.isPlainIntArgb(out), what);
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int o = out.getRGB(x, y);
+                if (src.isAlphaPremultiplied()) {
+                    // Un-premultiplying may round a channel the other way from Java2D's tables
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        assertEquals(e >>> shift & 0xFF, o >>> shift & 0xFF, 1, what + " at " + x + "," + y);
+                    }
+                } else {
+                    assertEquals(e, o, what + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    private static BufferedImage random(Random rnd, int w, int h, int type) {
+        BufferedImage img = new BufferedImage(w, h, type);
+        WritableRaster r = img.getRaster();
+        int bands = r.getNumBands();
+        int[] sizes = img.getSampleModel().getSampleSize();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                for (int b = 0; b < bands; b++) r.setSample(x, y, b, rnd.nextInt(1 << sizes[b]));
+            }
+        }
+        if (type == BufferedImage.TYPE_INT_ARGB_PRE) {
+            // Keep the colour samples within the alpha, as premultiplied pixels are
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    int a = r.getSample(x, y, 3);
+                    for (int b = 0; b < 3; b++) r.setSample(x, y, b, r.getSample(x, y, b) * a / 255);
+                }
+            }
+        }
+        return img;
+    }
+}
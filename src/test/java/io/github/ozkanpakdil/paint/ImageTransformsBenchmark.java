@@ -0,0 +1,51 @@
+package io.github.ozkanpakdil.paint;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 90-degree rotation of a 64-megapixel image, cache-blocked and parallel versus a plain
+ * row-by-row loop: {@code mvn -Pbench -DskipTests verify -Djmh.args=ImageTransforms}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx3g"})
+@State(Scope.Benchmark)
+public class ImageTransformsBenchmark {
+    private static final int W = 8192;
+    private static final int H = 8192;
+
+    private BufferedImage source;
+
+    @Setup
+    public void setUp() {
+        source = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(source);
+        for (int i = 0; i < px.length; i++) px[i] = 0xFF000000 | i;
+    }
+
+    @Benchmark
+    public BufferedImage rotateBlocked() {
+        return ImageTransforms.apply(source, ImageTransforms.Op.ROTATE_CW);
+    }
+
+    @Benchmark
+    public BufferedImage rotateNaive() {
+        BufferedImage out = new BufferedImage(H, W, BufferedImage.TYPE_INT_ARGB);
+        int[] in = LayerCompositor.pixels(source);
+        int[] px = LayerCompositor.pixels(out);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) px[x * H + H - 1 - y] = in[y * W + x];
+        }
+        return out;
+    }
+
+    @Benchmark
+    public BufferedImage flipHorizontal() {
+        return ImageTransforms.apply(source, ImageTransforms.Op.FLIP_HORIZONTAL);
+    }
+}
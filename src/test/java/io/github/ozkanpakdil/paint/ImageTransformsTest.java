@@ -0,0 +1,87 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageTransformsTest {
+
+    @Test
+    void everyOpMatchesTheDirectMapping() {
+        // Sizes that are not multiples of the tile or stripe exercise the partial blocks
+        for (int[] size : new int[][]{{1, 1}, {3, 200}, {131, 67}, {200, 3}}) {
+            int w = size[0], h = size[1];
+            BufferedImage src = random(w, h, new Random(w * 31 + h));
+            for (ImageTransforms.Op op : ImageTransforms.Op.values()) {
+                BufferedImage out = ImageTransforms.apply(src, op);
+                assertEquals(op.swapsSize ? h : w, out.getWidth(), op.toString());
+                assertEquals(op.swapsSize ? w : h, out.getHeight(), op.toString());
+                for (int y = 0; y < h; y++) {
+                    for (int x = 0; x < w; x++) {
+                        Point p = switch (op) {
+                            case ROTATE_CW -> new Point(h - 1 - y, x);
+                            case ROTATE_180 -> new Point(w - 1 - x, h - 1 - y);
+                            case ROTATE_CCW -> new Point(y, w - 1 - x);
+                            case FLIP_HORIZONTAL -> new Point(w - 1 - x, y);
+                            case FLIP_VERTICAL -> new Point(x, h - 1 - y);
+                        };
+                        assertEquals(src.getRGB(x, y), out.getRGB(p.x, p.y), op + " " + w + "x" + h + " at " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void fourQuarterTurnsAreTheIdentity() {
+        BufferedImage src = random(97, 45, new Random(3));
+        BufferedImage img = src;
+        for (int i = 0; i < 4; i++) img = ImageTransforms.apply(img, ImageTransforms.Op.ROTATE_CW);
+        assertArrayEquals(LayerCompositor.pixels(src), LayerCompositor.pixels(img));
+        img = ImageTransforms.apply(ImageTransforms.apply(src, ImageTransforms.Op.ROTATE_CCW), ImageTransforms.Op.ROTATE_CW);
+        assertArrayEquals(LayerCompositor.pixels(src), LayerCompositor.pixels(img));
+    }
+
+    @Test
+    void subimagesAreReadThroughTheirOwnBounds() {
+        BufferedImage src = random(40, 30, new Random(4));
+        BufferedImage sub = src.getSubimage(5, 7, 10, 6);
+        BufferedImage out = ImageTransforms.apply(sub, ImageTransforms.Op.FLIP_HORIZONTAL);
+        assertEquals(src.getRGB(5, 7), out.getRGB(9, 0));
+    }
+
+    @Test
+    void rotatingTheCanvasSwapsItsSizeAndUndoes() {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(100, 50);
+        DrawArea.cache.setRGB(0, 0, 0xFF000000);
+        DrawArea.highlightLayer.setRGB(99, 0, 0xFFFFFF00);
+        java.util.List<Object> sizes = new java.util.ArrayList<>();
+        area.addPropertyChangeListener("canvasSize", e -> sizes.add(e.getNewValue()));
+
+        area.transform(ImageTransforms.Op.ROTATE_CW);
+        assertEquals(50, area.getCanvasWidth());
+        assertEquals(100, area.getCanvasHeight());
+        assertEquals(java.util.List.of(new Dimension(50, 100)), sizes);
+        assertEquals(0xFF000000, DrawArea.cache.getRGB(49, 0));
+        assertEquals(0xFFFFFF00, DrawArea.highlightLayer.getRGB(49, 99));
+
+        area.undo();
+        assertEquals(100, area.getCanvasWidth());
+        assertEquals(0xFF000000, DrawArea.cache.getRGB(0, 0));
+        assertEquals(0xFFFFFF00, DrawArea.highlightLayer.getRGB(99, 0));
+    }
+
+    private static BufferedImage random(int w, int h, Random rnd) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        for (int i = 0; i < px.length; i++) px[i] = rnd.nextInt();
+        return img;
+    }
+}
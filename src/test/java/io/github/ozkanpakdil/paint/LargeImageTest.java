@@ -0,0 +1,266 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LargeImageTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void tileCacheEvictsLeastRecentlyUsedByBytes() {
+        TileCache<Integer> cache = new TileCache<>(3 * 64 * 64 * 4);
+        for (int i = 0; i < 3; i++) cache.put(i, new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB));
+        assertNotNull(cache.get(0)); // 1 is now the eldest
+        cache.put(3, new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB));
+
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(0));
+        assertEquals(3, cache.size());
+        assertTrue(cache.bytes() <= cache.budget());
+
+        // A tile bigger than the budget pushes everything else out but stays itself
+        cache.put(9, new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(9));
+    }
+
+    @Test
+    void regionDecoderReadsRegionsAndSubsamples() throws Exception {
+        File f = gradient(300, 200);
+        assertEquals(new Dimension(300, 200), RegionDecoder.size(f));
+        try (RegionDecoder d = RegionDecoder.open(f)) {
+            BufferedImage region = d.read(new Rectangle(100, 50, 40, 30), 1);
+            assertEquals(40, region.getWidth());
+            assertEquals(30, region.getHeight());
+            assertEquals(BufferedImage.TYPE_INT_ARGB, region.getType());
+            assertEquals(pixel(100, 50), region.getRGB(0, 0));
+            assertEquals(pixel(139, 79), region.getRGB(39, 29));
+
+            BufferedImage quarter = d.read(new Rectangle(0, 0, 300, 200), 4);
+            assertEquals(75, quarter.getWidth());
+            assertEquals(50, quarter.getHeight());
+            assertEquals(pixel(8, 12), quarter.getRGB(2, 3));
+
+            // Clipped to the image
+            assertEquals(new Dimension(20, 10), dimension(d.read(new Rectangle(280, 190, 100, 100), 1)));
+        }
+        File text = dir.resolve("readme.png").toFile();
+        Files.writeString(text.toPath(), "not an image");
+        assertNull(RegionDecoder.size(text));
+    }
+
+    @Test
+    void pngRowsReadLikeTheWholeImage() throws Exception {
+        // Odd width, so sub-byte rows end part way through a byte
+        int w = 173, h = 61;
+        Random rnd = new Random(3);
+        List<BufferedImage> images = new ArrayList<>();
+        images.add(new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB));
+        images.add(new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB));
+        images.add(new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY));
+        images.add(new BufferedImage(w, h, BufferedImage.TYPE_USHORT_GRAY));
+        images.add(new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY));
+        byte[] r = {0, (byte) 255, 0, 60}, g = {0, 0, (byte) 200, 60}, b = {0, 0, 0, (byte) 250};
+        images.add(new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY, new IndexColorModel(2, 4, r, g, b)));
+        // Index 0 transparent, written as tRNS
+        images.add(new BufferedImage(w, h, BufferedImage.TYPE_BYTE_INDEXED, new IndexColorModel(8, 4, r, g, b, 0)));
+        for (BufferedImage img : images) {
+            WritableRaster raster = img.getRaster();
+            int max = (1 << img.getColorModel().getComponentSize(0)) - 1;
+            if (img.getColorModel() instanceof IndexColorModel icm) max = icm.getMapSize() - 1;
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    // Smooth in places and noisy in others, so the writer picks various filters
+                    int v = y % 3 == 0 ? rnd.nextInt() : x * 7 + y;
+                    if (img.getType() == BufferedImage.TYPE_INT_ARGB || img.getType() == BufferedImage.TYPE_INT_RGB) {
+                        img.setRGB(x, y, y % 3 == 0 ? v : 0x80000000 | pixel(x, y));
+                    } else {
+                        raster.setSample(x, y, 0, Math.floorMod(v, max + 1));
+                    }
+                }
+            }
+            File f = dir.resolve("rows-" + img.getType() + "-" + images.indexOf(img) + ".png").toFile();
+            assertTrue(ImageIO.write(img, "png", f));
+
+            int[] row = new int[w];
+            try (PngRowReader reader = PngRowReader.open(f)) {
+                assertNotNull(reader);
+                assertEquals(w, reader.width());
+                assertEquals(h, reader.height());
+                for (int y = 0; y < h; y++) {
+                    assertEquals(y, reader.row());
+                    reader.read(row, 0);
+                    for (int x = 0; x < w; x++) {
+                        assertEquals(expected(img, x, y), row[x], "type " + img.getType() + " at " + x + "," + y);
+                    }
+                }
+            }
+        }
+        File text = dir.resolve("text.png").toFile();
+        Files.writeString(text.toPath(), "not an image");
+        assertNull(PngRowReader.open(text));
+    }
+
+    @Test
+    void pngRegionsAreReadUpAndDownTheImage() throws Exception {
+        File f = gradient(300, 200);
+        try (RegionDecoder d = RegionDecoder.open(f)) {
+            assertFalse(d.randomAccess());
+            BufferedImage low = d.read(new Rectangle(17, 150, 40, 30), 1);
+            assertEquals(pixel(17, 150), low.getRGB(0, 0));
+            assertEquals(pixel(56, 179), low.getRGB(39, 29));
+
+            // Above the last read, subsampled from an odd row
+            BufferedImage high = d.read(new Rectangle(3, 5, 100, 50), 4);
+            assertEquals(new Dimension(25, 13), dimension(high));
+            assertEquals(pixel(3, 5), high.getRGB(0, 0));
+            assertEquals(pixel(3 + 4 * 24, 5 + 4 * 12), high.getRGB(24, 12));
+
+            // A pass over the whole image, going back once as a writer might
+            int[] rows = new int[300 * 10];
+            try (RegionDecoder.Rows pass = d.rows()) {
+                pass.rows(0, 10, rows);
+                assertEquals(pixel(299, 9), rows[9 * 300 + 299]);
+                pass.rows(190, 10, rows);
+                assertEquals(pixel(120, 195), rows[5 * 300 + 120]);
+                pass.rows(40, 10, rows);
+                assertEquals(pixel(7, 40), rows[7]);
+            }
+        }
+    }
+
+    @Test
+    void oneTileOfAPngBringsItsRowOfTilesWithIt() throws Exception {
+        int span = LargeImageView.TILE;
+        File f = gradient(3 * span + 10, span + 10);
+        // Closing the view closes the decoder
+        LargeImageView view = new LargeImageView(RegionDecoder.open(f), 64 << 20);
+        try {
+            view.setSize(view.getPreferredSize());
+            BufferedImage screen = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = screen.createGraphics();
+            g.setClip(0, 0, 100, 100);
+
+            view.paint(g);
+            g.dispose();
+
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (view.cache().size() < 4 && System.nanoTime() < deadline) Thread.sleep(10);
+            assertEquals(4, view.cache().size());
+            BufferedImage last = view.cache().get(new LargeImageView.TileKey(0, 3, 0));
+            assertEquals(new Dimension(10, span), dimension(last));
+            assertEquals(pixel(3 * span + 9, span - 1), last.getRGB(9, span - 1));
+        } finally {
+            view.close();
+        }
+    }
+
+    @Test
+    void overlayOnlyAllocatesTouchedTiles() {
+        SparseOverlay overlay = new SparseOverlay(30_000, 30_000);
+        Rectangle touched = overlay.draw(new Line2D.Double(10, 10, 400, 10), Color.RED, new BasicStroke(4));
+
+        assertTrue(touched.contains(400, 10));
+        assertEquals(2, overlay.tileCount());
+        assertEquals(2L * SparseOverlay.TILE * SparseOverlay.TILE * 4, overlay.bytes());
+
+        int[] rows = new int[30_000 * 4];
+        java.util.Arrays.fill(rows, 0xFF0000FF);
+        overlay.composeInto(rows, 8, 4);
+        assertEquals(0xFFFF0000, rows[2 * 30_000 + 200]); // row 10
+        assertEquals(0xFF0000FF, rows[2 * 30_000 + 600]);
+    }
+
+    @Test
+    void streamedImageIsWrittenAStripAtATime() throws Exception {
+        int w = 1500, h = 2000;
+        List<Integer> requested = new ArrayList<>();
+        StreamedImage image = new StreamedImage(w, h, (y0, count, argb) -> {
+            requested.add(y0);
+            for (int y = 0; y < count; y++) {
+                for (int x = 0; x < w; x++) argb[y * w + x] = pixel(x, y0 + y);
+            }
+        });
+        assertTrue(image.stripRows() < h);
+        File out = dir.resolve("streamed.png").toFile();
+
+        assertTrue(ImageIO.write(image, "png", out));
+
+        // Each strip once, in order
+        int strips = (h + image.stripRows() - 1) / image.stripRows();
+        assertEquals(strips, requested.size());
+        for (int i = 0; i < strips; i++) assertEquals(i * image.stripRows(), requested.get(i));
+        BufferedImage back = ImageIO.read(out);
+        assertEquals(pixel(0, 0), back.getRGB(0, 0));
+        assertEquals(pixel(1234, 1777), back.getRGB(1234, 1777));
+        assertEquals(pixel(w - 1, h - 1), back.getRGB(w - 1, h - 1));
+    }
+
+    @Test
+    void exportLaysAnnotationsOverTheDecodedImage() throws Exception {
+        File f = gradient(600, 500);
+        try (RegionDecoder d = RegionDecoder.open(f)) {
+            LargeImageView view = new LargeImageView(d, 1 << 20);
+            view.overlay().draw(new Rectangle(300, 300, 20, 20), Color.GREEN, new BasicStroke(6));
+            File out = dir.resolve("export.png").toFile();
+
+            view.export(out);
+
+            BufferedImage back = ImageIO.read(out);
+            assertEquals(new Dimension(600, 500), dimension(back));
+            assertEquals(Color.GREEN.getRGB(), back.getRGB(300, 310));
+            assertEquals(pixel(10, 10), back.getRGB(10, 10));
+            assertEquals(pixel(310, 310), back.getRGB(310, 310));
+        }
+    }
+
+    @Test
+    void onlyImagesBeyondTheThresholdAreStreamed() {
+        assertFalse(LargeImageView.needsStreaming(new Dimension(100, 100)));
+        long side = (long) Math.sqrt(LargeImageView.STREAM_THRESHOLD / 4.0) + 2;
+        assertTrue(LargeImageView.needsStreaming(new Dimension((int) side, (int) side)));
+    }
+
+    // What a row reader should make of pixel (x, y): grey levels as stored, 16 bits cut to their high byte
+    private static int expected(BufferedImage img, int x, int y) {
+        return switch (img.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY -> 0xFF000000 | img.getRaster().getSample(x, y, 0) * 0x010101;
+            case BufferedImage.TYPE_USHORT_GRAY -> 0xFF000000 | (img.getRaster().getSample(x, y, 0) >> 8) * 0x010101;
+            default -> img.getRGB(x, y);
+        };
+    }
+
+    private static int pixel(int x, int y) {
+        return 0xFF000000 | (x & 0xFF) << 16 | (y & 0xFF) << 8 | ((x + y) & 0xFF);
+    }
+
+    private static Dimension dimension(BufferedImage img) {
+        return new Dimension(img.getWidth(), img.getHeight());
+    }
+
+    private File gradient(int w, int h) throws Exception {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) img.setRGB(x, y, pixel(x, y));
+        }
+        File f = dir.resolve("gradient-" + w + "x" + h + ".png").toFile();
+        ImageIO.write(img, "png", f);
+        return f;
+    }
+}
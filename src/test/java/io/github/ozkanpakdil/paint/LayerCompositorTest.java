@@ -0,0 +1,143 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayerCompositorTest {
+
+    @Test
+    void blendModesMixChannelsOverAnOpaqueBackdrop() {
+        int backdrop = 0xFF804020;
+        assertEquals(0xFFFFFFFF, LayerCompositor.blend(0xFFFFFFFF, backdrop, 255, BlendMode.NORMAL));
+        // Multiplying by white leaves the backdrop, screening with black too
+        assertEquals(backdrop, LayerCompositor.blend(0xFFFFFFFF, backdrop, 255, BlendMode.MULTIPLY));
+        assertEquals(backdrop, LayerCompositor.blend(0xFF000000, backdrop, 255, BlendMode.SCREEN));
+        assertEquals(0xFF7FBFDF, LayerCompositor.blend(0xFFFFFFFF, backdrop, 255, BlendMode.DIFFERENCE));
+        assertEquals(0xFF404020, LayerCompositor.blend(0xFF404040, backdrop, 255, BlendMode.DARKEN));
+        // Fully transparent source or zero opacity leave the backdrop alone
+        assertEquals(backdrop, LayerCompositor.blend(0x00FFFFFF, backdrop, 255, BlendMode.NORMAL));
+        assertEquals(backdrop, LayerCompositor.blend(0xFFFFFFFF, backdrop, 0, BlendMode.NORMAL));
+    }
+
+    @Test
+    void nonNormalModesActLikeNormalOverTransparency() {
+        assertEquals(0xFF123456, LayerCompositor.blend(0xFF123456, 0, 255, BlendMode.MULTIPLY));
+        assertEquals(0xFF123456, LayerCompositor.blend(0xFF123456, 0, 255, BlendMode.DIFFERENCE));
+    }
+
+    @Test
+    void compositeMatchesANaiveFlattenForAnyActiveLayer() {
+        Random rnd = new Random(11);
+        for (int round = 0; round < 12; round++) {
+            List<Layer> stack = randomStack(rnd, 2 + rnd.nextInt(4), 300, 270);
+            int active = rnd.nextInt(stack.size());
+            LayerCompositor c = new LayerCompositor();
+            c.update(stack, active, null);
+            assertSameImage(naive(stack), c.flatten(null));
+        }
+    }
+
+    @Test
+    void inPlaceEditsOnlyRecompositeWhatWasReported() {
+        Random rnd = new Random(5);
+        List<Layer> stack = randomStack(rnd, 5, 520, 300);
+        // Above-group caching is only exact for NORMAL layers
+        for (Layer l : stack.subList(3, 5)) l.setBlend(BlendMode.NORMAL);
+        LayerCompositor c = new LayerCompositor();
+        c.update(stack, 2, null);
+        c.flatten(null);
+        for (int i = 0; i < 30; i++) {
+            int index = rnd.nextInt(stack.size());
+            Rectangle r = new Rectangle(rnd.nextInt(500), rnd.nextInt(280), 1 + rnd.nextInt(40), 1 + rnd.nextInt(20));
+            BufferedImage img = stack.get(index).image();
+            for (int y = r.y; y < Math.min(r.y + r.height, img.getHeight()); y++) {
+                for (int x = r.x; x < Math.min(r.x + r.width, img.getWidth()); x++) {
+                    img.setRGB(x, y, rnd.nextInt());
+                }
+            }
+            c.changed(index, r);
+            // Bring only part of the canvas up to date now and then, like a viewport would
+            if (rnd.nextBoolean()) c.flatten(new Rectangle(0, 0, 200, 100));
+        }
+        assertSameImage(naive(stack), c.flatten(null));
+    }
+
+    @Test
+    void propertyChangesAndReplacedPixelsAreDetected() {
+        Random rnd = new Random(3);
+        List<Layer> stack = randomStack(rnd, 4, 64, 64);
+        LayerCompositor c = new LayerCompositor();
+        c.update(stack, 1, null);
+        c.flatten(null);
+
+        stack.get(0).setVisible(false);
+        stack.get(3).setOpacity(0.25f);
+        stack.get(2).setBlend(BlendMode.SCREEN);
+        c.update(stack, 1, null);
+        assertSameImage(naive(stack), c.flatten(null));
+
+        stack.get(2).setImage(randomImage(rnd, 64, 64));
+        c.update(stack, 1, null);
+        assertSameImage(naive(stack), c.flatten(null));
+    }
+
+    // Straightforward bottom-to-top flatten, the reference for the cached one
+    private static BufferedImage naive(List<Layer> stack) {
+        BufferedImage first = stack.getFirst().image();
+        BufferedImage out = new BufferedImage(first.getWidth(), first.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (Layer l : stack) {
+            if (l.isVisible()) LayerCompositor.blendImage(l.image(), l.opacity(), l.blend(), out);
+        }
+        return out;
+    }
+
+    private static List<Layer> randomStack(Random rnd, int n, int w, int h) {
+        BlendMode[] modes = BlendMode.values();
+        List<Layer> stack = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Layer l = new Layer("L" + i, randomImage(rnd, w, h));
+            l.setVisible(rnd.nextInt(5) != 0);
+            l.setOpacity(rnd.nextBoolean() ? 1f : rnd.nextFloat());
+            l.setBlend(modes[rnd.nextInt(modes.length)]);
+            stack.add(l);
+        }
+        return stack;
+    }
+
+    private static BufferedImage randomImage(Random rnd, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        for (int i = 0; i < px.length; i++) {
+            // Mostly transparent, opaque or half-covered pixels
+            int a = switch (rnd.nextInt(3)) {
+                case 0 -> 0;
+                case 1 -> 255;
+                default -> rnd.nextInt(256);
+            };
+            px[i] = a << 24 | rnd.nextInt(0xFFFFFF);
+        }
+        return img;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(visible(expected.getRGB(x, y)), visible(actual.getRGB(x, y)), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    // Fully transparent pixels are equal whatever their colour bits
+    private static int visible(int argb) {
+        return argb >>> 24 == 0 ? 0 : argb;
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayersTest {
+    private DrawArea area;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        area = new DrawArea();
+        area.resizeCanvas(120, 80);
+        SideMenu.setForeColor(Color.BLACK);
+        new SideMenu().selectTool(Tool.PENCIL);
+    }
+
+    @Test
+    void newDocumentHasABackgroundAndAHighlightLayer() {
+        List<Layer> layers = area.getLayers();
+        assertEquals(2, layers.size());
+        assertEquals("Background", layers.get(0).name());
+        assertTrue(layers.get(1).isHighlights());
+        assertEquals(0, area.getActiveLayerIndex());
+        assertSame(DrawArea.cache, layers.get(0).image());
+    }
+
+    @Test
+    void drawingGoesToTheActiveLayerOnly() {
+        BufferedImage background = area.getLayers().getFirst().image();
+        area.addLayer();
+        assertEquals(1, area.getActiveLayerIndex());
+        stroke(30, 20, 31, 21);
+
+        assertEquals(Color.WHITE.getRGB(), background.getRGB(30, 20));
+        assertEquals(Color.BLACK.getRGB(), area.getLayers().get(1).image().getRGB(30, 20));
+        assertEquals(0, area.getLayers().get(1).image().getRGB(80, 60));
+        assertEquals(Color.BLACK.getRGB(), DrawArea.getFlattenedImage().getRGB(30, 20));
+    }
+
+    @Test
+    void hiddenAndTranslucentLayersAffectTheComposite() {
+        area.addLayer();
+        stroke(30, 20, 31, 21);
+        area.setLayerVisible(1, false);
+        assertEquals(Color.WHITE.getRGB(), DrawArea.getFlattenedImage().getRGB(30, 20));
+
+        area.setLayerVisible(1, true);
+        area.setLayerOpacity(1, 0.5f);
+        int grey = DrawArea.getFlattenedImage().getRGB(30, 20) & 0xFF;
+        assertTrue(grey > 100 && grey < 156, "half-opaque black over white should be mid grey, got " + grey);
+    }
+
+    @Test
+    void layerEditsAreUndoable() {
+        area.addLayer();
+        area.setLayerOpacity(1, 0.8f);
+        area.setLayerOpacity(1, 0.6f);
+        area.setLayerOpacity(1, 0.4f);
+        assertEquals(0.4f, area.getLayers().get(1).opacity());
+
+        // A run of opacity changes undoes in one step
+        area.undo();
+        assertEquals(1f, area.getLayers().get(1).opacity());
+        area.undo();
+        assertEquals(2, area.getLayers().size());
+        assertEquals(0, area.getActiveLayerIndex());
+        area.redo();
+        assertEquals(3, area.getLayers().size());
+        assertEquals(1, area.getActiveLayerIndex());
+    }
+
+    @Test
+    void undoRestoresThePixelsOfTheEditedLayer() {
+        area.addLayer();
+        stroke(30, 20, 31, 21);
+        area.undo();
+        assertEquals(0, area.getLayers().get(1).image().getRGB(30, 20));
+        area.redo();
+        assertEquals(Color.BLACK.getRGB(), area.getLayers().get(1).image().getRGB(30, 20));
+    }
+
+    @Test
+    void lockedLayersRefuseDrawing() {
+        area.setLayerLocked(0, true);
+        stroke(30, 20, 31, 21);
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(30, 20));
+        // Only the lock itself was recorded
+        area.undo();
+        assertFalse(area.getLayers().getFirst().isLocked());
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(30, 20));
+    }
+
+    @Test
+    void eraserClearsUpperLayersToTransparent() throws Exception {
+        area.addLayer();
+        stroke(30, 20, 60, 20);
+        new SideMenu().selectTool(Tool.ERASER);
+        stroke(45, 20, 46, 20);
+        assertEquals(0, area.getLayers().get(1).image().getRGB(45, 20) >>> 24);
+        // The background shows through
+        assertEquals(Color.WHITE.getRGB(), DrawArea.getFlattenedImage().getRGB(45, 20));
+    }
+
+    @Test
+    void mergeDownCompositesIntoTheLayerBelow() {
+        area.addLayer();
+        stroke(30, 20, 31, 21);
+        area.mergeDown();
+        assertEquals(2, area.getLayers().size());
+        assertEquals(0, area.getActiveLayerIndex());
+        assertEquals(Color.BLACK.getRGB(), DrawArea.cache.getRGB(30, 20));
+    }
+
+    @Test
+    void resizeAndCropApplyToEveryLayer() throws Exception {
+        area.addLayer();
+        area.resizeCanvas(200, 100);
+        for (Layer l : area.getLayers()) {
+            assertEquals(200, l.image().getWidth());
+            assertEquals(100, l.image().getHeight());
+        }
+        // Select a region with the move tool and crop to it
+        new SideMenu().selectTool(Tool.MOVE);
+        stroke(10, 10, 60, 50);
+        area.cropToSelection();
+        for (Layer l : area.getLayers()) {
+            assertEquals(50, l.image().getWidth());
+            assertEquals(40, l.image().getHeight());
+        }
+    }
+
+    @Test
+    void openRasterRoundTripKeepsLayersAndProperties(@TempDir Path dir) throws Exception {
+        area.addLayer();
+        stroke(30, 20, 31, 21);
+        area.setLayerOpacity(1, 0.5f);
+        area.setLayerBlend(1, BlendMode.MULTIPLY);
+        area.renameLayer(1, "Ink & <lines>");
+        area.setLayerVisible(0, false);
+
+        File file = dir.resolve("doc.ora").toFile();
+        OpenRaster.write(file, DrawArea.documentLayers(), DrawArea.documentActiveLayer(), DrawArea.getFlattenedImage());
+        OpenRaster.Document doc = OpenRaster.read(file);
+
+        assertEquals(3, doc.layers().size());
+        assertEquals(1, doc.active());
+        Layer ink = doc.layers().get(1);
+        assertEquals("Ink & <lines>", ink.name());
+        assertEquals(0.5f, ink.opacity(), 0.001f);
+        assertEquals(BlendMode.MULTIPLY, ink.blend());
+        assertFalse(doc.layers().get(0).isVisible());
+        assertTrue(doc.layers().get(2).isHighlights());
+        assertEquals(Color.BLACK.getRGB(), ink.image().getRGB(30, 20));
+
+        area.setDocument(doc.layers(), doc.active());
+        assertEquals(3, area.getLayers().size());
+        assertEquals("Ink & <lines>", area.getLayers().get(1).name());
+    }
+
+    private void stroke(int x1, int y1, int x2, int y2) {
+        area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, x1, y1));
+        area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, x2, y2));
+        area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, x2, y2));
+    }
+
+    private MouseEvent mouse(int id, int x, int y) {
+        int mods = id == MouseEvent.MOUSE_DRAGGED ? MouseEvent.BUTTON1_DOWN_MASK : 0;
+        return new MouseEvent(area, id, System.currentTimeMillis(), mods, x, y, 1, false, MouseEvent.BUTTON1);
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MipmapPyramidTest {
+
+    @Test
+    void levelForPicksTheDeepestLevelStillLargeEnough() {
+        assertEquals(0, MipmapPyramid.levelFor(1.0));
+        assertEquals(0, MipmapPyramid.levelFor(0.6));
+        assertEquals(1, MipmapPyramid.levelFor(0.5));
+        assertEquals(1, MipmapPyramid.levelFor(0.3));
+        assertEquals(3, MipmapPyramid.levelFor(0.1));
+    }
+
+    @Test
+    void firstLevelAveragesTwoByTwoBlocks() {
+        BufferedImage flat = image(4, 2, 0xFFFFFFFF);
+        // One black pixel in the left block
+        flat.setRGB(0, 0, 0xFF000000);
+        BufferedImage level = new MipmapPyramid().level(flat, 1);
+        assertEquals(2, level.getWidth());
+        assertEquals(1, level.getHeight());
+        // (0 + 255 * 3) / 4 rounds to 191
+        assertEquals(0xFFBFBFBF, level.getRGB(0, 0));
+        assertEquals(0xFFFFFFFF, level.getRGB(1, 0));
+    }
+
+    @Test
+    void incrementalUpdatesMatchAFullRebuild() {
+        Random rnd = new Random(7);
+        BufferedImage flat = image(301, 197, 0xFFFFFFFF);
+        MipmapPyramid pyramid = new MipmapPyramid();
+        pyramid.level(flat, 4);
+        for (int i = 0; i < 20; i++) {
+            Rectangle r = new Rectangle(rnd.nextInt(290), rnd.nextInt(190), 1 + rnd.nextInt(11), 1 + rnd.nextInt(7));
+            for (int y = r.y; y < r.y + r.height; y++) {
+                for (int x = r.x; x < r.x + r.width; x++) {
+                    flat.setRGB(x, y, rnd.nextBoolean() ? 0xFF000000 | rnd.nextInt(0xFFFFFF) : rnd.nextInt());
+                }
+            }
+            pyramid.invalidate(r);
+        }
+        MipmapPyramid fresh = new MipmapPyramid();
+        for (int k = 1; k <= 4; k++) {
+            assertSameImage(fresh.level(flat, k), pyramid.level(flat, k));
+        }
+    }
+
+    @Test
+    void sizeChangeDropsStaleLevels() {
+        MipmapPyramid pyramid = new MipmapPyramid();
+        assertEquals(50, pyramid.level(image(100, 100, 0xFF000000), 1).getWidth());
+        BufferedImage level = pyramid.level(image(40, 20, 0xFFFFFFFF), 1);
+        assertEquals(20, level.getWidth());
+        assertEquals(0xFFFFFFFF, level.getRGB(5, 5));
+    }
+
+    private static BufferedImage image(int w, int h, int argb) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) img.setRGB(x, y, argb);
+        }
+        return img;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+}
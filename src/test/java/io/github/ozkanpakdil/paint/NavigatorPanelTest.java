@@ -0,0 +1,80 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NavigatorPanelTest {
+
+    @Test
+    void thumbnailFitsTheBoxAndKeepsAspect() {
+        assertEquals(new Dimension(200, 100), NavigatorPanel.thumbSize(20000, 10000));
+        assertEquals(new Dimension(50, 200), NavigatorPanel.thumbSize(1000, 4000));
+        // Small canvases are not enlarged
+        assertEquals(new Dimension(120, 80), NavigatorPanel.thumbSize(120, 80));
+    }
+
+    @Test
+    void dirtyCanvasRegionMapsToCoveringThumbnailPixels() {
+        // 100 canvas pixels per thumbnail pixel
+        Rectangle r = NavigatorPanel.thumbRegion(new Rectangle(150, 250, 10, 300), 20000, 10000, 200, 100);
+        assertEquals(new Rectangle(1, 2, 1, 4), r);
+        // Clamped to the thumbnail
+        assertEquals(new Rectangle(199, 99, 1, 1),
+                NavigatorPanel.thumbRegion(new Rectangle(19990, 9990, 50, 50), 20000, 10000, 200, 100));
+    }
+
+    @Test
+    void samplingAveragesTheFlattenedCanvas() {
+        BufferedImage flat = new BufferedImage(400, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = flat.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 200, 200);
+        g.setColor(Color.BLACK);
+        g.fillRect(200, 0, 200, 200);
+        g.setColor(Color.RED);
+        g.fillRect(0, 100, 400, 100);
+        g.dispose();
+
+        int[] px = NavigatorPanel.sample(flat, new Rectangle(0, 0, 4, 2), 4, 2);
+        assertEquals(0xFFFFFFFF, px[0]);
+        assertEquals(0xFF000000, px[3]);
+        assertEquals(0xFFFF0000, px[4]);
+        assertEquals(0xFFFF0000, px[7]);
+    }
+
+    @Test
+    void canvasEditsReportTheirDirtyRegion() throws Exception {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(300, 200);
+        List<Rectangle> dirty = new ArrayList<>();
+        area.addDirtyListener(dirty::add);
+        new SideMenu().selectTool(Tool.PENCIL);
+        area.mousePressed(mouse(area, MouseEvent.MOUSE_PRESSED, 50, 60));
+        area.mouseDragged(mouse(area, MouseEvent.MOUSE_DRAGGED, 70, 65));
+        area.mouseReleased(mouse(area, MouseEvent.MOUSE_RELEASED, 70, 65));
+        assertFalse(dirty.isEmpty());
+        Rectangle all = dirty.getFirst();
+        for (Rectangle r : dirty) all = all.union(r);
+        assertTrue(all.contains(50, 60) && all.contains(70, 65), all.toString());
+        // A stroke never asks for a full rebuild
+        assertTrue(all.width < 100 && all.height < 100, all.toString());
+
+        dirty.clear();
+        area.undo();
+        assertEquals(1, dirty.size());
+        assertNull(dirty.getFirst());
+    }
+
+    private static MouseEvent mouse(DrawArea area, int id, int x, int y) {
+        return new MouseEvent(area, id, System.currentTimeMillis(), MouseEvent.BUTTON1_DOWN_MASK, x, y, 1, false, MouseEvent.BUTTON1);
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerfMetricsTest {
+
+    @Test
+    void histogramReportsMeanPercentileAndMax() {
+        PerfMetrics.Histogram h = new PerfMetrics.Histogram();
+        assertEquals(0, h.percentileMillis(0.95));
+        for (int i = 0; i < 99; i++) h.record(1_000_000); // 1 ms
+        h.record(50_000_000); // one 50 ms outlier
+        assertEquals(100, h.count());
+        assertEquals(1.49, h.meanMillis(), 1e-9);
+        assertEquals(50.0, h.maxMillis(), 1e-9);
+        // p95 lands in the 1 ms bucket (upper bound 2^20 ns), p100 is capped at the max
+        assertTrue(h.percentileMillis(0.95) >= 1.0 && h.percentileMillis(0.95) < 1.1);
+        assertEquals(50.0, h.percentileMillis(1.0), 1e-9);
+        h.reset();
+        assertEquals(0, h.count());
+    }
+
+    @Test
+    void floodFillRecordsTimeAndPixels() {
+        BufferedImage img = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        long fills = PerfMetrics.FLOOD_FILL.count();
+        long pixels = PerfMetrics.totalFloodFillPixels();
+        new ScanlineFloodFill().fill(img, 5, 5, Color.RED);
+        assertEquals(fills + 1, PerfMetrics.FLOOD_FILL.count());
+        assertEquals(pixels + 40 * 30, PerfMetrics.totalFloodFillPixels());
+    }
+
+    @Test
+    void mbeanIsExportedOverJmx() throws Exception {
+        PerfMetrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(PerfMetrics.OBJECT_NAME);
+        assertTrue(server.isRegistered(name));
+        PerfMetrics.PAINT.record(2_000_000);
+        assertTrue((Long) server.getAttribute(name, "PaintCount") >= 1);
+        assertTrue((Long) server.getAttribute(name, "GcCount") >= 0);
+        assertNotNull(server.getAttribute(name, "CanvasMemoryBytes"));
+    }
+
+    @Test
+    void canvasMemoryIsPublishedWhenTheLayerStackChanges() {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(200, 100);
+        long twoLayers = PerfMetrics.canvasMemoryBytes();
+        assertTrue(twoLayers >= 2 * 4L * 200 * 100, String.valueOf(twoLayers));
+
+        area.addLayer();
+        assertEquals(twoLayers + 4L * 200 * 100, PerfMetrics.canvasMemoryBytes());
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.ozkanpakdil.paint;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar vs SIMD pixel kernels on one 4096-pixel row: {@code mvn -Pbench verify}
+ * (extra JMH options via {@code -Djmh.args="..."}). The ops/s figures times 4096 give pixels/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class PixelKernelsBenchmark {
+    private static final int ROW = 4096;
+
+    // Share of opaque source pixels; the rest is split between transparent and translucent
+    @Param({"0.9", "0.5"})
+    public double opaque;
+
+    private int[] src;
+    private int[] dst;
+    private int[] work;
+    private int[] runs;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        src = new int[ROW];
+        dst = new int[ROW];
+        for (int i = 0; i < ROW; i++) {
+            double p = rnd.nextDouble();
+            int a = p < opaque ? 255 : p < (1 + opaque) / 2 ? 0 : 1 + rnd.nextInt(254);
+            src[i] = a << 24 | rnd.nextInt(0x1000000);
+            dst[i] = 0xFF000000 | rnd.nextInt(0x1000000);
+        }
+        work = new int[ROW];
+        // A row that is one colour except for its last pixel: the flood fill's best case
+        runs = new int[ROW];
+        runs[ROW - 1] = 1;
+    }
+
+    @Benchmark
+    public int[] srcOverScalar() {
+        System.arraycopy(dst, 0, work, 0, ROW);
+        PixelKernels.srcOverScalar(src, 0, work, 0, ROW, 255);
+        return work;
+    }
+
+    @Benchmark
+    public int[] srcOverVector() {
+        System.arraycopy(dst, 0, work, 0, ROW);
+        VectorKernels.srcOver(src, 0, work, 0, ROW, 255);
+        return work;
+    }
+
+    @Benchmark
+    public int runEndScalar() {
+        return PixelKernels.runEndScalar(runs, 0, ROW, 0);
+    }
+
+    @Benchmark
+    public int runEndVector() {
+        return VectorKernels.runEnd(runs, 0, ROW, 0);
+    }
+
+    @Benchmark
+    public int[] premultiplyScalar() {
+        System.arraycopy(src, 0, work, 0, ROW);
+        PixelKernels.premultiplyScalar(work, 0, ROW);
+        return work;
+    }
+
+    @Benchmark
+    public int[] premultiplyVector() {
+        System.arraycopy(src, 0, work, 0, ROW);
+        VectorKernels.premultiply(work, 0, ROW);
+        return work;
+    }
+
+    @Benchmark
+    public int[] unpremultiplyScalar() {
+        System.arraycopy(src, 0, work, 0, ROW);
+        PixelKernels.unpremultiplyScalar(work, 0, ROW);
+        return work;
+    }
+
+    @Benchmark
+    public int[] unpremultiplyVector() {
+        System.arraycopy(src, 0, work, 0, ROW);
+        VectorKernels.unpremultiply(work, 0, ROW);
+        return work;
+    }
+}
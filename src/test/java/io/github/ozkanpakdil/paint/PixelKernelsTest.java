@@ -0,0 +1,118 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class PixelKernelsTest {
+
+    @Test
+    void div255IsExactOverItsRange() {
+        for (int x = 0; x < 65535; x++) {
+            assertEquals(x / 255, PixelKernels.div255(x), "x=" + x);
+        }
+    }
+
+    @Test
+    void scalarSrcOverMatchesTheReferencePixel() {
+        Random rnd = new Random(1);
+        int[] src = pixels(rnd, 1000);
+        int[] dst = pixels(rnd, 1000);
+        int[] expected = dst.clone();
+        for (int alpha : new int[]{255, 128, 1}) {
+            for (int i = 0; i < src.length; i++) {
+                expected[i] = LayerCompositor.blend(src[i], expected[i], alpha, BlendMode.NORMAL);
+            }
+            PixelKernels.srcOverScalar(src, 0, dst, 0, src.length, alpha);
+            assertArrayEquals(expected, dst);
+        }
+    }
+
+    @Test
+    void vectorSrcOverMatchesScalar() {
+        assumeVector();
+        Random rnd = new Random(2);
+        for (int alpha : new int[]{255, 200, 77, 1}) {
+            // Odd lengths and offsets exercise the tails
+            int[] src = pixels(rnd, 1037);
+            int[] dst = pixels(rnd, 1041);
+            int[] expected = dst.clone();
+            PixelKernels.srcOverScalar(src, 3, expected, 1, 1029, alpha);
+            VectorKernels.srcOver(src, 3, dst, 1, 1029, alpha);
+            assertArrayEquals(expected, dst, "alpha " + alpha);
+        }
+    }
+
+    @Test
+    void vectorPremultiplyRoundTripsLikeScalar() {
+        assumeVector();
+        Random rnd = new Random(3);
+        int[] a = pixels(rnd, 4099);
+        int[] b = a.clone();
+        PixelKernels.premultiplyScalar(a, 2, 4090);
+        VectorKernels.premultiply(b, 2, 4090);
+        assertArrayEquals(a, b);
+        PixelKernels.unpremultiplyScalar(a, 2, 4090);
+        VectorKernels.unpremultiply(b, 2, 4090);
+        assertArrayEquals(a, b);
+    }
+
+    @Test
+    void premultiplyKeepsOpaquePixelsAndRecoversColours() {
+        assertEquals(0xFF123456, PixelKernels.premultiply(0xFF123456));
+        assertEquals(0x80400000, PixelKernels.premultiply(0x80800000));
+        assertEquals(0x80800000, PixelKernels.unpremultiply(0x80400000));
+        assertEquals(0, PixelKernels.unpremultiply(0x00FFFFFF));
+    }
+
+    @Test
+    void runScannersAgreeWithScalar() {
+        Random rnd = new Random(4);
+        int[] px = new int[600];
+        // Long runs of a few colours, like a drawing
+        for (int i = 0; i < px.length; ) {
+            int len = 1 + rnd.nextInt(60);
+            int c = rnd.nextInt(3);
+            for (int k = 0; k < len && i < px.length; k++) px[i++] = c;
+        }
+        for (int t = 0; t < 500; t++) {
+            int a = rnd.nextInt(px.length);
+            int b = a + rnd.nextInt(px.length - a + 1);
+            int c = rnd.nextInt(3);
+            assertEquals(PixelKernels.runEndScalar(px, a, b, c), PixelKernels.runEnd(px, a, b, c));
+            assertEquals(PixelKernels.runStartScalar(px, a, b, c), PixelKernels.runStart(px, a, b, c));
+            assertEquals(PixelKernels.findScalar(px, a, b, c), PixelKernels.find(px, a, b, c));
+        }
+    }
+
+    @Test
+    void fillCoversExactlyTheSpan() {
+        int[] px = new int[100];
+        PixelKernels.fill(px, 7, 61, 0xFFABCDEF);
+        for (int i = 0; i < px.length; i++) {
+            assertEquals(i >= 7 && i < 68 ? 0xFFABCDEF : 0, px[i], "index " + i);
+        }
+    }
+
+    private static void assumeVector() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "needs --add-modules jdk.incubator.vector");
+    }
+
+    // Mix of transparent, opaque and translucent pixels
+    static int[] pixels(Random rnd, int n) {
+        int[] px = new int[n];
+        for (int i = 0; i < n; i++) {
+            int a = switch (rnd.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> 255;
+                default -> rnd.nextInt(256);
+            };
+            px[i] = a << 24 | rnd.nextInt(0x1000000);
+        }
+        return px;
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.ozkanpakdil.paint;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PNG encoding of a 1920 x 1080 image with the JDK writer and with {@link PngEncoder}:
+ * {@code mvn -Pbench -DskipTests verify -Djmh.args=PngEncoder}. Reports milliseconds per encode;
+ * the file size of each pairing is printed once per trial as {@code [PngEncoder] ...}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PngEncoderBenchmark {
+    private static final int W = 1920;
+    private static final int H = 1080;
+
+    public enum Content {
+        /** A handful of flat colours: palette material. */
+        DIAGRAM,
+        /** Shaded title bar and panels with antialiased text, on the white base layer. */
+        SCREENSHOT,
+        /** Smooth shading with sensor-like noise in every channel. */
+        PHOTO
+    }
+
+    public enum Encoder {JDK, PAINT}
+
+    @Param({"DIAGRAM", "SCREENSHOT", "PHOTO"})
+    public Content content;
+
+    @Param({"JDK", "PAINT"})
+    public Encoder encoder;
+
+    private BufferedImage image;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16 << 20);
+
+    @Setup
+    public void setUp() throws IOException {
+        image = switch (content) {
+            case DIAGRAM -> diagram();
+            case SCREENSHOT -> screenshot();
+            case PHOTO -> photo();
+        };
+        encode();
+        System.out.printf("%n[PngEncoder] %s with %s: %.1f KB%n", content, encoder, out.size() / 1024.0);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        out.reset();
+        if (encoder == Encoder.JDK) ImageIO.write(image, "png", out);
+        else PngEncoder.write(image, new DataOutputStream(out));
+        return out.size();
+    }
+
+    private static BufferedImage diagram() {
+        BufferedImage img = white();
+        Graphics2D g = img.createGraphics();
+        Color[] colours = {new Color(0x3D7EFF), new Color(0xFFB000), new Color(0x1E1E1E), new Color(0x2E7D32)};
+        Random rnd = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            g.setColor(colours[i % colours.length]);
+            int x = rnd.nextInt(W - 200), y = rnd.nextInt(H - 100);
+            if (i % 2 == 0) g.fillRect(x, y, 40 + rnd.nextInt(160), 20 + rnd.nextInt(80));
+            else g.drawLine(x, y, x + rnd.nextInt(200), y + rnd.nextInt(100));
+        }
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage screenshot() {
+        BufferedImage img = white();
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setPaint(new GradientPaint(0, 0, new Color(0x2B5797), W, 0, new Color(0x6A9BD8)));
+        g.fillRect(0, 0, W, 40);
+        g.setPaint(new GradientPaint(0, 40, new Color(0xF3F3F3), 0, H, new Color(0xDADADA)));
+        g.fillRect(0, 40, 300, H - 40);
+        g.setColor(Color.DARK_GRAY);
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 14));
+        for (int y = 70; y < H; y += 20) {
+            g.drawString("Item " + y, 20, y);
+            g.drawString("The quick brown fox jumps over the lazy dog, line " + y, 330, y);
+        }
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage photo() {
+        BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        Random rnd = new Random(7);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                double s = Math.sin(x / 180.0) * Math.cos(y / 140.0);
+                int r = clamp(128 + (int) (90 * s) + rnd.nextInt(7) - 3);
+                int g = clamp(110 + (int) (70 * Math.sin((x + y) / 260.0)) + rnd.nextInt(7) - 3);
+                int b = clamp(90 + y * 100 / H + rnd.nextInt(7) - 3);
+                px[y * W + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+        return img;
+    }
+
+    private static BufferedImage white() {
+        BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        PixelKernels.fill(LayerCompositor.pixels(img), 0, W * H, 0xFFFFFFFF);
+        return img;
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : Math.min(255, v);
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PngEncoderTest {
+
+    @Test
+    void opaqueImagesAreWrittenAsRgb() throws Exception {
+        BufferedImage img = noise(301, 203, true);
+
+        byte[] png = encode(img, PngEncoder.RGB, 8);
+
+        assertSamePixels(img, ImageIO.read(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    void translucencySurvivesAsRgba() throws Exception {
+        BufferedImage img = noise(257, 130, false);
+
+        byte[] png = encode(img, PngEncoder.RGBA, 8);
+
+        assertSamePixels(img, ImageIO.read(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    void opaqueGreyIsWrittenAsGrey() throws Exception {
+        BufferedImage img = new BufferedImage(300, 100, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        for (int i = 0; i < px.length; i++) px[i] = 0xFF000000 | 0x010101 * (i % 300 * 255 / 299);
+
+        byte[] png = encode(img, PngEncoder.GREY, 8);
+
+        assertSamePixels(img, ImageIO.read(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    void fewColoursGetAPaletteOfTheSmallestDepth() throws Exception {
+        int[][] sets = {
+                {0xFFFFFFFF, 0xFF000000},
+                {0xFFFFFFFF, 0xFF000000, 0xFFFF0000},
+                {0xFFFFFFFF, 0xFF000000, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF},
+                {0xFFFFFFFF, 0xFF000000, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0x80FF0000, 0x00000000,
+                        0xFF123456, 0xFF654321, 0xFFABCDEF, 0xFFFEDCBA, 0xFF111111, 0xFF222222, 0xFF333333,
+                        0xFF444444, 0xFF555555, 0xFF666666}
+        };
+        int[] depths = {1, 2, 4, 8};
+        for (int s = 0; s < sets.length; s++) {
+            // Odd width, so the last byte of a row is only partly used
+            BufferedImage img = new BufferedImage(77, 31, BufferedImage.TYPE_INT_ARGB);
+            int[] px = LayerCompositor.pixels(img);
+            Random rnd = new Random(s);
+            for (int i = 0; i < px.length; i++) px[i] = sets[s][rnd.nextInt(sets[s].length)];
+
+            byte[] png = encode(img, PngEncoder.PALETTE, depths[s]);
+
+            assertSamePixels(img, ImageIO.read(new ByteArrayInputStream(png)));
+        }
+    }
+
+    @Test
+    void transparentPixelsShareOnePaletteEntry() throws Exception {
+        BufferedImage img = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        for (int i = 0; i < px.length; i++) px[i] = i % 3 == 0 ? 0xFF3D7EFF : i & 0x00FFFFFF;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PngEncoder.Layout layout = PngEncoder.write(img, new DataOutputStream(bytes));
+
+        assertArrayEquals(new int[]{0, 0xFF3D7EFF}, layout.palette());
+        BufferedImage back = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(0xFF3D7EFF, back.getRGB(0, 0));
+        assertEquals(0, back.getRGB(1, 0) >>> 24);
+    }
+
+    @Test
+    void rowsGetTheFilterThatLeavesTheLeast() {
+        int len = 64;
+        byte[] raw = new byte[3 * len];
+        byte[] out = new byte[len + 1];
+        // A ramp along the row: Sub leaves ones
+        for (int i = 0; i < len; i++) raw[len + i] = (byte) (i * 3);
+        assertEquals(PngEncoder.SUB, PngEncoder.filterRow(raw, 0, len, len, 1, true, out, 0));
+        for (int i = 1; i < len; i++) assertEquals(3, out[i + 1]);
+
+        // The row above again, plus noise: Up leaves zeros
+        Random rnd = new Random(5);
+        for (int i = 0; i < len; i++) raw[len + i] = (byte) rnd.nextInt(256);
+        System.arraycopy(raw, len, raw, 2 * len, len);
+        assertEquals(PngEncoder.UP, PngEncoder.filterRow(raw, len, 2 * len, len, 1, true, out, 0));
+
+        // Not adaptive: None
+        assertEquals(PngEncoder.NONE, PngEncoder.filterRow(raw, 0, len, len, 1, false, out, 0));
+        for (int i = 0; i < len; i++) assertEquals(raw[len + i], out[i + 1]);
+    }
+
+    @Test
+    void rowsAreReadInStripsAcrossStripBoundaries() throws Exception {
+        // Tall enough for several strips; the rows on either side of each boundary are filtered together
+        int w = 1500, h = 2000;
+        assertTrue(StreamedImage.stripRows(w, h) < h);
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) px[y * w + x] = 0xFF000000 | (x * 7 + y) % 251 << 16 | y % 253 << 8 | (x ^ y) & 0xFF;
+        }
+
+        byte[] png = encode(img, PngEncoder.RGB, 8);
+
+        assertSamePixels(img, ImageIO.read(new ByteArrayInputStream(png)));
+    }
+
+    @Test
+    void screenshotsComeOutSmallerThanWithTheJdkWriter() throws Exception {
+        // Smooth shading, as in a window title bar or a photo, plus flat panels and text-like marks
+        BufferedImage img = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(0x2B5797), 800, 600, new Color(0xF0F0F0)));
+        g.fillRect(0, 0, 800, 600);
+        g.setColor(Color.WHITE);
+        g.fillRect(40, 80, 720, 480);
+        g.setColor(Color.DARK_GRAY);
+        for (int y = 100; y < 540; y += 18) g.drawString("The quick brown fox jumps over the lazy dog " + y, 60, y);
+        g.dispose();
+
+        ByteArrayOutputStream jdk = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", jdk);
+        ByteArrayOutputStream ours = new ByteArrayOutputStream();
+        PngEncoder.write(img, new DataOutputStream(ours));
+
+        assertTrue(ours.size() < jdk.size() * 3 / 4, ours.size() + " vs " + jdk.size());
+        assertSamePixels(img, ImageIO.read(new ByteArrayInputStream(ours.toByteArray())));
+    }
+
+    // Encodes img, checking the header against the expected colour type and bit depth
+    private static byte[] encode(BufferedImage img, int colorType, int bitDepth) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PngEncoder.Layout layout = PngEncoder.write(img, new DataOutputStream(bytes));
+        byte[] png = bytes.toByteArray();
+        assertEquals(colorType, layout.colorType());
+        assertEquals(bitDepth, layout.bitDepth());
+        // IHDR's bit depth and colour type follow the signature, chunk length and name, width and height
+        assertEquals(bitDepth, png[24]);
+        assertEquals(colorType, png[25]);
+        return png;
+    }
+
+    // As the app opens it: getRGB would read grey levels through a gamma curve
+    private static void assertSamePixels(BufferedImage expected, BufferedImage read) {
+        BufferedImage actual = ImageFormats.toIntArgb(read);
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y), a = actual.getRGB(x, y);
+                // Transparent is transparent, whatever colour it had
+                if (e >>> 24 == 0 && a >>> 24 == 0) continue;
+                if (e != a) fail("pixel " + x + "," + y + ": " + Integer.toHexString(e) + " vs " + Integer.toHexString(a));
+            }
+        }
+    }
+
+    private static BufferedImage noise(int w, int h, boolean opaque) {
+        Random rnd = new Random(w * 31L + h);
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(img);
+        for (int i = 0; i < px.length; i++) px[i] = opaque ? 0xFF000000 | rnd.nextInt(0x1000000) : rnd.nextInt();
+        return img;
+    }
+}
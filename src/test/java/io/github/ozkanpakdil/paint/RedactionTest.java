@@ -0,0 +1,215 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedactionTest {
+    private DrawArea area;
+    private SideMenu menu;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        area = new DrawArea();
+        area.resizeCanvas(120, 80);
+        SideMenu.setForeColor(Color.BLACK);
+        menu = new SideMenu();
+        menu.selectTool(Tool.REDACT);
+        menu.setRedactSolid(false);
+        menu.setRedactBlockSize(8);
+    }
+
+    @Test
+    void blockAveragesMatchADirectSum() {
+        BufferedImage img = new BufferedImage(53, 37, BufferedImage.TYPE_INT_ARGB);
+        int[] px = PixelKernelsTest.pixels(new Random(7), 53 * 37);
+        img.setRGB(0, 0, 53, 37, px, 0, 53);
+        Redaction table = Redaction.of(img);
+        Random rnd = new Random(8);
+        for (int t = 0; t < 300; t++) {
+            int x = rnd.nextInt(53), y = rnd.nextInt(37);
+            int w = 1 + rnd.nextInt(53 - x), h = 1 + rnd.nextInt(37 - y);
+            assertEquals(Integer.toHexString(directAverage(px, 53, x, y, w, h)),
+                    Integer.toHexString(table.average(x, y, w, h)), x + "," + y + " " + w + "x" + h);
+        }
+    }
+
+    @Test
+    void aTableForARegionAgreesWithOneForTheWholeImage() {
+        BufferedImage img = new BufferedImage(90, 70, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, 90, 70, PixelKernelsTest.pixels(new Random(9), 90 * 70), 0, 90);
+        Rectangle region = new Rectangle(17, 11, 40, 33);
+        Redaction part = Redaction.of(img, region);
+        Redaction whole = Redaction.of(img);
+        assertEquals(region, part.bounds());
+
+        Rectangle r = new Rectangle(20, 13, 31, 29);
+        assertPixelsEqual(whole.blocks(r, 6), part.blocks(r, 6));
+        assertEquals(whole.average(17, 11, 40, 33), part.average(17, 11, 40, 33));
+    }
+
+    @Test
+    void pixelateFillsEachBlockWithItsAverage() {
+        BufferedImage img = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        // Left half black, right half white: the block of 4 at x = 8 straddles x = 10
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 20; x++) img.setRGB(x, y, x < 10 ? 0xFF000000 : 0xFFFFFFFF);
+        }
+        Rectangle r = new Rectangle(4, 1, 15, 7);
+        Redaction.paint(img, r, Redaction.of(img).blocks(r, 4), 4);
+        assertEquals(0xFF000000, img.getRGB(4, 1));
+        assertEquals(0xFF808080, img.getRGB(8, 3), "block 8..11 is half black, half white");
+        assertEquals(0xFF808080, img.getRGB(11, 4));
+        assertEquals(0xFFFFFFFF, img.getRGB(17, 7), "the last, cut-short block");
+        // Outside the rectangle nothing changes
+        assertEquals(0xFF000000, img.getRGB(3, 1));
+        assertEquals(0xFFFFFFFF, img.getRGB(19, 1));
+        assertEquals(0xFFFFFFFF, img.getRGB(12, 8));
+    }
+
+    @Test
+    void redactToolPixelatesTheDraggedRectangleAndUndoes() {
+        // A fine checkerboard averages out to grey
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 120; x++) DrawArea.cache.setRGB(x, y, (x + y) % 2 == 0 ? 0xFF000000 : 0xFFFFFFFF);
+        }
+        BufferedImage original = copy(DrawArea.cache);
+        drag(16, 16, 48, 40);
+
+        int grey = DrawArea.cache.getRGB(20, 20);
+        assertEquals(0x80, grey >> 16 & 0xFF, 1, Integer.toHexString(grey));
+        assertEquals(grey, DrawArea.cache.getRGB(23, 23), "one block, one colour");
+        assertEquals(original.getRGB(15, 20), DrawArea.cache.getRGB(15, 20));
+        assertEquals(original.getRGB(48, 40), DrawArea.cache.getRGB(48, 40));
+
+        area.undo();
+        assertPixelsEqual(original, DrawArea.cache);
+        area.redo();
+        assertEquals(grey, DrawArea.cache.getRGB(20, 20));
+        area.undo();
+        assertPixelsEqual(original, DrawArea.cache);
+    }
+
+    @Test
+    void everyLayerUnderTheRectangleIsRedactedInOneStep() {
+        // The active layer is empty; what shows is on the background and the highlight layer above
+        area.addLayer();
+        BufferedImage highlight = area.getLayers().stream().filter(Layer::isHighlights).findFirst().orElseThrow().image();
+        for (int y = 16; y < 40; y++) {
+            for (int x = 16; x < 48; x++) highlight.setRGB(x, y, (x + y) % 2 == 0 ? 0xFF000000 : 0xFFFFFF00);
+        }
+        drag(16, 16, 48, 40);
+
+        highlight = area.getLayers().stream().filter(Layer::isHighlights).findFirst().orElseThrow().image();
+        BufferedImage base = area.getLayers().getFirst().image();
+        BufferedImage active = area.getLayers().get(area.getActiveLayerIndex()).image();
+        int block = highlight.getRGB(16, 16);
+        assertEquals(0x80, block >> 16 & 0xFF, 1, Integer.toHexString(block));
+        assertEquals(0, block & 0xFF, Integer.toHexString(block));
+        for (BufferedImage layer : new BufferedImage[]{highlight, active, base}) {
+            assertEquals(block, layer.getRGB(16, 16));
+            assertEquals(block, layer.getRGB(23, 23), "one block, one colour");
+        }
+        BufferedImage flat = area.composite(null);
+        assertEquals(flat.getRGB(16, 16), flat.getRGB(17, 16), "the pattern is gone from the canvas");
+
+        area.undo();
+        highlight = area.getLayers().stream().filter(Layer::isHighlights).findFirst().orElseThrow().image();
+        assertEquals(0xFF000000, highlight.getRGB(16, 16));
+        assertEquals(0xFFFFFF00, highlight.getRGB(17, 16));
+        assertEquals(0, area.getLayers().get(area.getActiveLayerIndex()).image().getRGB(16, 16));
+        assertEquals(Color.WHITE.getRGB(), area.getLayers().getFirst().image().getRGB(16, 16));
+        area.redo();
+        highlight = area.getLayers().stream().filter(Layer::isHighlights).findFirst().orElseThrow().image();
+        assertEquals(block, highlight.getRGB(17, 16));
+    }
+
+    @Test
+    void aLockedLayerUnderTheRectangleStopsTheRedaction() {
+        BufferedImage base = area.getLayers().getFirst().image();
+        area.addLayer();
+        area.setLayerLocked(0, true);
+        drag(10, 10, 30, 20);
+        assertSame(base, area.getLayers().getFirst().image());
+        assertEquals(Color.WHITE.getRGB(), base.getRGB(12, 12));
+        assertEquals(0, area.getLayers().get(area.getActiveLayerIndex()).image().getRGB(12, 12));
+    }
+
+    @Test
+    void solidMaskUsesTheForegroundColour() {
+        menu.setRedactSolid(true);
+        SideMenu.setForeColor(Color.RED);
+        drag(10, 10, 30, 20);
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(10, 10));
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(29, 19));
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(30, 20));
+        area.undo();
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(10, 10));
+    }
+
+    @Test
+    void regionUndoDoesNotTouchBuffersSharedWithHistory() {
+        // A property edit leaves history and the live layer sharing one buffer
+        area.setLayerOpacity(0, 0.5f);
+        menu.setRedactSolid(true);
+        drag(10, 10, 30, 20);
+        area.undo();
+        area.undo();
+        // Back before the opacity change, with the pixels the redaction never reached
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(10, 10));
+        area.redo();
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(10, 10));
+        area.redo();
+        assertEquals(Color.BLACK.getRGB(), DrawArea.cache.getRGB(10, 10));
+    }
+
+    private static int directAverage(int[] px, int stride, int x, int y, int w, int h) {
+        long a = 0, r = 0, g = 0, b = 0;
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                int p = PixelKernels.premultiply(px[j * stride + i]);
+                a += p >>> 24;
+                r += p >> 16 & 0xFF;
+                g += p >> 8 & 0xFF;
+                b += p & 0xFF;
+            }
+        }
+        long n = (long) w * h;
+        int avg = (int) ((a + n / 2) / n) << 24 | (int) ((r + n / 2) / n) << 16
+                | (int) ((g + n / 2) / n) << 8 | (int) ((b + n / 2) / n);
+        return PixelKernels.unpremultiply(avg);
+    }
+
+    private static BufferedImage copy(BufferedImage src) {
+        BufferedImage out = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        out.setData(src.getData());
+        return out;
+    }
+
+    private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    private void drag(int x1, int y1, int x2, int y2) {
+        area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, x1, y1));
+        area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, x2, y2));
+        area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, x2, y2));
+    }
+
+    private MouseEvent mouse(int id, int x, int y) {
+        int mods = id == MouseEvent.MOUSE_DRAGGED ? MouseEvent.BUTTON1_DOWN_MASK : 0;
+        return new MouseEvent(area, id, System.currentTimeMillis(), mods, x, y, 1, false, MouseEvent.BUTTON1);
+    }
+}
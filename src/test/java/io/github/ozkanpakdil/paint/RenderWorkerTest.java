@@ -0,0 +1,86 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderWorkerTest {
+
+    @Test
+    void smallJobsRunInlineOnTheCallingThread() throws Exception {
+        List<String> log = new CopyOnWriteArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            RenderWorker worker = new RenderWorker(() -> log.add("busy"));
+            worker.run("small", 10, () -> Thread.currentThread().getName(), log::add, _ -> log.add("error"));
+            assertFalse(worker.isBusy());
+        });
+        assertEquals(1, log.size());
+        assertNotEquals("paint-render", log.getFirst());
+    }
+
+    @Test
+    void largeJobsRunOffTheEdtAndReplayDeferredActionsInOrder() throws Exception {
+        List<String> log = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        RenderWorker[] holder = new RenderWorker[1];
+        SwingUtilities.invokeAndWait(() -> {
+            RenderWorker worker = new RenderWorker(() -> log.add(holder[0].isBusy() ? "busy" : "idle"));
+            holder[0] = worker;
+            worker.run("large", RenderWorker.ASYNC_THRESHOLD, () -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Thread.currentThread().getName();
+            }, log::add, _ -> log.add("error"));
+            assertTrue(worker.isBusy());
+            // Input arriving while the job runs is queued, not executed
+            worker.defer(() -> log.add("first"));
+            worker.defer(() -> log.add("second"));
+            worker.run("next", 1, () -> "third", log::add, _ -> log.add("error"));
+            worker.defer(done::countDown);
+        });
+        assertEquals(List.of("busy"), log);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("busy", "paint-render", "idle", "first", "second", "third"), log);
+    }
+
+    @Test
+    void failuresAreReportedOnTheEdtAndReleaseTheWorker() throws Exception {
+        List<String> log = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        SwingUtilities.invokeAndWait(() -> {
+            RenderWorker worker = new RenderWorker(() -> {
+            });
+            worker.<String>run("boom", RenderWorker.ASYNC_THRESHOLD, () -> {
+                throw new IllegalStateException("boom");
+            }, log::add, t -> log.add((SwingUtilities.isEventDispatchThread() ? "edt:" : "bg:") + t.getMessage()));
+            worker.defer(done::countDown);
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("edt:boom"), log);
+    }
+
+    @Test
+    void failuresOfSmallJobsAreReportedToo() throws Exception {
+        List<String> log = new CopyOnWriteArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            RenderWorker worker = new RenderWorker(() -> {
+            });
+            worker.<String>run("small boom", 10, () -> {
+                throw new OutOfMemoryError("small boom");
+            }, log::add, t -> log.add((SwingUtilities.isEventDispatchThread() ? "edt:" : "bg:") + t.getMessage()));
+            assertFalse(worker.isBusy());
+        });
+        assertEquals(List.of("edt:small boom"), log);
+    }
+}
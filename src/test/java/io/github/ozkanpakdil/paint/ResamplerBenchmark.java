@@ -0,0 +1,40 @@
+package io.github.ozkanpakdil.paint;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image > Scale on a 50-megapixel image down to 25%: {@code mvn -Pbench -DskipTests verify
+ * -Djmh.args=Resampler}. Reports milliseconds per scale; the passes use every core.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ResamplerBenchmark {
+    private static final int W = 8192;
+    private static final int H = 6144;
+
+    @Param({"BILINEAR", "BICUBIC", "LANCZOS3"})
+    public Resampler.Kernel kernel;
+
+    private BufferedImage source;
+
+    @Setup
+    public void setUp() {
+        source = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        int[] px = LayerCompositor.pixels(source);
+        Random rnd = new Random(42);
+        for (int i = 0; i < px.length; i++) px[i] = 0xFF000000 | rnd.nextInt(0x1000000);
+    }
+
+    @Benchmark
+    public BufferedImage quarter() {
+        return Resampler.scale(source, W / 4, H / 4, kernel);
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResamplerTest {
+
+    @Test
+    void weightTablesAreNormalisedAndStayInside() {
+        int[][] sizes = {{100, 25}, {100, 300}, {7, 3}, {3, 7}, {640, 639}, {1, 5}};
+        for (Resampler.Kernel k : Resampler.Kernel.values()) {
+            for (int[] s : sizes) {
+                Resampler.Weights w = Resampler.Weights.of(s[0], s[1], k);
+                for (int i = 0; i < s[1]; i++) {
+                    int sum = 0;
+                    for (int t = 0; t < w.taps(); t++) sum += w.weights()[i * w.taps() + t];
+                    assertEquals(65536, sum, k + " " + Arrays.toString(s) + " at " + i);
+                    assertTrue(w.first()[i] >= 0 && w.first()[i] + w.taps() <= s[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void flatImagesStayFlat() {
+        BufferedImage src = filled(37, 23, 0xFF3366CC);
+        for (Resampler.Kernel k : Resampler.Kernel.values()) {
+            for (int[] size : new int[][]{{9, 6}, {111, 70}, {37, 50}}) {
+                BufferedImage out = Resampler.scale(src, size[0], size[1], k);
+                assertEquals(size[0], out.getWidth());
+                assertEquals(size[1], out.getHeight());
+                for (int y = 0; y < size[1]; y++) {
+                    for (int x = 0; x < size[0]; x++) assertEquals(0xFF3366CC, out.getRGB(x, y), k + " " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void halvingACheckerboardGivesGrey() {
+        BufferedImage src = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) src.setRGB(x, y, (x + y) % 2 == 0 ? 0xFF000000 : 0xFFFFFFFF);
+        }
+        for (Resampler.Kernel k : Resampler.Kernel.values()) {
+            BufferedImage out = Resampler.scale(src, 16, 16, k);
+            int grey = out.getRGB(8, 8) & 0xFF;
+            assertEquals(128, grey, 2, k.toString());
+        }
+    }
+
+    @Test
+    void transparentSurroundingsDoNotDarkenEdges() {
+        BufferedImage src = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = src.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(10, 10, 20, 20);
+        g.dispose();
+        for (Resampler.Kernel k : Resampler.Kernel.values()) {
+            BufferedImage out = Resampler.scale(src, 17, 17, k);
+            for (int y = 0; y < 17; y++) {
+                for (int x = 0; x < 17; x++) {
+                    int p = out.getRGB(x, y);
+                    if (p >>> 24 < 8) continue;
+                    assertTrue((p >> 16 & 0xFF) >= 240 && (p & 0xFFFF) < 0x1010, k + " " + Integer.toHexString(p));
+                }
+            }
+        }
+    }
+
+    @Test
+    void sharpKernelsClampOvershoot() {
+        // A hard black/white edge makes Lanczos ring; the result must still be valid pixels
+        BufferedImage src = new BufferedImage(20, 4, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 20; x++) src.setRGB(x, y, x < 10 ? 0xFF000000 : 0xFFFFFFFF);
+        }
+        BufferedImage out = Resampler.scale(src, 73, 4, Resampler.Kernel.LANCZOS3);
+        for (int x = 0; x < 73; x++) {
+            int p = out.getRGB(x, 1);
+            assertEquals(0xFF, p >>> 24);
+            int r = p >> 16 & 0xFF;
+            assertEquals(r, p >> 8 & 0xFF);
+            assertEquals(r, p & 0xFF);
+        }
+        assertEquals(0xFF000000, out.getRGB(0, 0));
+        assertEquals(0xFFFFFFFF, out.getRGB(72, 0));
+    }
+
+    @Test
+    void scaleImageResamplesEveryLayerAndUndoes() {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(80, 60);
+        Graphics2D g = DrawArea.cache.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, 40, 60);
+        g.dispose();
+        DrawArea.highlightLayer.setRGB(79, 59, 0xFFFFFF00);
+
+        area.scaleImage(40, 30, Resampler.Kernel.BILINEAR);
+        assertEquals(40, DrawArea.cache.getWidth());
+        assertEquals(30, DrawArea.cache.getHeight());
+        assertEquals(40, DrawArea.highlightLayer.getWidth());
+        assertEquals(0xFF000000, DrawArea.cache.getRGB(5, 15));
+        assertEquals(0xFFFFFFFF, DrawArea.cache.getRGB(35, 15));
+        assertNotEquals(0, DrawArea.highlightLayer.getRGB(39, 29) >>> 24);
+
+        area.undo();
+        assertEquals(80, DrawArea.cache.getWidth());
+        assertEquals(80, DrawArea.highlightLayer.getWidth());
+        assertEquals(0xFFFFFF00, DrawArea.highlightLayer.getRGB(79, 59));
+    }
+
+    @Test
+    void scalingBeyondWhatFitsIsRefusedBeforeItStarts() {
+        assertTrue(DrawArea.tooLarge(65536, 65536, 1, Long.MAX_VALUE));
+        assertTrue(DrawArea.tooLarge(20000, 20000, 2, 2L << 30));
+        assertFalse(DrawArea.tooLarge(20000, 20000, 2, 4L << 30));
+
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        DrawArea area = new DrawArea();
+        area.resizeCanvas(80, 60);
+        area.scaleImage(65536, 65536, Resampler.Kernel.BILINEAR);
+
+        assertEquals(80, DrawArea.cache.getWidth());
+        assertEquals(60, DrawArea.cache.getHeight());
+    }
+
+    private static BufferedImage filled(int w, int h, int argb) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Arrays.fill(LayerCompositor.pixels(img), argb);
+        return img;
+    }
+}
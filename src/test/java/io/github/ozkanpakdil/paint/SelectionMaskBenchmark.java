@@ -0,0 +1,64 @@
+package io.github.ozkanpakdil.paint;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a 5000-point freehand lasso on a 4000 x 3000 canvas into a selection: the scanline
+ * rasterizer into a bit mask versus {@link Area} geometry painted into a byte mask, and a
+ * word-parallel union of two masks: {@code mvn -Pbench -DskipTests verify -Djmh.args=SelectionMask}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class SelectionMaskBenchmark {
+    private static final int W = 4000;
+    private static final int H = 3000;
+
+    private Polygon lasso;
+    private SelectionMask a;
+    private SelectionMask b;
+
+    @Setup
+    public void setUp() {
+        // A wobbly loop around the canvas centre, like a hand-drawn lasso
+        lasso = new Polygon();
+        for (int i = 0; i < 5000; i++) {
+            double t = 2 * Math.PI * i / 5000;
+            double r = 1200 + 150 * Math.sin(37 * t) + 60 * Math.sin(211 * t);
+            lasso.addPoint((int) (W / 2 + r * Math.cos(t)), (int) (H / 2 + r * 0.8 * Math.sin(t)));
+        }
+        a = SelectionMask.ofPolygon(lasso, W, H);
+        b = SelectionMask.of(new Rectangle(1000, 500, 2500, 2000), W, H);
+    }
+
+    @Benchmark
+    public SelectionMask scanline() {
+        return SelectionMask.ofPolygon(lasso, W, H);
+    }
+
+    @Benchmark
+    public BufferedImage area() {
+        BufferedImage mask = new BufferedImage(W, H, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = mask.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fill(new Area(lasso));
+        } finally {
+            g.dispose();
+        }
+        return mask;
+    }
+
+    @Benchmark
+    public SelectionMask union() {
+        return a.union(b);
+    }
+}
@@ -0,0 +1,274 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelectionMaskTest {
+    private DrawArea area;
+    private SideMenu menu;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        area = new DrawArea();
+        area.resizeCanvas(100, 60);
+        SideMenu.setForeColor(Color.BLACK);
+        menu = new SideMenu();
+        menu.selectTool(Tool.MAGIC_WAND);
+    }
+
+    @Test
+    void wordOpsMatchPixelByPixelLogic() {
+        // 130 columns: two full words and a partial one per row
+        int w = 130, h = 9;
+        boolean[] a = new boolean[w * h], b = new boolean[w * h];
+        SelectionMask ma = random(new Random(1), w, h, a);
+        SelectionMask mb = random(new Random(2), w, h, b);
+        SelectionMask union = ma.union(mb), both = ma.intersect(mb), diff = ma.subtract(mb);
+        long count = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = y * w + x;
+                assertEquals(a[i], ma.contains(x, y));
+                assertEquals(a[i] || b[i], union.contains(x, y), "union " + x + "," + y);
+                assertEquals(a[i] && b[i], both.contains(x, y), "intersect " + x + "," + y);
+                assertEquals(a[i] && !b[i], diff.contains(x, y), "subtract " + x + "," + y);
+                if (a[i]) count++;
+            }
+        }
+        assertEquals(count, ma.count());
+    }
+
+    @Test
+    void runsAndBoundsCoverExactlyTheSelectedPixels() {
+        SelectionMask m = new SelectionMask(200, 4);
+        m.add(1, 3, 70);
+        m.add(1, 64, 128);
+        m.add(2, 190, 200);
+        assertEquals(new Rectangle(3, 1, 197, 2), m.bounds());
+        StringBuilder runs = new StringBuilder();
+        m.forEachRun(new Rectangle(0, 0, 200, 4), true, (y, x0, x1) -> runs.append(y).append(':').append(x0).append('-').append(x1).append(' '));
+        assertEquals("1:3-128 2:190-200 ", runs.toString());
+        StringBuilder gaps = new StringBuilder();
+        m.forEachRun(new Rectangle(0, 1, 200, 1), false, (y, x0, x1) -> gaps.append(x0).append('-').append(x1).append(' '));
+        assertEquals("0-3 128-200 ", gaps.toString());
+        assertNull(new SelectionMask(10, 10).bounds());
+        assertEquals(new Rectangle(5, 5, 5, 5), SelectionMask.of(new Rectangle(5, 5, 20, 20), 10, 10).bounds());
+    }
+
+    @Test
+    void wandSelectsTheConnectedRegionOfOneColour() {
+        // Two black squares; only the clicked one is selected
+        paint(10, 10, 20, 20, Color.BLACK);
+        paint(50, 10, 10, 10, Color.BLACK);
+        click(15, 15, 0);
+        SelectionMask m = area.getSelectionMask();
+        assertNotNull(m);
+        assertEquals(new Rectangle(10, 10, 20, 20), m.bounds());
+        assertEquals(400, m.count());
+        assertFalse(m.contains(55, 15));
+
+        // Shift adds the second square, Alt takes the first away again
+        click(55, 15, InputEvent.SHIFT_DOWN_MASK);
+        assertEquals(500, area.getSelectionMask().count());
+        click(15, 15, InputEvent.ALT_DOWN_MASK);
+        assertEquals(new Rectangle(50, 10, 10, 10), area.getSelectionMask().bounds());
+        // A plain click on the other square replaces the selection
+        click(15, 15, 0);
+        assertEquals(new Rectangle(10, 10, 20, 20), area.getSelectionMask().bounds());
+    }
+
+    @Test
+    void fillAndDeleteOnlyTouchTheMaskAndUndo() {
+        // A black ring: the wand picks the ring, not the white hole or the paper around it
+        paint(10, 10, 30, 30, Color.BLACK);
+        paint(20, 20, 10, 10, Color.WHITE);
+        click(12, 12, 0);
+        SideMenu.setForeColor(Color.RED);
+        area.fillSelection();
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(12, 12));
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(25, 25), "the hole is outside the mask");
+        area.deleteSelection();
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(12, 12));
+        area.undo();
+        assertEquals(Color.RED.getRGB(), DrawArea.cache.getRGB(12, 12));
+        area.undo();
+        assertEquals(Color.BLACK.getRGB(), DrawArea.cache.getRGB(12, 12));
+    }
+
+    @Test
+    void cropKeepsTheBoundsAndClearsOutsideTheMask() {
+        paint(10, 10, 30, 30, Color.BLACK);
+        paint(20, 20, 10, 10, Color.BLUE);
+        click(12, 12, 0);
+        area.cropToSelection();
+        assertEquals(30, DrawArea.cache.getWidth());
+        assertEquals(30, DrawArea.cache.getHeight());
+        assertEquals(Color.BLACK.getRGB(), DrawArea.cache.getRGB(0, 0));
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(15, 15), "the blue hole is cleared to paper");
+        assertNull(area.getSelectionMask());
+        area.undo();
+        assertEquals(Color.BLUE.getRGB(), DrawArea.cache.getRGB(25, 25));
+    }
+
+    @Test
+    void moveToolLiftsOnlyTheMaskedPixels() {
+        paint(10, 10, 20, 20, Color.BLACK);
+        paint(15, 15, 10, 10, Color.GREEN);
+        click(12, 12, 0);
+        menu.selectTool(Tool.MOVE);
+        // Drag the ring 40 px right and drop it with a double-click
+        area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, 12, 12, 0));
+        area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, 52, 12, MouseEvent.BUTTON1_DOWN_MASK));
+        area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, 52, 12, 0));
+        area.mouseClicked(new MouseEvent(area, MouseEvent.MOUSE_CLICKED, System.currentTimeMillis(), 0, 52, 12, 2, false, MouseEvent.BUTTON1));
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(12, 12), "the ring was cut");
+        assertEquals(Color.GREEN.getRGB(), DrawArea.cache.getRGB(20, 20), "the unselected middle stays");
+        assertEquals(Color.BLACK.getRGB(), DrawArea.cache.getRGB(52, 12));
+        assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(60, 20), "the lifted image is transparent where the mask was not");
+    }
+
+    @Test
+    void outlineIsOneSegmentPerStraightEdge() {
+        // An L shape across a word boundary: six edges, perimeter 2 * (70 + 20)
+        SelectionMask m = new SelectionMask(130, 30);
+        for (int y = 5; y < 25; y++) m.add(y, 60, y < 15 ? 130 : 80);
+        int segments = 0;
+        double length = 0;
+        double[] c = new double[6];
+        double lx = 0, ly = 0;
+        for (PathIterator it = m.outline().getPathIterator(null); !it.isDone(); it.next()) {
+            if (it.currentSegment(c) == PathIterator.SEG_LINETO) {
+                segments++;
+                length += Math.abs(c[0] - lx) + Math.abs(c[1] - ly);
+            }
+            lx = c[0];
+            ly = c[1];
+        }
+        assertEquals(6, segments);
+        assertEquals(180, length);
+    }
+
+    @Test
+    void polygonRasterMatchesEvenOddContainment() {
+        Random rnd = new Random(3);
+        for (int t = 0; t < 20; t++) {
+            // Self-intersecting paths exercise the even-odd rule
+            Polygon p = new Polygon();
+            for (int i = 3 + rnd.nextInt(40); i > 0; i--) p.addPoint(rnd.nextInt(90) - 10, rnd.nextInt(70) - 10);
+            SelectionMask m = SelectionMask.ofPolygon(p, 80, 50);
+            Path2D.Float path = new Path2D.Float(Path2D.WIND_EVEN_ODD);
+            path.moveTo(p.xpoints[0], p.ypoints[0]);
+            for (int i = 1; i < p.npoints; i++) path.lineTo(p.xpoints[i], p.ypoints[i]);
+            path.closePath();
+            for (int y = 0; y < 50; y++) {
+                for (int x = 0; x < 80; x++) {
+                    // Centres lying exactly on an edge may go either way
+                    if (onEdge(p, x + 0.5, y + 0.5)) continue;
+                    assertEquals(path.contains(x + 0.5, y + 0.5), m.contains(x, y), "polygon " + t + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void lassoDragSelectsTheEnclosedPixels() {
+        menu.selectTool(Tool.MOVE);
+        menu.setSelectMode(SelectMode.LASSO);
+        try {
+            // A right triangle traced with many small steps
+            area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, 10, 10, 0));
+            for (int y = 11; y <= 50; y++) area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, 10, y, MouseEvent.BUTTON1_DOWN_MASK));
+            for (int x = 11; x <= 50; x++) area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, x, 50, MouseEvent.BUTTON1_DOWN_MASK));
+            area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, 50, 50, 0));
+            SelectionMask m = area.getSelectionMask();
+            assertNotNull(m);
+            // Pixels count when their centre is inside: x + 0.5 < y + 0.5 <= 50
+            assertEquals(new Rectangle(10, 11, 39, 39), m.bounds());
+            assertTrue(m.contains(12, 45));
+            assertFalse(m.contains(45, 12), "above the hypotenuse");
+            // Delete clears only the triangle
+            paint(0, 0, 100, 60, Color.BLACK);
+            area.deleteSelection();
+            assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(12, 45));
+            assertEquals(Color.BLACK.getRGB(), DrawArea.cache.getRGB(45, 12));
+        } finally {
+            menu.setSelectMode(SelectMode.RECTANGLE);
+        }
+    }
+
+    @Test
+    void polygonClicksCloseOnDoubleClickAndCrop() {
+        menu.selectTool(Tool.MOVE);
+        menu.setSelectMode(SelectMode.POLYGON);
+        try {
+            paint(0, 0, 100, 60, Color.BLACK);
+            // A diamond; the double-click on the last corner closes it
+            click(30, 5, 0);
+            click(55, 30, 0);
+            click(30, 55, 0);
+            click(5, 30, 0);
+            assertNull(area.getSelectionMask(), "still drawing");
+            area.mousePressed(new MouseEvent(area, MouseEvent.MOUSE_PRESSED, System.currentTimeMillis(), 0, 5, 30, 2, false, MouseEvent.BUTTON1));
+            area.mouseReleased(new MouseEvent(area, MouseEvent.MOUSE_RELEASED, System.currentTimeMillis(), 0, 5, 30, 2, false, MouseEvent.BUTTON1));
+            SelectionMask m = area.getSelectionMask();
+            assertNotNull(m);
+            // Centres on the right-hand edges fall outside
+            assertEquals(new Rectangle(5, 5, 49, 50), m.bounds());
+            area.cropToSelection();
+            assertEquals(49, DrawArea.cache.getWidth());
+            assertEquals(Color.BLACK.getRGB(), DrawArea.cache.getRGB(25, 25));
+            assertEquals(Color.WHITE.getRGB(), DrawArea.cache.getRGB(2, 2), "corners outside the diamond are cleared");
+        } finally {
+            menu.setSelectMode(SelectMode.RECTANGLE);
+        }
+    }
+
+    private static boolean onEdge(Polygon p, double x, double y) {
+        for (int i = 0; i < p.npoints; i++) {
+            int j = (i + 1) % p.npoints;
+            if (Line2D.ptSegDistSq(p.xpoints[i], p.ypoints[i], p.xpoints[j], p.ypoints[j], x, y) < 1e-9) return true;
+        }
+        return false;
+    }
+
+    private static SelectionMask random(Random rnd, int w, int h, boolean[] truth) {
+        SelectionMask m = new SelectionMask(w, h);
+        for (int y = 0; y < h; y++) {
+            for (int t = 0; t < 6; t++) {
+                int x0 = rnd.nextInt(w), x1 = x0 + rnd.nextInt(w - x0 + 1);
+                m.add(y, x0, x1);
+                for (int x = x0; x < x1; x++) truth[y * w + x] = true;
+            }
+        }
+        return m;
+    }
+
+    private static void paint(int x, int y, int w, int h, Color c) {
+        BufferedImage img = DrawArea.cache;
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) img.setRGB(i, j, c.getRGB());
+        }
+    }
+
+    private void click(int x, int y, int mods) {
+        area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, x, y, mods));
+        area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, x, y, mods));
+    }
+
+    private MouseEvent mouse(int id, int x, int y, int mods) {
+        return new MouseEvent(area, id, System.currentTimeMillis(), mods, x, y, 1, false, MouseEvent.BUTTON1);
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class StartupReportTest {
+
+    @Test
+    void collectReportsRuntimeAndMemoryOnLinux() {
+        Map<String, String> report = StartupReport.collect();
+        assertTrue(report.get("runtime").startsWith("jvm"), "tests run on the JVM");
+
+        assumeTrue(Files.isReadable(Path.of("/proc/self/status")), "procfs not available");
+        long rss = Long.parseLong(report.get("rssKb"));
+        long peak = Long.parseLong(report.get("peakRssKb"));
+        assertTrue(rss > 0);
+        assertTrue(peak >= rss, "peak RSS should not be below current RSS");
+        assertTrue(Long.parseLong(report.get("timeToFirstFrameMs")) >= 0);
+    }
+
+    @Test
+    void toolIconTableCoversEveryTool() {
+        // Tool carries its icon name so the table can be initialized at native-image build time;
+        // MOVE has no bundled image and DrawArea draws its cursor instead
+        for (Tool t : Tool.values()) {
+            assertNotNull(t.icon(), t + " has no icon");
+            if (t != Tool.MOVE) assertNotNull(IconAtlas.icon(t.icon(), 32, 32), t + " icon missing from resources");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViewportPaintTest {
+    private DrawArea area;
+
+    @BeforeEach
+    void setUp() {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        area = new DrawArea();
+        area.resizeCanvas(301, 203);
+        Random rnd = new Random(3);
+        for (int y = 0; y < 203; y++) {
+            for (int x = 0; x < 301; x++) {
+                DrawArea.cache.setRGB(x, y, 0xFF000000 | rnd.nextInt(0xFFFFFF));
+                if (x % 7 == 0) DrawArea.highlightLayer.setRGB(x, y, 0x80FFFF00);
+            }
+        }
+    }
+
+    @Test
+    void clippedPaintMatchesFullPaintAtActualSize() {
+        assertClippedPaintMatchesFullPaint(1.0, 0);
+    }
+
+    @Test
+    void clippedPaintMatchesFullPaintZoomedIn() {
+        assertClippedPaintMatchesFullPaint(3.0, 0);
+    }
+
+    @Test
+    void clippedPaintMatchesFullPaintZoomedOut() {
+        // Bilinear sampling of a sub-rectangle may round differently by a step or so
+        assertClippedPaintMatchesFullPaint(0.3, 6);
+        assertClippedPaintMatchesFullPaint(0.75, 6);
+    }
+
+    private void assertClippedPaintMatchesFullPaint(double zoom, int tolerance) {
+        area.setZoom(zoom);
+        Dimension size = area.getPreferredSize();
+        area.setSize(size);
+        BufferedImage full = paint(size, null);
+        // A strip like the one exposed by scrolling, plus an odd interior rectangle
+        for (Rectangle clip : new Rectangle[]{
+                new Rectangle(0, size.height - 17, size.width, 17),
+                new Rectangle(size.width / 3, size.height / 4, size.width / 5 + 1, size.height / 3 + 1)}) {
+            BufferedImage part = paint(size, clip);
+            for (int y = clip.y; y < clip.y + clip.height - 1; y++) {
+                for (int x = clip.x; x < clip.x + clip.width - 1; x++) {
+                    // The border is drawn last on top of both
+                    if (x == 0 || y == 0 || x >= size.width - 2 || y >= size.height - 2) continue;
+                    int a = full.getRGB(x, y);
+                    int b = part.getRGB(x, y);
+                    for (int shift = 0; shift <= 16; shift += 8) {
+                        int d = Math.abs((a >> shift & 0xFF) - (b >> shift & 0xFF));
+                        assertTrue(d <= tolerance, "zoom " + zoom + " pixel " + x + "," + y
+                                + ": " + Integer.toHexString(a) + " vs " + Integer.toHexString(b));
+                    }
+                }
+            }
+        }
+    }
+
+    private BufferedImage paint(Dimension size, Rectangle clip) {
+        BufferedImage out = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            if (clip != null) g.setClip(clip);
+            area.paintComponent(g);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+}
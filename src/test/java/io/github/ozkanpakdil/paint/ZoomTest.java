@@ -0,0 +1,109 @@
+package io.github.ozkanpakdil.paint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZoomTest {
+    private DrawArea area;
+
+    @BeforeEach
+    void setUp() {
+        DrawArea.cache = null;
+        DrawArea.highlightLayer = null;
+        area = new DrawArea();
+        area.resizeCanvas(100, 50);
+    }
+
+    @Test
+    void zoomScalesThePreferredSizeAndIsClamped() {
+        area.setZoom(4);
+        assertEquals(new Dimension(400, 200), area.getPreferredSize());
+        // The canvas itself is unchanged
+        assertEquals(100, area.getCanvasWidth());
+
+        area.setZoom(1000);
+        assertEquals(DrawArea.MAX_ZOOM, area.getZoom());
+        area.setZoom(0.001);
+        assertEquals(DrawArea.MIN_ZOOM, area.getZoom());
+        assertEquals(new Dimension(10, 5), area.getPreferredSize());
+    }
+
+    @Test
+    void zoomInAndOutWalkTheSteps() {
+        area.zoomIn();
+        assertEquals(1.5, area.getZoom());
+        area.zoomOut();
+        area.zoomOut();
+        assertEquals(0.667, area.getZoom());
+    }
+
+    @Test
+    void viewCoordinatesMapToCanvasPixels() {
+        area.setZoom(8);
+        assertEquals(new Point(1, 2), area.viewToCanvas(new Point(15, 16)));
+        assertEquals(new Rectangle(1, 0, 2, 2), area.viewToCanvas(new Rectangle(8, 1, 9, 10)));
+        area.setZoom(0.5);
+        assertEquals(new Point(30, 14), area.viewToCanvas(new Point(15, 7)));
+    }
+
+    @Test
+    void toolsDrawAtTheCanvasPixelUnderTheMouse() throws Exception {
+        new SideMenu().selectTool(Tool.PENCIL);
+        area.setZoom(4);
+        // View (160, 80) is canvas (40, 20)
+        area.mousePressed(mouse(MouseEvent.MOUSE_PRESSED, 160, 80));
+        area.mouseDragged(mouse(MouseEvent.MOUSE_DRAGGED, 161, 81));
+        area.mouseReleased(mouse(MouseEvent.MOUSE_RELEASED, 161, 81));
+        assertNotEquals(Color.WHITE.getRGB(), area.getPixelRGB(40, 20));
+        assertEquals(Color.WHITE.getRGB(), area.getPixelRGB(80, 40));
+    }
+
+    @Test
+    void zoomedInPaintingUsesNearestNeighbour() {
+        DrawArea.cache.setRGB(3, 2, Color.RED.getRGB());
+        area.setZoom(8);
+        area.setSize(area.getPreferredSize());
+        BufferedImage out = new BufferedImage(800, 400, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            area.paintComponent(g);
+        } finally {
+            g.dispose();
+        }
+        // Every view pixel of the 8x8 block is the source colour, with no blending at the edges
+        assertEquals(Color.RED.getRGB(), out.getRGB(24, 16));
+        assertEquals(Color.RED.getRGB(), out.getRGB(31, 23));
+        assertEquals(Color.WHITE.getRGB(), out.getRGB(32, 23));
+    }
+
+    @Test
+    void zoomedOutPaintingSamplesThePyramid() {
+        // Checkerboard averages to mid grey at any reduction
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 100; x++) {
+                DrawArea.cache.setRGB(x, y, (x + y) % 2 == 0 ? 0xFF000000 : 0xFFFFFFFF);
+            }
+        }
+        area.setZoom(0.25);
+        area.setSize(area.getPreferredSize());
+        BufferedImage out = new BufferedImage(25, 13, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            area.paintComponent(g);
+        } finally {
+            g.dispose();
+        }
+        int grey = out.getRGB(10, 6) & 0xFF;
+        assertTrue(grey > 110 && grey < 145, "expected mid grey, got " + grey);
+    }
+
+    private MouseEvent mouse(int id, int x, int y) {
+        return new MouseEvent(area, id, System.currentTimeMillis(), MouseEvent.BUTTON1_DOWN_MASK, x, y, 1, false, MouseEvent.BUTTON1);
+    }
+}